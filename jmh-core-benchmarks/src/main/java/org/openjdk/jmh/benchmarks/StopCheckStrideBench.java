@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the regular measurement loop, which checks the stop flag every invocation,
+ * with the loop that checks it once per calibrated stride. The strided scores for
+ * the value-returning methods should be lower than the regular ones, but never collapse
+ * to zero: that would mean the compiler had merged the invocations together. Void methods
+ * stay on the regular loop, and their scores should match with and without the stride.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class StopCheckStrideBench {
+
+    private int x;
+
+    @Benchmark
+    public void empty() {
+
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djmh.stopCheckOvershoot=10us")
+    public void empty_strided() {
+
+    }
+
+    @Benchmark
+    public void increment() {
+        x++;
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djmh.stopCheckOvershoot=10us")
+    public void increment_strided() {
+        x++;
+    }
+
+    @Benchmark
+    public int incrementValue() {
+        return x++;
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djmh.stopCheckOvershoot=10us")
+    public int incrementValue_strided() {
+        return x++;
+    }
+
+}
@@ -195,20 +195,20 @@ public class Main {
                     new BlackholeSingleTest().runWith(pw, opts);
                     break;
                 case blackhole_pipelined:
-                    setBlackholeInline(false);
+                    setBlackholeMode("FULL_DONTINLINE");
                     new BlackholePipelinedTest(false, false).runWith(pw, opts);
                     new BlackholePipelinedTest(true, false).runWith(pw, opts);
-                    setBlackholeInline(true);
+                    setBlackholeMode("FULL");
                     new BlackholePipelinedTest(false, true).runWith(pw, opts);
                     new BlackholePipelinedTest(true, true).runWith(pw, opts);
-                    setBlackholeInline(false);
+                    setBlackholeMode(null);
                     break;
                 case blackhole_consec:
-                    setBlackholeInline(false);
+                    setBlackholeMode("FULL_DONTINLINE");
                     new BlackholeConsecutiveTest(false).runWith(pw, opts);
-                    setBlackholeInline(true);
+                    setBlackholeMode("FULL");
                     new BlackholeConsecutiveTest(true).runWith(pw, opts);
-                    setBlackholeInline(false);
+                    setBlackholeMode(null);
                     break;
                 default:
                     throw new IllegalStateException();
@@ -236,8 +236,12 @@ public class Main {
         longer,
     }
 
-    private static void setBlackholeInline(boolean inline) {
-        System.getProperties().setProperty("jmh.blackhole.forceInline", String.valueOf(inline));
+    private static void setBlackholeMode(String mode) {
+        if (mode != null) {
+            System.getProperties().setProperty("jmh.blackhole.mode", mode);
+        } else {
+            System.getProperties().remove("jmh.blackhole.mode");
+        }
 
         try {
             Field f = CompilerHints.class.getDeclaredField("hintsFile");
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.ct.other;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.MaxInFlight;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.ct.CompileTest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+@BenchmarkMode(Mode.All)
+public class AsyncTest {
+
+    @Benchmark
+    public CompletableFuture<Integer> test1() {
+        return CompletableFuture.completedFuture(1);
+    }
+
+    @Benchmark
+    @MaxInFlight(10)
+    public CompletionStage<Integer> test2() {
+        return CompletableFuture.completedFuture(1);
+    }
+
+    @Benchmark
+    @MaxInFlight(10)
+    public Future<Integer> test3() {
+        return CompletableFuture.completedFuture(1);
+    }
+
+    @Benchmark
+    public MyTask test4() {
+        MyTask t = new MyTask();
+        t.run();
+        return t;
+    }
+
+    public static class MyTask extends FutureTask<Integer> {
+        public MyTask() {
+            super(new Runnable() {
+                @Override
+                public void run() {
+                    // do nothing
+                }
+            }, 1);
+        }
+    }
+
+    @Test
+    public void compileTest() {
+        CompileTest.assertOK(this.getClass());
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.ct.states.helpers.batched;
+
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.ct.CompileTest;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+@BenchmarkMode(Mode.All)
+public class BatchedInvocationTest {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Setup(Level.Trial)
+        public void setup() {}
+    }
+
+    @State(Scope.Thread)
+    public static class S {
+        @Param("1")
+        int x;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Shared shared) {}
+
+        @Setup(Level.Iteration)
+        public void setupIteration(BenchmarkParams params) {}
+
+        @Setup(Level.BatchedInvocation)
+        public void setup(BenchmarkParams params) {}
+
+        @TearDown(Level.BatchedInvocation)
+        public void tearDown() {}
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() {}
+    }
+
+    @Benchmark
+    public int test(S s, Shared shared) {
+        return s.x;
+    }
+
+    @Benchmark
+    public void testVoid(S s) {
+
+    }
+
+    @Test
+    public void compileTest() {
+        CompileTest.assertOK(this.getClass());
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the open-loop mode accounts for every operation due in the iteration, even when
+ * the benchmark cannot keep up with the arrival rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.OpenLoop)
+public class OpenLoopOverloadTest {
+
+    private static final double RATE = 2000.0;
+
+    private static final AtomicInteger invCount = new AtomicInteger();
+    private static volatile long startTime;
+    private static volatile long stopTime;
+
+    @Setup(Level.Iteration)
+    public void beforeIter() {
+        startTime = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void afterIter() {
+        stopTime = System.nanoTime();
+    }
+
+    @Benchmark
+    @Fork(0)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1, time = 1, timeUnit = TimeUnit.SECONDS)
+    public void test() throws InterruptedException {
+        // at most 1000 ops/sec, half the arrival rate
+        TimeUnit.MILLISECONDS.sleep(1);
+        invCount.incrementAndGet();
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .arrivalRate(RATE)
+                .build();
+        RunResult run = new Runner(opt).runSingle();
+
+        double due = (stopTime - startTime) * RATE / TimeUnit.SECONDS.toNanos(1);
+        long samples = run.getPrimaryResult().getSampleCount();
+
+        Assert.assertTrue("Overloaded: " + invCount.get() + " invocations vs " + due + " due",
+                invCount.get() < due * 0.75);
+        Assert.assertTrue("All due operations are recorded: " + samples + " samples vs " + due + " due",
+                Math.abs(1 - samples / due) < 0.25);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.async;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Tests the asynchronous operations are overlapped up to the in-flight limit,
+ * and their completion latencies are reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(1)
+public class AsyncInFlightTest {
+
+    private static final int LIMIT = 4;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(LIMIT * 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        int max = maxInFlight.get();
+        if (max > LIMIT) {
+            throw new IllegalStateException("In-flight limit is exceeded: " + max);
+        }
+        if (max < 2) {
+            throw new IllegalStateException("Operations are not overlapped: " + max);
+        }
+    }
+
+    @Benchmark
+    @MaxInFlight(LIMIT)
+    public CompletableFuture<Integer> test() {
+        int now = inFlight.incrementAndGet();
+        int max;
+        while ((max = maxInFlight.get()) < now && !maxInFlight.compareAndSet(max, now)) {
+            // retry
+        }
+        return CompletableFuture.supplyAsync(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                // counted off before the operation completes, never undercounts the tracker
+                inFlight.decrementAndGet();
+                return 42;
+            }
+        }, executor);
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .build();
+
+        RunResult result = new Runner(opts).runSingle();
+        Result latency = result.getSecondaryResults().get("test\u00B7latency");
+
+        Assert.assertNotNull("Latency result exists", latency);
+        Assert.assertTrue("Latency samples are recorded", latency.getSampleCount() > 0);
+        Assert.assertTrue("Latency covers the operation: " + latency.getScore(), latency.getScore() >= 1000);
+    }
+
+}
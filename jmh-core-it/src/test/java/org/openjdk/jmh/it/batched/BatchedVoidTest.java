@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.batched;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the trivial void benchmark with {@link Level#BatchedInvocation} helpers does not
+ * score better than without the helpers, i.e. the invocations over the batch are not merged.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class BatchedVoidTest {
+
+    @State(Scope.Thread)
+    public static class Plain {
+        int x;
+    }
+
+    @State(Scope.Thread)
+    public static class Batched {
+        int x;
+
+        @Setup(Level.BatchedInvocation)
+        public void reset() {
+            x = 0;
+        }
+    }
+
+    @Benchmark
+    public void plain(Plain s) {
+        s.x++;
+    }
+
+    @Benchmark
+    public void batched(Batched s) {
+        s.x++;
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .build();
+
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult r : new Runner(opts).run()) {
+            scores.put(r.getParams().getBenchmark(), r.getPrimaryResult().getScore());
+        }
+
+        double plain = scores.get(BatchedVoidTest.class.getCanonicalName() + ".plain");
+        double batched = scores.get(BatchedVoidTest.class.getCanonicalName() + ".batched");
+        // The batched loop reaches the state through the batch, and may be somewhat slower.
+        // The merged invocations would make it several times faster instead.
+        Assert.assertTrue("Invocations are not merged: " + batched + " vs " + plain + " ns/op",
+                batched > plain / 2);
+    }
+
+}
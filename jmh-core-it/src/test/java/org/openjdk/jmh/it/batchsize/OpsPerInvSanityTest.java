@@ -46,11 +46,13 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @State(Scope.Thread)
 public class OpsPerInvSanityTest {
 
     private static final AtomicInteger invCount = new AtomicInteger();
+    private static final AtomicLong busyTime = new AtomicLong();
     private static volatile long startTime;
     private static volatile long stopTime;
 
@@ -70,8 +72,10 @@ public class OpsPerInvSanityTest {
     @Measurement(iterations = 1, time = 1, timeUnit = TimeUnit.SECONDS)
     @OutputTimeUnit(TimeUnit.NANOSECONDS)
     public void test() throws InterruptedException {
+        long start = System.nanoTime();
         TimeUnit.MILLISECONDS.sleep(1);
         invCount.incrementAndGet();
+        busyTime.addAndGet(System.nanoTime() - start);
     }
 
     @Test
@@ -86,12 +90,15 @@ public class OpsPerInvSanityTest {
 
     private void doWith(Mode mode, int opsPerInv) throws RunnerException {
         invCount.set(0);
+        busyTime.set(0);
 
         Options opt = new OptionsBuilder()
             .include(Fixtures.getTestMask(this.getClass()))
             .shouldFailOnError(true)
             .operationsPerInvocation(opsPerInv)
             .mode(mode)
+            // keep the open-loop schedule well below saturation, so that no queueing happens
+            .arrivalRate(250.0)
             .build();
         RunResult run = new Runner(opt).runSingle();
 
@@ -101,6 +108,7 @@ public class OpsPerInvSanityTest {
 
         double time = stopTime - startTime;
         double calls = invCount.get();
+        double busy = busyTime.get();
 
         switch (mode) {
             case Throughput:
@@ -108,8 +116,13 @@ public class OpsPerInvSanityTest {
                 break;
             case AverageTime:
             case SampleTime:
+            case CaptureTime:
                 expectedScore = time / (calls * opsPerInv);
                 break;
+            case OpenLoop:
+                // operations do not follow each other back-to-back, only the busy time counts
+                expectedScore = busy / (calls * opsPerInv);
+                break;
             case SingleShotTime:
                 expectedScore = time;
                 break;
@@ -83,4 +83,30 @@ public enum Level {
      * worker thread already calling {@link TearDown} for the same object.</p>
      */
     Invocation,
+
+    /**
+     * Batched invocation level: to be executed for each benchmark method execution,
+     * like {@link #Invocation}, but on the batch of {@link State} copies prepared
+     * outside of the timed region.
+     *
+     * <p>The harness keeps a number of copies of the {@link State} object for each
+     * worker thread, runs the setup for all of them, times the benchmark method
+     * invocations over the whole batch with a single timestamp pair, and then runs
+     * the teardown for all of them. Therefore, every invocation sees the freshly
+     * prepared object, and timestamping costs are amortized over the batch. This
+     * makes the workloads that need a fresh state for each invocation, like sorting
+     * or draining a queue, measurable even when invocation takes nanoseconds.</p>
+     *
+     * <p>The batch size is calibrated during warmup, so that the timed part of the
+     * batch takes about 10 microseconds. The copies are allocated once, and reused for all the
+     * batches; the batch can only grow. Each copy has its own {@link Param} values,
+     * and goes through {@link #Trial} and {@link #Iteration} helpers on its own.</p>
+     *
+     * <p>This level is only available for {@link Scope#Thread} states that are
+     * injected into {@link Benchmark} methods directly, or the benchmark class itself,
+     * and cannot be mixed with {@link #Invocation} helpers in the same benchmark.
+     * Only {@link Mode#Throughput} and {@link Mode#AverageTime} modes run the batches;
+     * other modes run these helpers like {@link #Invocation} ones, on the single copy.</p>
+     */
+    BatchedInvocation,
 }
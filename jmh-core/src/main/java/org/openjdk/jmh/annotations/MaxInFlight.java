@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>MaxInFlight annotation sets the number of asynchronous operations each worker thread
+ * keeps in flight.</p>
+ *
+ * <p>{@link Benchmark} methods returning {@link java.util.concurrent.CompletionStage} or
+ * {@link java.util.concurrent.Future} are timed until the returned operation completes. In
+ * {@link Mode#Throughput} and {@link Mode#AverageTime} modes, each worker thread issues the
+ * next operation as long as there are less than this number of its operations in flight, and
+ * waits for completions otherwise; the completion latencies are reported as the secondary
+ * result. Other modes wait for each operation to complete before issuing the next one.</p>
+ *
+ * <blockquote><pre>
+ * &#64;Benchmark
+ * &#64;MaxInFlight(16)
+ * public CompletableFuture&lt;Response&gt; request() {
+ *      return client.send(request);
+ * }
+ * </pre></blockquote>
+ *
+ * <p>This annotation may be put at {@link Benchmark} method to have effect on that method
+ * only, or at the enclosing class instance to have the effect over all {@link Benchmark}
+ * methods in the class.</p>
+ */
+@Inherited
+@Target({ElementType.METHOD,ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxInFlight {
+
+    /**
+     * @return Maximum number of operations in flight, per worker thread.
+     */
+    int value() default 1;
+
+}
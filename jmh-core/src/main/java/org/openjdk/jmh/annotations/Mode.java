@@ -80,7 +80,49 @@ public enum Mode {
     SingleShotTime("ss", "Single shot invocation time"),
 
     /**
-     * Meta-mode: all the benchmark modes.
+     * <p>Open-loop time: measures the time for each operation issued at the constant arrival rate.</p>
+     *
+     * <p>Runs by calling {@link Benchmark} methods on the fixed schedule, so that all worker threads
+     * together issue the operations at the target arrival rate (see
+     * {@link org.openjdk.jmh.runner.options.ChainedOptionsBuilder#arrivalRate(double)}). The time for
+     * each operation is measured from its intended start time, not from the actual one: when the
+     * operation stalls, the operations that should have been issued during the stall are accounted
+     * with the queueing delay they would have experienced. This avoids the coordinated omission
+     * which {@link #SampleTime} is prone to. This mode is time-based, and it will run until the
+     * iteration time expires.</p>
+     *
+     * Caveats for this mode include:
+     * <ul>
+     *  <li>If the benchmark cannot keep up with the arrival rate, the latency grows without bound
+     *  through the iteration; this is the intended behavior that shows the system is saturated.</li>
+     *  <li>Every operation is timed; timers overhead might be significant for very small benchmarks.</li>
+     * </ul>
+     */
+    OpenLoop("open", "Open-loop time at constant arrival rate"),
+
+    /**
+     * <p>Capture time: records the start time and the duration of every operation.</p>
+     *
+     * <p>Runs by continuously calling {@link Benchmark} methods, like {@link #SampleTime} does,
+     * but times every call instead of a random subset. Each worker records into the preallocated
+     * off-heap buffer, and the buffers are written to the binary file after each iteration, so
+     * that latency spikes can be lined up with GC and JIT events. The files go to the temporary
+     * directory, unless {@code -Djmh.capture.dir} is set. The score is computed from all
+     * recorded operations. This mode is time-based, and it will run until the iteration time
+     * expires.</p>
+     *
+     * Caveats for this mode include:
+     * <ul>
+     *  <li>The buffer size is bounded; the operations that do not fit the buffer are counted, but
+     *  not recorded, and the score only covers the earliest operations in the iteration. JMH warns
+     *  when that happens. This mode is best suited for the operations taking microseconds or more.</li>
+     *  <li>Timers overhead might be significant if benchmarks are small.</li>
+     * </ul>
+     */
+    CaptureTime("capture", "Full capture time, every operation"),
+
+    /**
+     * Meta-mode: all the benchmark modes, except the opt-in {@link #OpenLoop} and {@link #CaptureTime}.
      * This is mostly useful for internal JMH testing.
      */
     All("all", "All benchmark modes"),
@@ -103,6 +145,21 @@ public enum Mode {
         return longLabel;
     }
 
+    /**
+     * @return true, if this mode is run as the part of {@link #All}; the modes that need
+     *         additional configuration, or leave the files behind, should be requested explicitly
+     */
+    public boolean isIncludedInAll() {
+        switch (this) {
+            case OpenLoop:
+            case CaptureTime:
+            case All:
+                return false;
+            default:
+                return true;
+        }
+    }
+
     public static Mode deepValueOf(String name) {
         try {
             return Mode.valueOf(name);
@@ -31,7 +31,7 @@ import org.openjdk.jmh.runner.*;
 import org.openjdk.jmh.runner.Defaults;
 import org.openjdk.jmh.util.HashMultimap;
 import org.openjdk.jmh.util.Multimap;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 
 import java.io.*;
 import java.lang.reflect.Field;
@@ -79,7 +79,7 @@ public class BenchmarkGenerator {
                 if (!processedBenchmarks.add(clazz.getQualifiedName())) continue;
                 try {
                     validateBenchmark(clazz, clazzes.get(clazz));
-                    Collection<BenchmarkInfo> infos = makeBenchmarkInfo(clazz, clazzes.get(clazz));
+                    Collection<BenchmarkInfo> infos = makeBenchmarkInfo(source, clazz, clazzes.get(clazz));
                     for (BenchmarkInfo info : infos) {
                         generateClass(destination, clazz, info);
                     }
@@ -309,6 +309,12 @@ public class BenchmarkGenerator {
                 throw new GenerationException("The " + OperationsPerInvocation.class.getSimpleName() +
                         " needs to be greater than 0.", m);
             }
+
+            MaxInFlight mif = BenchmarkGeneratorUtils.getAnnSuper(m, clazz, MaxInFlight.class);
+            if (mif != null && mif.value() < 1) {
+                throw new GenerationException("The " + MaxInFlight.class.getSimpleName() +
+                        " needs to be greater than 0.", m);
+            }
         }
 
         // validate @Group-s
@@ -371,11 +377,12 @@ public class BenchmarkGenerator {
      * We will figure out method groups at this point.
      *
      *
+     * @param source  generator source
      * @param clazz   holder class
      * @param methods annotated methods
      * @return BenchmarkInfo
      */
-    private Collection<BenchmarkInfo> makeBenchmarkInfo(ClassInfo clazz, Collection<MethodInfo> methods) {
+    private Collection<BenchmarkInfo> makeBenchmarkInfo(GeneratorSource source, ClassInfo clazz, Collection<MethodInfo> methods) {
         Map<String, MethodGroup> result = new TreeMap<>();
 
         for (MethodInfo method : methods) {
@@ -400,6 +407,10 @@ public class BenchmarkGenerator {
             group.addStrictFP(clazz.isStrictFP());
             group.addStrictFP(method.isStrictFP());
             group.addMethod(method, (method.getAnnotation(GroupThreads.class) != null) ? method.getAnnotation(GroupThreads.class).value() : 1);
+            if (BenchmarkGeneratorUtils.isAsync(source, method)) {
+                MaxInFlight mif = BenchmarkGeneratorUtils.getAnnSuper(method, clazz, MaxInFlight.class);
+                group.addAsync(method, (mif != null) ? mif.value() : 1);
+            }
 
             // Discovering @Params, part 1:
             //   For each parameter, walk the type hierarchy up to discover inherited @Param fields in @State objects.
@@ -465,6 +476,8 @@ public class BenchmarkGenerator {
         writer.println(ident(1) + "ThreadParams threadParams;");
         writer.println(ident(1) + "Blackhole blackhole;");
         writer.println(ident(1) + "Control notifyControl;");
+        writer.println(ident(1) + "int stopCheckStride;");
+        writer.println(ident(1) + "int invocationBatchSize;");
 
         // write all methods
         for (Mode benchmarkKind : Mode.values()) {
@@ -502,13 +515,13 @@ public class BenchmarkGenerator {
                 InfraControl.class, ThreadParams.class,
                 BenchmarkTaskResult.class,
                 Result.class, ThroughputResult.class, AverageTimeResult.class,
-                SampleTimeResult.class, SingleShotResult.class, SampleBuffer.class,
+                SampleTimeResult.class, SingleShotResult.class, SampleHistogram.class, CaptureBuffer.class,
                 Mode.class, Fork.class, Measurement.class, Threads.class, Warmup.class,
                 BenchmarkMode.class, RawResults.class, ResultRole.class,
                 Field.class, BenchmarkParams.class, IterationParams.class,
                 Blackhole.class, Control.class,
                 ScalarResult.class, AggregationPolicy.class,
-                FailureAssistException.class
+                FailureAssistException.class, AsyncTracker.class
         };
 
         for (Class<?> c : imports) {
@@ -532,6 +545,12 @@ public class BenchmarkGenerator {
             case SampleTime:
                 generateSampleTime(writer, benchmarkKind, methodGroup, states);
                 break;
+            case OpenLoop:
+                generateOpenLoop(writer, benchmarkKind, methodGroup, states);
+                break;
+            case CaptureTime:
+                generateCaptureTime(writer, benchmarkKind, methodGroup, states);
+                break;
             case SingleShotTime:
                 generateSingleShotTime(writer, benchmarkKind, methodGroup, states);
                 break;
@@ -563,7 +582,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
             invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
+            writer.println(ident(4) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 4, method, states, false);
 
             writer.println(ident(4) + "res.allOps++;");
@@ -574,8 +593,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "notifyControl.startMeasurement = true;");
 
             // measurement loop call
-            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
-                    "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+            measurementLoopCall(writer, benchmarkKind, method, states);
 
             // control objects get a special treatment
             writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
@@ -588,7 +606,7 @@ public class BenchmarkGenerator {
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
             invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
+            writer.println(ident(5) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 5, method, states, false);
 
             writer.println(ident(5) + "res.allOps++;");
@@ -623,6 +641,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "res.measuredOps /= batchSize;");
 
             writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
+            writer.println(ident(3) + "results.setSeries(res.series);");
             if (isSingleMethod) {
                 writer.println(ident(3) + "results.add(new ThroughputResult(ResultRole.PRIMARY, \"" + method.getName() + "\", res.measuredOps, res.getTime(), benchmarkParams.getTimeUnit()));");
             } else {
@@ -632,6 +651,7 @@ public class BenchmarkGenerator {
             for (String res : states.getAuxResults(method, "ThroughputResult")) {
                 writer.println(ident(3) + "results.add(" + res + ");");
             }
+            addAsyncLatency(writer, methodGroup, method);
 
             methodEpilog(writer);
 
@@ -653,20 +673,26 @@ public class BenchmarkGenerator {
                     getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
             writer.println(ident(2) + "long operations = 0;");
             writer.println(ident(2) + "long realTime = 0;");
+            asyncStubProlog(writer, methodGroup, method);
             writer.println(ident(2) + "result.startTime = System.nanoTime();");
             writer.println(ident(2) + "do {");
 
             invocationProlog(writer, 3, method, states, true);
-            writer.println(ident(3) + emitCall(method, states) + ';');
+            writer.println(ident(3) + emitPipelinedCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 3, method, states, true);
 
             writer.println(ident(3) + "operations++;");
             writer.println(ident(2) + "} while(!control.isDone);");
+            asyncStubEpilog(writer, methodGroup, method);
             writer.println(ident(2) + "result.stopTime = System.nanoTime();");
             writer.println(ident(2) + "result.realTime = realTime;");
             writer.println(ident(2) + "result.measuredOps = operations;");
             writer.println(ident(1) + "}");
             writer.println();
+
+            generateSeriesStub(writer, benchmarkKind, methodGroup, method, states);
+            generateStridedStub(writer, benchmarkKind, methodGroup, method, states);
+            generateBatchedStub(writer, benchmarkKind, methodGroup, method, states);
         }
     }
 
@@ -699,7 +725,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
             invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
+            writer.println(ident(4) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 4, method, states, false);
 
             writer.println(ident(4) + "res.allOps++;");
@@ -710,7 +736,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "notifyControl.startMeasurement = true;");
 
             // measurement loop call
-            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+            measurementLoopCall(writer, benchmarkKind, method, states);
 
             // control objects get a special treatment
             writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
@@ -723,7 +749,7 @@ public class BenchmarkGenerator {
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
             invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
+            writer.println(ident(5) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 5, method, states, false);
 
             writer.println(ident(5) + "res.allOps++;");
@@ -757,6 +783,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "res.measuredOps /= batchSize;");
 
             writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
+            writer.println(ident(3) + "results.setSeries(res.series);");
             if (isSingleMethod) {
                 writer.println(ident(3) + "results.add(new AverageTimeResult(ResultRole.PRIMARY, \"" + method.getName() + "\", res.measuredOps, res.getTime(), benchmarkParams.getTimeUnit()));");
             } else {
@@ -764,6 +791,7 @@ public class BenchmarkGenerator {
                 writer.println(ident(3) + "results.add(new AverageTimeResult(ResultRole.SECONDARY, \"" + method.getName() + "\", res.measuredOps, res.getTime(), benchmarkParams.getTimeUnit()));");
             }
             addAuxCounters(writer, "AverageTimeResult", states, method);
+            addAsyncLatency(writer, methodGroup, method);
 
             methodEpilog(writer);
 
@@ -784,21 +812,187 @@ public class BenchmarkGenerator {
                     "(" + getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
             writer.println(ident(2) + "long operations = 0;");
             writer.println(ident(2) + "long realTime = 0;");
+            asyncStubProlog(writer, methodGroup, method);
             writer.println(ident(2) + "result.startTime = System.nanoTime();");
             writer.println(ident(2) + "do {");
 
             invocationProlog(writer, 3, method, states, true);
-            writer.println(ident(3) + emitCall(method, states) + ';');
+            writer.println(ident(3) + emitPipelinedCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 3, method, states, true);
 
             writer.println(ident(3) + "operations++;");
             writer.println(ident(2) + "} while(!control.isDone);");
+            asyncStubEpilog(writer, methodGroup, method);
             writer.println(ident(2) + "result.stopTime = System.nanoTime();");
             writer.println(ident(2) + "result.realTime = realTime;");
             writer.println(ident(2) + "result.measuredOps = operations;");
             writer.println(ident(1) + "}");
             writer.println();
+
+            generateSeriesStub(writer, benchmarkKind, methodGroup, method, states);
+            generateStridedStub(writer, benchmarkKind, methodGroup, method, states);
+            generateBatchedStub(writer, benchmarkKind, methodGroup, method, states);
+        }
+    }
+
+    private void measurementLoopCall(PrintWriter writer, Mode benchmarkKind, MethodInfo method, StateObjectHandler states) {
+        if (states.hasBatchedInvocationStubs(method)) {
+            // batches are timed on their own, and have no use for the throughput series
+            writer.println(ident(3) + method.getName() + "_batched_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
+                    "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+            writer.println(ident(3) + "invocationBatchSize = control.calibrateInvocationBatch(res, invocationBatchSize);");
+            return;
+        }
+
+        writer.println(ident(3) + "res.series = control.newSeries();");
+        writer.println(ident(3) + "if (res.series != null) {");
+        writer.println(ident(4) + method.getName() + "_series_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
+                "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+        if (hasStridedStub(method, states)) {
+            writer.println(ident(3) + "} else if (stopCheckStride > 1) {");
+            writer.println(ident(4) + method.getName() + "_strided_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
+                    "(" + getStubArgs() + ", stopCheckStride" + prefix(states.getArgList(method)) + ");");
+        }
+        writer.println(ident(3) + "} else {");
+        writer.println(ident(4) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
+                "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+        writer.println(ident(3) + "}");
+        if (hasStridedStub(method, states)) {
+            writer.println(ident(3) + "stopCheckStride = control.calibrateStopCheck(res, stopCheckStride);");
+        }
+    }
+
+    /**
+     * Methods with invocation-level fixtures do not get the strided loop, since fixtures dwarf
+     * the stop check anyway. Void methods do not get it either: the regular loop separates their
+     * invocations with the volatile read of the stop flag, and the strided loop would need
+     * the blackhole consume per invocation instead, which costs more than the read it saves.
+     * Without either, the compiler is free to merge the invocations together.
+     */
+    private static boolean hasStridedStub(MethodInfo method, StateObjectHandler states) {
+        return !states.hasInvocationStubs(method) && !"void".equalsIgnoreCase(method.getReturnType());
+    }
+
+    /**
+     * Generates the measurement loop that checks the stop flag once per stride of invocations,
+     * which takes the volatile read off the path of each invocation for nanosecond benchmarks.
+     * The stride is calibrated by the harness. Invocations done past the deadline are counted
+     * and timed along with the rest. Every invocation consumes its result, which keeps the compiler
+     * from merging the invocations together; see {@link #hasStridedStub(MethodInfo, StateObjectHandler)}
+     * for the methods that do not get this loop.
+     */
+    private void generateStridedStub(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, MethodInfo method, StateObjectHandler states) {
+        if (!hasStridedStub(method, states)) {
+            return;
+        }
+
+        String methodName = method.getName() + "_strided_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+
+        writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName +
+                "(" + getStubTypeArgs() + ", int stride" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+        writer.println(ident(2) + "long operations = 0;");
+        writer.println(ident(2) + "long realTime = 0;");
+        asyncStubProlog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.startTime = System.nanoTime();");
+        writer.println(ident(2) + "do {");
+        writer.println(ident(3) + "for (int s = 0; s < stride; s++) {");
+        writer.println(ident(4) + emitPipelinedCall(methodGroup, method, states) + ';');
+        writer.println(ident(3) + "}");
+        writer.println(ident(3) + "operations += stride;");
+        writer.println(ident(2) + "} while(!control.isDone);");
+        asyncStubEpilog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+        writer.println(ident(2) + "result.realTime = realTime;");
+        writer.println(ident(2) + "result.measuredOps = operations;");
+        writer.println(ident(1) + "}");
+        writer.println();
+    }
+
+    /**
+     * Generates the measurement loop that additionally records the operation counts at the
+     * sub-interval ticks. The tick is the volatile counter advanced by the harness, so the
+     * loop reads one more field per invocation, and calls no timers. The stub name keeps the
+     * mode suffix, so that the stub is excluded from inlining along with the regular one.
+     */
+    private void generateSeriesStub(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, MethodInfo method, StateObjectHandler states) {
+        if (states.hasBatchedInvocationStubs(method)) {
+            return;
+        }
+
+        String methodName = method.getName() + "_series_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+
+        writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName +
+                "(" + getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+        writer.println(ident(2) + "long operations = 0;");
+        writer.println(ident(2) + "long realTime = 0;");
+        writer.println(ident(2) + "int tick = 0;");
+        asyncStubProlog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.startTime = System.nanoTime();");
+        writer.println(ident(2) + "do {");
+
+        invocationProlog(writer, 3, method, states, true);
+        writer.println(ident(3) + emitPipelinedCall(methodGroup, method, states) + ';');
+        invocationEpilog(writer, 3, method, states, true);
+
+        writer.println(ident(3) + "operations++;");
+        writer.println(ident(3) + "if (control.seriesTick != tick) {");
+        writer.println(ident(4) + "tick = control.markSeries(result, tick, operations);");
+        writer.println(ident(3) + "}");
+        writer.println(ident(2) + "} while(!control.isDone);");
+        asyncStubEpilog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+        writer.println(ident(2) + "control.markSeries(result, tick, operations);");
+        writer.println(ident(2) + "result.realTime = realTime;");
+        writer.println(ident(2) + "result.measuredOps = operations;");
+        writer.println(ident(1) + "}");
+        writer.println();
+    }
+
+    /**
+     * Generates the measurement loop for {@link org.openjdk.jmh.annotations.Level#BatchedInvocation}
+     * helpers. The helpers run for all the batch copies outside the timed region, and the
+     * invocations over the batch are timed with a single timestamp pair. Void invocations are
+     * followed by the blackhole consume, which stands for the volatile read of the stop flag
+     * that separates them in the regular loop.
+     */
+    private void generateBatchedStub(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, MethodInfo method, StateObjectHandler states) {
+        if (!states.hasBatchedInvocationStubs(method)) {
+            return;
+        }
+
+        String methodName = method.getName() + "_batched_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+
+        writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName +
+                "(" + getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+        writer.println(ident(2) + "long operations = 0;");
+        writer.println(ident(2) + "long realTime = 0;");
+        writer.println(ident(2) + "int size = " + states.getBatchLength(method) + ";");
+        asyncStubProlog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.startTime = System.nanoTime();");
+        writer.println(ident(2) + "do {");
+        writer.println(ident(3) + "for (int b = 0; b < size; b++) {");
+        for (String s : states.getBatchedInvocationSetups(method, "b")) writer.println(ident(4) + s);
+        writer.println(ident(3) + "}");
+        writer.println(ident(3) + "long rt = System.nanoTime();");
+        writer.println(ident(3) + "for (int b = 0; b < size; b++) {");
+        writer.println(ident(4) + emitBatchedCall(methodGroup, method, states, "b") + ';');
+        if ("void".equalsIgnoreCase(method.getReturnType())) {
+            // nothing is consumed, keep the compiler from merging the invocations over the batch
+            writer.println(ident(4) + "blackhole.consume(b);");
         }
+        writer.println(ident(3) + "}");
+        writer.println(ident(3) + "realTime += (System.nanoTime() - rt);");
+        writer.println(ident(3) + "for (int b = 0; b < size; b++) {");
+        for (String s : states.getBatchedInvocationTearDowns(method, "b")) writer.println(ident(4) + s);
+        writer.println(ident(3) + "}");
+        writer.println(ident(3) + "operations += size;");
+        writer.println(ident(2) + "} while(!control.isDone);");
+        asyncStubEpilog(writer, methodGroup, method);
+        writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+        writer.println(ident(2) + "result.realTime = realTime;");
+        writer.println(ident(2) + "result.measuredOps = operations;");
+        writer.println(ident(1) + "}");
+        writer.println();
     }
 
     private String getStubArgs() {
@@ -857,7 +1051,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
             invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
+            writer.println(ident(4) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 4, method, states, false);
 
             writer.println(ident(4) + "res.allOps++;");
@@ -871,7 +1065,7 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "int targetSamples = (int) (control.getDuration(TimeUnit.MILLISECONDS) * 20); // at max, 20 timestamps per millisecond");
             writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
             writer.println(ident(3) + "int opsPerInv = benchmarkParams.getOpsPerInvocation();");
-            writer.println(ident(3) + "SampleBuffer buffer = new SampleBuffer();");
+            writer.println(ident(3) + "SampleHistogram buffer = new SampleHistogram();");
             writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
                     getStubArgs() + ", buffer, targetSamples, opsPerInv, batchSize" + prefix(states.getArgList(method)) + ");");
 
@@ -886,7 +1080,7 @@ public class BenchmarkGenerator {
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
             invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
+            writer.println(ident(5) + emitCall(methodGroup, method, states) + ';');
             invocationEpilog(writer, 5, method, states, false);
 
             writer.println(ident(5) + "res.allOps++;");
@@ -936,7 +1130,7 @@ public class BenchmarkGenerator {
             compilerControl.defaultForceInline(method);
 
             writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
-                    getStubTypeArgs() + ", SampleBuffer buffer, int targetSamples, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+                    getStubTypeArgs() + ", SampleHistogram buffer, int targetSamples, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
 
             writer.println(ident(2) + "long realTime = 0;");
             writer.println(ident(2) + "long operations = 0;");
@@ -956,7 +1150,7 @@ public class BenchmarkGenerator {
 
             writer.println(ident(3) + "for (int b = 0; b < batchSize; b++) {");
             writer.println(ident(4) + "if (control.volatileSpoiler) return;");
-            writer.println(ident(4) + "" + emitCall(method, states) + ';');
+            writer.println(ident(4) + "" + emitCall(methodGroup, method, states) + ';');
             writer.println(ident(3) + "}");
 
             writer.println(ident(3) + "if (sample) {");
@@ -981,6 +1175,278 @@ public class BenchmarkGenerator {
         }
     }
 
+    private void generateOpenLoop(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, StateObjectHandler states) {
+        writer.println(ident(1) + "public BenchmarkTaskResult " + methodGroup.getName() + "_" + benchmarkKind +
+                "(InfraControl control, ThreadParams threadParams) throws Throwable {");
+
+        methodProlog(writer);
+
+        boolean isSingleMethod = (methodGroup.methods().size() == 1);
+        int subGroup = -1;
+        for (MethodInfo method : methodGroup.methods()) {
+            subGroup++;
+
+            writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
+            writer.println(ident(3) + "RawResults res = new RawResults();");
+
+            iterationProlog(writer, 3, method, states);
+
+            // synchronize iterations prolog: announce ready
+            writer.println(ident(3) + "control.announceWarmupReady();");
+
+            // synchronize iterations prolog: catchup loop
+            writer.println(ident(3) + "while (control.warmupShouldWait) {");
+
+            invocationProlog(writer, 4, method, states, false);
+            writer.println(ident(4) + emitCall(methodGroup, method, states) + ';');
+            invocationEpilog(writer, 4, method, states, false);
+
+            writer.println(ident(4) + "res.allOps++;");
+            writer.println(ident(3) + "}");
+            writer.println();
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.startMeasurement = true;");
+
+            // measurement loop call
+            writer.println(ident(3) + "long intervalNs = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(threadParams.getThreadCount()) / benchmarkParams.getArrivalRate()));");
+            writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
+            writer.println(ident(3) + "int opsPerInv = benchmarkParams.getOpsPerInvocation();");
+            writer.println(ident(3) + "SampleHistogram buffer = new SampleHistogram();");
+            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
+                    getStubArgs() + ", buffer, intervalNs, opsPerInv, batchSize" + prefix(states.getArgList(method)) + ");");
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
+
+            // synchronize iterations epilog: announce ready
+            writer.println(ident(3) + "control.announceWarmdownReady();");
+
+            // synchronize iterations epilog: catchup loop
+            writer.println(ident(3) + "try {");
+            writer.println(ident(4) + "while (control.warmdownShouldWait) {");
+
+            invocationProlog(writer, 5, method, states, false);
+            writer.println(ident(5) + emitCall(methodGroup, method, states) + ';');
+            invocationEpilog(writer, 5, method, states, false);
+
+            writer.println(ident(5) + "res.allOps++;");
+            writer.println(ident(4) + "}");
+            writer.println(ident(4) + "control.preTearDown();");
+            writer.println(ident(3) + "} catch (InterruptedException ie) {");
+            writer.println(ident(4) + "control.preTearDownForce();");
+            writer.println(ident(3) + "}");
+
+            iterationEpilog(writer, 3, method, states);
+
+            /*
+               Adjust the operation counts:
+                  1) res.measuredOps counted the batched @Benchmark invocations. Therefore, we need only
+                     to adjust for opsPerInv (pretending each @Benchmark invocation counts as $opsPerInv ops);
+                  2) res.allOps counted the individual @Benchmark invocations; to it needs the adjustment for $batchSize.
+
+               It's prudent to make the multiplication first to get more accuracy.
+             */
+
+            writer.println(ident(3) + "res.allOps += res.measuredOps * batchSize;");
+
+            writer.println(ident(3) + "res.allOps *= opsPerInv;");
+            writer.println(ident(3) + "res.allOps /= batchSize;");
+            writer.println(ident(3) + "res.measuredOps *= opsPerInv;");
+
+            writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
+            if (isSingleMethod) {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            } else {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + methodGroup.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.SECONDARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            }
+            methodEpilog(writer);
+
+            writer.println(ident(3) + "return results;");
+            writer.println(ident(2) + "} else");
+        }
+        writer.println(ident(3) + "throw new IllegalStateException(\"Harness failed to distribute threads among groups properly\");");
+        writer.println(ident(1) + "}");
+
+        writer.println();
+
+        // measurement loop bodies
+        for (MethodInfo method : methodGroup.methods()) {
+            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+            compilerControl.defaultForceInline(method);
+
+            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
+                    getStubTypeArgs() + ", SampleHistogram buffer, long intervalNs, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+
+            writer.println(ident(2) + "long realTime = 0;");
+            writer.println(ident(2) + "long operations = 0;");
+
+            // spread the schedules of different threads evenly over the interval
+            writer.println(ident(2) + "long startTime = System.nanoTime() + intervalNs * threadParams.getThreadIndex() / threadParams.getThreadCount();");
+            writer.println(ident(2) + "do {");
+
+            invocationProlog(writer, 3, method, states, true);
+
+            // the operation is timed from its intended start time, even when we are already behind the schedule
+            writer.println(ident(3) + "if (control.awaitArrival(startTime)) {");
+            writer.println(ident(4) + "for (int b = 0; b < batchSize; b++) {");
+            writer.println(ident(5) + "if (control.volatileSpoiler) return;");
+            writer.println(ident(5) + "" + emitCall(methodGroup, method, states) + ';');
+            writer.println(ident(4) + "}");
+            writer.println(ident(4) + "buffer.add((System.nanoTime() - startTime) / opsPerInv);");
+            writer.println(ident(4) + "startTime += intervalNs;");
+            writer.println(ident(4) + "operations++;");
+            writer.println(ident(3) + "}");
+
+            invocationEpilog(writer, 3, method, states, true);
+
+            writer.println(ident(2) + "} while(!control.isDone);");
+
+            // the operations that were due, but never started, still count against the latency
+            writer.println(ident(2) + "control.recordOverdue(buffer, startTime, intervalNs, opsPerInv);");
+
+            writer.println(ident(2) + "result.realTime = realTime;");
+            writer.println(ident(2) + "result.measuredOps = operations;");
+            writer.println(ident(1) + "}");
+            writer.println();
+        }
+    }
+
+    private void generateCaptureTime(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, StateObjectHandler states) {
+        writer.println(ident(1) + "public BenchmarkTaskResult " + methodGroup.getName() + "_" + benchmarkKind +
+                "(InfraControl control, ThreadParams threadParams) throws Throwable {");
+
+        methodProlog(writer);
+
+        boolean isSingleMethod = (methodGroup.methods().size() == 1);
+        int subGroup = -1;
+        for (MethodInfo method : methodGroup.methods()) {
+            subGroup++;
+
+            writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
+            writer.println(ident(3) + "RawResults res = new RawResults();");
+
+            iterationProlog(writer, 3, method, states);
+
+            // allocate the capture buffer before measurement starts
+            writer.println(ident(3) + "CaptureBuffer capture = CaptureBuffer.forCurrentThread(threadParams, control.getDuration(TimeUnit.NANOSECONDS));");
+
+            // synchronize iterations prolog: announce ready
+            writer.println(ident(3) + "control.announceWarmupReady();");
+
+            // synchronize iterations prolog: catchup loop
+            writer.println(ident(3) + "while (control.warmupShouldWait) {");
+
+            invocationProlog(writer, 4, method, states, false);
+            writer.println(ident(4) + emitCall(methodGroup, method, states) + ';');
+            invocationEpilog(writer, 4, method, states, false);
+
+            writer.println(ident(4) + "res.allOps++;");
+            writer.println(ident(3) + "}");
+            writer.println();
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.startMeasurement = true;");
+
+            // measurement loop call
+            writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
+            writer.println(ident(3) + "int opsPerInv = benchmarkParams.getOpsPerInvocation();");
+            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
+                    getStubArgs() + ", capture, batchSize" + prefix(states.getArgList(method)) + ");");
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
+
+            // synchronize iterations epilog: announce ready
+            writer.println(ident(3) + "control.announceWarmdownReady();");
+
+            // synchronize iterations epilog: catchup loop
+            writer.println(ident(3) + "try {");
+            writer.println(ident(4) + "while (control.warmdownShouldWait) {");
+
+            invocationProlog(writer, 5, method, states, false);
+            writer.println(ident(5) + emitCall(methodGroup, method, states) + ';');
+            invocationEpilog(writer, 5, method, states, false);
+
+            writer.println(ident(5) + "res.allOps++;");
+            writer.println(ident(4) + "}");
+            writer.println(ident(4) + "control.preTearDown();");
+            writer.println(ident(3) + "} catch (InterruptedException ie) {");
+            writer.println(ident(4) + "control.preTearDownForce();");
+            writer.println(ident(3) + "}");
+
+            iterationEpilog(writer, 3, method, states);
+
+            /*
+               Adjust the operation counts:
+                  1) res.measuredOps counted the batched @Benchmark invocations. Therefore, we need only
+                     to adjust for opsPerInv (pretending each @Benchmark invocation counts as $opsPerInv ops);
+                  2) res.allOps counted the individual @Benchmark invocations; to it needs the adjustment for $batchSize.
+
+               It's prudent to make the multiplication first to get more accuracy.
+             */
+
+            writer.println(ident(3) + "res.allOps += res.measuredOps * batchSize;");
+
+            writer.println(ident(3) + "res.allOps *= opsPerInv;");
+            writer.println(ident(3) + "res.allOps /= batchSize;");
+            writer.println(ident(3) + "res.measuredOps *= opsPerInv;");
+
+            writer.println(ident(3) + "SampleHistogram buffer = new SampleHistogram();");
+            writer.println(ident(3) + "capture.fill(buffer, opsPerInv);");
+            writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
+            writer.println(ident(3) + "results.setCapture(capture);");
+            if (isSingleMethod) {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            } else {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + methodGroup.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.SECONDARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            }
+            methodEpilog(writer);
+
+            writer.println(ident(3) + "return results;");
+            writer.println(ident(2) + "} else");
+        }
+        writer.println(ident(3) + "throw new IllegalStateException(\"Harness failed to distribute threads among groups properly\");");
+        writer.println(ident(1) + "}");
+
+        writer.println();
+
+        // measurement loop bodies
+        for (MethodInfo method : methodGroup.methods()) {
+            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+            compilerControl.defaultForceInline(method);
+
+            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
+                    getStubTypeArgs() + ", CaptureBuffer capture, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+
+            writer.println(ident(2) + "long realTime = 0;");
+            writer.println(ident(2) + "long operations = 0;");
+
+            writer.println(ident(2) + "do {");
+
+            invocationProlog(writer, 3, method, states, true);
+
+            writer.println(ident(3) + "long time = System.nanoTime();");
+            writer.println(ident(3) + "for (int b = 0; b < batchSize; b++) {");
+            writer.println(ident(4) + "if (control.volatileSpoiler) return;");
+            writer.println(ident(4) + "" + emitCall(methodGroup, method, states) + ';');
+            writer.println(ident(3) + "}");
+            writer.println(ident(3) + "capture.record(time, System.nanoTime() - time);");
+
+            invocationEpilog(writer, 3, method, states, true);
+
+            writer.println(ident(3) + "operations++;");
+            writer.println(ident(2) + "} while(!control.isDone);");
+
+            writer.println(ident(2) + "result.realTime = realTime;");
+            writer.println(ident(2) + "result.measuredOps = operations;");
+            writer.println(ident(1) + "}");
+            writer.println();
+        }
+    }
+
     private void generateSingleShotTime(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, StateObjectHandler states) {
         writer.println(ident(1) + "public BenchmarkTaskResult " + methodGroup.getName() + "_" + benchmarkKind + "(InfraControl control, ThreadParams threadParams) throws Throwable {");
 
@@ -1052,7 +1518,7 @@ public class BenchmarkGenerator {
 
             invocationProlog(writer, 3, method, states, true);
 
-            writer.println(ident(3) + emitCall(method, states) + ';');
+            writer.println(ident(3) + emitCall(methodGroup, method, states) + ';');
 
             invocationEpilog(writer, 3, method, states, true);
 
@@ -1107,14 +1573,66 @@ public class BenchmarkGenerator {
         writer.println(ident(prefix) + "}");
     }
 
-    private String emitCall(MethodInfo method, StateObjectHandler states) {
+    private String emitCall(MethodGroup methodGroup, MethodInfo method, StateObjectHandler states) {
         if ("void".equalsIgnoreCase(method.getReturnType())) {
             return states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + ")";
+        } else if (methodGroup.isAsync(method)) {
+            // wait for completion, so that the timing covers the entire operation
+            return "blackhole.consume(AsyncTracker.await(" + states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + ")))";
         } else {
             return "blackhole.consume(" + states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + "))";
         }
     }
 
+    /**
+     * Emits the call over the batch copy at index, for the batched measurement loops.
+     */
+    private String emitBatchedCall(MethodGroup methodGroup, MethodInfo method, StateObjectHandler states, String index) {
+        String call = states.getBatchedLocal(states.getImplicit("bench"), index) + "." + method.getName() +
+                "(" + states.getBatchedBenchmarkArgList(method, index) + ")";
+        if ("void".equalsIgnoreCase(method.getReturnType())) {
+            return call;
+        } else if (methodGroup.isAsync(method)) {
+            return "async.submit(async.start(), " + call + ")";
+        } else {
+            return "blackhole.consume(" + call + ")";
+        }
+    }
+
+    /**
+     * Emits the call for the measurement loops that allow asynchronous operations to overlap.
+     */
+    private String emitPipelinedCall(MethodGroup methodGroup, MethodInfo method, StateObjectHandler states) {
+        if (methodGroup.isAsync(method)) {
+            return "async.submit(async.start(), " + states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + "))";
+        } else {
+            return emitCall(methodGroup, method, states);
+        }
+    }
+
+    private void asyncStubProlog(PrintWriter writer, MethodGroup methodGroup, MethodInfo method) {
+        if (methodGroup.isAsync(method)) {
+            writer.println(ident(2) + "AsyncTracker async = new AsyncTracker(" + methodGroup.getMaxInFlight(method) + ");");
+        }
+    }
+
+    /**
+     * Waits for the operations in flight before the stop time is taken, so that the measured
+     * time covers the completion of all the operations counted.
+     */
+    private void asyncStubEpilog(PrintWriter writer, MethodGroup methodGroup, MethodInfo method) {
+        if (methodGroup.isAsync(method)) {
+            writer.println(ident(2) + "async.drain();");
+            writer.println(ident(2) + "result.asyncLatency = async.getLatency();");
+        }
+    }
+
+    private void addAsyncLatency(PrintWriter writer, MethodGroup methodGroup, MethodInfo method) {
+        if (methodGroup.isAsync(method)) {
+            writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.SECONDARY, \"" + method.getName() + "\\u00B7latency\", res.asyncLatency, benchmarkParams.getTimeUnit()));");
+        }
+    }
+
     static String[] INDENTS = new String[0];
 
     static String ident(int tabs) {
@@ -31,6 +31,7 @@ import org.openjdk.jmh.annotations.CompilerControl;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Group;
 import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.MaxInFlight;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -60,7 +61,7 @@ class BenchmarkGeneratorUtils {
     static {
         JMH_ANNOTATIONS = Arrays.asList(
                 AuxCounters.class, BenchmarkMode.class, CompilerControl.class, Fork.class,
-                Benchmark.class, Group.class, GroupThreads.class, Measurement.class,
+                Benchmark.class, Group.class, GroupThreads.class, MaxInFlight.class, Measurement.class,
                 OperationsPerInvocation.class, OutputTimeUnit.class, Param.class, Setup.class,
                 State.class, TearDown.class, Threads.class, Warmup.class
         );
@@ -78,6 +79,59 @@ class BenchmarkGeneratorUtils {
         }
     }
 
+    /**
+     * Asynchronous operation types, and their well-known subtypes.
+     */
+    private static final Collection<String> ASYNC_TYPES = Arrays.asList(
+            "java.util.concurrent.CompletionStage",
+            "java.util.concurrent.CompletableFuture",
+            "java.util.concurrent.Future",
+            "java.util.concurrent.RunnableFuture",
+            "java.util.concurrent.ScheduledFuture",
+            "java.util.concurrent.RunnableScheduledFuture",
+            "java.util.concurrent.FutureTask",
+            "java.util.concurrent.ForkJoinTask"
+    );
+
+    /**
+     * Checks if method returns the asynchronous operation, which should be timed until completion.
+     * Walks the superclasses of the return type, so that the subclasses of, say,
+     * {@link java.util.concurrent.CompletableFuture} are recognized; the generator metadata does
+     * not carry interfaces, and so the custom interfaces extending
+     * {@link java.util.concurrent.Future} are not.
+     *
+     * @param source generator source to resolve the return type with
+     * @param mi method to check
+     * @return true, if method returns {@link java.util.concurrent.CompletionStage} or {@link java.util.concurrent.Future}
+     */
+    public static boolean isAsync(GeneratorSource source, MethodInfo mi) {
+        String type = mi.getReturnType();
+        int generic = type.indexOf('<');
+        if (generic != -1) {
+            type = type.substring(0, generic);
+        }
+        if (ASYNC_TYPES.contains(type)) {
+            return true;
+        }
+        if (!type.contains(".") || type.endsWith("]")) {
+            // primitives, arrays
+            return false;
+        }
+
+        try {
+            ClassInfo ci = source.resolveClass(type);
+            while (ci != null) {
+                if (ASYNC_TYPES.contains(ci.getQualifiedName())) {
+                    return true;
+                }
+                ci = ci.getSuperClass();
+            }
+        } catch (RuntimeException e) {
+            // unable to resolve, treat as synchronous
+        }
+        return false;
+    }
+
     public static boolean checkJavaIdentifier(String id) {
         for (int i = 0; i < id.length(); i++) {
             char c = id.charAt(i);
@@ -38,6 +38,7 @@ class MethodGroup implements Comparable<MethodGroup> {
     private final Map<MethodInvocation, MethodInvocation> methods;
     private final EnumSet<Mode> modes;
     private final Map<String, String[]> params;
+    private final Map<String, Integer> asyncMethods;
     private boolean strictFP;
 
     public MethodGroup(ClassInfo ci, String name) {
@@ -46,6 +47,7 @@ class MethodGroup implements Comparable<MethodGroup> {
         this.methods = new TreeMap<>();
         this.modes = EnumSet.noneOf(Mode.class);
         this.params = new TreeMap<>();
+        this.asyncMethods = new HashMap<>();
     }
 
     @Override
@@ -83,6 +85,26 @@ class MethodGroup implements Comparable<MethodGroup> {
         }
     }
 
+    public void addAsync(MethodInfo method, int maxInFlight) {
+        asyncMethods.put(method.getName(), maxInFlight);
+    }
+
+    /**
+     * @param method method to check
+     * @return true, if method returns the asynchronous operation to be timed until completion
+     */
+    public boolean isAsync(MethodInfo method) {
+        return asyncMethods.containsKey(method.getName());
+    }
+
+    /**
+     * @param method asynchronous method
+     * @return maximum number of the method operations in flight, per worker thread
+     */
+    public int getMaxInFlight(MethodInfo method) {
+        return asyncMethods.get(method.getName());
+    }
+
     public Collection<MethodInfo> methods() {
         Collection<MethodInfo> result = new ArrayList<>();
         for (MethodInvocation m : methods.keySet()) {
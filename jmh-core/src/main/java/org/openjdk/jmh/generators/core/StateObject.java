@@ -24,6 +24,7 @@
  */
 package org.openjdk.jmh.generators.core;
 
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.util.HashMultimap;
 import org.openjdk.jmh.util.Multimap;
@@ -98,6 +99,30 @@ class StateObject {
         return localIdentifier;
     }
 
+    public String toBatchTypeDef() {
+        return type + "[] " + toBatchLocal();
+    }
+
+    public String toBatchLocal() {
+        return localIdentifier + "_batch";
+    }
+
+    public String toBatchField() {
+        return fieldIdentifier + "_batch";
+    }
+
+    /**
+     * @return true, if this state has {@link Level#BatchedInvocation} helpers, and needs the batch of copies
+     */
+    public boolean isBatched() {
+        for (HelperMethodInvocation hmi : helpers) {
+            if (hmi.helperLevel == Level.BatchedInvocation) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Collection<String> getParamsLabels() {
         return params.keys();
     }
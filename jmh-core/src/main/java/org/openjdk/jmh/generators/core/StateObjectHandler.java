@@ -211,6 +211,15 @@ class StateObjectHandler {
                     resolveDependencies(method, pci, pso);
                 }
             }
+
+            if (hasBatchedInvocationStubs(method) &&
+                    (!getHelperBlock(method, Level.Invocation, HelperType.SETUP).isEmpty() ||
+                     !getHelperBlock(method, Level.Invocation, HelperType.TEARDOWN).isEmpty())) {
+                throw new GenerationException("@" + State.class.getSimpleName() + " helpers with " +
+                        Level.class.getSimpleName() + "." + Level.BatchedInvocation + " and " +
+                        Level.class.getSimpleName() + "." + Level.Invocation + " cannot be mixed in the same benchmark.",
+                        method);
+            }
         }
     }
 
@@ -271,6 +280,12 @@ class StateObjectHandler {
 
                             bindState(method, so, ci);
                             resolveDependencies(method, ci, so);
+
+                            if (so.isBatched()) {
+                                throw new GenerationException("@" + State.class.getSimpleName() + " objects with " +
+                                        Level.class.getSimpleName() + "." + Level.BatchedInvocation + " helpers can only be " +
+                                        "injected into @" + Benchmark.class.getSimpleName() + " methods directly.", mi);
+                            }
                         }
                     }
                 }
@@ -354,6 +369,12 @@ class StateObjectHandler {
                 compileControl.defaultForceInline(mi);
             }
         }
+
+        if (so.isBatched() && so.scope != Scope.Thread) {
+            throw new GenerationException("@" + State.class.getSimpleName() + " helpers with " +
+                    Level.class.getSimpleName() + "." + Level.BatchedInvocation + " can only be used with " +
+                    Scope.class.getSimpleName() + "." + Scope.Thread + " states.", ci);
+        }
     }
 
     private boolean isAuxCompatible(String typeName) {
@@ -517,7 +538,14 @@ class StateObjectHandler {
     }
 
     public String getArgList(MethodInfo methodInfo) {
-        return getArgList(stateOrder(methodInfo, false));
+        Collection<StateObject> sos = stateOrder(methodInfo, false);
+        StringBuilder sb = new StringBuilder(getArgList(sos));
+        for (StateObject so : sos) {
+            if (so.isBatched()) {
+                sb.append(", ").append(so.toBatchLocal());
+            }
+        }
+        return sb.toString();
     }
 
     public String getArgList(Collection<StateObject> sos) {
@@ -534,7 +562,14 @@ class StateObjectHandler {
     }
 
     public String getTypeArgList(MethodInfo methodInfo) {
-        return getTypeArgList(stateOrder(methodInfo, false));
+        Collection<StateObject> sos = stateOrder(methodInfo, false);
+        StringBuilder sb = new StringBuilder(getTypeArgList(sos));
+        for (StateObject so : sos) {
+            if (so.isBatched()) {
+                sb.append(", ").append(so.toBatchTypeDef());
+            }
+        }
+        return sb.toString();
     }
 
     public String getTypeArgList(Collection<StateObject> sos) {
@@ -591,12 +626,7 @@ class StateObjectHandler {
             if (so.scope != Scope.Thread) continue;
 
             if (type == HelperType.SETUP) {
-                for (HelperMethodInvocation mi : so.getHelpers()) {
-                    if (mi.helperLevel == helperLevel && mi.type == HelperType.SETUP) {
-                        Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
-                        result.add(so.localIdentifier + "." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
-                    }
-                }
+                result.addAll(getThreadHelpers(so, helperLevel, HelperType.SETUP));
             }
         }
 
@@ -604,12 +634,7 @@ class StateObjectHandler {
             if (so.scope != Scope.Thread) continue;
 
             if (type == HelperType.TEARDOWN) {
-                for (HelperMethodInvocation mi : so.getHelpers()) {
-                    if (mi.helperLevel == helperLevel && mi.type == HelperType.TEARDOWN) {
-                        Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
-                        result.add(so.localIdentifier + "." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
-                    }
-                }
+                result.addAll(getThreadHelpers(so, helperLevel, HelperType.TEARDOWN));
             }
         }
 
@@ -693,16 +718,124 @@ class StateObjectHandler {
         return result;
     }
 
+    private List<String> getThreadHelpers(StateObject so, Level helperLevel, HelperType type) {
+        // Batched states run the per-iteration and per-trial helpers for all the copies
+        boolean allCopies = so.isBatched() && (helperLevel == Level.Trial || helperLevel == Level.Iteration);
+
+        List<String> result = new ArrayList<>();
+        for (HelperMethodInvocation mi : so.getHelpers()) {
+            if (mi.helperLevel == helperLevel && mi.type == type) {
+                Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
+                if (allCopies) {
+                    result.add("for (int b = 0; b < " + so.toBatchLocal() + ".length; b++) {");
+                    result.add("    " + so.toBatchLocal() + "[b]." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
+                    result.add("}");
+                } else {
+                    result.add(so.localIdentifier + "." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
+                }
+            }
+        }
+        return result;
+    }
+
     public boolean hasInvocationStubs(MethodInfo method) {
         return !getInvocationSetups(method).isEmpty() || !getInvocationTearDowns(method).isEmpty();
     }
 
+    /**
+     * Invocation helpers to run around each invocation. {@link Level#BatchedInvocation} helpers
+     * are included as well, for the modes that do not run the batches.
+     */
     public Collection<String> getInvocationSetups(MethodInfo method) {
-        return getHelperBlock(method, Level.Invocation, HelperType.SETUP);
+        List<String> result = new ArrayList<>();
+        result.addAll(getHelperBlock(method, Level.Invocation, HelperType.SETUP));
+        result.addAll(getHelperBlock(method, Level.BatchedInvocation, HelperType.SETUP));
+        return result;
     }
 
     public Collection<String> getInvocationTearDowns(MethodInfo method) {
-        return getHelperBlock(method, Level.Invocation, HelperType.TEARDOWN);
+        List<String> result = new ArrayList<>();
+        result.addAll(getHelperBlock(method, Level.Invocation, HelperType.TEARDOWN));
+        result.addAll(getHelperBlock(method, Level.BatchedInvocation, HelperType.TEARDOWN));
+        return result;
+    }
+
+    public boolean hasBatchedInvocationStubs(MethodInfo method) {
+        for (StateObject so : stateOrder(method, false)) {
+            if (so.isBatched()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return expression for the batch size; all batches of the method have the same size
+     */
+    public String getBatchLength(MethodInfo method) {
+        for (StateObject so : stateOrder(method, false)) {
+            if (so.isBatched()) {
+                return so.toBatchLocal() + ".length";
+            }
+        }
+        throw new IllegalStateException("No batched states");
+    }
+
+    /**
+     * @param method benchmark method
+     * @param index batch index expression
+     * @return {@link Level#BatchedInvocation} setups for the batch copy at index
+     */
+    public Collection<String> getBatchedInvocationSetups(MethodInfo method, String index) {
+        return getBatchedHelpers(stateOrder(method, true), index, HelperType.SETUP);
+    }
+
+    /**
+     * @param method benchmark method
+     * @param index batch index expression
+     * @return {@link Level#BatchedInvocation} teardowns for the batch copy at index
+     */
+    public Collection<String> getBatchedInvocationTearDowns(MethodInfo method, String index) {
+        return getBatchedHelpers(stateOrder(method, false), index, HelperType.TEARDOWN);
+    }
+
+    private Collection<String> getBatchedHelpers(Collection<StateObject> sos, String index, HelperType type) {
+        List<String> result = new ArrayList<>();
+        for (StateObject so : sos) {
+            if (!so.isBatched()) continue;
+            for (HelperMethodInvocation mi : so.getHelpers()) {
+                if (mi.helperLevel == Level.BatchedInvocation && mi.type == type) {
+                    Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
+                    result.add(so.toBatchLocal() + "[" + index + "]." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param so state object
+     * @param index batch index expression
+     * @return the batch copy at index for batched states; the state itself otherwise
+     */
+    public String getBatchedLocal(StateObject so, String index) {
+        return so.isBatched() ? so.toBatchLocal() + "[" + index + "]" : so.toLocal();
+    }
+
+    public String getBatchedBenchmarkArgList(MethodInfo method, String index) {
+        Map<String, String> batched = new HashMap<>();
+        for (StateObject so : stateOrder(method, false)) {
+            if (so.isBatched()) {
+                batched.put(so.toLocal(), getBatchedLocal(so, index));
+            }
+        }
+
+        List<String> args = new ArrayList<>();
+        for (String arg : benchmarkArgs.get(method.getName())) {
+            String b = batched.get(arg);
+            args.add((b != null) ? b : arg);
+        }
+        return Utils.join(args, ", ");
     }
 
     public Collection<String> getIterationSetups(MethodInfo method) {
@@ -804,6 +937,46 @@ class StateObjectHandler {
             result.add("    }");
             result.add("    return val;");
             result.add("}");
+
+            if (!so.isBatched()) continue;
+
+            // The batch starts with the state itself, and only grows, reusing the copies
+            result.add("");
+            result.add(so.type + "[] " + so.toBatchField() + ";");
+            result.add("");
+            result.add(so.type + "[] _jmh_tryInitBatch_" + so.fieldIdentifier + "(InfraControl control, int size, " + so.toTypeDef() + soDependency_TypeArgs(so) + ") throws Throwable {");
+            result.add("    if (control.isFailing) throw new FailureAssistException();");
+            result.add("    " + so.type + "[] batch = " + so.toBatchField() + ";");
+            result.add("    if (batch == null) {");
+            result.add("        batch = new " + so.type + "[] { " + so.localIdentifier + " };");
+            result.add("    }");
+            result.add("    if (batch.length < size) {");
+            result.add("        int from = batch.length;");
+            result.add("        batch = java.util.Arrays.copyOf(batch, size);");
+            result.add("        for (int b = from; b < size; b++) {");
+            result.add("            " + so.type + " val = new " + so.type + "();");
+            if (!so.getParamsLabels().isEmpty()) {
+                result.add("            Field f;");
+            }
+            for (String paramName : so.getParamsLabels()) {
+                for (FieldInfo paramField : so.getParam(paramName)) {
+                    result.add("            f = " + paramField.getDeclaringClass().getQualifiedName() + ".class.getDeclaredField(\"" + paramName + "\");");
+                    result.add("            f.setAccessible(true);");
+                    result.add("            f.set(val, " + so.getParamAccessor(paramField) + ");");
+                }
+            }
+            for (HelperMethodInvocation hmi : so.getHelpers()) {
+                if (hmi.helperLevel != Level.Trial) continue;
+                if (hmi.type != HelperType.SETUP) continue;
+                Collection<String> args = so.helperArgs.get(hmi.method.getQualifiedName());
+                result.add("            val." + hmi.method.getName() + "(" + Utils.join(args, ",") + ");");
+            }
+            result.add("            batch[b] = val;");
+            result.add("        }");
+            result.add("    }");
+            result.add("    " + so.toBatchField() + " = batch;");
+            result.add("    return batch;");
+            result.add("}");
         }
 
         for (StateObject so : sos) {
@@ -877,6 +1050,9 @@ class StateObjectHandler {
         for (StateObject so : sos) {
             if (so.scope != Scope.Thread) continue;
             result.add("" + so.fieldIdentifier + " = null;");
+            if (so.isBatched()) {
+                result.add("" + so.toBatchField() + " = null;");
+            }
         }
 
         for (StateObject so : sos) {
@@ -892,6 +1068,9 @@ class StateObjectHandler {
         List<String> result = new ArrayList<>();
         for (StateObject so : stateOrder(method, true)) {
             result.add(so.type + " " + so.localIdentifier + " = _jmh_tryInit_" + so.fieldIdentifier + "(control" + soDependency_Args(so) + ");");
+            if (so.isBatched()) {
+                result.add(so.toBatchTypeDef() + " = _jmh_tryInitBatch_" + so.fieldIdentifier + "(control, invocationBatchSize, " + so.toLocal() + soDependency_Args(so) + ");");
+            }
         }
         return result;
     }
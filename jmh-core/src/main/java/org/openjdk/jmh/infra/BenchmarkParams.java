@@ -60,7 +60,7 @@ public class BenchmarkParams extends BenchmarkParamsL4 {
         Utils.check(BenchmarkParams.class, "threads", "threadGroups", "forks", "warmupForks");
         Utils.check(BenchmarkParams.class, "warmup", "measurement");
         Utils.check(BenchmarkParams.class, "mode", "params");
-        Utils.check(BenchmarkParams.class, "timeUnit", "opsPerInvocation");
+        Utils.check(BenchmarkParams.class, "timeUnit", "opsPerInvocation", "arrivalRate");
         Utils.check(BenchmarkParams.class, "jvm", "jvmArgs");
     }
 
@@ -73,6 +73,26 @@ public class BenchmarkParams extends BenchmarkParamsL4 {
                            String jvm, Collection<String> jvmArgs,
                            String jdkVersion, String vmVersion, String jmhVersion,
                            TimeValue timeout) {
+        this(benchmark, generatedTarget, synchIterations,
+                threads, threadGroups, threadGroupLabels,
+                forks, warmupForks,
+                warmup, measurement,
+                mode, params,
+                timeUnit, opsPerInvocation,
+                jvm, jvmArgs,
+                jdkVersion, vmVersion, jmhVersion,
+                timeout, 0);
+    }
+
+    public BenchmarkParams(String benchmark, String generatedTarget, boolean synchIterations,
+                           int threads, int[] threadGroups, Collection<String> threadGroupLabels,
+                           int forks, int warmupForks,
+                           IterationParams warmup, IterationParams measurement,
+                           Mode mode, WorkloadParams params,
+                           TimeUnit timeUnit, int opsPerInvocation,
+                           String jvm, Collection<String> jvmArgs,
+                           String jdkVersion, String vmVersion, String jmhVersion,
+                           TimeValue timeout, double arrivalRate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -81,7 +101,7 @@ public class BenchmarkParams extends BenchmarkParamsL4 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmVersion, jmhVersion,
-                timeout);
+                timeout, arrivalRate);
     }
 }
 
@@ -97,7 +117,7 @@ abstract class BenchmarkParamsL4 extends BenchmarkParamsL3 {
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, double arrivalRate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -106,7 +126,7 @@ abstract class BenchmarkParamsL4 extends BenchmarkParamsL3 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmVersion, jmhVersion,
-                timeout);
+                timeout, arrivalRate);
     }
 }
 
@@ -138,7 +158,7 @@ abstract class BenchmarkParamsL3 extends BenchmarkParamsL2 {
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, double arrivalRate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -147,7 +167,7 @@ abstract class BenchmarkParamsL3 extends BenchmarkParamsL2 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmVersion, jmhVersion,
-                timeout);
+                timeout, arrivalRate);
     }
 }
 
@@ -197,6 +217,7 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
     protected final String jmhVersion;
     protected final String vmVersion;
     protected final TimeValue timeout;
+    protected final double arrivalRate;
 
     public BenchmarkParamsL2(String benchmark, String generatedTarget, boolean synchIterations,
                              int threads, int[] threadGroups, Collection<String> threadGroupLabels,
@@ -206,7 +227,7 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, double arrivalRate) {
         this.benchmark = benchmark;
         this.generatedTarget = generatedTarget;
         this.synchIterations = synchIterations;
@@ -227,6 +248,7 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         this.vmVersion = vmVersion;
         this.jmhVersion = jmhVersion;
         this.timeout = timeout;
+        this.arrivalRate = arrivalRate;
     }
 
     /**
@@ -322,6 +344,14 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         return opsPerInvocation;
     }
 
+    /**
+     * @return target arrival rate, total operations per second over all threads;
+     *         only used by {@link Mode#OpenLoop}
+     */
+    public double getArrivalRate() {
+        return arrivalRate;
+    }
+
     /**
      * @return all workload parameters
      */
@@ -396,6 +426,8 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         if (!benchmark.equals(that.benchmark)) return false;
         if (mode != that.mode) return false;
         if (!params.equals(that.params)) return false;
+        if (threads != that.threads) return false;
+        if (Double.compare(arrivalRate, that.arrivalRate) != 0) return false;
 
         return true;
     }
@@ -405,6 +437,8 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         int result = benchmark.hashCode();
         result = 31 * result + mode.hashCode();
         result = 31 * result + params.hashCode();
+        result = 31 * result + threads;
+        result = 31 * result + Double.valueOf(arrivalRate).hashCode();
         return result;
     }
 
@@ -420,11 +454,19 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
             return v1;
         }
 
-        if (params == null || o.params == null) {
-            return 0;
+        if (params != null && o.params != null) {
+            int v2 = params.compareTo(o.params);
+            if (v2 != 0) {
+                return v2;
+            }
+        }
+
+        int v3 = Integer.compare(threads, o.threads);
+        if (v3 != 0) {
+            return v3;
         }
 
-        return params.compareTo(o.params);
+        return Double.compare(arrivalRate, o.arrivalRate);
     }
 
     public String id() {
@@ -236,6 +236,16 @@ public final class Blackhole extends BlackholeL4 {
      * In all cases, consumes do the volatile reads to have a consistent memory
      * semantics across all consume methods.
      *
+     * Newer VMs provide the compiler blackholes: the methods marked with
+     * -XX:CompileCommand=blackhole are treated by the compilers as the opaque
+     * sinks for their arguments, with no code emitted for them. This dodges all
+     * the issues above without any overhead, so JMH runner uses them when the
+     * target VM supports them, and all consume methods then delegate to the
+     * empty consumeCompiler methods. The static final flag that selects the path
+     * is folded by the compilers. Otherwise, consume methods delegate to
+     * consumeFull methods, which implement all the tricks above; these are
+     * the methods that are prohibited from being inlined.
+     *
      * An utmost caution should be exercised when changing the Blackhole code. Nominally,
      * the JMH Core Benchmarks should be run on multiple platforms (and their generated code
      * examined) to check the effects are still in place, and the overheads are not prohibitive.
@@ -246,6 +256,12 @@ public final class Blackhole extends BlackholeL4 {
      * AND LOTS OF TIME OVER THAT. ADJUST YOUR PLANS ACCORDINGLY.
      */
 
+    /**
+     * Compiler blackholes are enabled by JMH runner in the forked VM, along with the compiler
+     * command that makes {@code consumeCompiler} methods the blackholes.
+     */
+    private static final boolean COMPILER_BLACKHOLE = Boolean.getBoolean("jmh.blackhole.compiler");
+
     static {
         Utils.check(Blackhole.class, "b1", "b2");
         Utils.check(Blackhole.class, "bool1", "bool2");
@@ -304,6 +320,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param obj object to consume.
      */
     public final void consume(Object obj) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(obj);
+        } else {
+            consumeFull(obj);
+        }
+    }
+
+    private static void consumeCompiler(Object obj) {}
+
+    private void consumeFull(Object obj) {
         int tlrMask = this.tlrMask; // volatile read
         int tlr = (this.tlr = (this.tlr * 1664525 + 1013904223));
         if ((tlr & tlrMask) == 0) {
@@ -319,6 +345,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param b object to consume.
      */
     public final void consume(byte b) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(b);
+        } else {
+            consumeFull(b);
+        }
+    }
+
+    private static void consumeCompiler(byte b) {}
+
+    private void consumeFull(byte b) {
         byte b1 = this.b1; // volatile read
         byte b2 = this.b2;
         if ((b ^ b1) == (b ^ b2)) {
@@ -333,6 +369,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param bool object to consume.
      */
     public final void consume(boolean bool) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(bool);
+        } else {
+            consumeFull(bool);
+        }
+    }
+
+    private static void consumeCompiler(boolean bool) {}
+
+    private void consumeFull(boolean bool) {
         boolean bool1 = this.bool1; // volatile read
         boolean bool2 = this.bool2;
         if ((bool ^ bool1) == (bool ^ bool2)) {
@@ -347,6 +393,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param c object to consume.
      */
     public final void consume(char c) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(c);
+        } else {
+            consumeFull(c);
+        }
+    }
+
+    private static void consumeCompiler(char c) {}
+
+    private void consumeFull(char c) {
         char c1 = this.c1; // volatile read
         char c2 = this.c2;
         if ((c ^ c1) == (c ^ c2)) {
@@ -361,6 +417,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param s object to consume.
      */
     public final void consume(short s) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(s);
+        } else {
+            consumeFull(s);
+        }
+    }
+
+    private static void consumeCompiler(short s) {}
+
+    private void consumeFull(short s) {
         short s1 = this.s1; // volatile read
         short s2 = this.s2;
         if ((s ^ s1) == (s ^ s2)) {
@@ -375,6 +441,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param i object to consume.
      */
     public final void consume(int i) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(i);
+        } else {
+            consumeFull(i);
+        }
+    }
+
+    private static void consumeCompiler(int i) {}
+
+    private void consumeFull(int i) {
         int i1 = this.i1; // volatile read
         int i2 = this.i2;
         if ((i ^ i1) == (i ^ i2)) {
@@ -389,6 +465,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param l object to consume.
      */
     public final void consume(long l) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(l);
+        } else {
+            consumeFull(l);
+        }
+    }
+
+    private static void consumeCompiler(long l) {}
+
+    private void consumeFull(long l) {
         long l1 = this.l1; // volatile read
         long l2 = this.l2;
         if ((l ^ l1) == (l ^ l2)) {
@@ -403,6 +489,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param f object to consume.
      */
     public final void consume(float f) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(f);
+        } else {
+            consumeFull(f);
+        }
+    }
+
+    private static void consumeCompiler(float f) {}
+
+    private void consumeFull(float f) {
         float f1 = this.f1; // volatile read
         float f2 = this.f2;
         if (f == f1 & f == f2) {
@@ -417,6 +513,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param d object to consume.
      */
     public final void consume(double d) {
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(d);
+        } else {
+            consumeFull(d);
+        }
+    }
+
+    private static void consumeCompiler(double d) {}
+
+    private void consumeFull(double d) {
         double d1 = this.d1; // volatile read
         double d2 = this.d2;
         if (d == d1 & d == d2) {
@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base for Flight Recorder profilers.
+ *
+ * <p>The host part starts the recording in the benchmark JVM, and parses the recording
+ * after the benchmark JVM had stopped. The part running in the benchmark JVM only
+ * marks the boundaries of measurement iterations, so that subclasses can only account
+ * the events that started within measurement iterations.</p>
+ */
+abstract class AbstractFlightRecorderProfiler implements ExternalProfiler, InternalProfiler {
+
+    /**
+     * The system property that passes the iteration marks file to the benchmark JVM.
+     */
+    static final String MARKS_PROPERTY = "jmh.jfr.marks";
+
+    private static final long BASE_MS = System.currentTimeMillis();
+    private static final long BASE_NS = System.nanoTime();
+
+    protected final OptionSet set;
+    private final String settings;
+    private final String dir;
+
+    private File recording;
+    private File marks;
+    private int trial;
+
+    private long iterationStart;
+
+    protected AbstractFlightRecorderProfiler(String initLine, String name) throws ProfilerException {
+        OptionParser parser = new OptionParser();
+        parser.formatHelpWith(new ProfilerOptionFormatter(name));
+
+        OptionSpec<String> optSettings = parser.accepts("settings", "Flight Recorder settings to use.")
+                .withRequiredArg().ofType(String.class).describedAs("name").defaultsTo("profile");
+
+        OptionSpec<String> optDir = parser.accepts("dir", "Directory to keep the profiler output in. " +
+                "If not set, the recordings are deleted after they are processed.")
+                .withRequiredArg().ofType(String.class).describedAs("dir");
+
+        addMyOptions(parser);
+
+        set = ProfilerUtils.parseInitLine(initLine, parser);
+
+        try {
+            settings = set.valueOf(optSettings);
+            dir = set.valueOf(optDir);
+        } catch (OptionException e) {
+            throw new ProfilerException(e.getMessage());
+        }
+
+        // The benchmark JVM only writes the marks, only the host needs to read the recording.
+        if (System.getProperty(MARKS_PROPERTY) == null) {
+            try {
+                Class.forName("jdk.jfr.consumer.RecordingFile");
+            } catch (ClassNotFoundException e) {
+                throw new ProfilerException("Flight Recorder consumer API is not available, JDK 11+ is required");
+            }
+        }
+    }
+
+    /**
+     * Add profiler-specific options.
+     *
+     * @param parser option parser
+     */
+    protected abstract void addMyOptions(OptionParser parser);
+
+    /**
+     * Process the recording.
+     *
+     * @param br benchmark result that was the result of the trial
+     * @param recording recording file
+     * @param slicer measurement iterations slicer
+     * @param name trial name, suitable to be used as the file name
+     * @return profiler results
+     * @throws IOException if recording cannot be read
+     */
+    protected abstract Collection<? extends Result> process(BenchmarkResult br, File recording, Slicer slicer, String name) throws IOException;
+
+    @Override
+    public Collection<String> addJVMInvokeOptions(BenchmarkParams params) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> addJVMOptions(BenchmarkParams params) {
+        trial++;
+        try {
+            if (dir != null) {
+                recording = new File(dir(), trialName(params) + ".jfr");
+            } else {
+                recording = FileUtils.tempFile("jfr");
+            }
+            marks = FileUtils.tempFile("marks");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return Arrays.asList(
+                "-XX:StartFlightRecording=settings=" + settings + ",dumponexit=true,filename=" + recording.getAbsolutePath(),
+                "-D" + MARKS_PROPERTY + "=" + marks.getAbsolutePath()
+        );
+    }
+
+    @Override
+    public void beforeTrial(BenchmarkParams benchmarkParams) {
+        // do nothing
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        iterationStart = epochNanos();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        long iterationStop = epochNanos();
+
+        String file = System.getProperty(MARKS_PROPERTY);
+        if (file != null && iterationParams.getType() == IterationType.MEASUREMENT) {
+            try {
+                FileUtils.appendLines(new File(file), Collections.singleton(iterationStart + " " + iterationStop));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<? extends Result> afterTrial(BenchmarkResult br, long pid, File stdOut, File stdErr) {
+        try {
+            List<long[]> windows = new ArrayList<>();
+            for (String line : FileUtils.readAllLines(marks)) {
+                String[] split = line.trim().split(" ");
+                if (split.length == 2) {
+                    windows.add(new long[]{Long.parseLong(split[0]), Long.parseLong(split[1])});
+                }
+            }
+
+            if (windows.isEmpty() || !recording.exists()) {
+                return Collections.emptyList();
+            }
+
+            return process(br, recording, new Slicer(windows), trialName(br.getParams()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            marks.delete();
+            if (dir == null) {
+                recording.delete();
+            }
+        }
+    }
+
+    @Override
+    public boolean allowPrintOut() {
+        return true;
+    }
+
+    @Override
+    public boolean allowPrintErr() {
+        return true;
+    }
+
+    /**
+     * @return directory to keep the profiler output in, created if needed; null if not configured
+     */
+    protected File dir() {
+        if (dir == null) {
+            return null;
+        }
+        File d = new File(dir);
+        if (!d.isDirectory() && !d.mkdirs()) {
+            throw new IllegalStateException("Cannot create directory: " + d);
+        }
+        return d;
+    }
+
+    private String trialName(BenchmarkParams params) {
+        // Flight Recorder options are comma-separated, keep the file name simple
+        return params.id().replaceAll("[^a-zA-Z0-9._-]", "_") + "-" + trial;
+    }
+
+    private static long epochNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(BASE_MS) + (System.nanoTime() - BASE_NS);
+    }
+
+    static long measuredOps(BenchmarkResult br) {
+        long ops = 0;
+        for (IterationResult ir : br.getIterationResults()) {
+            ops += ir.getMetadata().getAllOps();
+        }
+        return ops;
+    }
+
+    /**
+     * Streams the recording through the JDK consumer API. The API is only available in JDK 11+,
+     * and is accessed reflectively to keep the profilers loadable on older JDKs.
+     *
+     * @param recording recording file
+     * @param handler event handler
+     * @throws IOException if recording cannot be read
+     */
+    static void read(File recording, EventHandler handler) throws IOException {
+        Object file = null;
+        Method close = null;
+        try {
+            Class<?> fileKlass = Class.forName("jdk.jfr.consumer.RecordingFile");
+            Method hasMoreEvents = fileKlass.getMethod("hasMoreEvents");
+            Method readEvent = fileKlass.getMethod("readEvent");
+            close = fileKlass.getMethod("close");
+
+            Event event = new Event();
+            file = fileKlass.getConstructor(Path.class).newInstance(recording.toPath());
+            while ((Boolean) hasMoreEvents.invoke(file)) {
+                event.event = readEvent.invoke(file);
+                handler.accept(event);
+            }
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (file != null) {
+                try {
+                    close.invoke(file);
+                } catch (ReflectiveOperationException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    interface EventHandler {
+        void accept(Event event) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Reflective view of the recorded event. The instance is reused for all events
+     * in the recording, handlers should not retain it.
+     */
+    static class Event {
+        private static final Method GET_EVENT_TYPE;
+        private static final Method GET_NAME;
+        private static final Method GET_START_TIME;
+        private static final Method GET_END_TIME;
+        private static final Method GET_DURATION;
+        private static final Method GET_FIELD_DURATION;
+        private static final Method GET_LONG;
+        private static final Method GET_CLASS;
+        private static final Method GET_CLASS_NAME;
+        private static final Method GET_THREAD;
+        private static final Method GET_THREAD_NAME;
+        private static final Method GET_STACK_TRACE;
+        private static final Method GET_FRAMES;
+        private static final Method IS_JAVA_FRAME;
+        private static final Method GET_LINE_NUMBER;
+        private static final Method GET_METHOD;
+        private static final Method GET_METHOD_TYPE;
+        private static final Method GET_METHOD_NAME;
+
+        static {
+            try {
+                Class<?> event = Class.forName("jdk.jfr.consumer.RecordedEvent");
+                Class<?> frame = Class.forName("jdk.jfr.consumer.RecordedFrame");
+                GET_EVENT_TYPE = event.getMethod("getEventType");
+                GET_NAME = GET_EVENT_TYPE.getReturnType().getMethod("getName");
+                GET_START_TIME = event.getMethod("getStartTime");
+                GET_END_TIME = event.getMethod("getEndTime");
+                GET_DURATION = event.getMethod("getDuration");
+                GET_FIELD_DURATION = event.getMethod("getDuration", String.class);
+                GET_LONG = event.getMethod("getLong", String.class);
+                GET_CLASS = event.getMethod("getClass", String.class);
+                GET_CLASS_NAME = GET_CLASS.getReturnType().getMethod("getName");
+                GET_THREAD = event.getMethod("getThread");
+                GET_THREAD_NAME = GET_THREAD.getReturnType().getMethod("getJavaName");
+                GET_STACK_TRACE = event.getMethod("getStackTrace");
+                GET_FRAMES = GET_STACK_TRACE.getReturnType().getMethod("getFrames");
+                IS_JAVA_FRAME = frame.getMethod("isJavaFrame");
+                GET_LINE_NUMBER = frame.getMethod("getLineNumber");
+                GET_METHOD = frame.getMethod("getMethod");
+                GET_METHOD_TYPE = GET_METHOD.getReturnType().getMethod("getType");
+                GET_METHOD_NAME = GET_METHOD.getReturnType().getMethod("getName");
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Object event;
+
+        String name() throws ReflectiveOperationException {
+            return (String) GET_NAME.invoke(GET_EVENT_TYPE.invoke(event));
+        }
+
+        long startTime() throws ReflectiveOperationException {
+            return nanos((Instant) GET_START_TIME.invoke(event));
+        }
+
+        long endTime() throws ReflectiveOperationException {
+            return nanos((Instant) GET_END_TIME.invoke(event));
+        }
+
+        long duration() throws ReflectiveOperationException {
+            return ((Duration) GET_DURATION.invoke(event)).toNanos();
+        }
+
+        long duration(String field) throws ReflectiveOperationException {
+            return ((Duration) GET_FIELD_DURATION.invoke(event, field)).toNanos();
+        }
+
+        long getLong(String field) throws ReflectiveOperationException {
+            return (Long) GET_LONG.invoke(event, field);
+        }
+
+        String className(String field) throws ReflectiveOperationException {
+            Object klass = GET_CLASS.invoke(event, field);
+            return (klass != null) ? (String) GET_CLASS_NAME.invoke(klass) : null;
+        }
+
+        /**
+         * @return true, if event was recorded by the benchmark worker thread
+         * @throws ReflectiveOperationException if recording API misbehaves
+         */
+        boolean inWorker() throws ReflectiveOperationException {
+            Object thread = GET_THREAD.invoke(event);
+            String name = (thread != null) ? (String) GET_THREAD_NAME.invoke(thread) : null;
+            return name != null && ProfilerUtils.isWorkerThread(name);
+        }
+
+        /**
+         * @param depth max number of frames to return
+         * @return Java frames of the event stack trace, top frame first
+         * @throws ReflectiveOperationException if recording API misbehaves
+         */
+        List<String> frames(int depth) throws ReflectiveOperationException {
+            Object stack = GET_STACK_TRACE.invoke(event);
+            if (stack == null) {
+                return Collections.emptyList();
+            }
+            List<String> result = new ArrayList<>();
+            for (Object frame : (List<?>) GET_FRAMES.invoke(stack)) {
+                if (result.size() >= depth) {
+                    break;
+                }
+                if (!(Boolean) IS_JAVA_FRAME.invoke(frame)) {
+                    continue;
+                }
+                Object method = GET_METHOD.invoke(frame);
+                String type = (String) GET_CLASS_NAME.invoke(GET_METHOD_TYPE.invoke(method));
+                String name = (String) GET_METHOD_NAME.invoke(method);
+                int line = (Integer) GET_LINE_NUMBER.invoke(frame);
+                result.add(type + "." + name + ((line > 0) ? ":" + line : ""));
+            }
+            return result;
+        }
+
+        private static long nanos(Instant instant) {
+            return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+        }
+    }
+
+    /**
+     * Accounts the events that started within the measurement iterations.
+     * All timestamps are in nanoseconds since the epoch.
+     */
+    static class Slicer {
+        private final long[] starts;
+        private final long[] ends;
+        private final Map<String, long[]> totals;
+        private final Map<Long, long[]> safepoints;
+
+        Slicer(List<long[]> windows) {
+            List<long[]> sorted = new ArrayList<>(windows);
+            Collections.sort(sorted, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] o1, long[] o2) {
+                    return Long.compare(o1[0], o2[0]);
+                }
+            });
+
+            starts = new long[sorted.size()];
+            ends = new long[sorted.size()];
+            for (int c = 0; c < sorted.size(); c++) {
+                starts[c] = sorted.get(c)[0];
+                ends[c] = sorted.get(c)[1];
+            }
+            totals = new HashMap<>();
+            safepoints = new HashMap<>();
+        }
+
+        boolean accepts(long time) {
+            int idx = Arrays.binarySearch(starts, time);
+            if (idx < 0) {
+                // not the exact match, pick the window that starts before
+                idx = -idx - 2;
+            }
+            return idx >= 0 && time < ends[idx];
+        }
+
+        void add(String metric, long time, long value) {
+            if (!accepts(time)) {
+                return;
+            }
+            long[] t = totals.get(metric);
+            if (t == null) {
+                t = new long[2];
+                totals.put(metric, t);
+            }
+            t[0]++;
+            t[1] += value;
+        }
+
+        /**
+         * Safepoints are recorded as the begin and end events, which may come
+         * in any order; the pause spans from the earliest to the latest one.
+         */
+        void safepoint(long id, long start, long end) {
+            long[] s = safepoints.get(id);
+            if (s == null) {
+                safepoints.put(id, new long[]{start, end});
+            } else {
+                s[0] = Math.min(s[0], start);
+                s[1] = Math.max(s[1], end);
+            }
+        }
+
+        void finish() {
+            for (long[] s : safepoints.values()) {
+                add("safepoints", s[0], s[1] - s[0]);
+            }
+            safepoints.clear();
+        }
+
+        long windowNs() {
+            long sum = 0;
+            for (int c = 0; c < starts.length; c++) {
+                sum += ends[c] - starts[c];
+            }
+            return sum;
+        }
+
+        long count(String metric) {
+            long[] t = totals.get(metric);
+            return (t != null) ? t[0] : 0;
+        }
+
+        long sum(String metric) {
+            long[] t = totals.get(metric);
+            return (t != null) ? t[1] : 0;
+        }
+    }
+
+}
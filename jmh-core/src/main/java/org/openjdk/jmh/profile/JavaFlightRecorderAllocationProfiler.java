@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSpec;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.options.IntegerValueConverter;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.HashMultiset;
+import org.openjdk.jmh.util.Multiset;
+import org.openjdk.jmh.util.Multisets;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Flight Recorder allocation sites profiler.
+ *
+ * <p>Attributes the allocations done by worker threads within the measurement iterations
+ * to the allocated type and the top stack frames, and normalizes them by the number of
+ * benchmark operations. Allocations are taken from the TLAB allocation events when enabled
+ * in the settings, and from the allocation samples otherwise. Along with the ranked table,
+ * the full stacks are saved in the collapsed format, suitable for flame graph tools.</p>
+ */
+public class JavaFlightRecorderAllocationProfiler extends AbstractFlightRecorderProfiler {
+
+    private OptionSpec<Integer> optTop;
+    private OptionSpec<Integer> optLines;
+    private OptionSpec<Integer> optDepth;
+
+    private final int top;
+    private final int lines;
+    private final int depth;
+
+    public JavaFlightRecorderAllocationProfiler(String initLine) throws ProfilerException {
+        super(initLine, JavaFlightRecorderAllocationProfiler.class.getCanonicalName());
+        try {
+            top = set.valueOf(optTop);
+            lines = set.valueOf(optLines);
+            depth = set.valueOf(optDepth);
+        } catch (OptionException e) {
+            throw new ProfilerException(e.getMessage());
+        }
+    }
+
+    @Override
+    protected void addMyOptions(OptionParser parser) {
+        optTop = parser.accepts("top", "Number of top allocation sites to show in the profiling results.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(10);
+
+        optLines = parser.accepts("lines", "Number of stack lines to distinguish the allocation sites by. " +
+                "Larger values separate the allocations coming through the different callers.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(3);
+
+        optDepth = parser.accepts("depth", "Number of stack lines to save in the collapsed stacks output. " +
+                "The collapsed stacks are saved into the directory given with \"dir\", or in the current directory.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(64);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Flight Recorder allocation sites profiler";
+    }
+
+    @Override
+    protected Collection<? extends Result> process(BenchmarkResult br, File recording, final Slicer slicer, String name) throws IOException {
+        final Sites tlabSites = new Sites();
+        final Sites sampleSites = new Sites();
+
+        read(recording, new EventHandler() {
+            @Override
+            public void accept(Event event) throws ReflectiveOperationException {
+                Sites sites;
+                long bytes;
+                switch (event.name()) {
+                    case "jdk.ObjectAllocationInNewTLAB":
+                        sites = tlabSites;
+                        bytes = event.getLong("tlabSize");
+                        break;
+                    case "jdk.ObjectAllocationOutsideTLAB":
+                        sites = tlabSites;
+                        bytes = event.getLong("allocationSize");
+                        break;
+                    case "jdk.ObjectAllocationSample":
+                        sites = sampleSites;
+                        bytes = event.getLong("weight");
+                        break;
+                    default:
+                        return;
+                }
+
+                if (slicer.accepts(event.startTime()) && event.inWorker()) {
+                    sites.add(event.className("objectClass"), event.frames(depth), bytes, lines);
+                }
+            }
+        });
+
+        // TLAB events account every allocation, prefer them over the throttled samples when enabled
+        Sites sites = (tlabSites.sites.size() != 0) ? tlabSites : sampleSites;
+
+        File dir = dir();
+        File collapsed = new File((dir != null) ? dir : new File("."), name + ".collapsed");
+        List<String> out = new ArrayList<>();
+        for (String stack : Multisets.sortedDesc(sites.stacks)) {
+            out.add(stack + " " + sites.stacks.count(stack));
+        }
+        FileUtils.writeLines(collapsed, out);
+
+        return Collections.singleton(new AllocationSitesResult(sites.sites, measuredOps(br), top,
+                Collections.singletonList(collapsed.getAbsolutePath())));
+    }
+
+    /**
+     * Allocated bytes, attributed to the allocation sites and to the full stacks.
+     */
+    static class Sites {
+        final Multiset<String> sites = new HashMultiset<>();
+        final Multiset<String> stacks = new HashMultiset<>();
+
+        /**
+         * @param type allocated type
+         * @param frames stack frames, top frame first
+         * @param bytes allocated bytes
+         * @param lines number of top frames to identify the site by
+         */
+        void add(String type, List<String> frames, long bytes, int lines) {
+            String t = typeName(type);
+
+            StringBuilder site = new StringBuilder(t);
+            for (int c = 0; c < Math.min(lines, frames.size()); c++) {
+                site.append("\n").append(frames.get(c));
+            }
+            sites.add(site.toString(), bytes);
+
+            // collapsed stacks go from the root frame, and the allocated type is the leaf
+            List<String> rev = new ArrayList<>(frames);
+            Collections.reverse(rev);
+            rev.add(t);
+            stacks.add(Utils.join(rev, ";").replace(' ', '_'), bytes);
+        }
+    }
+
+    /**
+     * Converts the array type descriptors, e.g. "[[B" or "[Ljava.lang.Object;",
+     * into the source form, e.g. "byte[][]" or "java.lang.Object[]".
+     *
+     * @param type type name as recorded
+     * @return human-readable type name
+     */
+    static String typeName(String type) {
+        if (type == null) {
+            return "<unknown>";
+        }
+
+        int dims = 0;
+        while (dims < type.length() && type.charAt(dims) == '[') {
+            dims++;
+        }
+        if (dims == 0) {
+            return type;
+        }
+
+        String elem = type.substring(dims);
+        switch (elem) {
+            case "Z": elem = "boolean"; break;
+            case "B": elem = "byte";    break;
+            case "C": elem = "char";    break;
+            case "S": elem = "short";   break;
+            case "I": elem = "int";     break;
+            case "J": elem = "long";    break;
+            case "F": elem = "float";   break;
+            case "D": elem = "double";  break;
+            default:
+                if (elem.startsWith("L") && elem.endsWith(";")) {
+                    elem = elem.substring(1, elem.length() - 1);
+                }
+        }
+
+        StringBuilder sb = new StringBuilder(elem);
+        for (int c = 0; c < dims; c++) {
+            sb.append("[]");
+        }
+        return sb.toString();
+    }
+
+    public static class AllocationSitesResult extends Result<AllocationSitesResult> {
+        private static final long serialVersionUID = -2581547307655862340L;
+
+        private final Multiset<String> sites;
+        private final long ops;
+        private final int top;
+        private final List<String> files;
+
+        public AllocationSitesResult(Multiset<String> sites, long ops, int top, List<String> files) {
+            super(ResultRole.SECONDARY, Defaults.PREFIX + "jfr.alloc.sites.norm",
+                    of((ops != 0) ? 1.0 * sites.size() / ops : Double.NaN), "B/op", AggregationPolicy.AVG);
+            this.sites = sites;
+            this.ops = ops;
+            this.top = top;
+            this.files = files;
+        }
+
+        @Override
+        protected Aggregator<AllocationSitesResult> getThreadAggregator() {
+            return new AllocationSitesResultAggregator();
+        }
+
+        @Override
+        protected Aggregator<AllocationSitesResult> getIterationAggregator() {
+            return new AllocationSitesResultAggregator();
+        }
+
+        @Override
+        public String extendedInfo() {
+            long total = sites.size();
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Allocation sites profiler:\n\n");
+            sb.append(StackProfiler.dottedLine("Top allocation sites, B/op"));
+
+            long displayed = 0;
+            for (String site : Multisets.countHighest(sites, top)) {
+                long bytes = sites.count(site);
+                displayed += bytes;
+
+                String[] lines = site.split("\n");
+                sb.append(String.format("%5.1f%% %12.3f  %s%n", bytes * 100.0 / total, norm(bytes), lines[0]));
+                for (int c = 1; c < lines.length; c++) {
+                    sb.append(String.format("%21s%s%n", "", lines[c]));
+                }
+                sb.append("\n");
+            }
+            if (total > displayed) {
+                sb.append(String.format("%5.1f%% %12.3f  %s%n%n", (total - displayed) * 100.0 / total, norm(total - displayed), "<other>"));
+            }
+
+            sb.append(String.format("%5.1f%% %12.3f  %s%n%n", 100.0, norm(total), "<total>"));
+
+            sb.append("Collapsed stacks, in bytes:\n");
+            for (String file : files) {
+                sb.append("  ").append(file).append("\n");
+            }
+            return sb.toString();
+        }
+
+        private double norm(long bytes) {
+            return (ops != 0) ? 1.0 * bytes / ops : Double.NaN;
+        }
+    }
+
+    static class AllocationSitesResultAggregator implements Aggregator<AllocationSitesResult> {
+        @Override
+        public AllocationSitesResult aggregate(Collection<AllocationSitesResult> results) {
+            Multiset<String> sites = new HashMultiset<>();
+            long ops = 0;
+            int top = 0;
+            List<String> files = new ArrayList<>();
+            for (AllocationSitesResult r : results) {
+                for (String site : r.sites.keys()) {
+                    sites.add(site, r.sites.count(site));
+                }
+                ops += r.ops;
+                top = r.top;
+                files.addAll(r.files);
+            }
+            return new AllocationSitesResult(sites, ops, top, files);
+        }
+    }
+
+}
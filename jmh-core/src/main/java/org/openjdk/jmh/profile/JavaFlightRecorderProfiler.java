@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionParser;
+import org.openjdk.jmh.results.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flight Recorder profiler.
+ *
+ * <p>Accounts allocation, GC, safepoint, lock and compilation events that started
+ * within the measurement iterations. Allocation metrics are computed from the TLAB
+ * allocation events when enabled in the settings, and from the allocation samples
+ * otherwise.</p>
+ */
+public class JavaFlightRecorderProfiler extends AbstractFlightRecorderProfiler {
+
+    public JavaFlightRecorderProfiler(String initLine) throws ProfilerException {
+        super(initLine, JavaFlightRecorderProfiler.class.getCanonicalName());
+    }
+
+    @Override
+    protected void addMyOptions(OptionParser parser) {
+        // no specific options
+    }
+
+    @Override
+    public String getDescription() {
+        return "Flight Recorder profiler, sliced by measurement iterations";
+    }
+
+    @Override
+    protected Collection<? extends Result> process(BenchmarkResult br, File recording, final Slicer slicer, String name) throws IOException {
+        read(recording, new EventHandler() {
+            @Override
+            public void accept(Event event) throws ReflectiveOperationException {
+                String name = event.name();
+                switch (name) {
+                    case "jdk.ObjectAllocationInNewTLAB":
+                        slicer.add("alloc.tlab", event.startTime(), event.getLong("tlabSize"));
+                        break;
+                    case "jdk.ObjectAllocationOutsideTLAB":
+                        slicer.add("alloc.tlab", event.startTime(), event.getLong("allocationSize"));
+                        break;
+                    case "jdk.ObjectAllocationSample":
+                        slicer.add("alloc.sample", event.startTime(), event.getLong("weight"));
+                        break;
+                    case "jdk.GarbageCollection":
+                        slicer.add("gc", event.startTime(), event.duration("sumOfPauses"));
+                        break;
+                    case "jdk.SafepointBegin":
+                    case "jdk.SafepointEnd":
+                        slicer.safepoint(event.getLong("safepointId"), event.startTime(), event.endTime());
+                        break;
+                    case "jdk.JavaMonitorEnter":
+                    case "jdk.ThreadPark":
+                        // harness threads wait for the iterations to complete, only account the workers
+                        if (event.inWorker()) {
+                            slicer.add(name.equals("jdk.ThreadPark") ? "locks.park" : "locks.monitor",
+                                    event.startTime(), event.duration());
+                        }
+                        break;
+                    case "jdk.Compilation":
+                        slicer.add("compilation", event.startTime(), event.duration());
+                        break;
+                    default:
+                        // not interested
+                }
+            }
+        });
+        slicer.finish();
+
+        return results(slicer, measuredOps(br));
+    }
+
+    static Collection<Result> results(Slicer slicer, long ops) {
+        Collection<Result> results = new ArrayList<>();
+
+        long windowNs = slicer.windowNs();
+
+        // TLAB events account every allocation, prefer them over the throttled samples when enabled
+        long allocated = (slicer.count("alloc.tlab") != 0) ?
+                slicer.sum("alloc.tlab") :
+                slicer.sum("alloc.sample");
+
+        results.add(new ScalarResult(Defaults.PREFIX + "jfr.alloc.rate",
+                (windowNs != 0) ?
+                        1.0 * allocated / 1024 / 1024 * TimeUnit.SECONDS.toNanos(1) / windowNs :
+                        Double.NaN,
+                "MB/sec", AggregationPolicy.AVG));
+
+        if (allocated != 0) {
+            results.add(new ScalarResult(Defaults.PREFIX + "jfr.alloc.rate.norm",
+                    (ops != 0) ? 1.0 * allocated / ops : Double.NaN,
+                    "B/op", AggregationPolicy.AVG));
+        }
+
+        for (String metric : new String[]{"gc", "safepoints", "locks.monitor", "locks.park", "compilation"}) {
+            results.add(new ScalarResult(Defaults.PREFIX + "jfr." + metric + ".count",
+                    slicer.count(metric), "counts", AggregationPolicy.SUM));
+            if (slicer.count(metric) != 0) {
+                results.add(new ScalarResult(Defaults.PREFIX + "jfr." + metric + ".time",
+                        1.0 * slicer.sum(metric) / TimeUnit.MILLISECONDS.toNanos(1), "ms", AggregationPolicy.SUM));
+            }
+        }
+
+        return results;
+    }
+
+}
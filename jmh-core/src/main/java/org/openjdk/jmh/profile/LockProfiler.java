@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.options.IntegerValueConverter;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.HashMultiset;
+import org.openjdk.jmh.util.Multiset;
+import org.openjdk.jmh.util.Multisets;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock contention profiler.
+ *
+ * <p>Enables thread contention monitoring for the iteration, and reports how many times
+ * and for how long the worker threads were blocked entering the contended monitors, and
+ * were waiting in {@code Object.wait}, {@code LockSupport.park} and the like. Optionally,
+ * records Flight Recorder events to attribute the blocking to the monitor and parked
+ * object classes.</p>
+ */
+public class LockProfiler implements InternalProfiler {
+
+    private final boolean jfr;
+    private final int thresholdUs;
+    private final int top;
+
+    private final ThreadMXBean bean;
+    private boolean wasEnabled;
+    private Map<Long, long[]> before;
+    private long lastStop;
+
+    private Object recording;
+    private long recordingStart;
+
+    public LockProfiler(String initLine) throws ProfilerException {
+        OptionParser parser = new OptionParser();
+        parser.formatHelpWith(new ProfilerOptionFormatter(LockProfiler.class.getCanonicalName()));
+
+        OptionSpec<Boolean> optJfr = parser.accepts("jfr", "Attribute the blocking to the monitor and parked " +
+                "object classes with Flight Recorder. Requires JDK 11+.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(false);
+
+        OptionSpec<Integer> optThreshold = parser.accepts("threshold", "Flight Recorder events threshold, in microseconds. " +
+                "Smaller values catch shorter blocking, at the expense of more profiling overhead.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.NON_NEGATIVE).describedAs("us").defaultsTo(100);
+
+        OptionSpec<Integer> optTop = parser.accepts("top", "Number of top classes to show in the profiling results.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(10);
+
+        OptionSet set = ProfilerUtils.parseInitLine(initLine, parser);
+
+        try {
+            jfr = set.valueOf(optJfr);
+            thresholdUs = set.valueOf(optThreshold);
+            top = set.valueOf(optTop);
+        } catch (OptionException e) {
+            throw new ProfilerException(e.getMessage());
+        }
+
+        bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadContentionMonitoringSupported()) {
+            throw new ProfilerException("Thread contention monitoring is not supported by this VM");
+        }
+
+        if (jfr) {
+            try {
+                Class.forName("jdk.jfr.Recording");
+                Class.forName("jdk.jfr.consumer.RecordingFile");
+            } catch (ClassNotFoundException e) {
+                throw new ProfilerException("Flight Recorder API is not available, JDK 11+ is required");
+            }
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Lock contention profiler for worker threads";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        wasEnabled = bean.isThreadContentionMonitoringEnabled();
+        bean.setThreadContentionMonitoringEnabled(true);
+
+        // Worker threads may not exist yet; the ones that start later are accounted from zero
+        before = snapshot();
+
+        // Idle workers wait for the iteration tasks since the last iteration ended. This wait
+        // completes during the iteration, and should not be accounted.
+        long idleMs = (lastStop != 0) ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastStop) : 0;
+        for (long[] v : before.values()) {
+            if (v[4] != 0) {
+                v[2] += 1;
+                v[3] += idleMs;
+            }
+        }
+
+        if (jfr) {
+            startRecording();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        Map<Long, long[]> after = snapshot();
+        lastStop = System.nanoTime();
+
+        if (!wasEnabled) {
+            bean.setThreadContentionMonitoringEnabled(false);
+        }
+
+        long[] diff = new long[4];
+        for (Map.Entry<Long, long[]> e : after.entrySet()) {
+            long[] b = before.get(e.getKey());
+            for (int c = 0; c < diff.length; c++) {
+                diff[c] += Math.max(0, e.getValue()[c] - ((b != null) ? b[c] : 0));
+            }
+        }
+
+        long ops = result.getMetadata().getAllOps();
+
+        Collection<Result> results = new ArrayList<>();
+        addResults(results, "blocked", diff[0], diff[1], ops);
+        addResults(results, "waited", diff[2], diff[3], ops);
+
+        if (jfr) {
+            results.add(stopRecording(ops));
+        }
+        return results;
+    }
+
+    private static void addResults(Collection<Result> results, String kind, long count, long timeMs, long ops) {
+        results.add(new ScalarResult(Defaults.PREFIX + "lock." + kind + ".count", count, "counts", AggregationPolicy.SUM));
+        results.add(new ScalarResult(Defaults.PREFIX + "lock." + kind + ".time", timeMs, "ms", AggregationPolicy.SUM));
+        results.add(new ScalarResult(Defaults.PREFIX + "lock." + kind + ".count.norm",
+                (ops != 0) ? 1.0 * count / ops : Double.NaN,
+                "#/op", AggregationPolicy.AVG));
+        results.add(new ScalarResult(Defaults.PREFIX + "lock." + kind + ".time.norm",
+                (ops != 0) ? 1.0 * TimeUnit.MILLISECONDS.toNanos(timeMs) / ops : Double.NaN,
+                "ns/op", AggregationPolicy.AVG));
+    }
+
+    /**
+     * @return blocked count, blocked time, waited count, waited time, and waiting flag for worker threads
+     */
+    private Map<Long, long[]> snapshot() {
+        List<Long> ids = new ArrayList<>();
+        for (Thread t : ProfilerUtils.liveThreads()) {
+            if (ProfilerUtils.isWorkerThread(t.getName())) {
+                ids.add(t.getId());
+            }
+        }
+
+        long[] arr = new long[ids.size()];
+        for (int c = 0; c < arr.length; c++) {
+            arr[c] = ids.get(c);
+        }
+
+        Map<Long, long[]> r = new HashMap<>();
+        for (ThreadInfo info : bean.getThreadInfo(arr, 0)) {
+            if (info != null) {
+                r.put(info.getThreadId(), new long[]{
+                        info.getBlockedCount(),
+                        Math.max(0, info.getBlockedTime()),
+                        info.getWaitedCount(),
+                        Math.max(0, info.getWaitedTime()),
+                        (info.getThreadState() == Thread.State.WAITING) ? 1 : 0,
+                });
+            }
+        }
+        return r;
+    }
+
+    private void startRecording() {
+        try {
+            Class<?> recKlass = Class.forName("jdk.jfr.Recording");
+            Method enable = recKlass.getMethod("enable", String.class);
+            Method withThreshold = enable.getReturnType().getMethod("withThreshold", Duration.class);
+            Method withoutStackTrace = enable.getReturnType().getMethod("withoutStackTrace");
+
+            recording = recKlass.getConstructor().newInstance();
+            for (String event : new String[]{"jdk.JavaMonitorEnter", "jdk.ThreadPark", "jdk.JavaMonitorWait"}) {
+                Object settings = enable.invoke(recording, event);
+                withThreshold.invoke(settings, Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(thresholdUs)));
+                withoutStackTrace.invoke(settings);
+            }
+            recKlass.getMethod("start").invoke(recording);
+            recordingStart = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LockClassesResult stopRecording(long ops) {
+        final Multiset<String> counts = new HashMultiset<>();
+        final Multiset<String> times = new HashMultiset<>();
+        File file = null;
+        try {
+            Class<?> recKlass = recording.getClass();
+            recKlass.getMethod("stop").invoke(recording);
+
+            file = FileUtils.tempFile("jfr");
+            recKlass.getMethod("dump", Path.class).invoke(recording, file.toPath());
+            recKlass.getMethod("close").invoke(recording);
+
+            AbstractFlightRecorderProfiler.read(file, new AbstractFlightRecorderProfiler.EventHandler() {
+                @Override
+                public void accept(AbstractFlightRecorderProfiler.Event event) throws ReflectiveOperationException {
+                    String kind;
+                    String field;
+                    switch (event.name()) {
+                        case "jdk.JavaMonitorEnter":
+                            kind = "blocked";
+                            field = "monitorClass";
+                            break;
+                        case "jdk.JavaMonitorWait":
+                            kind = "waited";
+                            field = "monitorClass";
+                            break;
+                        case "jdk.ThreadPark":
+                            kind = "parked";
+                            field = "parkedClass";
+                            break;
+                        default:
+                            return;
+                    }
+                    // skip the idle waits that started before the iteration
+                    if (event.inWorker() && event.startTime() >= recordingStart) {
+                        String klass = event.className(field);
+                        String key = kind + " " + ((klass != null) ? JavaFlightRecorderAllocationProfiler.typeName(klass) : "<unknown>");
+                        counts.add(key);
+                        times.add(key, event.duration());
+                    }
+                }
+            });
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            recording = null;
+            if (file != null) {
+                file.delete();
+            }
+        }
+        return new LockClassesResult(counts, times, ops, top);
+    }
+
+    /**
+     * Blocking attributed to the monitor and parked object classes.
+     */
+    public static class LockClassesResult extends Result<LockClassesResult> {
+        private static final long serialVersionUID = 5925541329573612046L;
+
+        private final Multiset<String> counts;
+        private final Multiset<String> times;
+        private final long ops;
+        private final int top;
+
+        public LockClassesResult(Multiset<String> counts, Multiset<String> times, long ops, int top) {
+            super(ResultRole.SECONDARY, Defaults.PREFIX + "lock.jfr.time.norm",
+                    of((ops != 0) ? 1.0 * times.size() / ops : Double.NaN), "ns/op", AggregationPolicy.AVG);
+            this.counts = counts;
+            this.times = times;
+            this.ops = ops;
+            this.top = top;
+        }
+
+        @Override
+        protected Aggregator<LockClassesResult> getThreadAggregator() {
+            return new LockClassesResultAggregator();
+        }
+
+        @Override
+        protected Aggregator<LockClassesResult> getIterationAggregator() {
+            return new LockClassesResultAggregator();
+        }
+
+        @Override
+        public String extendedInfo() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Lock profiler:\n\n");
+            sb.append(StackProfiler.dottedLine("Top blocking, by class"));
+            sb.append(String.format("%12s %12s %12s  %s%n", "ns/op", "#/op", "events", "class"));
+            for (String key : Multisets.countHighest(times, top)) {
+                sb.append(String.format("%12.3f %12.6f %12d  %s%n",
+                        (ops != 0) ? 1.0 * times.count(key) / ops : Double.NaN,
+                        (ops != 0) ? 1.0 * counts.count(key) / ops : Double.NaN,
+                        counts.count(key),
+                        key));
+            }
+            return sb.toString();
+        }
+    }
+
+    static class LockClassesResultAggregator implements Aggregator<LockClassesResult> {
+        @Override
+        public LockClassesResult aggregate(Collection<LockClassesResult> results) {
+            Multiset<String> counts = new HashMultiset<>();
+            Multiset<String> times = new HashMultiset<>();
+            long ops = 0;
+            int top = 0;
+            for (LockClassesResult r : results) {
+                for (String key : r.counts.keys()) {
+                    counts.add(key, r.counts.count(key));
+                }
+                for (String key : r.times.keys()) {
+                    times.add(key, r.times.count(key));
+                }
+                ops += r.ops;
+                top = r.top;
+            }
+            return new LockClassesResult(counts, times, ops, top);
+        }
+    }
+
+}
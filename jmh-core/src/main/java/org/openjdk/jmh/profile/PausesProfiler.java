@@ -32,7 +32,7 @@ import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.IterationParams;
 import org.openjdk.jmh.results.*;
 import org.openjdk.jmh.runner.options.IntegerValueConverter;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 import org.openjdk.jmh.util.Statistics;
 
 import java.util.Arrays;
@@ -44,7 +44,7 @@ import java.util.concurrent.locks.LockSupport;
 public class PausesProfiler implements InternalProfiler {
 
     private Ticker ticker;
-    private SampleBuffer buffer;
+    private SampleHistogram histogram;
     private long expectedNs;
     private long thresh;
 
@@ -81,8 +81,8 @@ public class PausesProfiler implements InternalProfiler {
 
     @Override
     public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
-        buffer = new SampleBuffer();
-        ticker = new Ticker(buffer);
+        histogram = new SampleHistogram();
+        ticker = new Ticker(histogram);
         ticker.start();
     }
 
@@ -95,11 +95,11 @@ public class PausesProfiler implements InternalProfiler {
             // do nothing, proceed
         }
 
-        return Collections.singletonList(new PausesProfilerResult(buffer));
+        return Collections.singletonList(new PausesProfilerResult(histogram));
     }
 
     private long calibrate() {
-        SampleBuffer buf = new SampleBuffer();
+        SampleHistogram buf = new SampleHistogram();
 
         long lastTime = System.nanoTime();
         for (int c = 0; c < 10000; c++) {
@@ -123,9 +123,9 @@ public class PausesProfiler implements InternalProfiler {
 
 
     private class Ticker extends Thread {
-        private final SampleBuffer buffer;
-        public Ticker(SampleBuffer buffer) {
-            this.buffer = buffer;
+        private final SampleHistogram histogram;
+        public Ticker(SampleHistogram histogram) {
+            this.histogram = histogram;
             setPriority(Thread.MAX_PRIORITY);
             setDaemon(true);
         }
@@ -142,7 +142,7 @@ public class PausesProfiler implements InternalProfiler {
                 if (delta > thresh) {
                     // assume the actual pause starts within the sleep interval,
                     // we can adjust the measurement by a half the expected time
-                    buffer.add(delta + expectedNs/2);
+                    histogram.add(delta + expectedNs/2);
                 }
                 lastTime = time;
             }
@@ -150,11 +150,11 @@ public class PausesProfiler implements InternalProfiler {
     }
 
     static class PausesProfilerResult extends Result<PausesProfilerResult> {
-        private final SampleBuffer buffer;
+        private final SampleHistogram histogram;
 
-        public PausesProfilerResult(SampleBuffer buffer) {
-            super(ResultRole.SECONDARY, Defaults.PREFIX + "pauses", buffer.getStatistics(1D / 1000000), "ms", AggregationPolicy.SUM);
-            this.buffer = buffer;
+        public PausesProfilerResult(SampleHistogram histogram) {
+            super(ResultRole.SECONDARY, Defaults.PREFIX + "pauses", histogram.getStatistics(1D / 1000000), "ms", AggregationPolicy.SUM);
+            this.histogram = histogram;
         }
 
         @Override
@@ -191,11 +191,11 @@ public class PausesProfiler implements InternalProfiler {
 
             @Override
             public PausesProfilerResult aggregate(Collection<PausesProfilerResult> results) {
-                SampleBuffer buffer = new SampleBuffer();
+                SampleHistogram histogram = new SampleHistogram();
                 for (PausesProfilerResult r : results) {
-                    buffer.addAll(r.buffer);
+                    histogram.addAll(r.histogram);
                 }
-                return new PausesProfilerResult(buffer);
+                return new PausesProfilerResult(histogram);
             }
         }
     }
@@ -167,12 +167,16 @@ public class ProfilerFactory {
         BUILT_IN = new TreeMap<>();
         BUILT_IN.put("cl",       ClassloaderProfiler.class);
         BUILT_IN.put("comp",     CompilerProfiler.class);
+        BUILT_IN.put("cpu",      ThreadCpuProfiler.class);
         BUILT_IN.put("gc",       GCProfiler.class);
         BUILT_IN.put("hs_cl",    HotspotClassloadingProfiler.class);
         BUILT_IN.put("hs_comp",  HotspotCompilationProfiler.class);
         BUILT_IN.put("hs_gc",    HotspotMemoryProfiler.class);
         BUILT_IN.put("hs_rt",    HotspotRuntimeProfiler.class);
         BUILT_IN.put("hs_thr",   HotspotThreadProfiler.class);
+        BUILT_IN.put("jfr",      JavaFlightRecorderProfiler.class);
+        BUILT_IN.put("jfr_alloc", JavaFlightRecorderAllocationProfiler.class);
+        BUILT_IN.put("lock",     LockProfiler.class);
         BUILT_IN.put("stack",    StackProfiler.class);
         BUILT_IN.put("perf",     LinuxPerfProfiler.class);
         BUILT_IN.put("perfnorm", LinuxPerfNormProfiler.class);
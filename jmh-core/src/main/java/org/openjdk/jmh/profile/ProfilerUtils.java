@@ -34,10 +34,37 @@ import org.openjdk.jmh.results.BenchmarkResultMetaData;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 class ProfilerUtils {
 
+    /**
+     * The part of benchmark worker thread names, see WorkerThreadFactory.
+     */
+    private static final String WORKER_THREAD = "-jmh-worker-";
+
+    public static boolean isWorkerThread(String name) {
+        return name.contains(WORKER_THREAD);
+    }
+
+    /**
+     * Lists live platform threads, without stopping them.
+     *
+     * @return live threads
+     */
+    public static List<Thread> liveThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        Thread[] all = new Thread[root.activeCount() * 2 + 16];
+        int count = root.enumerate(all, true);
+        return Arrays.asList(all).subList(0, count);
+    }
+
     public static OptionSet parseInitLine(String initLine, OptionParser parser) throws ProfilerException {
         parser.accepts("help", "Display help.");
 
@@ -26,7 +26,7 @@ package org.openjdk.jmh.profile;
 
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.results.*;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -100,15 +100,15 @@ public class SafepointsProfiler implements ExternalProfiler {
             maxVer = Math.max(maxVer, d.ver);
         }
 
-        SampleBuffer pauseBuff = new SampleBuffer();
-        SampleBuffer ttspBuff = new SampleBuffer();
+        SampleHistogram pauseHist = new SampleHistogram();
+        SampleHistogram ttspHist = new SampleHistogram();
 
         for (ParsedData d : ds) {
             if (d.ver == maxVer &&
                     (d.timestamp > measureFrom) && (d.timestamp < measureTo)) {
-                pauseBuff.add(d.stopTime);
+                pauseHist.add(d.stopTime);
                 if (d.ttspTime != NO_LONG_VALUE) {
-                    ttspBuff.add(d.ttspTime);
+                    ttspHist.add(d.ttspTime);
                 }
             }
         }
@@ -118,11 +118,11 @@ public class SafepointsProfiler implements ExternalProfiler {
         results.add(new ScalarResult(Defaults.PREFIX + "safepoints.interval",
                 measuredTimeMs, "ms", AggregationPolicy.SUM));
 
-        results.add(new SafepointProfilerResult("pause", pauseBuff));
+        results.add(new SafepointProfilerResult("pause", pauseHist));
 
         // JDK 7 does not have TTSP measurements, ignore the zero metric:
         if (maxVer > 7) {
-            results.add(new SafepointProfilerResult("ttsp", ttspBuff));
+            results.add(new SafepointProfilerResult("ttsp", ttspHist));
         }
         return results;
     }
@@ -143,12 +143,12 @@ public class SafepointsProfiler implements ExternalProfiler {
 
     static class SafepointProfilerResult extends Result<SafepointProfilerResult> {
         private final String suffix;
-        private final SampleBuffer buffer;
+        private final SampleHistogram histogram;
 
-        public SafepointProfilerResult(String suffix, SampleBuffer buffer) {
-            super(ResultRole.SECONDARY, Defaults.PREFIX + "safepoints." + suffix, buffer.getStatistics(1D / 1000000), "ms", AggregationPolicy.SUM);
+        public SafepointProfilerResult(String suffix, SampleHistogram histogram) {
+            super(ResultRole.SECONDARY, Defaults.PREFIX + "safepoints." + suffix, histogram.getStatistics(1D / 1000000), "ms", AggregationPolicy.SUM);
             this.suffix = suffix;
-            this.buffer = buffer;
+            this.histogram = histogram;
         }
 
         @Override
@@ -185,17 +185,17 @@ public class SafepointsProfiler implements ExternalProfiler {
 
             @Override
             public SafepointProfilerResult aggregate(Collection<SafepointProfilerResult> results) {
-                SampleBuffer buffer = new SampleBuffer();
+                SampleHistogram histogram = new SampleHistogram();
                 String suffix = null;
                 for (SafepointProfilerResult r : results) {
-                    buffer.addAll(r.buffer);
+                    histogram.addAll(r.histogram);
                     if (suffix == null) {
                         suffix = r.suffix;
                     } else if (!suffix.equals(r.suffix)) {
                         throw new IllegalStateException("Trying to aggregate results with different suffixes");
                     }
                 }
-                return new SafepointProfilerResult(suffix, buffer);
+                return new SafepointProfilerResult(suffix, histogram);
             }
         }
     }
@@ -31,19 +31,25 @@ import joptsimple.OptionSpec;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.IterationParams;
 import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.IterationType;
 import org.openjdk.jmh.runner.options.IntegerValueConverter;
-import org.openjdk.jmh.util.HashMultiset;
-import org.openjdk.jmh.util.Multiset;
-import org.openjdk.jmh.util.Multisets;
+import org.openjdk.jmh.util.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Very basic and naive stack profiler.
+ *
+ * <p>Samples the stacks of benchmark worker threads only, up to the required depth, and keeps
+ * the samples as the interned frame identifiers, so that sampling does not disturb the
+ * benchmark much. Other threads are sampled only if no worker threads are found.</p>
  */
 public class StackProfiler implements InternalProfiler {
 
@@ -64,6 +70,14 @@ public class StackProfiler implements InternalProfiler {
     private final int periodMsec;
     private final boolean sampleLine;
     private final Set<String> excludePackageNames;
+    private final int depth;
+    private final boolean collapsed;
+    private final String dir;
+
+    /**
+     * Collapsed stacks over measurement iterations.
+     */
+    private final Multiset<String> collapsedStacks;
 
     public StackProfiler(String initLine) throws ProfilerException {
         OptionParser parser = new OptionParser();
@@ -97,6 +111,16 @@ public class StackProfiler implements InternalProfiler {
                 .withRequiredArg().withValuesSeparatedBy(",").ofType(String.class).describedAs("package+")
                 .defaultsTo("java.", "javax.", "sun.", "sunw.", "com.sun.", "org.openjdk.jmh.");
 
+        OptionSpec<Boolean> optCollapsed = parser.accepts("collapsed", "Save the stacks from measurement iterations " +
+                "in the collapsed format, suitable for flame graph tools. Package filtering does not apply to these.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(false);
+
+        OptionSpec<Integer> optDepth = parser.accepts("depth", "Number of stack lines to save in the collapsed stacks.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(64);
+
+        OptionSpec<String> optDir = parser.accepts("dir", "Directory to save the collapsed stacks in.")
+                .withRequiredArg().ofType(String.class).describedAs("dir").defaultsTo(".");
+
         OptionSet set = ProfilerUtils.parseInitLine(initLine, parser);
 
         try {
@@ -109,9 +133,15 @@ public class StackProfiler implements InternalProfiler {
             excludePackageNames = excludePackages ?
                     new HashSet<>(set.valuesOf(optExcludeClasses)) :
                     Collections.<String>emptySet();
+
+            collapsed = set.valueOf(optCollapsed);
+            depth = Math.max(set.valueOf(optDepth), stackLines);
+            dir = set.valueOf(optDir);
         } catch (OptionException e) {
             throw new ProfilerException(e.getMessage());
         }
+
+        collapsedStacks = new HashMultiset<>();
     }
 
     private volatile SamplingTask samplingTask;
@@ -125,7 +155,29 @@ public class StackProfiler implements InternalProfiler {
     @Override
     public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
         samplingTask.stop();
-        return Collections.singleton(new StackResult(samplingTask.stacks, topStacks));
+
+        List<String> files = Collections.emptyList();
+        if (collapsed && iterationParams.getType() == IterationType.MEASUREMENT) {
+            // The number of measurement iterations is not always known upfront, write what we have so far
+            samplingTask.collapse(collapsedStacks);
+            File file = new File(dir, benchmarkParams.id().replaceAll("[^a-zA-Z0-9._-]", "_") + "-" + Utils.getPid() + ".collapsed");
+            List<String> lines = new ArrayList<>();
+            for (String stack : Multisets.sortedDesc(collapsedStacks)) {
+                lines.add(stack + " " + collapsedStacks.count(stack));
+            }
+            try {
+                File d = file.getAbsoluteFile().getParentFile();
+                if (!d.isDirectory() && !d.mkdirs()) {
+                    throw new IOException("Cannot create directory: " + d);
+                }
+                FileUtils.writeLines(file, lines);
+                files = Collections.singletonList(file.getAbsolutePath());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return Collections.singleton(new StackResult(samplingTask.stacks(), topStacks, files));
     }
 
     @Override
@@ -135,58 +187,55 @@ public class StackProfiler implements InternalProfiler {
 
     public class SamplingTask implements Runnable {
 
+        /**
+         * Look for the new threads once in this number of samples.
+         */
+        private static final int RESCAN_SAMPLES = 100;
+
         private final Thread thread;
-        private final Map<Thread.State, Multiset<StackRecord>> stacks;
+        private final StackTable table;
+        private final Map<StackTraceElement, Integer> frameIds;
+        private final List<StackTraceElement> frames;
 
         public SamplingTask() {
-            stacks = new EnumMap<>(Thread.State.class);
-            for (Thread.State s : Thread.State.values()) {
-                stacks.put(s, new HashMultiset<StackRecord>());
-            }
+            table = new StackTable();
+            frameIds = new HashMap<>();
+            frames = new ArrayList<>();
             thread = new Thread(this);
             thread.setName("Sampling Thread");
+            thread.setDaemon(true);
         }
 
         @Override
         public void run() {
+            int[] buf = new int[depth + 1];
 
-            while (!Thread.interrupted()) {
-                ThreadInfo[] infos = ManagementFactory.getThreadMXBean().dumpAllThreads(false, false);
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            long[] targets = new long[0];
+            int sinceScan = 0;
 
-                info:
-                for (ThreadInfo info : infos) {
+            while (!Thread.interrupted()) {
+                if (targets.length == 0 || ++sinceScan >= RESCAN_SAMPLES) {
+                    targets = findTargets();
+                    sinceScan = 0;
+                }
 
-                    // filter out ignored threads
-                    for (String ignore : IGNORED_THREADS) {
-                        if (info.getThreadName().equalsIgnoreCase(ignore)) {
-                            continue info;
-                        }
+                // Only walk the target threads, and only as deep as needed
+                for (ThreadInfo info : bean.getThreadInfo(targets, depth)) {
+                    if (info == null) {
+                        // thread is not alive anymore
+                        continue;
                     }
 
-                    //   - Discard everything that matches excluded patterns from the top of the stack
-                    //   - Get the remaining number of stack lines and build the stack record
-
                     StackTraceElement[] stack = info.getStackTrace();
-                    List<String> lines = new ArrayList<>();
-
-                    for (StackTraceElement l : stack) {
-                        String className = l.getClassName();
-                        if (!isExcluded(className)) {
-                            lines.add(className + '.' + l.getMethodName()
-                                    + (sampleLine ? ":" + l.getLineNumber() : ""));
+                    int len = Math.min(stack.length, depth);
 
-                            if (lines.size() >= stackLines) {
-                                break;
-                            }
-                        }
+                    // The key is the thread state, followed by frame IDs, top frame first
+                    buf[0] = info.getThreadState().ordinal();
+                    for (int c = 0; c < len; c++) {
+                        buf[c + 1] = frameId(stack[c]);
                     }
-
-                    if (lines.isEmpty()) {
-                        lines.add("<stack is empty, everything is filtered?>");
-                    }
-
-                    Thread.State state = info.getThreadState();
-                    stacks.get(state).add(new StackRecord(lines));
+                    table.add(buf, len + 1);
                 }
 
                 try {
@@ -210,6 +259,112 @@ public class StackProfiler implements InternalProfiler {
             }
         }
 
+        private int frameId(StackTraceElement e) {
+            Integer id = frameIds.get(e);
+            if (id == null) {
+                id = frames.size();
+                frames.add(e);
+                frameIds.put(e, id);
+            }
+            return id;
+        }
+
+        /**
+         * @return IDs of worker threads; or of all other threads, if there are no workers
+         */
+        private long[] findTargets() {
+            List<Long> workers = new ArrayList<>();
+            List<Long> others = new ArrayList<>();
+
+            thread:
+            for (Thread t : ProfilerUtils.liveThreads()) {
+                if (t == thread) {
+                    continue;
+                }
+                if (ProfilerUtils.isWorkerThread(t.getName())) {
+                    workers.add(t.getId());
+                    continue;
+                }
+                for (String ignore : IGNORED_THREADS) {
+                    if (t.getName().equalsIgnoreCase(ignore)) {
+                        continue thread;
+                    }
+                }
+                others.add(t.getId());
+            }
+
+            List<Long> ids = workers.isEmpty() ? others : workers;
+            long[] result = new long[ids.size()];
+            for (int c = 0; c < result.length; c++) {
+                result[c] = ids.get(c);
+            }
+            return result;
+        }
+
+        /**
+         * Builds the stack records, once the sampling is stopped.
+         *
+         * @return stack records by thread state
+         */
+        public Map<Thread.State, Multiset<StackRecord>> stacks() {
+            Thread.State[] states = Thread.State.values();
+            Map<Thread.State, Multiset<StackRecord>> stacks = new EnumMap<>(Thread.State.class);
+            for (Thread.State s : states) {
+                stacks.put(s, new HashMultiset<StackRecord>());
+            }
+
+            for (int id = 0; id < table.size(); id++) {
+                int[] key = table.key(id);
+
+                //   - Discard everything that matches excluded patterns from the top of the stack
+                //   - Get the remaining number of stack lines and build the stack record
+
+                List<String> lines = new ArrayList<>();
+                for (int c = 1; c < key.length; c++) {
+                    StackTraceElement l = frames.get(key[c]);
+                    if (!isExcluded(l.getClassName())) {
+                        lines.add(frameName(l));
+                        if (lines.size() >= stackLines) {
+                            break;
+                        }
+                    }
+                }
+
+                if (lines.isEmpty()) {
+                    lines.add("<stack is empty, everything is filtered?>");
+                }
+
+                stacks.get(states[key[0]]).add(new StackRecord(lines), table.count(id));
+            }
+            return stacks;
+        }
+
+        /**
+         * Adds the collapsed stacks, once the sampling is stopped.
+         *
+         * @param dst collapsed stacks to add to
+         */
+        public void collapse(Multiset<String> dst) {
+            for (int id = 0; id < table.size(); id++) {
+                int[] key = table.key(id);
+                if (key.length == 1) {
+                    continue;
+                }
+                StringBuilder sb = new StringBuilder();
+                for (int c = key.length - 1; c >= 1; c--) {
+                    sb.append(frameName(frames.get(key[c])).replace(' ', '_'));
+                    if (c > 1) {
+                        sb.append(';');
+                    }
+                }
+                dst.add(sb.toString(), table.count(id));
+            }
+        }
+
+        private String frameName(StackTraceElement l) {
+            return l.getClassName() + '.' + l.getMethodName() + (sampleLine ? ":" + l.getLineNumber() : "");
+        }
+
         private boolean isExcluded(String className) {
             for (String p : excludePackageNames) {
                 if (className.startsWith(p)) {
@@ -220,6 +375,99 @@ public class StackProfiler implements InternalProfiler {
         }
     }
 
+    /**
+     * Counts the stacks, given as the arrays of integer IDs. This is the open-addressing
+     * hash table that does not allocate when the stack was already seen.
+     */
+    static class StackTable {
+        private int[] slots;
+        private int[][] keys;
+        private long[] counts;
+        private int size;
+
+        StackTable() {
+            slots = new int[64];
+            Arrays.fill(slots, -1);
+            keys = new int[32][];
+            counts = new long[32];
+        }
+
+        /**
+         * @param buf buffer holding the stack
+         * @param len stack length
+         * @return stack ID
+         */
+        int add(int[] buf, int len) {
+            int mask = slots.length - 1;
+            for (int s = hash(buf, len) & mask; ; s = (s + 1) & mask) {
+                int id = slots[s];
+                if (id < 0) {
+                    id = size++;
+                    if (id == keys.length) {
+                        keys = Arrays.copyOf(keys, id * 2);
+                        counts = Arrays.copyOf(counts, id * 2);
+                    }
+                    keys[id] = Arrays.copyOf(buf, len);
+                    counts[id] = 1;
+                    slots[s] = id;
+                    if (size * 2 > slots.length) {
+                        rehash();
+                    }
+                    return id;
+                }
+                if (matches(keys[id], buf, len)) {
+                    counts[id]++;
+                    return id;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] key(int id) {
+            return keys[id];
+        }
+
+        long count(int id) {
+            return counts[id];
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int s = hash(keys[id], keys[id].length) & mask;
+                while (slots[s] >= 0) {
+                    s = (s + 1) & mask;
+                }
+                slots[s] = id;
+            }
+        }
+
+        private static int hash(int[] buf, int len) {
+            int h = 1;
+            for (int c = 0; c < len; c++) {
+                h = 31 * h + buf[c];
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(int[] key, int[] buf, int len) {
+            if (key.length != len) {
+                return false;
+            }
+            for (int c = 0; c < len; c++) {
+                if (key[c] != buf[c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     private static class StackRecord implements Serializable {
         private static final long serialVersionUID = -1829626661894754733L;
 
@@ -250,11 +498,17 @@ public class StackProfiler implements InternalProfiler {
 
         private final Map<Thread.State, Multiset<StackRecord>> stacks;
         private final int topStacks;
+        private final Collection<String> files;
 
         public StackResult(Map<Thread.State, Multiset<StackRecord>> stacks, int topStacks) {
+            this(stacks, topStacks, Collections.<String>emptyList());
+        }
+
+        public StackResult(Map<Thread.State, Multiset<StackRecord>> stacks, int topStacks, Collection<String> files) {
             super(ResultRole.SECONDARY, Defaults.PREFIX + "stack", of(Double.NaN), "---", AggregationPolicy.AVG);
             this.stacks = stacks;
             this.topStacks = topStacks;
+            this.files = files;
         }
 
         @Override
@@ -274,7 +528,14 @@ public class StackProfiler implements InternalProfiler {
 
         @Override
         public String extendedInfo() {
-            return getStack(stacks);
+            StringBuilder sb = new StringBuilder(getStack(stacks));
+            if (!files.isEmpty()) {
+                sb.append("Collapsed stacks:\n");
+                for (String file : files) {
+                    sb.append("  ").append(file).append("\n");
+                }
+            }
+            return sb.toString();
         }
 
         public String getStack(final Map<Thread.State, Multiset<StackRecord>> stacks) {
@@ -379,6 +640,7 @@ public class StackProfiler implements InternalProfiler {
         @Override
         public StackResult aggregate(Collection<StackResult> results) {
             int topStacks = 0;
+            Set<String> files = new TreeSet<>();
             Map<Thread.State, Multiset<StackRecord>> sum = new EnumMap<>(Thread.State.class);
             for (StackResult r : results) {
                 for (Map.Entry<Thread.State, Multiset<StackRecord>> entry : r.stacks.entrySet()) {
@@ -391,8 +653,9 @@ public class StackProfiler implements InternalProfiler {
                     }
                 }
                 topStacks = r.topStacks;
+                files.addAll(r.files);
             }
-            return new StackResult(sum, topStacks);
+            return new StackResult(sum, topStacks, new ArrayList<>(files));
         }
     }
 
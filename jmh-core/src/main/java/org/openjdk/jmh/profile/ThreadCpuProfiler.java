@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-thread CPU time profiler.
+ *
+ * <p>Takes the CPU and user time of the worker threads at iteration boundaries, and reports
+ * the CPU time per operation, its user/system split, and the CPU utilization relative to the
+ * iteration wall time. The minimal and maximal utilization across the worker threads show if
+ * some threads were descheduled or blocked more than others.</p>
+ */
+public class ThreadCpuProfiler implements InternalProfiler {
+
+    private final ThreadMXBean bean;
+    private boolean wasEnabled;
+    private Map<Long, long[]> before;
+    private long beforeTime;
+
+    public ThreadCpuProfiler() throws ProfilerException {
+        bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadCpuTimeSupported()) {
+            throw new ProfilerException("Thread CPU time is not supported by this VM");
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Per-thread CPU time vs wall time";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        wasEnabled = bean.isThreadCpuTimeEnabled();
+        bean.setThreadCpuTimeEnabled(true);
+
+        // Worker threads may not exist yet; the ones that start later are accounted from zero
+        before = snapshot();
+        beforeTime = System.nanoTime();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        long afterTime = System.nanoTime();
+        Map<Long, long[]> after = snapshot();
+
+        if (!wasEnabled) {
+            bean.setThreadCpuTimeEnabled(false);
+        }
+
+        return results(before, after, afterTime - beforeTime, result.getMetadata().getAllOps());
+    }
+
+    /**
+     * @return CPU time and user time for worker threads
+     */
+    private Map<Long, long[]> snapshot() {
+        Map<Long, long[]> r = new HashMap<>();
+        for (Thread t : ProfilerUtils.liveThreads()) {
+            if (ProfilerUtils.isWorkerThread(t.getName())) {
+                long cpu = bean.getThreadCpuTime(t.getId());
+                long user = bean.getThreadUserTime(t.getId());
+                if (cpu >= 0 && user >= 0) {
+                    r.put(t.getId(), new long[]{cpu, user});
+                }
+            }
+        }
+        return r;
+    }
+
+    static Collection<? extends Result> results(Map<Long, long[]> before, Map<Long, long[]> after, long wallNs, long ops) {
+        if (after.isEmpty() || wallNs <= 0) {
+            // no platform worker threads to measure
+            return Collections.emptyList();
+        }
+
+        long cpu = 0;
+        long user = 0;
+        double minUtil = Double.POSITIVE_INFINITY;
+        double maxUtil = Double.NEGATIVE_INFINITY;
+
+        for (Map.Entry<Long, long[]> e : after.entrySet()) {
+            long[] b = before.get(e.getKey());
+            long threadCpu = e.getValue()[0] - ((b != null) ? b[0] : 0);
+            long threadUser = e.getValue()[1] - ((b != null) ? b[1] : 0);
+
+            // user time is usually accounted with the scheduler tick granularity,
+            // and can overshoot the precise CPU time slightly
+            threadUser = Math.min(threadUser, threadCpu);
+
+            cpu += threadCpu;
+            user += threadUser;
+
+            double util = 100.0 * threadCpu / wallNs;
+            minUtil = Math.min(minUtil, util);
+            maxUtil = Math.max(maxUtil, util);
+        }
+
+        long system = cpu - user;
+
+        List<Result> results = new ArrayList<>();
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.time.norm",
+                (ops != 0) ? 1.0 * cpu / ops : Double.NaN,
+                "ns/op", AggregationPolicy.AVG));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.user.norm",
+                (ops != 0) ? 1.0 * user / ops : Double.NaN,
+                "ns/op", AggregationPolicy.AVG));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.system.norm",
+                (ops != 0) ? 1.0 * system / ops : Double.NaN,
+                "ns/op", AggregationPolicy.AVG));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.time",
+                1.0 * cpu / TimeUnit.MILLISECONDS.toNanos(1),
+                "ms", AggregationPolicy.SUM));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.util",
+                100.0 * cpu / wallNs / after.size(),
+                "%", AggregationPolicy.AVG));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.util.min",
+                minUtil,
+                "%", AggregationPolicy.MIN));
+        results.add(new ScalarResult(Defaults.PREFIX + "cpu.util.max",
+                maxUtil,
+                "%", AggregationPolicy.MAX));
+        return results;
+    }
+
+}
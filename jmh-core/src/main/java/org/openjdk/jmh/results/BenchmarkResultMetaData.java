@@ -24,6 +24,8 @@
  */
 package org.openjdk.jmh.results;
 
+import org.openjdk.jmh.util.Optional;
+
 import java.io.Serializable;
 
 public class BenchmarkResultMetaData implements Serializable {
@@ -34,14 +36,24 @@ public class BenchmarkResultMetaData implements Serializable {
     private final long stopTime;
     private final long warmupOps;
     private final long measurementOps;
+    private final int warmupIterations;
+    private final MeasurementStopReason stopReason;
+    private String cpuPartition;
 
     public BenchmarkResultMetaData(long warmupTime, long measurementTime, long stopTime, long warmupOps, long measurementOps) {
+        this(warmupTime, measurementTime, stopTime, warmupOps, measurementOps, -1, MeasurementStopReason.FIXED_COUNT);
+    }
+
+    public BenchmarkResultMetaData(long warmupTime, long measurementTime, long stopTime, long warmupOps, long measurementOps,
+                                   int warmupIterations, MeasurementStopReason stopReason) {
         this.startTime = Long.MIN_VALUE;
         this.warmupTime = warmupTime;
         this.measurementTime = measurementTime;
         this.stopTime = stopTime;
         this.warmupOps = warmupOps;
         this.measurementOps = measurementOps;
+        this.warmupIterations = warmupIterations;
+        this.stopReason = stopReason;
     }
 
     public long getStartTime() {
@@ -71,7 +83,32 @@ public class BenchmarkResultMetaData implements Serializable {
         return warmupOps;
     }
 
+    /**
+     * @return number of warmup iterations done, if known
+     */
+    public Optional<Integer> getWarmupIterations() {
+        return (warmupIterations >= 0) ? Optional.of(warmupIterations) : Optional.<Integer>none();
+    }
+
+    /**
+     * @return why the measurement iterations had stopped
+     */
+    public MeasurementStopReason getStopReason() {
+        return stopReason;
+    }
+
     public void adjustStart(long startTime) {
         this.startTime = startTime;
     }
+
+    /**
+     * @return CPU partition the fork was pinned to, if forks were running in parallel
+     */
+    public Optional<String> getCpuPartition() {
+        return Optional.eitherOf(cpuPartition);
+    }
+
+    public void setCpuPartition(String cpuPartition) {
+        this.cpuPartition = cpuPartition;
+    }
 }
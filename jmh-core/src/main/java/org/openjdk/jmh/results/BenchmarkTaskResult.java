@@ -41,6 +41,16 @@ public class BenchmarkTaskResult {
 
     private final Collection<Result> results;
 
+    /**
+     * Invocations captured by {@link org.openjdk.jmh.annotations.Mode#CaptureTime}; null in other modes.
+     */
+    private CaptureBuffer capture;
+
+    /**
+     * Operation counts at the sub-interval ticks; null, unless the throughput series is requested.
+     */
+    private long[] series;
+
     public BenchmarkTaskResult(long allOperations, long measuredOperations) {
         this.allOperations = allOperations;
         this.measuredOperations = measuredOperations;
@@ -55,6 +65,22 @@ public class BenchmarkTaskResult {
         return results;
     }
 
+    public void setCapture(CaptureBuffer capture) {
+        this.capture = capture;
+    }
+
+    public CaptureBuffer getCapture() {
+        return capture;
+    }
+
+    public void setSeries(long[] series) {
+        this.series = series;
+    }
+
+    public long[] getSeries() {
+        return series;
+    }
+
     public long getAllOps() {
         return allOperations;
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.util.SampleHistogram;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Per-thread buffer for {@link org.openjdk.jmh.annotations.Mode#CaptureTime}: keeps the start
+ * timestamp and the duration of every invocation. The buffer is off-heap and preallocated,
+ * recording into it does not allocate. When the buffer is full, the invocations are only
+ * counted as dropped.
+ */
+public class CaptureBuffer {
+
+    /**
+     * Bytes per record: start timestamp and duration.
+     */
+    public static final int RECORD_SIZE = 16;
+
+    /**
+     * Expected minimal invocation time, used to size the buffer from the iteration time.
+     */
+    private static final long MIN_INVOCATION_NS = Long.getLong("jmh.capture.minTime", 100);
+
+    /**
+     * Upper bound for the memory taken by the buffers of all threads.
+     */
+    private static final long MAX_MEMORY = Long.getLong("jmh.capture.memory", 256L * 1024 * 1024);
+
+    private static final ThreadLocal<CaptureBuffer> BUFFERS = new ThreadLocal<>();
+
+    private final ByteBuffer buf;
+    private final int limit;
+    private int position;
+    private long dropped;
+    private int threadIndex;
+
+    private CaptureBuffer(int records) {
+        this.buf = ByteBuffer.allocateDirect(records * RECORD_SIZE);
+        this.limit = records * RECORD_SIZE;
+    }
+
+    /**
+     * Gets the buffer for the current thread, reusing the buffer from the previous iteration
+     * if it is large enough.
+     *
+     * @param threadParams worker thread parameters
+     * @param durationNs iteration duration
+     * @return empty buffer
+     */
+    public static CaptureBuffer forCurrentThread(ThreadParams threadParams, long durationNs) {
+        long byTime = Math.max(1, durationNs / MIN_INVOCATION_NS);
+        long byMemory = Math.max(1, MAX_MEMORY / Math.max(1, threadParams.getThreadCount()) / RECORD_SIZE);
+        int records = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE, Math.min(byTime, byMemory));
+
+        CaptureBuffer b = BUFFERS.get();
+        if (b == null || b.limit < records * RECORD_SIZE) {
+            b = new CaptureBuffer(records);
+            BUFFERS.set(b);
+        }
+        b.position = 0;
+        b.dropped = 0;
+        b.threadIndex = threadParams.getThreadIndex();
+        return b;
+    }
+
+    /**
+     * Records the invocation.
+     * @param start start timestamp, as per {@link System#nanoTime()}
+     * @param duration invocation duration, ns
+     */
+    public void record(long start, long duration) {
+        int p = position;
+        if (p < limit) {
+            buf.putLong(p, start);
+            buf.putLong(p + 8, duration);
+            position = p + RECORD_SIZE;
+        } else {
+            dropped++;
+        }
+    }
+
+    /**
+     * @return index of the worker thread that recorded the buffer
+     */
+    public int getThreadIndex() {
+        return threadIndex;
+    }
+
+    /**
+     * @return number of recorded invocations
+     */
+    public int getRecords() {
+        return position / RECORD_SIZE;
+    }
+
+    /**
+     * @return number of invocations that did not fit the buffer
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Adds recorded durations to the histogram.
+     * @param histogram histogram to add to
+     * @param opsPerInv operations per invocation, durations are divided by this
+     */
+    public void fill(SampleHistogram histogram, long opsPerInv) {
+        for (int p = 0; p < position; p += RECORD_SIZE) {
+            histogram.add(buf.getLong(p + 8) / opsPerInv);
+        }
+    }
+
+    /**
+     * Writes recorded invocations as is: big-endian pairs of start timestamp and duration.
+     * @param ch channel to write to
+     * @throws IOException if write fails
+     */
+    public void writeTo(WritableByteChannel ch) throws IOException {
+        ByteBuffer view = buf.duplicate();
+        ((Buffer) view).position(0);
+        ((Buffer) view).limit(position);
+        while (view.hasRemaining()) {
+            ch.write(view);
+        }
+    }
+
+}
@@ -24,6 +24,8 @@
  */
 package org.openjdk.jmh.results;
 
+import org.openjdk.jmh.util.SampleHistogram;
+
 public class RawResults {
 
     public long allOps;
@@ -32,6 +34,17 @@ public class RawResults {
     public long startTime;
     public long stopTime;
 
+    /**
+     * Operation counts at the sub-interval ticks, when the throughput series is requested; null otherwise.
+     * @see org.openjdk.jmh.runner.InfraControl#markSeries(RawResults, int, long)
+     */
+    public long[] series;
+
+    /**
+     * Completion latencies of asynchronous operations, when the benchmark method returns one; null otherwise.
+     */
+    public SampleHistogram asyncLatency;
+
     public long getTime() {
         return (realTime > 0) ? realTime : (stopTime - startTime);
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.util.SampleHistogram;
+import org.openjdk.jmh.util.SingletonStatistics;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact binary codec for the results that forked VMs send to the host.
+ *
+ * <p>The common results produced by the benchmark modes are written field by field, and
+ * the sampled times are written as the sparse histogram, instead of the full sampling
+ * buffer. All other results, notably the ones produced by profilers, are written with
+ * Java serialization.
+ */
+public final class ResultCodec {
+
+    private static final int SERIALIZED = 0;
+    private static final int THROUGHPUT = 1;
+    private static final int AVERAGE_TIME = 2;
+    private static final int SINGLE_SHOT = 3;
+    private static final int SAMPLE_TIME = 4;
+    private static final int SCALAR = 5;
+
+    private static final ResultRole[] ROLES = ResultRole.values();
+    private static final AggregationPolicy[] POLICIES = AggregationPolicy.values();
+    private static final TimeUnit[] TIME_UNITS = TimeUnit.values();
+
+    private ResultCodec() {
+        // prevent instantiation
+    }
+
+    public static void write(DataOutput out, Result<?> r) throws IOException {
+        Class<?> klass = r.getClass();
+        boolean singleton = r.getStatistics() instanceof SingletonStatistics;
+
+        if (klass == ThroughputResult.class && singleton) {
+            out.writeByte(THROUGHPUT);
+            writeCommon(out, r);
+            out.writeByte(r.policy.ordinal());
+            out.writeDouble(r.getScore());
+        } else if (klass == AverageTimeResult.class && singleton) {
+            out.writeByte(AVERAGE_TIME);
+            writeCommon(out, r);
+            out.writeDouble(r.getScore());
+        } else if (klass == SingleShotResult.class && singleton) {
+            out.writeByte(SINGLE_SHOT);
+            writeCommon(out, r);
+            out.writeDouble(r.getScore());
+        } else if (klass == ScalarResult.class && singleton) {
+            out.writeByte(SCALAR);
+            out.writeUTF(r.getLabel());
+            out.writeUTF(r.getScoreUnit());
+            out.writeByte(r.policy.ordinal());
+            out.writeDouble(r.getScore());
+        } else if (klass == SampleTimeResult.class) {
+            SampleTimeResult str = (SampleTimeResult) r;
+            out.writeByte(SAMPLE_TIME);
+            writeCommon(out, r);
+            out.writeByte(str.getOutputTimeUnit().ordinal());
+            str.getHistogram().writeTo(out);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(r);
+            }
+            out.writeInt(bos.size());
+            out.write(bos.toByteArray());
+        }
+    }
+
+    private static void writeCommon(DataOutput out, Result<?> r) throws IOException {
+        out.writeByte(r.getRole().ordinal());
+        out.writeUTF(r.getLabel());
+        out.writeUTF(r.getScoreUnit());
+    }
+
+    public static Result read(DataInput in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case THROUGHPUT: {
+                ResultRole role = ROLES[in.readUnsignedByte()];
+                String label = in.readUTF();
+                String unit = in.readUTF();
+                AggregationPolicy policy = POLICIES[in.readUnsignedByte()];
+                return new ThroughputResult(role, label, Result.of(in.readDouble()), unit, policy);
+            }
+            case AVERAGE_TIME: {
+                ResultRole role = ROLES[in.readUnsignedByte()];
+                String label = in.readUTF();
+                String unit = in.readUTF();
+                return new AverageTimeResult(role, label, Result.of(in.readDouble()), unit);
+            }
+            case SINGLE_SHOT: {
+                ResultRole role = ROLES[in.readUnsignedByte()];
+                String label = in.readUTF();
+                String unit = in.readUTF();
+                return new SingleShotResult(role, label, Result.of(in.readDouble()), unit);
+            }
+            case SCALAR: {
+                String label = in.readUTF();
+                String unit = in.readUTF();
+                AggregationPolicy policy = POLICIES[in.readUnsignedByte()];
+                return new ScalarResult(label, Result.of(in.readDouble()), unit, policy);
+            }
+            case SAMPLE_TIME: {
+                ResultRole role = ROLES[in.readUnsignedByte()];
+                String label = in.readUTF();
+                String unit = in.readUTF();
+                TimeUnit tu = TIME_UNITS[in.readUnsignedByte()];
+                return new SampleTimeResult(role, label, SampleHistogram.readFrom(in), unit, tu);
+            }
+            case SERIALIZED: {
+                int len = in.readInt();
+                if (len < 0 || (in instanceof InputStream && len > ((InputStream) in).available())) {
+                    throw new StreamCorruptedException("Result length is out of bounds: " + len);
+                }
+                byte[] data = new byte[len];
+                in.readFully(data);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    return (Result) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read the result", e);
+                }
+            }
+            default:
+                throw new IOException("Unknown result type: " + type);
+        }
+    }
+
+}
@@ -25,7 +25,7 @@
 package org.openjdk.jmh.results;
 
 import org.openjdk.jmh.runner.options.TimeValue;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 import org.openjdk.jmh.util.Statistics;
 
 import java.util.Arrays;
@@ -38,28 +38,36 @@ import java.util.concurrent.TimeUnit;
 public class SampleTimeResult extends Result<SampleTimeResult> {
     private static final long serialVersionUID = -295298353763294757L;
 
-    private final SampleBuffer buffer;
+    private final SampleHistogram histogram;
     private final TimeUnit outputTimeUnit;
 
-    public SampleTimeResult(ResultRole role, String label, SampleBuffer buffer, TimeUnit outputTimeUnit) {
+    public SampleTimeResult(ResultRole role, String label, SampleHistogram histogram, TimeUnit outputTimeUnit) {
         this(role, label,
-                buffer,
+                histogram,
                 TimeValue.tuToString(outputTimeUnit) + "/op",
                 outputTimeUnit);
     }
 
-    SampleTimeResult(ResultRole role, String label, SampleBuffer buffer, String unit, TimeUnit outputTimeUnit) {
+    SampleTimeResult(ResultRole role, String label, SampleHistogram histogram, String unit, TimeUnit outputTimeUnit) {
         super(role, label,
-                of(buffer, outputTimeUnit),
+                of(histogram, outputTimeUnit),
                 unit,
                 AggregationPolicy.AVG);
-        this.buffer = buffer;
+        this.histogram = histogram;
         this.outputTimeUnit = outputTimeUnit;
     }
 
-    private static Statistics of(SampleBuffer buffer, TimeUnit outputTimeUnit) {
+    SampleHistogram getHistogram() {
+        return histogram;
+    }
+
+    TimeUnit getOutputTimeUnit() {
+        return outputTimeUnit;
+    }
+
+    private static Statistics of(SampleHistogram histogram, TimeUnit outputTimeUnit) {
         double tuMultiplier = 1.0D * outputTimeUnit.convert(1, TimeUnit.DAYS) / TimeUnit.NANOSECONDS.convert(1, TimeUnit.DAYS);
-        return buffer.getStatistics(tuMultiplier);
+        return histogram.getStatistics(tuMultiplier);
     }
 
     @Override
@@ -99,10 +107,10 @@ public class SampleTimeResult extends Result<SampleTimeResult> {
 
         @Override
         public SampleTimeResult aggregate(Collection<SampleTimeResult> results) {
-            SampleBuffer buffer = new SampleBuffer();
+            SampleHistogram histogram = new SampleHistogram();
             TimeUnit tu = null;
             for (SampleTimeResult r : results) {
-                buffer.addAll(r.buffer);
+                histogram.addAll(r.histogram);
                 if (tu == null) {
                     tu = r.outputTimeUnit;
                 } else if (!tu.equals(r.outputTimeUnit)){
@@ -112,7 +120,7 @@ public class SampleTimeResult extends Result<SampleTimeResult> {
             return new SampleTimeResult(
                     AggregatorUtils.aggregateRoles(results),
                     AggregatorUtils.aggregateLabels(results),
-                    buffer,
+                    histogram,
                     AggregatorUtils.aggregateUnits(results),
                     tu
             );
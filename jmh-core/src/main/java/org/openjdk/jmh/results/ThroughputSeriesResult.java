@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result class that holds the throughput time series: the throughput over all worker
+ * threads in each of the consecutive sub-intervals of the iteration. The score is the
+ * average sub-interval throughput; the series itself shows warmup curves and stalls
+ * that the single per-iteration throughput hides.
+ */
+public class ThroughputSeriesResult extends Result<ThroughputSeriesResult> {
+    private static final long serialVersionUID = -3545383298410585541L;
+
+    private final TimeValue interval;
+    private final double[] series;
+
+    /**
+     * @param label result label
+     * @param interval nominal sub-interval length
+     * @param operations operations done in each sub-interval
+     * @param ticks sub-interval boundaries, as per {@link System#nanoTime()}; one more than operations
+     * @param outputTimeUnit time unit for the throughput
+     */
+    public ThroughputSeriesResult(String label, TimeValue interval, double[] operations, long[] ticks, TimeUnit outputTimeUnit) {
+        this(label, interval, throughput(operations, ticks, outputTimeUnit), "ops/" + TimeValue.tuToString(outputTimeUnit));
+    }
+
+    ThroughputSeriesResult(String label, TimeValue interval, double[] series, String unit) {
+        super(ResultRole.SECONDARY, label, of(series), unit, AggregationPolicy.AVG);
+        this.interval = interval;
+        this.series = series;
+    }
+
+    private static double[] throughput(double[] operations, long[] ticks, TimeUnit outputTimeUnit) {
+        if (ticks.length != operations.length + 1) {
+            throw new IllegalArgumentException("Expected " + (operations.length + 1) + " ticks, got " + ticks.length);
+        }
+        double[] series = new double[operations.length];
+        for (int c = 0; c < operations.length; c++) {
+            series[c] = operations[c] * TimeUnit.NANOSECONDS.convert(1, outputTimeUnit) / (ticks[c + 1] - ticks[c]);
+        }
+        return series;
+    }
+
+    private static Statistics of(double[] series) {
+        ListStatistics stats = new ListStatistics();
+        for (double v : series) {
+            stats.addValue(v);
+        }
+        return stats;
+    }
+
+    /**
+     * @return nominal sub-interval length
+     */
+    public TimeValue getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return throughput in each sub-interval, in time order
+     */
+    public double[] getSeries() {
+        return Arrays.copyOf(series, series.length);
+    }
+
+    @Override
+    protected Aggregator<ThroughputSeriesResult> getThreadAggregator() {
+        return new SeriesAggregator();
+    }
+
+    @Override
+    protected Aggregator<ThroughputSeriesResult> getIterationAggregator() {
+        return new SeriesAggregator();
+    }
+
+    /**
+     * Concatenates the series in iteration order. The harness produces a single series per
+     * iteration, already summed over threads, so thread aggregation never has to merge
+     * several series.
+     */
+    static class SeriesAggregator implements Aggregator<ThroughputSeriesResult> {
+        @Override
+        public ThroughputSeriesResult aggregate(Collection<ThroughputSeriesResult> results) {
+            int size = 0;
+            for (ThroughputSeriesResult r : results) {
+                size += r.series.length;
+            }
+
+            double[] series = new double[size];
+            TimeValue interval = null;
+            int pos = 0;
+            for (ThroughputSeriesResult r : results) {
+                System.arraycopy(r.series, 0, series, pos, r.series.length);
+                pos += r.series.length;
+                interval = r.interval;
+            }
+
+            return new ThroughputSeriesResult(
+                    AggregatorUtils.aggregateLabels(results),
+                    interval,
+                    series,
+                    AggregatorUtils.aggregateUnits(results)
+            );
+        }
+    }
+
+}
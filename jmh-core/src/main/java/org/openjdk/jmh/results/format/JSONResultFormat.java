@@ -29,6 +29,7 @@ import org.openjdk.jmh.results.BenchmarkResult;
 import org.openjdk.jmh.results.IterationResult;
 import org.openjdk.jmh.results.Result;
 import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.ThroughputSeriesResult;
 import org.openjdk.jmh.util.Statistics;
 import org.openjdk.jmh.util.Utils;
 
@@ -104,6 +105,8 @@ class JSONResultFormat implements ResultFormat {
 
             switch (params.getMode()) {
                 case SampleTime:
+                case OpenLoop:
+                case CaptureTime:
                     pw.println("\"rawDataHistogram\" :");
                     pw.println(getRawData(runResult, true));
                     break;
@@ -141,6 +144,14 @@ class JSONResultFormat implements ResultFormat {
                 }
 
                 sb.append(printMultiple(l2, "[", "]"));
+
+                if (result instanceof ThroughputSeriesResult) {
+                    sb.append(",");
+                    sb.append("\"seriesInterval\" : \"").append(((ThroughputSeriesResult) result).getInterval()).append("\",");
+                    sb.append("\"rawDataSeries\" : ");
+                    sb.append(getRawSeries(runResult, secondaryName));
+                }
+
                 sb.append("}");
                 secondaries.add(sb.toString());
             }
@@ -181,6 +192,23 @@ class JSONResultFormat implements ResultFormat {
         return sb.toString();
     }
 
+    private String getRawSeries(RunResult runResult, String secondaryName) {
+        Collection<String> runs = new ArrayList<>();
+        if (PRINT_RAW_DATA) {
+            for (BenchmarkResult benchmarkResult : runResult.getBenchmarkResults()) {
+                Collection<String> iterations = new ArrayList<>();
+                for (IterationResult r : benchmarkResult.getIterationResults()) {
+                    Result rr = r.getSecondaryResults().get(secondaryName);
+                    if (rr instanceof ThroughputSeriesResult) {
+                        iterations.add(emit(((ThroughputSeriesResult) rr).getSeries()));
+                    }
+                }
+                runs.add(printMultiple(iterations, "[", "]"));
+            }
+        }
+        return printMultiple(runs, "[", "]");
+    }
+
     private String emitParams(BenchmarkParams params) {
         StringBuilder sb = new StringBuilder();
         boolean isFirst = true;
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.SampleHistogram;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Tracks the asynchronous operations issued by {@link org.openjdk.jmh.annotations.Benchmark}
+ * methods returning {@link CompletionStage} or {@link Future}. The generated code uses it to
+ * time the operations until their completion, rather than until they are issued.
+ *
+ * <p>Each worker thread keeps up to the configured number of operations in flight, and blocks
+ * when the limit is reached, until some operation completes. {@link CompletionStage}-s report
+ * the completion with the callback. Plain {@link Future}-s cannot report it, so the pending ones
+ * are polled every time the next operation is issued, and awaited in issue order when the limit
+ * is reached. Their completion is therefore seen with the delay of up to the interval between
+ * issues, or up to the completion of the older operations while the tracker waits. The completion
+ * latencies of all operations are recorded into the histogram.</p>
+ *
+ * <p>Instances are confined to a single worker thread, except for the completion callbacks.</p>
+ */
+public final class AsyncTracker {
+
+    private final int limit;
+    private final Thread owner;
+    private final AtomicInteger inFlight;
+    private final SampleHistogram latency;
+
+    /**
+     * Pending plain futures, and their start times, in issue order.
+     */
+    private final Future<?>[] futures;
+    private final long[] futureStarts;
+    private int futureHead;
+    private int futureCount;
+
+    private volatile boolean waiting;
+    private volatile Throwable failure;
+
+    public AsyncTracker(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("In-flight limit should be positive: " + limit);
+        }
+        this.limit = limit;
+        this.owner = Thread.currentThread();
+        this.inFlight = new AtomicInteger();
+        this.latency = new SampleHistogram();
+        this.futures = new Future<?>[limit];
+        this.futureStarts = new long[limit];
+    }
+
+    /**
+     * Waits until the operation completes.
+     *
+     * @param op operation, either {@link CompletionStage} or {@link Future}
+     * @return operation result
+     * @throws Throwable the failure the operation had completed with
+     */
+    public static Object await(Object op) throws Throwable {
+        if (op instanceof Future) {
+            try {
+                return ((Future<?>) op).get();
+            } catch (ExecutionException e) {
+                throw (e.getCause() != null) ? e.getCause() : e;
+            }
+        }
+        if (op instanceof CompletionStage) {
+            Waiter waiter = new Waiter();
+            ((CompletionStage<?>) op).whenComplete(waiter);
+            return waiter.await();
+        }
+        throw new IllegalStateException("Not an asynchronous operation: " + op);
+    }
+
+    /**
+     * @return start time for the operation about to be issued
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Tracks the issued operation. Returns when there is room for the next operation.
+     *
+     * @param startTime operation start time, as returned by {@link #start()}
+     * @param op operation, either {@link CompletionStage} or {@link Future}
+     * @throws Throwable the failure any operation had completed with, or interruption
+     */
+    public void submit(long startTime, Object op) throws Throwable {
+        if (op instanceof CompletionStage) {
+            inFlight.incrementAndGet();
+            ((CompletionStage<?>) op).whenComplete(new Completion(startTime));
+        } else if (op instanceof Future) {
+            pollFutures();
+            if (futureCount == limit) {
+                completeOldestFuture();
+            }
+            int tail = (futureHead + futureCount) % limit;
+            futures[tail] = (Future<?>) op;
+            futureStarts[tail] = startTime;
+            futureCount++;
+            inFlight.incrementAndGet();
+        } else {
+            throw new IllegalStateException("Not an asynchronous operation: " + op);
+        }
+        awaitInFlight(limit - 1);
+    }
+
+    /**
+     * Waits for all operations in flight to complete.
+     *
+     * @throws Throwable the failure any operation had completed with, or interruption
+     */
+    public void drain() throws Throwable {
+        awaitInFlight(0);
+    }
+
+    /**
+     * @return completion latencies of all completed operations, in nanoseconds;
+     *         complete only after {@link #drain()}
+     */
+    public SampleHistogram getLatency() {
+        synchronized (latency) {
+            return latency;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        // dependent stages wrap the original failure
+        if (t instanceof CompletionException && t.getCause() != null) {
+            return t.getCause();
+        }
+        return t;
+    }
+
+    private void awaitInFlight(int target) throws Throwable {
+        while (inFlight.get() > target) {
+            if (futureCount > 0) {
+                if (pollFutures() == 0) {
+                    completeOldestFuture();
+                }
+                continue;
+            }
+            waiting = true;
+            if (inFlight.get() > target) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        Throwable t = failure;
+        if (t != null) {
+            throw t;
+        }
+    }
+
+    /**
+     * Completes all pending futures that are done, keeping the rest in issue order.
+     *
+     * @return number of completed futures
+     */
+    private int pollFutures() throws Throwable {
+        int count = futureCount;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int idx = (futureHead + i) % limit;
+            Future<?> f = futures[idx];
+            long startTime = futureStarts[idx];
+            futures[idx] = null;
+            if (f.isDone()) {
+                completeFuture(f, startTime);
+            } else {
+                int dst = (futureHead + kept) % limit;
+                futures[dst] = f;
+                futureStarts[dst] = startTime;
+                kept++;
+            }
+        }
+        futureCount = kept;
+        return count - kept;
+    }
+
+    private void completeOldestFuture() throws Throwable {
+        Future<?> f = futures[futureHead];
+        long startTime = futureStarts[futureHead];
+        futures[futureHead] = null;
+        futureHead = (futureHead + 1) % limit;
+        futureCount--;
+        completeFuture(f, startTime);
+    }
+
+    private void completeFuture(Future<?> f, long startTime) throws Throwable {
+        try {
+            f.get();
+        } catch (ExecutionException e) {
+            failure = (e.getCause() != null) ? e.getCause() : e;
+        } finally {
+            completed(startTime);
+        }
+    }
+
+    private void completed(long startTime) {
+        long time = System.nanoTime() - startTime;
+        synchronized (latency) {
+            latency.add(time);
+        }
+        inFlight.decrementAndGet();
+        if (waiting) {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    private class Completion implements BiConsumer<Object, Throwable> {
+        private final long startTime;
+
+        Completion(long startTime) {
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void accept(Object result, Throwable t) {
+            if (t != null) {
+                failure = unwrap(t);
+            }
+            completed(startTime);
+        }
+    }
+
+    private static class Waiter implements BiConsumer<Object, Throwable> {
+        private final Thread owner = Thread.currentThread();
+        private volatile boolean done;
+        private Object result;
+        private Throwable failure;
+
+        @Override
+        public void accept(Object result, Throwable t) {
+            this.result = result;
+            this.failure = (t != null) ? unwrap(t) : null;
+            done = true;
+            LockSupport.unpark(owner);
+        }
+
+        Object await() throws Throwable {
+            while (!done) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+
+}
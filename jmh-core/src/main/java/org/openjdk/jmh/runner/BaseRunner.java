@@ -30,9 +30,11 @@ import org.openjdk.jmh.infra.IterationParams;
 import org.openjdk.jmh.results.BenchmarkResult;
 import org.openjdk.jmh.results.BenchmarkResultMetaData;
 import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.MeasurementStopReason;
 import org.openjdk.jmh.runner.format.OutputFormat;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.util.Multimap;
+import org.openjdk.jmh.util.Optional;
 import org.openjdk.jmh.util.TreeMultimap;
 import org.openjdk.jmh.util.Utils;
 import org.openjdk.jmh.util.Version;
@@ -164,6 +166,14 @@ abstract class BaseRunner {
         benchmarkStart = current;
     }
 
+    protected void etaSkipForks(BenchmarkParams params, int forks) {
+        projectedTotalTime -= forks * estimateTimeSingleFork(params);
+    }
+
+    protected void etaAddForks(BenchmarkParams params, int forks) {
+        projectedTotalTime += forks * estimateTimeSingleFork(params);
+    }
+
     protected void etaBeforeBenchmarks(Collection<ActionPlan> plans) {
         projectedTotalTime = 0;
         for (ActionPlan plan : plans) {
@@ -251,6 +261,18 @@ abstract class BaseRunner {
 
         // warmup
         IterationParams wp = benchParams.getWarmup();
+        boolean noMeasurement = (benchParams.getMeasurement().getCount() == 0);
+
+        // With no measurement iterations, the last warmup iteration runs the trial fixtures,
+        // and so it should be known in advance. Do the fixed warmup then.
+        SteadyStateDetector steadyState = null;
+        if (options.shouldWarmupUntilSteadyState().orElse(Defaults.WARMUP_STEADY_STATE) && !noMeasurement && wp.getCount() > 0) {
+            steadyState = new SteadyStateDetector(Defaults.STEADY_STATE_WINDOW, Defaults.STEADY_STATE_TOLERANCE);
+            out.println(String.format("# Warmup until steady state: score drift under %.2f%% over %d iterations, at most %d iterations",
+                    Defaults.STEADY_STATE_TOLERANCE * 100, Defaults.STEADY_STATE_WINDOW, wp.getCount()));
+        }
+
+        int warmupIterations = 0;
         for (int i = 1; i <= wp.getCount(); i++) {
             // will run system gc if we should
             if (runSystemGC()) {
@@ -258,17 +280,38 @@ abstract class BaseRunner {
             }
 
             out.iteration(benchParams, wp, i);
-            boolean isLastIteration = (benchParams.getMeasurement().getCount() == 0);
-            IterationResult ir = handler.runIteration(benchParams, wp, isLastIteration);
+            IterationResult ir = handler.runIteration(benchParams, wp, noMeasurement);
             out.iterationResult(benchParams, wp, i, ir);
 
             allWarmup += ir.getMetadata().getAllOps();
+            warmupIterations++;
+
+            if (steadyState != null && steadyState.add(ir.getPrimaryResult().getScore())) {
+                break;
+            }
+        }
+
+        if (steadyState != null) {
+            out.println(String.format("# Warmup: %s after %d iterations, score drift %.2f%%",
+                    steadyState.isSteady() ? "steady state reached" : "iteration limit reached, no steady state",
+                    warmupIterations, steadyState.getRelativeDrift() * 100));
         }
 
         long measurementTime = System.currentTimeMillis();
 
         // measurement
         IterationParams mp = benchParams.getMeasurement();
+
+        Optional<Double> targetError = options.getMeasurementTargetError();
+        MeasurementStopReason stopReason = MeasurementStopReason.FIXED_COUNT;
+
+        TargetErrorDetector adaptive = null;
+        if (targetError.hasValue() && mp.getCount() > 0) {
+            adaptive = new TargetErrorDetector(targetError.get(), Defaults.ADAPTIVE_MIN_ITERATIONS, mp.getCount());
+            out.println(String.format("# Adaptive measurement: until %.2f%% error at 99.9%% confidence, %d to %d iterations",
+                    targetError.get() * 100, adaptive.getMinIterations(), mp.getCount()));
+        }
+
         for (int i = 1; i <= mp.getCount(); i++) {
             // will run system gc if we should
             if (runSystemGC()) {
@@ -278,7 +321,10 @@ abstract class BaseRunner {
             // run benchmark iteration
             out.iteration(benchParams, mp, i);
 
-            boolean isLastIteration = (i == mp.getCount());
+            // Adaptive measurement knows the target error is reached only after the iteration
+            // completes. Since the last iteration should be known in advance to run the trial
+            // fixtures, we do one more iteration after the target is reached.
+            boolean isLastIteration = (adaptive != null) ? adaptive.isLastIteration(i) : (i == mp.getCount());
             IterationResult ir = handler.runIteration(benchParams, mp, isLastIteration);
             out.iterationResult(benchParams, mp, i, ir);
 
@@ -287,13 +333,28 @@ abstract class BaseRunner {
             if (acceptor != null) {
                 acceptor.accept(ir);
             }
+
+            if (adaptive != null) {
+                adaptive.add(ir.getPrimaryResult().getScore());
+            }
+
+            if (isLastIteration) {
+                break;
+            }
+        }
+
+        if (adaptive != null) {
+            stopReason = adaptive.isConverged() ? MeasurementStopReason.CONVERGED : MeasurementStopReason.BUDGET_EXHAUSTED;
+            out.println(String.format("# Adaptive measurement: %s, error %.2f%% after %d iterations",
+                    adaptive.isConverged() ? "target error reached" : "iteration budget exhausted",
+                    adaptive.getRelativeError() * 100, adaptive.getCount()));
         }
 
         long stopTime = System.currentTimeMillis();
 
         BenchmarkResultMetaData md = new BenchmarkResultMetaData(
                 warmupTime, measurementTime, stopTime,
-                allWarmup, allMeasurement);
+                allWarmup, allMeasurement, warmupIterations, stopReason);
 
         if (acceptor != null) {
             acceptor.acceptMeta(md);
@@ -31,12 +31,14 @@ import org.openjdk.jmh.infra.ThreadParams;
 import org.openjdk.jmh.profile.InternalProfiler;
 import org.openjdk.jmh.profile.ProfilerFactory;
 import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.results.Defaults;
 import org.openjdk.jmh.runner.format.OutputFormat;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.util.ClassUtils;
 import org.openjdk.jmh.util.Utils;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -62,6 +64,20 @@ class BenchmarkHandler {
 
     private final Method method;
 
+    /**
+     * Carrier stats, and opt-in pinning stats, for virtual threads; null, if not running virtual threads.
+     */
+    private final VirtualThreads.Stats virtualStats;
+
+    /**
+     * Captured invocations file; created on first use in capture mode.
+     */
+    private CaptureFile captureFile;
+    private long captureDropped;
+    private long captureRecorded;
+    private int warmupIterations;
+    private int measurementIterations;
+
     public BenchmarkHandler(OutputFormat out, Options options, BenchmarkParams executionParams) {
         String target = executionParams.generatedBenchmark();
         int lastDot = target.lastIndexOf('.');
@@ -97,6 +113,7 @@ class BenchmarkHandler {
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
+        this.virtualStats = (EXECUTOR_TYPE == ExecutorType.VIRTUAL) ? new VirtualThreads.Stats() : null;
     }
 
     static List<ThreadParams> distributeThreads(int threads, int[] groups) {
@@ -184,6 +201,43 @@ class BenchmarkHandler {
 
     private static final ExecutorType EXECUTOR_TYPE = Enum.valueOf(ExecutorType.class, System.getProperty("jmh.executor", ExecutorType.FIXED_TPE.name()));
 
+    /**
+     * Sub-interval for the throughput series in Throughput and AverageTime modes;
+     * null disables the series.
+     */
+    private static final TimeValue SERIES_INTERVAL = getSeriesInterval();
+
+    private static TimeValue getSeriesInterval() {
+        String v = System.getProperty("jmh.seriesInterval");
+        if (v == null) {
+            return null;
+        }
+        TimeValue interval = TimeValue.fromString(v);
+        if (interval.convertTo(TimeUnit.NANOSECONDS) < TimeUnit.MILLISECONDS.toNanos(1)) {
+            throw new IllegalArgumentException("Throughput series interval should be at least 1 ms: " + v);
+        }
+        return interval;
+    }
+
+    /**
+     * Target overshoot past the iteration deadline for the measurement loops that check
+     * the stop flag once per calibrated stride of invocations in Throughput and AverageTime
+     * modes; null makes the loops check the flag every invocation.
+     */
+    private static final TimeValue STOP_CHECK_OVERSHOOT = getStopCheckOvershoot();
+
+    private static TimeValue getStopCheckOvershoot() {
+        String v = System.getProperty("jmh.stopCheckOvershoot");
+        if (v == null) {
+            return null;
+        }
+        TimeValue overshoot = TimeValue.fromString(v);
+        if (overshoot.convertTo(TimeUnit.NANOSECONDS) <= 0) {
+            throw new IllegalArgumentException("Stop check overshoot should be positive: " + v);
+        }
+        return overshoot;
+    }
+
     private enum ExecutorType {
 
         /**
@@ -236,6 +290,22 @@ class BenchmarkHandler {
 
         },
 
+        /**
+         * Use virtual threads (JDK 21+). Workers are pooled, so that every worker stays
+         * the same virtual thread with the same thread-local data across the iterations.
+         */
+        VIRTUAL {
+            @Override
+            ExecutorService createExecutor(int maxThreads, String prefix) throws Exception {
+                return Executors.newFixedThreadPool(maxThreads, VirtualThreads.newThreadFactory(prefix + "-jmh-worker-"));
+            }
+
+            @Override
+            boolean blockingSynch() {
+                return true;
+            }
+        },
+
         CUSTOM {
             @Override
             ExecutorService createExecutor(int maxThreads, String prefix) throws Exception {
@@ -252,6 +322,15 @@ class BenchmarkHandler {
         boolean shutdownForbidden() {
             return false;
         }
+
+        /**
+         * Workers should block while waiting for others to start and finish the iteration.
+         * Spinning works for platform threads, but would starve virtual threads that
+         * wait for a carrier thread to run on.
+         */
+        boolean blockingSynch() {
+            return false;
+        }
     }
 
     protected void startProfilers(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
@@ -280,6 +359,27 @@ class BenchmarkHandler {
      * Do required shutdown actions.
      */
     public void shutdown() {
+        if (virtualStats != null) {
+            virtualStats.close();
+        }
+        if (captureFile != null) {
+            try {
+                captureFile.close();
+                out.println("# Captured invocations are written to " + captureFile.getFile().getAbsolutePath());
+                if (captureDropped > 0) {
+                    // the score is computed from the recorded invocations only, and those are
+                    // the earliest ones in each iteration: the score is skewed
+                    out.println("# WARNING: " + captureDropped + " invocations did not fit the capture buffer, the score " +
+                            "only covers " + captureRecorded + " invocations from the start of each iteration. " +
+                            "Lower -Djmh.capture.minTime, or raise -Djmh.capture.memory.");
+                }
+            } catch (IOException e) {
+                out.println("Failed to close the capture file: " + e.getMessage());
+            }
+            captureFile = null;
+            captureDropped = 0;
+            captureRecorded = 0;
+        }
         if (EXECUTOR_TYPE.shutdownForbidden() || (executor == null)) {
             return;
         }
@@ -317,9 +417,24 @@ class BenchmarkHandler {
         // result object to accumulate the results in
         List<Result> iterationResults = new ArrayList<>();
 
+        long seriesInterval = 0;
+        long stopCheckOvershoot = 0;
+        switch (benchmarkParams.getMode()) {
+            case Throughput:
+            case AverageTime:
+                if (SERIES_INTERVAL != null) {
+                    seriesInterval = SERIES_INTERVAL.convertTo(TimeUnit.NANOSECONDS);
+                }
+                if (STOP_CHECK_OVERSHOOT != null) {
+                    stopCheckOvershoot = STOP_CHECK_OVERSHOOT.convertTo(TimeUnit.NANOSECONDS);
+                }
+                break;
+        }
+
         InfraControl control = new InfraControl(benchmarkParams, params,
                 preSetupBarrier, preTearDownBarrier, last,
-                new Control());
+                new Control(), EXECUTOR_TYPE.blockingSynch(), seriesInterval, stopCheckOvershoot);
+        long[] ticks = new long[control.getSeriesTicks() + 1];
 
         // preparing the worker runnables
         BenchmarkTask[] runners = new BenchmarkTask[numThreads];
@@ -333,6 +448,10 @@ class BenchmarkHandler {
         // the edge behaviors.
         startProfilers(benchmarkParams, params);
 
+        if (virtualStats != null) {
+            virtualStats.start();
+        }
+
         // submit tasks to threadpool
         List<Future<BenchmarkTaskResult>> completed = new ArrayList<>();
         CompletionService<BenchmarkTaskResult> srv = new ExecutorCompletionService<>(executor);
@@ -350,7 +469,12 @@ class BenchmarkHandler {
                 break;
             default:
                 try {
-                    Future<BenchmarkTaskResult> failing = srv.poll(runtime.convertTo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                    Future<BenchmarkTaskResult> failing;
+                    if (seriesInterval > 0) {
+                        failing = pollTicking(srv, control, ticks);
+                    } else {
+                        failing = srv.poll(runtime.convertTo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                    }
                     if (failing != null) {
                         // Oops, some task has exited prematurely, without isDone check.
                         // Must be an exception. Record the failing result, and lift the
@@ -396,6 +520,10 @@ class BenchmarkHandler {
         long allOps = 0;
         long measuredOps = 0;
 
+        int iteration = (params.getType() == IterationType.WARMUP) ? ++warmupIterations : ++measurementIterations;
+        List<CaptureBuffer> captures = new ArrayList<>();
+        List<long[]> series = new ArrayList<>();
+
         List<Throwable> errors = new ArrayList<>();
         for (Future<BenchmarkTaskResult> fr : completed) {
             try {
@@ -403,6 +531,12 @@ class BenchmarkHandler {
                 iterationResults.addAll(btr.getResults());
                 allOps += btr.getAllOps();
                 measuredOps += btr.getMeasuredOps();
+                if (btr.getCapture() != null) {
+                    captures.add(btr.getCapture());
+                }
+                if (btr.getSeries() != null) {
+                    series.add(btr.getSeries());
+                }
             } catch (ExecutionException ex) {
                 // unwrap: ExecutionException -> Throwable-wrapper -> InvocationTargetException
                 Throwable cause = ex.getCause().getCause().getCause();
@@ -420,6 +554,19 @@ class BenchmarkHandler {
         IterationResult result = new IterationResult(benchmarkParams, params, new IterationResultMetaData(allOps, measuredOps));
         result.addResults(iterationResults);
 
+        if (virtualStats != null) {
+            result.addResults(virtualStats.stop());
+        }
+
+        if (!captures.isEmpty()) {
+            result.addResult(writeCaptures(benchmarkParams, params, iteration, captures));
+        }
+
+        // the last tick is missing if the iteration was cut short by a failure
+        if (!series.isEmpty() && ticks[ticks.length - 1] != 0) {
+            result.addResult(seriesResult(benchmarkParams, params, ticks, series));
+        }
+
         // profilers stop when after all threads are confirmed to be
         // finished to capture the edge behaviors; or, on a failure path
         stopProfilers(benchmarkParams, params, result);
@@ -431,6 +578,78 @@ class BenchmarkHandler {
         return result;
     }
 
+    /**
+     * Waits for the iteration time to expire, advancing the sub-interval tick along the way.
+     * The first tick is issued at the start, so that the workers that entered the measurement
+     * loop early do not inflate the first sub-interval. The last tick is issued at the end of
+     * iteration time, right before the workers are told to stop, so that they see it no later
+     * than {@link InfraControl#isDone}.
+     *
+     * @return the prematurely completed task, or null if iteration time had expired
+     */
+    private static Future<BenchmarkTaskResult> pollTicking(CompletionService<BenchmarkTaskResult> srv,
+                                                           InfraControl control, long[] ticks) throws InterruptedException {
+        long runtime = control.getDuration(TimeUnit.NANOSECONDS);
+        long start = System.nanoTime();
+        ticks[0] = start;
+        control.seriesTick = 1;
+        for (int t = 1; t < ticks.length; t++) {
+            long deadline = start + Math.min(runtime, t * control.seriesInterval);
+            Future<BenchmarkTaskResult> failing = srv.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (failing != null) {
+                return failing;
+            }
+            ticks[t] = System.nanoTime();
+            control.seriesTick = t + 1;
+        }
+        return null;
+    }
+
+    private Result seriesResult(BenchmarkParams benchmarkParams, IterationParams params,
+                                long[] ticks, List<long[]> series) {
+        // adjust the operation counts the same way the generated code does
+        int batchSize = params.getBatchSize();
+        int opsPerInv = benchmarkParams.getOpsPerInvocation();
+
+        double[] ops = new double[ticks.length - 1];
+        for (long[] s : series) {
+            for (int t = 0; t < ops.length; t++) {
+                ops[t] += 1D * (s[t + 1] - s[t]) * opsPerInv / batchSize;
+            }
+        }
+        return new ThroughputSeriesResult(Defaults.PREFIX + "series", SERIES_INTERVAL, ops, ticks, benchmarkParams.getTimeUnit());
+    }
+
+    private Result writeCaptures(BenchmarkParams benchmarkParams, IterationParams params, int iteration, List<CaptureBuffer> captures) {
+        Collections.sort(captures, new Comparator<CaptureBuffer>() {
+            @Override
+            public int compare(CaptureBuffer o1, CaptureBuffer o2) {
+                return Integer.compare(o1.getThreadIndex(), o2.getThreadIndex());
+            }
+        });
+
+        long dropped = 0;
+        long recorded = 0;
+        try {
+            if (captureFile == null) {
+                captureFile = CaptureFile.create(benchmarkParams);
+            }
+            for (CaptureBuffer cb : captures) {
+                captureFile.write(params, iteration, cb.getThreadIndex(), cb);
+                dropped += cb.getDropped();
+                recorded += cb.getRecords();
+            }
+        } catch (IOException e) {
+            throw new BenchmarkException(e);
+        }
+
+        if (params.getType() == IterationType.MEASUREMENT) {
+            captureDropped += dropped;
+            captureRecorded += recorded;
+        }
+        return new ScalarResult(Defaults.PREFIX + "capture.dropped", dropped, "#", AggregationPolicy.SUM);
+    }
+
     /**
      * Worker body.
      */
@@ -185,6 +185,19 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         return br;
     }
 
+    public BenchmarkListEntry cloneWithThreads(int threads) {
+        BenchmarkListEntry br = new BenchmarkListEntry(userClassQName, generatedClassQName, method, mode,
+                Optional.of(threads), threadGroups, threadGroupLabels,
+                warmupIterations, warmupTime, warmupBatchSize,
+                measurementIterations, measurementTime, measurementBatchSize,
+                forks, warmupForks,
+                jvm, jvmArgs, jvmArgsPrepend, jvmArgsAppend,
+                params, tu, opsPerInvocation,
+                timeout);
+        br.workloadParams = workloadParams;
+        return br;
+    }
+
     public WorkloadParams getWorkloadParams() {
         return workloadParams;
     }
@@ -201,11 +214,14 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
             return v1;
         }
 
-        if (workloadParams == null || o.workloadParams == null) {
-            return 0;
+        if (workloadParams != null && o.workloadParams != null) {
+            int v2 = workloadParams.compareTo(o.workloadParams);
+            if (v2 != 0) {
+                return v2;
+            }
         }
 
-        return workloadParams.compareTo(o.workloadParams);
+        return Integer.compare(threads.orElse(0), o.threads.orElse(0));
     }
 
     @Override
@@ -219,6 +235,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         if (workloadParams != null ? !workloadParams.equals(record.workloadParams) : record.workloadParams != null) return false;
         if (userClassQName != null ? !userClassQName.equals(record.userClassQName) : record.userClassQName != null) return false;
         if (method != null ? !method.equals(record.method) : record.method != null) return false;
+        if (!threads.equals(record.threads)) return false;
 
         return true;
     }
@@ -229,6 +246,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         result = 31 * result + (method != null ? method.hashCode() : 0);
         result = 31 * result + (mode != null ? mode.hashCode() : 0);
         result = 31 * result + (workloadParams != null ? workloadParams.hashCode() : 0);
+        result = 31 * result + threads.hashCode();
         return result;
     }
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.Optional;
+
+import java.util.Locale;
+
+/**
+ * The way {@link org.openjdk.jmh.infra.Blackhole} sinks the values in the forked VM.
+ */
+enum BlackholeMode {
+
+    /**
+     * Compiler blackholes: the VM compiler keeps the consumed values alive, with no
+     * additional code emitted. Requires VM support, see {@code -XX:CompileCommand=blackhole}.
+     */
+    COMPILER("compiler"),
+
+    /**
+     * Full blackholes, prohibited from inlining with the compiler hint.
+     */
+    FULL_DONTINLINE("full + dont-inline hint"),
+
+    /**
+     * Full blackholes, inlined at the compiler discretion.
+     */
+    FULL("full, auto-inline"),
+
+    ;
+
+    /**
+     * User-requested mode, one of "compiler", "full-dontinline", "full"; auto-detected when not set.
+     * Enum constant names are accepted as well.
+     */
+    static final String MODE_PROPERTY = "jmh.blackhole.mode";
+
+    /**
+     * Should the mode be auto-detected?
+     */
+    static final String AUTODETECT_PROPERTY = "jmh.blackhole.autoDetect";
+
+    /**
+     * Legacy flag, requests {@link #FULL}.
+     */
+    static final String FORCE_INLINE_PROPERTY = "jmh.blackhole.forceInline";
+
+    /**
+     * The system property that enables compiler blackholes in {@link org.openjdk.jmh.infra.Blackhole}.
+     */
+    static final String COMPILER_PROPERTY = "jmh.blackhole.compiler";
+
+    /**
+     * The method the compiler blackhole command applies to.
+     */
+    static final String COMPILER_METHOD = "org/openjdk/jmh/infra/Blackhole.consumeCompiler";
+
+    private final String desc;
+
+    BlackholeMode(String desc) {
+        this.desc = desc;
+    }
+
+    String desc() {
+        return desc;
+    }
+
+    /**
+     * @return the mode requested by user, if any
+     * @throws IllegalStateException if requested mode is unknown
+     */
+    static Optional<BlackholeMode> requested() {
+        String name = System.getProperty(MODE_PROPERTY);
+        if (name != null) {
+            try {
+                return Optional.of(BlackholeMode.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Unknown blackhole mode: " + name +
+                        ", known modes are compiler, full-dontinline, full");
+            }
+        }
+        if (Boolean.getBoolean(FORCE_INLINE_PROPERTY)) {
+            return Optional.of(FULL);
+        }
+        return Optional.none();
+    }
+
+    /**
+     * @return true, if auto-detection is enabled
+     */
+    static boolean shouldAutoDetect() {
+        return Boolean.parseBoolean(System.getProperty(AUTODETECT_PROPERTY, "true"));
+    }
+
+}
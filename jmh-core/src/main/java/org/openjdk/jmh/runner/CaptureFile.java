@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.CaptureBuffer;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file with the invocations captured by {@link org.openjdk.jmh.annotations.Mode#CaptureTime}.
+ *
+ * <p>All numbers are big-endian. The file starts with the header:</p>
+ * <ul>
+ *     <li>int magic, {@link #MAGIC}; short version, {@link #VERSION}</li>
+ *     <li>benchmark name and mode, as modified UTF-8 strings</li>
+ *     <li>long {@link System#nanoTime()} and long JVM uptime, in ms, taken at the same moment:
+ *     timestamps can be converted to uptime to match GC and JIT logs</li>
+ * </ul>
+ * <p>Then, for each thread in each iteration, the block follows:</p>
+ * <ul>
+ *     <li>byte iteration type, 0 for warmup and 1 for measurement; int iteration number</li>
+ *     <li>int thread index; int number of records; long number of dropped invocations</li>
+ *     <li>records, each record is long start timestamp and long duration, in ns</li>
+ * </ul>
+ */
+class CaptureFile implements Closeable {
+
+    static final int MAGIC = 0x4A434150;
+    static final int VERSION = 1;
+
+    private final File file;
+    private final FileChannel channel;
+
+    CaptureFile(File file, BenchmarkParams params) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeInt(MAGIC);
+        dos.writeShort(VERSION);
+        dos.writeUTF(params.getBenchmark());
+        dos.writeUTF(params.getMode().shortLabel());
+        dos.writeLong(System.nanoTime());
+        dos.writeLong(ManagementFactory.getRuntimeMXBean().getUptime());
+        dos.flush();
+        write(bos.toByteArray());
+    }
+
+    /**
+     * Creates the file for the benchmark in the current VM. The files go to the directory
+     * set by {@code jmh.capture.dir}, or to the temporary directory.
+     * @param params benchmark parameters
+     * @return capture file
+     * @throws IOException if file cannot be created
+     */
+    static CaptureFile create(BenchmarkParams params) throws IOException {
+        String dir = System.getProperty("jmh.capture.dir");
+        if (dir == null) {
+            dir = System.getProperty("java.io.tmpdir");
+        }
+        return create(new File(dir), params);
+    }
+
+    /**
+     * Creates the new file for the benchmark in the given directory. The file name includes
+     * the benchmark parameters, and never clashes with the existing files: the same
+     * benchmark can be run several times in the same VM.
+     * @param dir directory to create the file in
+     * @param params benchmark parameters
+     * @return capture file
+     * @throws IOException if file cannot be created
+     */
+    static CaptureFile create(File dir, BenchmarkParams params) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory: " + dir);
+        }
+
+        StringBuilder prefix = new StringBuilder(params.getBenchmark());
+        for (String key : params.getParamsKeys()) {
+            prefix.append("-").append(key).append("=").append(params.getParam(key));
+        }
+        prefix.append("-").append(Utils.getPid());
+        String name = prefix.toString().replaceAll("[^A-Za-z0-9._=-]", "_");
+
+        for (int n = 0; ; n++) {
+            File file = new File(dir, name + ((n == 0) ? "" : "-" + n) + ".capture");
+            try {
+                Files.createFile(file.toPath());
+                return new CaptureFile(file, params);
+            } catch (FileAlreadyExistsException e) {
+                // try the next one
+            }
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void write(IterationParams params, int iteration, int thread, CaptureBuffer buffer) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(1 + 4 + 4 + 4 + 8);
+        header.put((byte) (params.getType() == IterationType.WARMUP ? 0 : 1));
+        header.putInt(iteration);
+        header.putInt(thread);
+        header.putInt(buffer.getRecords());
+        header.putLong(buffer.getDropped());
+        ((Buffer) header).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        buffer.writeTo(channel);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Maintains the class data sharing archives for forked VMs.
+ *
+ * <p>Every forked VM loads the same JMH infrastructure, generated and user classes. When there is
+ * no archive for the given forked VM command yet, the separate unmeasured VM runs the benchmark
+ * with the same command and dumps the loaded classes into the dynamic archive on exit. Measured
+ * forked VMs then map the archive instead of loading and verifying the classes again. Archives
+ * are kept in the cache directory across the runs, and are keyed by VM version, the complete
+ * forked VM command, and the classpath contents.
+ *
+ * <p>Dynamic archives are available since JDK 13. Forked VMs running older JDKs are started as usual.
+ */
+class ClassDataArchives {
+
+    static final String DUMP_OPTION = "-XX:ArchiveClassesAtExit=";
+    static final String SHARE_OPTION = "-XX:SharedArchiveFile=";
+
+    private static final int MIN_JDK_VERSION = 13;
+
+    private enum State {
+        DUMPING,
+        READY,
+        FAILED,
+    }
+
+    private final File dir;
+    private final Map<String, State> states;
+    private final Map<String, String> dumpKeys;
+    private final Set<String> unsupported;
+
+    private int archivedBoots;
+    private long archivedBootNanos;
+    private int plainBoots;
+    private long plainBootNanos;
+
+    ClassDataArchives(File dir) {
+        this.dir = dir;
+        this.states = new HashMap<>();
+        this.dumpKeys = new HashMap<>();
+        this.unsupported = new HashSet<>();
+    }
+
+    /**
+     * Returns the VM options to map the archive for this forked VM command. Forks never dump the
+     * archive themselves, since the dumping VM runs with different options than the forks that load
+     * the archive; see {@link #getDumpOptions(BenchmarkParams, List, OutputFormat)}.
+     *
+     * @param params benchmark parameters
+     * @param command forked VM command, starting from the VM executable, without the archive options
+     * @param out output to report to
+     * @return VM options; empty, if archive is not available
+     */
+    synchronized List<String> getJvmOptions(BenchmarkParams params, List<String> command, OutputFormat out) {
+        String key = supportedKey(params, command, out);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+
+        File archive = new File(dir, key + ".jsa");
+        State state = states.get(key);
+        if (state == State.READY || (state == null && archive.isFile())) {
+            states.put(key, State.READY);
+            return Collections.singletonList(SHARE_OPTION + archive.getAbsolutePath());
+        }
+
+        // Archive is not dumped yet, is being dumped, or had failed to dump
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the VM options to dump the archive for this forked VM command. The options are
+     * meant for the separate unmeasured VM that runs the same command; forks that run the
+     * command afterwards would map the dumped archive.
+     *
+     * @param params benchmark parameters
+     * @param command forked VM command, starting from the VM executable, without the archive options
+     * @param out output to report to
+     * @return VM options; empty, if archive is not supported, or does not need the dump
+     */
+    synchronized List<String> getDumpOptions(BenchmarkParams params, List<String> command, OutputFormat out) {
+        String key = supportedKey(params, command, out);
+        if (key == null || states.containsKey(key)) {
+            return Collections.emptyList();
+        }
+
+        File archive = new File(dir, key + ".jsa");
+        if (archive.isFile()) {
+            states.put(key, State.READY);
+            return Collections.emptyList();
+        }
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            out.println("# Class data sharing: cannot create the cache directory " + dir);
+            states.put(key, State.FAILED);
+            return Collections.emptyList();
+        }
+
+        // Dump into the temporary file first, so that the incomplete archive is never used
+        String dump = new File(dir, key + "-" + Utils.getPid() + ".tmp").getAbsolutePath();
+        states.put(key, State.DUMPING);
+        dumpKeys.put(dump, key);
+        // VM complains about every class it cannot archive, which is expected and only pollutes the output
+        return Arrays.asList(DUMP_OPTION + dump, "-Xlog:cds*=off");
+    }
+
+    /**
+     * Marks the dump as failed, when the dumping VM did not start at all.
+     *
+     * @param dumpOptions options returned by {@link #getDumpOptions(BenchmarkParams, List, OutputFormat)}
+     */
+    synchronized void dumpFailed(List<String> dumpOptions) {
+        for (String opt : dumpOptions) {
+            if (opt.startsWith(DUMP_OPTION)) {
+                String key = dumpKeys.remove(opt.substring(DUMP_OPTION.length()));
+                if (key != null) {
+                    states.put(key, State.FAILED);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return archive key for this command; null, if the VM cannot use the archive
+     */
+    private String supportedKey(BenchmarkParams params, List<String> command, OutputFormat out) {
+        int version = majorVersion(params.getJdkVersion());
+        if (version < MIN_JDK_VERSION) {
+            if (unsupported.add(params.getJvm())) {
+                out.println("# Class data sharing: JDK " + params.getJdkVersion() + " does not support dynamic archives, " +
+                        "need JDK " + MIN_JDK_VERSION + "+");
+            }
+            return null;
+        }
+
+        String cp = System.getProperty("java.class.path");
+        if (hasClassDirectories(cp)) {
+            if (unsupported.add(cp)) {
+                out.println("# Class data sharing: classpath has class directories, VM can only archive classes from JARs");
+            }
+            return null;
+        }
+
+        return key(params, command);
+    }
+
+    /**
+     * Accounts the forked VM that had exited, and publishes the archive it had dumped.
+     *
+     * @param command forked VM command
+     * @param exitCode forked VM exit code
+     * @param bootNanos forked VM startup time; zero, if not known
+     * @param out output to report to
+     */
+    synchronized void onExit(List<String> command, int exitCode, long bootNanos, OutputFormat out) {
+        String dump = null;
+        boolean shared = false;
+        for (String opt : command) {
+            if (opt.startsWith(DUMP_OPTION)) {
+                dump = opt.substring(DUMP_OPTION.length());
+            }
+            if (opt.startsWith(SHARE_OPTION)) {
+                shared = true;
+            }
+        }
+
+        if (bootNanos > 0) {
+            if (shared) {
+                archivedBoots++;
+                archivedBootNanos += bootNanos;
+            } else {
+                plainBoots++;
+                plainBootNanos += bootNanos;
+            }
+        }
+
+        if (dump == null) {
+            return;
+        }
+
+        String key = dumpKeys.remove(dump);
+        File tmp = new File(dump);
+        if (key == null) {
+            // The same command was reused by another VM, which already did the dump
+            tmp.delete();
+            return;
+        }
+
+        File archive = new File(dir, key + ".jsa");
+        if (exitCode == 0 && tmp.length() > 0) {
+            try {
+                Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                states.put(key, State.READY);
+                out.println("# Class data sharing: created archive " + archive);
+                return;
+            } catch (IOException e) {
+                out.println("# Class data sharing: cannot store the archive: " + e.getMessage());
+            }
+        } else {
+            out.println("# Class data sharing: forked VM had not dumped the archive, running without it");
+        }
+        tmp.delete();
+        states.put(key, State.FAILED);
+    }
+
+    /**
+     * @return human-readable summary of forked VM startup times
+     */
+    synchronized String getSummary() {
+        return String.format("# Class data sharing: %s with archive, %s without archive.",
+                bootSummary(archivedBoots, archivedBootNanos),
+                bootSummary(plainBoots, plainBootNanos));
+    }
+
+    private static String bootSummary(int count, long nanos) {
+        if (count == 0) {
+            return "no forks started";
+        }
+        return String.format("%d forks started in %.1f ms on average", count, nanos / 1e6 / count);
+    }
+
+    /**
+     * VM refuses to dump the archive if classpath has non-empty directories.
+     */
+    private static boolean hasClassDirectories(String cp) {
+        for (String entry : cp.split(File.pathSeparator)) {
+            String[] files = new File(entry).list();
+            if (files != null && files.length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the archive key. Archive is only valid for the exact VM and the exact classpath,
+     * VM would refuse to map it otherwise. The key also covers the complete forked VM command,
+     * including the options added by profilers and blackhole modes, so that the archive dumped
+     * under one VM configuration is never mapped under another.
+     */
+    static String key(BenchmarkParams params, List<String> command) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(params.getJdkVersion()).append('\n');
+        sb.append(params.getVmVersion()).append('\n');
+        sb.append(params.getJmhVersion()).append('\n');
+        for (String arg : command) {
+            if (arg.startsWith(CompilerHints.XX_COMPILE_COMMAND_FILE)) {
+                // Hints file is the fresh temporary file for every run, only its contents matter
+                sb.append(CompilerHints.XX_COMPILE_COMMAND_FILE).append('\n');
+                try {
+                    for (String line : FileUtils.readAllLines(new File(arg.substring(CompilerHints.XX_COMPILE_COMMAND_FILE.length())))) {
+                        sb.append(line).append('\n');
+                    }
+                } catch (IOException e) {
+                    sb.append(arg).append('\n');
+                }
+            } else {
+                sb.append(arg).append('\n');
+            }
+        }
+
+        String cp = System.getProperty("java.class.path");
+        sb.append(cp).append('\n');
+        for (String entry : cp.split(File.pathSeparator)) {
+            File f = new File(entry);
+            sb.append(f.length()).append(':').append(f.lastModified()).append('\n');
+        }
+
+        return Utils.shortHash(sb.toString());
+    }
+
+    /**
+     * Parses the major Java version: "1.8.0_191" is 8, "11.0.1" is 11, "13-ea" is 13.
+     *
+     * @param version version string
+     * @return major version; zero, if cannot be parsed
+     */
+    static int majorVersion(String version) {
+        if (version == null) {
+            return 0;
+        }
+        String v = version.startsWith("1.") ? version.substring(2) : version;
+        int end = 0;
+        while (end < v.length() && Character.isDigit(v.charAt(end))) {
+            end++;
+        }
+        if (end == 0) {
+            return 0;
+        }
+        return Integer.parseInt(v.substring(0, end));
+    }
+
+}
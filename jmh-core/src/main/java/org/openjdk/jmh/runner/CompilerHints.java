@@ -60,12 +60,15 @@ public class CompilerHints extends AbstractResourceReader {
         if (hintsFile == null) {
             try {
                 final Set<String> defaultHints = defaultList().get();
-                List<String> hints = new ArrayList<>(defaultHints.size() + 2);
+                List<String> hints = new ArrayList<>(defaultHints.size() + 3);
                 hints.add("quiet");
-                if (Boolean.getBoolean("jmh.blackhole.forceInline")) {
+                // Compiler blackholes do not need hints here: the blackhole command goes
+                // along with the forked VM options, see Runner.
+                if (BlackholeMode.requested().orElse(BlackholeMode.FULL_DONTINLINE) == BlackholeMode.FULL) {
                     hints.add("inline,org/openjdk/jmh/infra/Blackhole.*");
                 } else {
-                    hints.add("dontinline,org/openjdk/jmh/infra/Blackhole.*");
+                    hints.add("dontinline,org/openjdk/jmh/infra/Blackhole.consumeFull");
+                    hints.add("dontinline,org/openjdk/jmh/infra/Blackhole.consumeCPU");
                 }
                 hints.addAll(defaultHints);
                 hintsFile = FileUtils.createTempFileWithLines("compilecommand", hints);
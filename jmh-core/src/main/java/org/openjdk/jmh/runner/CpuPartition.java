@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Disjoint set of CPUs a forked VM is pinned to. Partitions are derived from
+ * the sysfs CPU topology: hardware threads of the same physical core always
+ * stay in the same partition, and partitions are filled package by package.
+ */
+class CpuPartition {
+
+    private static final String SYSFS_CPU = "/sys/devices/system/cpu";
+
+    private final int id;
+    private final List<Integer> cpus;
+
+    CpuPartition(int id, List<Integer> cpus) {
+        this.id = id;
+        this.cpus = cpus;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<Integer> getCpus() {
+        return cpus;
+    }
+
+    /**
+     * @return CPU list in the format taskset and cpusets understand, e.g. "0-3,8-11"
+     */
+    public String getCpuList() {
+        StringBuilder sb = new StringBuilder();
+        int start = -1;
+        int prev = -1;
+        for (int cpu : new TreeSet<>(cpus)) {
+            if (start == -1) {
+                start = cpu;
+            } else if (cpu != prev + 1) {
+                appendRange(sb, start, prev);
+                start = cpu;
+            }
+            prev = cpu;
+        }
+        if (start != -1) {
+            appendRange(sb, start, prev);
+        }
+        return sb.toString();
+    }
+
+    private static void appendRange(StringBuilder sb, int start, int end) {
+        if (sb.length() > 0) {
+            sb.append(",");
+        }
+        sb.append(start);
+        if (end != start) {
+            sb.append("-").append(end);
+        }
+    }
+
+    /**
+     * Pins the command to this partition.
+     * @param command forked VM command
+     * @return command prefixed with the affinity launcher
+     */
+    public List<String> bind(List<String> command) {
+        List<String> result = new ArrayList<>();
+        result.add("taskset");
+        result.add("-c");
+        result.add(getCpuList());
+        result.addAll(command);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " (CPUs " + getCpuList() + ")";
+    }
+
+    /**
+     * Splits the current machine into at most {@code count} partitions.
+     *
+     * @param count requested number of partitions
+     * @return partitions; empty list if topology is not available, or CPUs can not be pinned
+     */
+    static List<CpuPartition> detect(int count) {
+        if (Utils.isWindows()) {
+            return Collections.emptyList();
+        }
+
+        if (!Utils.tryWith("taskset", "-c", "0", "true").isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            Collection<String> online = FileUtils.readAllLines(new File(SYSFS_CPU + "/online"));
+            if (online.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            SortedMap<Long, List<Integer>> cores = new TreeMap<>();
+            for (int cpu : parseCpuList(online.iterator().next())) {
+                long pkg = readTopology(cpu, "physical_package_id");
+                long core = readTopology(cpu, "core_id");
+                Long key = (pkg << 32) | (core & 0xFFFFFFFFL);
+                List<Integer> siblings = cores.get(key);
+                if (siblings == null) {
+                    siblings = new ArrayList<>();
+                    cores.put(key, siblings);
+                }
+                siblings.add(cpu);
+            }
+
+            return split(new ArrayList<>(cores.values()), count);
+        } catch (IOException | NumberFormatException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static long readTopology(int cpu, String name) throws IOException {
+        File f = new File(SYSFS_CPU + "/cpu" + cpu + "/topology/" + name);
+        if (!f.exists()) {
+            // Unknown topology, treat every CPU as the standalone core
+            return name.equals("core_id") ? cpu : 0;
+        }
+        Collection<String> lines = FileUtils.readAllLines(f);
+        return lines.isEmpty() ? 0 : Long.parseLong(lines.iterator().next().trim());
+    }
+
+    /**
+     * Parses the kernel CPU list format, e.g. "0-3,8,10-11".
+     */
+    static List<Integer> parseCpuList(String list) {
+        List<Integer> result = new ArrayList<>();
+        for (String range : list.trim().split(",")) {
+            if (range.isEmpty()) continue;
+            int idx = range.indexOf('-');
+            if (idx == -1) {
+                result.add(Integer.parseInt(range));
+            } else {
+                int from = Integer.parseInt(range.substring(0, idx));
+                int to = Integer.parseInt(range.substring(idx + 1));
+                for (int c = from; c <= to; c++) {
+                    result.add(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Distributes the physical cores, ordered by package, into contiguous partitions.
+     *
+     * @param cores hardware threads of each physical core, in topology order
+     * @param count requested number of partitions
+     * @return partitions, at most one per physical core
+     */
+    static List<CpuPartition> split(List<List<Integer>> cores, int count) {
+        int parts = Math.min(count, cores.size());
+        List<CpuPartition> result = new ArrayList<>();
+        for (int p = 0; p < parts; p++) {
+            int from = p * cores.size() / parts;
+            int to = (p + 1) * cores.size() / parts;
+            List<Integer> cpus = new ArrayList<>();
+            for (List<Integer> core : cores.subList(from, to)) {
+                cpus.addAll(core);
+            }
+            result.add(new CpuPartition(p, cpus));
+        }
+        return result;
+    }
+
+}
@@ -77,6 +77,37 @@ public class Defaults {
      */
     public static final TimeValue MEASUREMENT_TIME = TimeValue.seconds(1);
 
+    /**
+     * Minimal number of measurement iterations in adaptive measurement.
+     */
+    public static final int ADAPTIVE_MIN_ITERATIONS = 5;
+
+    /**
+     * Minimal number of forks in adaptive measurement.
+     */
+    public static final int ADAPTIVE_MIN_FORKS = 2;
+
+    /**
+     * Should warmup until steady state?
+     */
+    public static final boolean WARMUP_STEADY_STATE = false;
+
+    /**
+     * Should sweep the thread count?
+     */
+    public static final boolean THREAD_SCALING = false;
+
+    /**
+     * Number of recent warmup iterations to look at when detecting steady state.
+     * This is also the minimal number of warmup iterations when warming up until steady state.
+     */
+    public static final int STEADY_STATE_WINDOW = 5;
+
+    /**
+     * Maximal relative drift of warmup scores over the steady state window, e.g. 0.02 for 2%.
+     */
+    public static final double STEADY_STATE_TOLERANCE = 0.02;
+
     /**
      * Number of measurement threads.
      */
@@ -142,6 +173,16 @@ public class Defaults {
      */
     public static final Integer OPS_PER_INVOCATION = 1;
 
+    /**
+     * Default arrival rate for {@link org.openjdk.jmh.annotations.Mode#OpenLoop}, ops/s.
+     */
+    public static final double ARRIVAL_RATE = 1000;
+
+    /**
+     * Default latency percentile for the saturation search.
+     */
+    public static final double LATENCY_PERCENTILE = 99;
+
     /**
      * Default timeout.
      */
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.runner.format.OutputFormat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the output calls, and replays them into the real output later.
+ * This is used when several forks are running at once, and their outputs
+ * should not interleave.
+ */
+class DeferredOutputFormat implements InvocationHandler {
+
+    private final List<Method> methods;
+    private final List<Object[]> args;
+    private final OutputFormat proxy;
+
+    public DeferredOutputFormat() {
+        this.methods = new ArrayList<>();
+        this.args = new ArrayList<>();
+        this.proxy = (OutputFormat) Proxy.newProxyInstance(
+                OutputFormat.class.getClassLoader(),
+                new Class[]{OutputFormat.class},
+                this);
+    }
+
+    public OutputFormat getOutputFormat() {
+        return proxy;
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+        if (args != null) {
+            args = args.clone();
+            for (int i = 0; i < args.length; i++) {
+                // callers are free to reuse the byte buffers
+                if (args[i] instanceof byte[]) {
+                    args[i] = ((byte[]) args[i]).clone();
+                }
+            }
+        }
+        this.methods.add(method);
+        this.args.add(args);
+        return null; // all OutputFormat methods are void
+    }
+
+    public synchronized void replay(OutputFormat dst) {
+        for (int i = 0; i < methods.size(); i++) {
+            try {
+                methods.get(i).invoke(dst, args.get(i));
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        methods.clear();
+        args.clear();
+    }
+
+}
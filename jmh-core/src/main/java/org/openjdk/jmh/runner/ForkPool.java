@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.link.BinaryLinkServer;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.TempFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the spare forked VMs that had already booted and completed the handshake,
+ * but have not yet received the action plan, and therefore have not loaded any
+ * benchmark code. Every VM still runs only a single action plan.
+ *
+ * <p>Spares are keyed by their full command line, sans the back-connect address:
+ * the spare can only stand in for the fork that would have been started with exactly
+ * the same JVM, JVM options and classpath.</p>
+ *
+ * <p>The spare VM is started once the current fork reports it had completed all iterations,
+ * so that it does not compete with the measurement for CPU time; it still overlaps with
+ * the fork teardown and exit. The spare VM output is held until the spare is used, so that
+ * it does not mix with the output of the current fork. Since the spares are useful only when
+ * the VM startup is expensive, the pool is opt-in.</p>
+ */
+class ForkPool {
+
+    private final Options options;
+    private final OutputFormat out;
+    private final List<Fork> spares;
+
+    private int prewarmedForks;
+    private long savedNanos;
+
+    public ForkPool(Options options, OutputFormat out) {
+        this.options = options;
+        this.out = out;
+        this.spares = new ArrayList<>();
+    }
+
+    /**
+     * Takes the matching spare VM from the pool, or starts a new one.
+     * Spares that can not serve this command are discarded.
+     *
+     * @param command forked VM command, without the back-connect host and port
+     * @param printOut should copy VM stdout to output
+     * @param printErr should copy VM stderr to output
+     * @return fork, ready to accept the plan
+     * @throws IOException if VM can not be started
+     */
+    public synchronized Fork acquire(List<String> command, boolean printOut, boolean printErr) throws IOException {
+        Fork found = null;
+        for (Iterator<Fork> it = spares.iterator(); it.hasNext(); ) {
+            Fork f = it.next();
+            if (found == null && f.command.equals(command) && f.vm.isAlive()) {
+                found = f;
+            } else {
+                f.destroy();
+            }
+            it.remove();
+        }
+
+        if (found != null) {
+            found.vm.releaseEcho(printOut ? out : null, printErr ? out : null);
+            return found;
+        }
+        return spawn(command, printOut, printErr, false);
+    }
+
+    /**
+     * Starts the spare VM for the future fork with the same command, unless one is already pending.
+     * The spare VM output is held until the spare is acquired.
+     *
+     * @param command forked VM command, without the back-connect host and port
+     * @throws IOException if VM can not be started
+     */
+    public synchronized void prepare(List<String> command) throws IOException {
+        for (Fork f : spares) {
+            if (f.command.equals(command)) {
+                return;
+            }
+        }
+        spares.add(spawn(command, false, false, true));
+    }
+
+    private Fork spawn(List<String> command, boolean printOut, boolean printErr, boolean spare) throws IOException {
+        BinaryLinkServer server = new BinaryLinkServer(options, out);
+        try {
+            List<String> fullCommand = new ArrayList<>(command);
+            fullCommand.addAll(server.getClientArgs());
+
+            TempFile stdOut = FileUtils.weakTempFile("stdout");
+            TempFile stdErr = FileUtils.weakTempFile("stderr");
+            long spawnTime = System.nanoTime();
+            ForkedVM vm = spare ?
+                    ForkedVM.startHeld(fullCommand, stdOut.file(), stdErr.file()) :
+                    ForkedVM.start(fullCommand, stdOut.file(), stdErr.file(), printOut ? out : null, printErr ? out : null);
+            return new Fork(command, fullCommand, server, vm, stdOut, stdErr, spawnTime, spare);
+        } catch (IOException e) {
+            server.terminate();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands the plan to the fork, and accounts the VM startup time the spare had saved.
+     *
+     * @param fork fork to start
+     * @param plan action plan to execute
+     */
+    public synchronized void activate(Fork fork, ActionPlan plan) {
+        if (fork.spare) {
+            long now = System.nanoTime();
+            long ready = fork.server.getPlanRequestTime();
+
+            // Spare VM might be still booting, then it saved us only the part it had done.
+            long end = (ready != 0) ? Math.min(ready, now) : now;
+            savedNanos += Math.max(0, end - fork.spawnTime);
+            prewarmedForks++;
+        }
+        fork.server.setPlan(plan);
+    }
+
+    public synchronized int getPrewarmedForks() {
+        return prewarmedForks;
+    }
+
+    public synchronized long getSavedNanos() {
+        return savedNanos;
+    }
+
+    /**
+     * Discards all spare VMs.
+     */
+    public synchronized void shutdown() {
+        for (Fork f : spares) {
+            f.destroy();
+        }
+        spares.clear();
+    }
+
+    static class Fork {
+        private final List<String> command;
+        private final List<String> fullCommand;
+        private final BinaryLinkServer server;
+        private final ForkedVM vm;
+        private final TempFile stdOut;
+        private final TempFile stdErr;
+        private final long spawnTime;
+        private final boolean spare;
+
+        Fork(List<String> command, List<String> fullCommand, BinaryLinkServer server, ForkedVM vm,
+             TempFile stdOut, TempFile stdErr, long spawnTime, boolean spare) {
+            this.command = command;
+            this.fullCommand = fullCommand;
+            this.server = server;
+            this.vm = vm;
+            this.stdOut = stdOut;
+            this.stdErr = stdErr;
+            this.spawnTime = spawnTime;
+            this.spare = spare;
+        }
+
+        public List<String> getCommand() {
+            return fullCommand;
+        }
+
+        public BinaryLinkServer getServer() {
+            return server;
+        }
+
+        public ForkedVM getVM() {
+            return vm;
+        }
+
+        public TempFile getStdOut() {
+            return stdOut;
+        }
+
+        public TempFile getStdErr() {
+            return stdErr;
+        }
+
+        public boolean isPrewarmed() {
+            return spare;
+        }
+
+        void destroy() {
+            // Spare VM is blocked waiting for the plan: dropping the link unblocks it
+            server.terminate();
+            vm.destroy();
+            stdOut.delete();
+            stdErr.delete();
+        }
+    }
+
+}
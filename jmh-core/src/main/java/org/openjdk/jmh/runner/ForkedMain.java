@@ -27,6 +27,7 @@ package org.openjdk.jmh.runner;
 import org.openjdk.jmh.runner.link.BinaryLinkClient;
 import org.openjdk.jmh.runner.options.Options;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Map;
@@ -52,8 +53,8 @@ class ForkedMain {
      * @param argv Command line arguments
      */
     public static void main(String[] argv) throws Exception {
-        if (argv.length != 2) {
-            throw new IllegalArgumentException("Expected two arguments for forked VM");
+        if (argv.length != 1 && argv.length != 2) {
+            throw new IllegalArgumentException("Expected one or two arguments for forked VM");
         } else {
             // arm the hangup thread
             Runtime.getRuntime().addShutdownHook(new HangupThread());
@@ -62,14 +63,21 @@ class ForkedMain {
             ShutdownTimeoutThread shutdownThread = new ShutdownTimeoutThread();
 
             try {
-                // This assumes the exact order of arguments:
+                // This assumes the exact order of arguments, either:
                 //   1) host name to back-connect
                 //   2) host port to back-connect
-                String hostName = argv[0];
-                int hostPort = Integer.valueOf(argv[1]);
+                // or:
+                //   1) link file shared with host VM
 
                 // establish the link to host VM and pull the options
-                BinaryLinkClient link = new BinaryLinkClient(hostName, hostPort);
+                BinaryLinkClient link;
+                if (argv.length == 2) {
+                    String hostName = argv[0];
+                    int hostPort = Integer.valueOf(argv[1]);
+                    link = new BinaryLinkClient(hostName, hostPort);
+                } else {
+                    link = new BinaryLinkClient(new File(argv[0]));
+                }
                 linkRef.set(link);
 
                 Options options = link.handshake();
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.InputStreamDrainer;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Forked VM process, along with the drainers for its output streams.
+ */
+class ForkedVM {
+
+    private final List<String> command;
+    private final Process process;
+    private final long startTime;
+    private final FileOutputStream fosOut;
+    private final FileOutputStream fosErr;
+    private final InputStreamDrainer outDrainer;
+    private final InputStreamDrainer errDrainer;
+    private final HeldOutput heldOut;
+    private final HeldOutput heldErr;
+
+    /**
+     * Starts the forked VM.
+     *
+     * @param command command to run
+     * @param stdOut file to dump stdout into
+     * @param stdErr file to dump stderr into
+     * @param echoOut output to copy stdout to; null, if stdout should not be copied
+     * @param echoErr output to copy stderr to; null, if stderr should not be copied
+     * @return running forked VM
+     * @throws IOException if VM can not be started
+     */
+    public static ForkedVM start(List<String> command, File stdOut, File stdErr,
+                                 OutputFormat echoOut, OutputFormat echoErr) throws IOException {
+        return start(command, stdOut, stdErr,
+                (echoOut != null) ? new OutputFormatAdapter(echoOut) : null,
+                (echoErr != null) ? new OutputFormatAdapter(echoErr) : null,
+                null, null);
+    }
+
+    /**
+     * Starts the forked VM that holds the copy of its output until {@link #releaseEcho(OutputFormat, OutputFormat)}
+     * is called. This is used for the spare VMs that start while the other fork still prints.
+     *
+     * @param command command to run
+     * @param stdOut file to dump stdout into
+     * @param stdErr file to dump stderr into
+     * @return running forked VM
+     * @throws IOException if VM can not be started
+     */
+    public static ForkedVM startHeld(List<String> command, File stdOut, File stdErr) throws IOException {
+        HeldOutput heldOut = new HeldOutput();
+        HeldOutput heldErr = new HeldOutput();
+        return start(command, stdOut, stdErr, heldOut, heldErr, heldOut, heldErr);
+    }
+
+    private static ForkedVM start(List<String> command, File stdOut, File stdErr,
+                                  OutputStream echoOut, OutputStream echoErr,
+                                  HeldOutput heldOut, HeldOutput heldErr) throws IOException {
+        FileOutputStream fosOut = new FileOutputStream(stdOut);
+        FileOutputStream fosErr = null;
+        try {
+            fosErr = new FileOutputStream(stdErr);
+            long startTime = System.nanoTime();
+            Process p = new ProcessBuilder(command).start();
+            return new ForkedVM(command, p, startTime, fosOut, fosErr, echoOut, echoErr, heldOut, heldErr);
+        } catch (IOException e) {
+            FileUtils.safelyClose(fosOut);
+            FileUtils.safelyClose(fosErr);
+            throw e;
+        }
+    }
+
+    private ForkedVM(List<String> command, Process process, long startTime,
+                     FileOutputStream fosOut, FileOutputStream fosErr,
+                     OutputStream echoOut, OutputStream echoErr,
+                     HeldOutput heldOut, HeldOutput heldErr) {
+        this.command = command;
+        this.process = process;
+        this.startTime = startTime;
+        this.fosOut = fosOut;
+        this.fosErr = fosErr;
+        this.heldOut = heldOut;
+        this.heldErr = heldErr;
+
+        // drain streams, else we might lock up
+        errDrainer = new InputStreamDrainer(process.getErrorStream(), fosErr);
+        outDrainer = new InputStreamDrainer(process.getInputStream(), fosOut);
+
+        errDrainer.addOutputStream(echoErr);
+        outDrainer.addOutputStream(echoOut);
+
+        errDrainer.start();
+        outDrainer.start();
+    }
+
+    /**
+     * Waits for forked VM to exit, and its output to be drained.
+     *
+     * @return exit code
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int waitFor() throws InterruptedException {
+        try {
+            int ecode = process.waitFor();
+
+            errDrainer.join();
+            outDrainer.join();
+
+            return ecode;
+        } finally {
+            FileUtils.safelyClose(fosOut);
+            FileUtils.safelyClose(fosErr);
+        }
+    }
+
+    /**
+     * Prints the output held so far, and copies the further output as it comes.
+     * Does nothing, unless VM was started with {@link #startHeld(List, File, File)}.
+     *
+     * @param echoOut output to copy stdout to; null, if stdout should not be copied
+     * @param echoErr output to copy stderr to; null, if stderr should not be copied
+     * @throws IOException if held output cannot be printed
+     */
+    public void releaseEcho(OutputFormat echoOut, OutputFormat echoErr) throws IOException {
+        if (heldOut != null) {
+            heldOut.release((echoOut != null) ? new OutputFormatAdapter(echoOut) : null);
+        }
+        if (heldErr != null) {
+            heldErr.release((echoErr != null) ? new OutputFormatAdapter(echoErr) : null);
+        }
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} timestamp of VM start
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    public void destroy() {
+        process.destroyForcibly();
+        try {
+            waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Buffers the output until the target is known.
+     */
+    private static class HeldOutput extends OutputStream {
+        private ByteArrayOutputStream held = new ByteArrayOutputStream();
+        private OutputStream target;
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (held != null) {
+                held.write(b);
+            } else if (target != null) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (held != null) {
+                held.write(b, off, len);
+            } else if (target != null) {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        synchronized void release(OutputStream target) throws IOException {
+            if (held == null) {
+                return;
+            }
+            if (target != null) {
+                held.writeTo(target);
+            }
+            this.held = null;
+            this.target = target;
+        }
+    }
+
+}
@@ -27,11 +27,14 @@ package org.openjdk.jmh.runner;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.Control;
 import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.RawResults;
+import org.openjdk.jmh.util.SampleHistogram;
 import org.openjdk.jmh.util.Utils;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The InfraControl logic class.
@@ -39,6 +42,31 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class InfraControl extends InfraControlL4 {
 
+    /**
+     * Spin, not park, when the next arrival is this close.
+     */
+    private static final long ARRIVAL_SPIN_NS = Long.getLong("jmh.arrivalSpinNs", TimeUnit.MICROSECONDS.toNanos(100));
+
+    /**
+     * Record at most this many distinct samples for the overdue open-loop operations.
+     */
+    private static final long OVERDUE_SAMPLES = 65536;
+
+    /**
+     * Upper bound for the stop check stride, in case warmup had seen the skewed invocation cost.
+     */
+    private static final int MAX_STOP_CHECK_STRIDE = 1 << 20;
+
+    /**
+     * Target timed duration of the batch for {@link org.openjdk.jmh.annotations.Level#BatchedInvocation} helpers.
+     */
+    private static final long INVOCATION_BATCH_NS = Long.getLong("jmh.invocationBatchNs", TimeUnit.MICROSECONDS.toNanos(10));
+
+    /**
+     * Upper bound for the batch size, which bounds the memory taken by the batch copies.
+     */
+    private static final int INVOCATION_BATCH_MAX = Integer.getInteger("jmh.invocationBatchMax", 1024);
+
     /**
      * Do the class hierarchy trick to evade false sharing, and check if it's working in runtime.
      * @see org.openjdk.jmh.infra.Blackhole description for the rationale
@@ -52,13 +80,33 @@ public class InfraControl extends InfraControlL4 {
         Utils.check(InfraControl.class, "warmupShouldWait", "warmdownShouldWait");
         Utils.check(InfraControl.class, "warmupDone", "warmdownDone");
         Utils.check(InfraControl.class, "benchmarkParams", "iterationParams");
-        Utils.check(InfraControl.class, "shouldSynchIterations", "threads");
+        Utils.check(InfraControl.class, "shouldSynchIterations", "threads", "blockingSynch");
+        Utils.check(InfraControl.class, "seriesTick", "seriesInterval");
+        Utils.check(InfraControl.class, "stopCheckOvershoot");
     }
 
     public InfraControl(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                         CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
                         Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+        this(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, false);
+    }
+
+    public InfraControl(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                        CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
+                        Control notifyControl, boolean blockingSynch) {
+        this(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSynch, 0);
+    }
+
+    public InfraControl(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                        CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
+                        Control notifyControl, boolean blockingSynch, long seriesInterval) {
+        this(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSynch, seriesInterval, 0);
+    }
+
+    public InfraControl(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                        CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
+                        Control notifyControl, boolean blockingSynch, long seriesInterval, long stopCheckOvershoot) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSynch, seriesInterval, stopCheckOvershoot);
     }
 
     /**
@@ -107,6 +155,148 @@ public class InfraControl extends InfraControlL4 {
         notifyControl.stopMeasurement = true;
     }
 
+    /**
+     * Waits until the intended start time of the next operation in
+     * {@link org.openjdk.jmh.annotations.Mode#OpenLoop} mode. Parks while the start time is far
+     * away, and spins for the last stretch, since parking is too coarse to hit the
+     * start time precisely.
+     *
+     * @param startTime intended start time, as per {@link System#nanoTime()}
+     * @return true, if the start time had come; false, if iteration is done before that
+     */
+    public boolean awaitArrival(long startTime) {
+        long left;
+        while ((left = startTime - System.nanoTime()) > 0) {
+            if (isDone) {
+                return false;
+            }
+            if (left > ARRIVAL_SPIN_NS) {
+                LockSupport.parkNanos(left - ARRIVAL_SPIN_NS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records the operations that were due in {@link org.openjdk.jmh.annotations.Mode#OpenLoop}
+     * mode, but never started because the iteration had ended first. Their latency is the time
+     * they had been waiting at the end of iteration; dropping them would bias the latency low
+     * exactly when the benchmark cannot keep up with the arrival rate. Large backlogs are recorded
+     * in groups of adjacent operations, each group at the latency of its middle operation.
+     *
+     * @param buffer histogram to record to
+     * @param startTime intended start time of the first overdue operation, as per {@link System#nanoTime()}
+     * @param intervalNs interval between the intended start times
+     * @param opsPerInv operations per invocation
+     */
+    public void recordOverdue(SampleHistogram buffer, long startTime, long intervalNs, long opsPerInv) {
+        long now = System.nanoTime();
+        if (startTime > now) {
+            return;
+        }
+        long overdue = (now - startTime) / intervalNs + 1;
+        long step = Math.max(1, overdue / OVERDUE_SAMPLES);
+        for (long k = 0; k < overdue; k += step) {
+            long count = Math.min(step, overdue - k);
+            long mid = k + (count - 1) / 2;
+            buffer.add((now - startTime - mid * intervalNs) / opsPerInv, count);
+        }
+    }
+
+    /**
+     * @return number of sub-interval ticks in this iteration; 0, if the throughput series is not requested
+     */
+    public int getSeriesTicks() {
+        if (seriesInterval <= 0) {
+            return 0;
+        }
+        long duration = getDuration(TimeUnit.NANOSECONDS);
+        return (int) Math.max(1, (duration + seriesInterval - 1) / seriesInterval);
+    }
+
+    /**
+     * Allocates the storage for the operation counts at the sub-interval ticks.
+     *
+     * @return the storage; null, if the throughput series is not requested
+     */
+    public long[] newSeries() {
+        int ticks = getSeriesTicks();
+        return (ticks > 0) ? new long[ticks + 1] : null;
+    }
+
+    /**
+     * Records the operation count at all the sub-interval ticks that passed since the last
+     * one the worker had seen. Workers call this only when {@link #seriesTick} changes, which
+     * keeps the measurement loop free of timer calls. Tick {@code t} marks the start of the
+     * sub-interval {@code t - 1}, and goes to the slot {@code t - 1}.
+     *
+     * @param result results to record to
+     * @param lastTick last tick the worker had seen
+     * @param operations operations done by the worker so far
+     * @return current tick
+     */
+    public int markSeries(RawResults result, int lastTick, long operations) {
+        int tick = seriesTick;
+        long[] series = result.series;
+        for (int t = lastTick + 1; t <= tick && t <= series.length; t++) {
+            series[t - 1] = operations;
+        }
+        return tick;
+    }
+
+    /**
+     * Calibrates the number of invocations the measurement loop does between the
+     * {@link #isDone} checks. The stride is picked so that one stride takes about
+     * {@link #stopCheckOvershoot}, which bounds the time workers overshoot the
+     * iteration deadline. Overshooting invocations are still timed and counted, so
+     * the score stays consistent. Only warmup iterations calibrate the stride; the
+     * measurement iterations keep the one warmup had settled on, so that all of
+     * them run the same loop. Workers start with checking every invocation, which
+     * also overestimates the invocation cost and keeps the first stride conservative.
+     *
+     * @param result results of the iteration that just finished
+     * @param stride current stride
+     * @return stride for the next iteration; 1, if the stop flag should be checked every invocation
+     */
+    public int calibrateStopCheck(RawResults result, int stride) {
+        if (stopCheckOvershoot <= 0) {
+            return 1;
+        }
+        if (iterationParams.getType() != IterationType.WARMUP) {
+            return Math.max(1, stride);
+        }
+        long time = result.stopTime - result.startTime;
+        if (result.measuredOps <= 0 || time <= 0) {
+            return 1;
+        }
+        double next = (double) result.measuredOps * stopCheckOvershoot / time;
+        return (int) Math.max(1, Math.min(MAX_STOP_CHECK_STRIDE, next));
+    }
+
+    /**
+     * Calibrates the batch size for {@link org.openjdk.jmh.annotations.Level#BatchedInvocation}
+     * helpers. The size is picked so that the timed part of the batch takes about
+     * {@link #INVOCATION_BATCH_NS}, which keeps the timestamping costs small. Only warmup
+     * iterations calibrate the size, and the size only grows: the batch copies are
+     * allocated once and reused. Workers start with the batch of one, which
+     * overestimates the invocation cost, and keeps the first size conservative.
+     *
+     * @param result results of the iteration that just finished
+     * @param size current batch size
+     * @return batch size for the next iteration
+     */
+    public int calibrateInvocationBatch(RawResults result, int size) {
+        size = Math.max(1, size);
+        if (iterationParams.getType() != IterationType.WARMUP) {
+            return size;
+        }
+        if (result.measuredOps <= 0 || result.realTime <= 0) {
+            return size;
+        }
+        double next = (double) result.measuredOps * INVOCATION_BATCH_NS / result.realTime;
+        return (int) Math.max(size, Math.min(INVOCATION_BATCH_MAX, next));
+    }
+
 }
 
 abstract class InfraControlL0 {
@@ -162,9 +352,33 @@ abstract class InfraControlL2 extends InfraControlL1 {
     private final boolean shouldSynchIterations;
     private final int threads;
 
+    /**
+     * Workers block in announce* methods until all others had arrived, instead of
+     * spinning on *ShouldWait flags. Required for virtual threads.
+     */
+    private final boolean blockingSynch;
+
+    /**
+     * Last sub-interval tick of the throughput series, advanced by the harness; 0 until
+     * the measurement starts. This is specifically the public field, so to spare one virtual call.
+     */
+    public volatile int seriesTick;
+
+    /**
+     * Throughput series sub-interval, in nanoseconds; 0, if the series is not requested.
+     */
+    public final long seriesInterval;
+
+    /**
+     * Target overshoot past the iteration deadline for the measurement loop that checks
+     * {@link #isDone} once per stride of invocations, in nanoseconds; 0, if the loop
+     * should check every invocation.
+     */
+    public final long stopCheckOvershoot;
+
     public InfraControlL2(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
+                          Control notifyControl, boolean blockingSynch, long seriesInterval, long stopCheckOvershoot) {
         warmupVisited = new AtomicInteger();
         warmdownVisited = new AtomicInteger();
 
@@ -173,6 +387,9 @@ abstract class InfraControlL2 extends InfraControlL1 {
 
         shouldSynchIterations = benchmarkParams.shouldSynchIterations();
         threads = benchmarkParams.getThreads();
+        this.blockingSynch = blockingSynch;
+        this.seriesInterval = seriesInterval;
+        this.stopCheckOvershoot = stopCheckOvershoot;
 
         warmupShouldWait = shouldSynchIterations;
         warmdownShouldWait = shouldSynchIterations;
@@ -198,6 +415,10 @@ abstract class InfraControlL2 extends InfraControlL1 {
         if (v > threads) {
             throw new IllegalStateException("More threads than expected");
         }
+
+        if (blockingSynch && !isFailing) {
+            awaitWarmupReady();
+        }
     }
 
     public void announceWarmdownReady() {
@@ -211,6 +432,10 @@ abstract class InfraControlL2 extends InfraControlL1 {
         if (v > threads) {
             throw new IllegalStateException("More threads than expected");
         }
+
+        if (blockingSynch && !isFailing) {
+            awaitWarmdownReady();
+        }
     }
 
     public void awaitWarmupReady() {
@@ -263,8 +488,8 @@ abstract class InfraControlL3 extends InfraControlL2 {
 
     public InfraControlL3(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+                          Control notifyControl, boolean blockingSynch, long seriesInterval, long stopCheckOvershoot) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSynch, seriesInterval, stopCheckOvershoot);
     }
 }
 
@@ -273,8 +498,8 @@ abstract class InfraControlL4 extends InfraControlL3 {
 
     public InfraControlL4(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+                          Control notifyControl, boolean blockingSynch, long seriesInterval, long stopCheckOvershoot) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSynch, seriesInterval, stopCheckOvershoot);
     }
 }
 
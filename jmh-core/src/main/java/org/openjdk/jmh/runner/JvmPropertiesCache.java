@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Caches the system properties probed from the target VMs.
+ *
+ * <p>Probing the VM other than the current one requires starting it. Probed properties
+ * are remembered for the rest of the run. With {@code -Djmh.probeCache=true}, they are also
+ * stored in the cache directory, so that subsequent runs can skip the probe as well. Stored
+ * entries are validated against the VM executable path, and its executable and runtime image
+ * sizes and modification times, which catches the VM updates in place.
+ */
+class JvmPropertiesCache {
+
+    private static final String KEY_PROPERTY = "jmh.probe.key";
+
+    private final File dir;
+    private final Map<String, Properties> probed;
+
+    /**
+     * @param dir directory to store the probed properties in; null, if probes should only be remembered for this run
+     */
+    JvmPropertiesCache(File dir) {
+        this.dir = dir;
+        this.probed = new HashMap<>();
+    }
+
+    /**
+     * Returns the properties of target VM, probing it if needed.
+     *
+     * @param jvm target VM executable
+     * @param probeCommand command that prints the target VM properties
+     * @return target VM properties
+     */
+    synchronized Properties get(String jvm, List<String> probeCommand) {
+        Properties props = probed.get(jvm);
+        if (props != null) {
+            return props;
+        }
+
+        String key = key(jvm);
+        props = load(key);
+        if (props == null) {
+            props = Utils.readPropertiesFromCommand(probeCommand);
+            store(key, props);
+        }
+
+        probed.put(jvm, props);
+        return props;
+    }
+
+    private File entryFile(String key) {
+        return new File(dir, Utils.shortHash(key) + ".xml");
+    }
+
+    private Properties load(String key) {
+        if (dir == null || key == null) {
+            return null;
+        }
+
+        File file = entryFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.loadFromXML(is);
+        } catch (IOException e) {
+            // corrupted entry, probe again
+            return null;
+        }
+
+        if (!key.equals(props.getProperty(KEY_PROPERTY))) {
+            return null;
+        }
+        props.remove(KEY_PROPERTY);
+        return props;
+    }
+
+    private void store(String key, Properties props) {
+        if (dir == null || key == null) {
+            return;
+        }
+
+        Properties entry = new Properties();
+        entry.putAll(props);
+        entry.setProperty(KEY_PROPERTY, key);
+
+        // Write the temporary file first, so that concurrent runs never see the partial entry
+        File tmp = null;
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            tmp = File.createTempFile("probe", ".tmp", dir);
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                entry.storeToXML(os, "JMH properties cache for target JVM", "UTF-8");
+            }
+            Files.move(tmp.toPath(), entryFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // cache is best effort
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Computes the cache key for VM executable. VM update would change either the executable
+     * itself, or its runtime image: modules file for JDK 9+, or rt.jar for JDK 8.
+     *
+     * @param jvm target VM executable
+     * @return key; null, if the executable cannot be found, and the probe cannot be cached
+     */
+    static String key(String jvm) {
+        File exe = new File(jvm);
+        if (!exe.isFile()) {
+            return null;
+        }
+
+        File canonical;
+        try {
+            canonical = exe.getCanonicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("jvm=").append(jvm).append('\n');
+        sb.append("jmh=").append(Version.getPlainVersion()).append('\n');
+        appendFile(sb, canonical);
+
+        File bin = canonical.getParentFile();
+        File home = (bin != null) ? bin.getParentFile() : null;
+        if (home != null) {
+            appendFile(sb, new File(home, "lib/modules"));
+            appendFile(sb, new File(home, "lib/rt.jar"));
+            appendFile(sb, new File(home, "jre/lib/rt.jar"));
+        }
+        return sb.toString();
+    }
+
+    private static void appendFile(StringBuilder sb, File f) {
+        if (f.isFile()) {
+            sb.append(f.getAbsolutePath()).append('=')
+                    .append(f.length()).append(':').append(f.lastModified()).append('\n');
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.runner.options.Options;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of completed forks.
+ *
+ * <p>Every record carries the benchmark parameters, the full run configuration, the fork index,
+ * and the fork result. The forks recorded with the different configuration, e.g. with the
+ * different iteration counts or JVM options, are not resumed.
+ * Records are length-prefixed and checksummed, and the journal is synced to disk after
+ * every record, so that the journal survives the crash of the host VM or the machine.
+ * The record torn by the crash is detected and dropped when the journal is resumed.
+ */
+class RunJournal implements Closeable {
+
+    private static final int MAGIC = 0x4A4D484A;
+
+    private final Map<BenchmarkParams, Resumed> resumed;
+    private final FileOutputStream fos;
+    private final DataOutputStream dos;
+
+    private RunJournal(File file, boolean append, Map<BenchmarkParams, Resumed> resumed) throws IOException {
+        this.resumed = resumed;
+        this.fos = new FileOutputStream(file, append);
+        this.dos = new DataOutputStream(new BufferedOutputStream(fos));
+    }
+
+    /**
+     * Opens the journal for writing.
+     *
+     * @param file journal file to write
+     * @param resumeFrom journal file to resume from; may be the same as {@code file}; null if not resuming
+     * @return journal
+     * @throws IOException if journal cannot be read or written
+     */
+    static RunJournal open(File file, File resumeFrom) throws IOException {
+        Map<BenchmarkParams, Resumed> resumed = new HashMap<>();
+        if (resumeFrom == null) {
+            return new RunJournal(file, false, resumed);
+        }
+
+        long validLength = read(resumeFrom, resumed);
+
+        if (file.getCanonicalFile().equals(resumeFrom.getCanonicalFile())) {
+            // drop the torn tail, if any, and continue after the last complete record
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+            return new RunJournal(file, true, resumed);
+        }
+
+        RunJournal journal = new RunJournal(file, false, resumed);
+        for (Map.Entry<BenchmarkParams, Resumed> e : resumed.entrySet()) {
+            Resumed r = e.getValue();
+            for (Map.Entry<Integer, BenchmarkResult> f : r.forks.entrySet()) {
+                journal.append(e.getKey(), r.config, f.getKey(), f.getValue());
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Reads all complete records from the journal.
+     * @return length of the journal prefix that holds the complete records
+     */
+    private static long read(File file, Map<BenchmarkParams, Resumed> dst) throws IOException {
+        long validLength = 0;
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    if (dis.readInt() != MAGIC) {
+                        break;
+                    }
+                    int length = dis.readInt();
+                    long checksum = dis.readLong();
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    dis.readFully(payload);
+                    if (checksum(payload) != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                Record r;
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                    r = (Record) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read the journal record", e);
+                }
+
+                // the later records with the different configuration supersede the earlier ones:
+                // the run was resumed with the new configuration, and the old forks were not used
+                Resumed forks = dst.get(r.params);
+                if (forks == null || !forks.config.equals(r.config)) {
+                    forks = new Resumed(r.config);
+                    dst.put(r.params, forks);
+                }
+                forks.forks.put(r.fork, r.result);
+
+                validLength += 4 + 4 + 8 + payload.length;
+            }
+        } catch (FileNotFoundException e) {
+            // nothing to resume from
+        }
+        return validLength;
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    /**
+     * Describes the run configuration the fork results depend on. {@link BenchmarkParams#equals(Object)}
+     * only matches the benchmark identity, and the forks recorded with the different iteration counts,
+     * times, fork counts, or JVM should not be mixed with the new ones.
+     *
+     * @param params benchmark parameters
+     * @param options run options
+     * @return configuration string
+     */
+    static String configuration(BenchmarkParams params, Options options) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("target=").append(params.generatedBenchmark()).append("\n");
+        sb.append("synchIterations=").append(params.shouldSynchIterations()).append("\n");
+        sb.append("threadGroups=").append(Arrays.toString(params.getThreadGroups())).append("\n");
+        sb.append("threadGroupLabels=").append(params.getThreadGroupLabels()).append("\n");
+        sb.append("forks=").append(params.getForks()).append("\n");
+        sb.append("warmupForks=").append(params.getWarmupForks()).append("\n");
+        sb.append("warmup=").append(iteration(params.getWarmup())).append("\n");
+        sb.append("measurement=").append(iteration(params.getMeasurement())).append("\n");
+        sb.append("timeUnit=").append(params.getTimeUnit()).append("\n");
+        sb.append("opsPerInvocation=").append(params.getOpsPerInvocation()).append("\n");
+        sb.append("jvm=").append(params.getJvm()).append("\n");
+        sb.append("jvmArgs=").append(params.getJvmArgs()).append("\n");
+        sb.append("jdkVersion=").append(params.getJdkVersion()).append("\n");
+        sb.append("vmVersion=").append(params.getVmVersion()).append("\n");
+        sb.append("jmhVersion=").append(params.getJmhVersion()).append("\n");
+        sb.append("timeout=").append(params.getTimeout()).append("\n");
+        sb.append("targetError=").append(options.getMeasurementTargetError()).append("\n");
+        sb.append("steadyState=").append(options.shouldWarmupUntilSteadyState()).append("\n");
+        return sb.toString();
+    }
+
+    private static String iteration(IterationParams params) {
+        return params.getCount() + "x" + params.getTime() + ", batch " + params.getBatchSize();
+    }
+
+    /**
+     * @param params benchmark parameters
+     * @param config current run configuration, see {@link #configuration(BenchmarkParams, Options)}
+     * @return resumed fork results by fork index; empty if nothing was resumed, or the forks were
+     *         recorded with the different configuration
+     */
+    SortedMap<Integer, BenchmarkResult> getResumed(BenchmarkParams params, String config) {
+        Resumed r = resumed.get(params);
+        return (r != null && r.config.equals(config)) ? r.forks : new TreeMap<Integer, BenchmarkResult>();
+    }
+
+    /**
+     * @param params benchmark parameters
+     * @param config current run configuration, see {@link #configuration(BenchmarkParams, Options)}
+     * @return true, if the journal has the forks for the benchmark, but with the different configuration
+     */
+    boolean isStale(BenchmarkParams params, String config) {
+        Resumed r = resumed.get(params);
+        return r != null && !r.config.equals(config);
+    }
+
+    /**
+     * @return number of resumed forks across all benchmarks
+     */
+    int getResumedCount() {
+        int count = 0;
+        for (Resumed r : resumed.values()) {
+            count += r.forks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Appends the completed fork to the journal, and syncs the journal to disk.
+     *
+     * @param params benchmark parameters
+     * @param config run configuration, see {@link #configuration(BenchmarkParams, Options)}
+     * @param fork fork index
+     * @param result fork result
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(BenchmarkParams params, String config, int fork, BenchmarkResult result) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(new Record(params, config, fork, result));
+        }
+        byte[] payload = bos.toByteArray();
+
+        dos.writeInt(MAGIC);
+        dos.writeInt(payload.length);
+        dos.writeLong(checksum(payload));
+        dos.write(payload);
+        dos.flush();
+        fos.getFD().sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        dos.close();
+    }
+
+    private static class Resumed {
+        private final String config;
+        private final SortedMap<Integer, BenchmarkResult> forks;
+
+        Resumed(String config) {
+            this.config = config;
+            this.forks = new TreeMap<>();
+        }
+    }
+
+    private static class Record implements Serializable {
+        private static final long serialVersionUID = 4303960434186520413L;
+
+        private final BenchmarkParams params;
+        private final String config;
+        private final int fork;
+        private final BenchmarkResult result;
+
+        Record(BenchmarkParams params, String config, int fork, BenchmarkResult result) {
+            this.params = params;
+            this.config = config;
+            this.fork = fork;
+            this.result = result;
+        }
+    }
+
+}
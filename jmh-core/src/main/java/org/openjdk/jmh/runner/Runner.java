@@ -46,7 +46,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 /**
  * Runner executes JMH benchmarks.
@@ -62,9 +62,25 @@ public class Runner extends BaseRunner {
     private static final int TAIL_LINES_ON_ERROR = Integer.getInteger("jmh.tailLines", 20);
     private static final String JMH_LOCK_FILE = System.getProperty("java.io.tmpdir") + "/jmh.lock";
     private static final Boolean JMH_LOCK_IGNORE = Boolean.getBoolean("jmh.ignoreLock");
+    private static final int FORK_PARTITIONS = Integer.getInteger("jmh.forkPartitions", 1);
+    private static final int SATURATION_PROBES = Integer.getInteger("jmh.saturation.probes", 16);
+    private static final double SATURATION_PRECISION = Double.parseDouble(System.getProperty("jmh.saturation.precision", "0.05"));
+    private static final boolean FORK_POOL = Boolean.getBoolean("jmh.forkPool");
+    private static final boolean CDS = Boolean.getBoolean("jmh.cds");
+    private static final String CDS_DIR = System.getProperty("jmh.cds.dir", System.getProperty("java.io.tmpdir") + "/jmh-cds");
+    private static final boolean PROBE_CACHE = Boolean.getBoolean("jmh.probeCache");
+    private static final String PROBE_CACHE_DIR = System.getProperty("jmh.probeCache.dir", System.getProperty("java.io.tmpdir") + "/jmh-probes");
 
     private final BenchmarkList list;
+    private final JvmPropertiesCache jvmProperties;
     private int cpuCount;
+    private List<CpuPartition> cpuPartitions;
+    private ForkPool forkPool;
+    private ClassDataArchives archives;
+    private RunJournal journal;
+    private final Set<BenchmarkParams> staleJournalWarned = new HashSet<>();
+    private final Map<ActionPlan, BenchmarkListEntry> saturationSearches = new IdentityHashMap<>();
+    private final Map<String, BlackholeMode> blackholeModes = new HashMap<>();
 
     /**
      * Create runner with the custom OutputFormat.
@@ -75,6 +91,7 @@ public class Runner extends BaseRunner {
     public Runner(Options options, OutputFormat format) {
         super(options, format);
         this.list = BenchmarkList.defaultList();
+        this.jvmProperties = new JvmPropertiesCache(PROBE_CACHE ? new File(PROBE_CACHE_DIR) : null);
     }
 
     /**
@@ -286,7 +303,7 @@ public class Runner extends BaseRunner {
             for (BenchmarkListEntry br : benchmarks) {
                 if (br.getMode() == Mode.All) {
                     for (Mode mode : Mode.values()) {
-                        if (mode == Mode.All) continue;
+                        if (!mode.isIncludedInAll()) continue;
                         newBenchmarks.add(br.cloneWith(mode));
                     }
                 } else {
@@ -314,6 +331,25 @@ public class Runner extends BaseRunner {
             benchmarks.addAll(newBenchmarks);
         }
 
+        // clone with all thread counts in the scaling sweep
+        if (isThreadScaling()) {
+            List<BenchmarkListEntry> newBenchmarks = new ArrayList<>();
+            for (BenchmarkListEntry br : benchmarks) {
+                int maxThreads = options.getThreads().orElse(Threads.MAX);
+                if (maxThreads == Threads.MAX) {
+                    maxThreads = getMaxThreads(
+                            options.getForkCount().orElse(br.getForks().orElse(Defaults.MEASUREMENT_FORKS)),
+                            options.getWarmupForkCount().orElse(br.getWarmupForks().orElse(Defaults.WARMUP_FORKS)));
+                }
+                int[] threadGroups = options.getThreadGroups().orElse(br.getThreadGroups());
+                for (int t : ThreadScaling.getLadder(maxThreads, Utils.sum(threadGroups))) {
+                    newBenchmarks.add(br.cloneWithThreads(t));
+                }
+            }
+            benchmarks.clear();
+            benchmarks.addAll(newBenchmarks);
+        }
+
         Collection<RunResult> results = runBenchmarks(benchmarks);
 
         // If user requested the result file, write it out.
@@ -377,6 +413,13 @@ public class Runner extends BaseRunner {
                     r.add(newAction(br, ActionMode.MEASUREMENT));
                 }
                 result.add(r);
+
+                if (isSaturationSearch(params)) {
+                    saturationSearches.put(r, br);
+                }
+            } else if (isSaturationSearch(params)) {
+                out.println("# WARNING: Saturation search requires forked runs, " + br.getUsername() +
+                        " runs at the fixed arrival rate.");
             }
         }
 
@@ -391,20 +434,34 @@ public class Runner extends BaseRunner {
         return new Action(newBenchmarkParams(br, mode), mode);
     }
 
+    private Action newAction(BenchmarkListEntry br, ActionMode mode, double arrivalRate) {
+        return new Action(newBenchmarkParams(br, mode, arrivalRate), mode);
+    }
+
     private BenchmarkParams newBenchmarkParams(BenchmarkListEntry benchmark, ActionMode mode) {
+        return newBenchmarkParams(benchmark, mode, options.getArrivalRate().orElse(Defaults.ARRIVAL_RATE));
+    }
+
+    private BenchmarkParams newBenchmarkParams(BenchmarkListEntry benchmark, ActionMode mode, double arrivalRate) {
         int[] threadGroups = options.getThreadGroups().orElse(benchmark.getThreadGroups());
 
-        int threads = options.getThreads().orElse(
+        // thread scaling sweep sets the thread count for each benchmark record
+        Optional<Integer> userThreads = isThreadScaling() ? Optional.<Integer>none() : options.getThreads();
+
+        int forks = options.getForkCount().orElse(
+                benchmark.getForks().orElse(
+                        Defaults.MEASUREMENT_FORKS));
+
+        int warmupForks = options.getWarmupForkCount().orElse(
+                benchmark.getWarmupForks().orElse(
+                        Defaults.WARMUP_FORKS));
+
+        int threads = userThreads.orElse(
                 benchmark.getThreads().orElse(
                         Defaults.THREADS));
 
         if (threads == Threads.MAX) {
-            if (cpuCount == 0) {
-                out.print("# Detecting actual CPU count: ");
-                cpuCount = Utils.figureOutHotCPUs();
-                out.println(cpuCount + " detected");
-            }
-            threads = cpuCount;
+            threads = getMaxThreads(forks, warmupForks);
         }
 
         threads = Utils.roundUp(threads, Utils.sum(threadGroups));
@@ -450,14 +507,6 @@ public class Runner extends BaseRunner {
                 ) :
                 new IterationParams(IterationType.WARMUP, 0, TimeValue.NONE, 1);
 
-        int forks = options.getForkCount().orElse(
-                benchmark.getForks().orElse(
-                        Defaults.MEASUREMENT_FORKS));
-
-        int warmupForks = options.getWarmupForkCount().orElse(
-                benchmark.getWarmupForks().orElse(
-                        Defaults.WARMUP_FORKS));
-
         TimeUnit timeUnit = options.getTimeUnit().orElse(
                 benchmark.getTimeUnit().orElse(
                         Defaults.OUTPUT_TIMEUNIT));
@@ -473,7 +522,7 @@ public class Runner extends BaseRunner {
         if (jvm.equals(Utils.getCurrentJvm())) {
             targetProperties = Utils.getRecordedSystemProperties();
         } else {
-            targetProperties = Utils.readPropertiesFromCommand(getPrintPropertiesCommand(jvm));
+            targetProperties = jvmProperties.get(jvm, getPrintPropertiesCommand(jvm));
         }
 
         Collection<String> jvmArgs = new ArrayList<>();
@@ -498,7 +547,49 @@ public class Runner extends BaseRunner {
                 warmup, measurement, benchmark.getMode(), benchmark.getWorkloadParams(), timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmVersion, Version.getPlainVersion(),
-                timeout);
+                timeout, arrivalRate);
+    }
+
+    /**
+     * Resolves {@link Threads#MAX}: forks running in parallel only get their CPU partition,
+     * otherwise forks get the whole machine.
+     */
+    private int getMaxThreads(int forks, int warmupForks) {
+        if (FORK_PARTITIONS > 1 && forks + warmupForks > 1) {
+            List<CpuPartition> partitions = getCpuPartitions();
+            if (partitions.size() > 1 && ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+                return getPartitionCpuCount(partitions);
+            }
+        }
+        return getCpuCount();
+    }
+
+    /**
+     * @return CPU count of the smallest partition
+     */
+    private static int getPartitionCpuCount(List<CpuPartition> partitions) {
+        int min = Integer.MAX_VALUE;
+        for (CpuPartition p : partitions) {
+            min = Math.min(min, p.getCpus().size());
+        }
+        return min;
+    }
+
+    private int getCpuCount() {
+        if (cpuCount == 0) {
+            out.print("# Detecting actual CPU count: ");
+            cpuCount = Utils.figureOutHotCPUs();
+            out.println(cpuCount + " detected");
+        }
+        return cpuCount;
+    }
+
+    private boolean isSaturationSearch(BenchmarkParams params) {
+        return options.getLatencyBound().hasValue() && params.getMode() == Mode.OpenLoop;
+    }
+
+    private boolean isThreadScaling() {
+        return options.shouldScaleThreads().orElse(Defaults.THREAD_SCALING);
     }
 
     private List<WorkloadParams> explodeAllParams(BenchmarkListEntry br) throws RunnerException {
@@ -546,7 +637,17 @@ public class Runner extends BaseRunner {
 
         etaBeforeBenchmarks(plan);
 
+        if (FORK_POOL) {
+            forkPool = new ForkPool(options, out);
+        }
+
+        if (CDS) {
+            archives = new ClassDataArchives(new File(CDS_DIR));
+        }
+
         try {
+            journal = openJournal();
+
             for (ActionPlan r : plan) {
                 Multimap<BenchmarkParams, BenchmarkResult> res;
                 switch (r.getType()) {
@@ -554,7 +655,11 @@ public class Runner extends BaseRunner {
                         res = runBenchmarksEmbedded(r);
                         break;
                     case FORKED:
-                        res = runSeparate(r);
+                        if (saturationSearches.containsKey(r)) {
+                            res = runSaturationSearch(r, saturationSearches.get(r));
+                        } else {
+                            res = isFullyResumed(r) ? runResumed(r) : runSeparate(r);
+                        }
                         break;
                     default:
                         throw new IllegalStateException("Unknown action plan type: " + r.getType());
@@ -565,13 +670,239 @@ public class Runner extends BaseRunner {
                 }
             }
 
+            if (forkPool != null) {
+                forkPool.shutdown();
+                out.println(String.format("# Fork pool: %d forks started from pre-warmed VMs, saved %.3f s of VM startup.",
+                        forkPool.getPrewarmedForks(), forkPool.getSavedNanos() / 1e9));
+            }
+
+            if (archives != null) {
+                out.println(archives.getSummary());
+            }
+
             etaAfterBenchmarks();
 
             SortedSet<RunResult> runResults = mergeRunResults(results);
+
+            if (isThreadScaling()) {
+                ThreadScaling.analyze(runResults, out);
+            }
             out.endRun(runResults);
             return runResults;
         } catch (BenchmarkException be) {
             throw new RunnerException("Benchmark caught the exception", be);
+        } finally {
+            if (forkPool != null) {
+                forkPool.shutdown();
+                forkPool = null;
+            }
+            archives = null;
+            if (journal != null) {
+                FileUtils.safelyClose(journal);
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmark at the different arrival rates, searching for the highest rate at which
+     * the latency percentile stays within the bound. Only the result of the highest passing rate
+     * is reported, along with the search bracket. Every probe passes or fails on the point estimate
+     * of the percentile, the bracket carries no statistical confidence.
+     */
+    private Multimap<BenchmarkParams, BenchmarkResult> runSaturationSearch(ActionPlan actionPlan, BenchmarkListEntry br) {
+        Action measurement = actionPlan.getMeasurementActions().get(0);
+        BenchmarkParams initial = measurement.getParams();
+
+        TimeValue bound = options.getLatencyBound().get();
+        double percentile = options.getLatencyPercentile().orElse(Defaults.LATENCY_PERCENTILE);
+        double boundNs = bound.convertTo(TimeUnit.NANOSECONDS);
+        String condition = "p(" + percentile + ") <= " + bound;
+
+        SaturationSearch search = new SaturationSearch(initial.getArrivalRate(), SATURATION_PRECISION, SATURATION_PROBES);
+
+        Multimap<BenchmarkParams, BenchmarkResult> last = null;
+        Multimap<BenchmarkParams, BenchmarkResult> best = null;
+        BenchmarkParams lastParams = null;
+        BenchmarkParams bestParams = null;
+
+        while (!search.isDone()) {
+            double rate = search.nextRate();
+
+            ActionPlan probe = new ActionPlan(actionPlan.getType());
+            for (Action a : actionPlan.getActions()) {
+                probe.add((a == measurement) ? newAction(br, a.getMode(), rate) : a);
+            }
+            if (search.getProbes() > 0) {
+                etaAddForks(initial, Math.max(1, initial.getForks()) + initial.getWarmupForks());
+            }
+
+            Multimap<BenchmarkParams, BenchmarkResult> res = runSeparate(probe);
+            BenchmarkParams params = probe.getMeasurementActions().get(0).getParams();
+            Collection<BenchmarkResult> forks = res.get(params);
+            if (forks.isEmpty()) {
+                out.println("# Saturation search: no results at " + ScoreFormatter.format(rate) + " ops/s, stopping.");
+                out.println("");
+                return (best != null) ? best : res;
+            }
+
+            double latency = new RunResult(params, forks).getPrimaryResult().getStatistics().getPercentile(percentile);
+            double latencyNs = latency * params.getTimeUnit().toNanos(1);
+            boolean pass = latencyNs <= boundNs;
+            search.record(rate, pass);
+
+            out.println(String.format("# Saturation search: probe %d at %s ops/s, p(%s) = %s %s, %s",
+                    search.getProbes(), ScoreFormatter.format(rate), percentile,
+                    ScoreFormatter.format(latency), TimeValue.tuToString(params.getTimeUnit()),
+                    pass ? "PASS" : "FAIL"));
+            out.println("");
+
+            last = res;
+            lastParams = params;
+            if (pass && rate == search.getPassRate()) {
+                best = res;
+                bestParams = params;
+            }
+        }
+
+        double passRate = search.getPassRate();
+        double failRate = search.getFailRate();
+
+        if (search.isNonMonotonic()) {
+            out.println("# Saturation search: latency is not monotonic in the arrival rate, probe at " +
+                    ScoreFormatter.format(search.getConflictRate()) + " ops/s " +
+                    (search.isConflictPass() ? "passed above the failing rate " + ScoreFormatter.format(failRate) :
+                            "failed below the passing rate " + ScoreFormatter.format(passRate)) +
+                    " ops/s, the knee cannot be located. Check the latency distribution, or increase the iteration time.");
+            out.println("");
+            return (best != null) ? best : last;
+        }
+
+        if (best == null) {
+            out.println("# Saturation search: " + condition + " is not met at any probed rate, down to " +
+                    ScoreFormatter.format(failRate) + " ops/s.");
+            out.println("");
+            return last;
+        }
+
+        if (Double.isNaN(failRate)) {
+            out.println("# Saturation search: " + condition + " is met at all probed rates, up to " +
+                    ScoreFormatter.format(passRate) + " ops/s.");
+        } else {
+            out.println("# Saturation search: " + condition + " is met up to " + ScoreFormatter.format(passRate) +
+                    " ops/s, the knee is bracketed by [" + ScoreFormatter.format(passRate) + ", " +
+                    ScoreFormatter.format(failRate) + "] ops/s after " + search.getProbes() + " probes " +
+                    "(point estimates, not a confidence interval).");
+        }
+        out.println("");
+
+        for (BenchmarkResult r : best.get(bestParams)) {
+            r.addBenchmarkResult(new ScalarResult(org.openjdk.jmh.results.Defaults.PREFIX + "saturation.bracket.lower",
+                    passRate, "ops/s", AggregationPolicy.MAX));
+            if (!Double.isNaN(failRate)) {
+                r.addBenchmarkResult(new ScalarResult(org.openjdk.jmh.results.Defaults.PREFIX + "saturation.bracket.upper",
+                        failRate, "ops/s", AggregationPolicy.MAX));
+            }
+            break;
+        }
+
+        return best;
+    }
+
+    private RunJournal openJournal() throws RunnerException {
+        Optional<String> resumeFile = options.getResumeJournal();
+        Optional<String> journalFile = options.getJournal().orAnother(resumeFile);
+        if (!journalFile.hasValue()) {
+            return null;
+        }
+
+        try {
+            RunJournal j = RunJournal.open(new File(journalFile.get()), resumeFile.hasValue() ? new File(resumeFile.get()) : null);
+            if (resumeFile.hasValue()) {
+                out.println("# Resuming from journal " + resumeFile.get() + ": " + j.getResumedCount() + " forks completed before");
+            }
+            out.println("# Recording completed forks to journal " + journalFile.get());
+            out.println("");
+            return j;
+        } catch (IOException e) {
+            throw new RunnerException("Cannot open the run journal " + journalFile.get(), e);
+        }
+    }
+
+    private boolean isFullyResumed(ActionPlan actionPlan) {
+        if (journal == null || actionPlan.getMeasurementActions().size() != 1) {
+            return false;
+        }
+        BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+        SortedMap<Integer, BenchmarkResult> forks = getResumedForks(params);
+        for (int i = 0; i < params.getForks(); i++) {
+            if (!forks.containsKey(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the benchmark whose forks were all completed before, and recorded in the journal.
+     * Warmup forks are not run either.
+     */
+    private Multimap<BenchmarkParams, BenchmarkResult> runResumed(ActionPlan actionPlan) {
+        Multimap<BenchmarkParams, BenchmarkResult> results = new HashMultimap<>();
+
+        BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+
+        out.startBenchmark(params);
+        out.println("");
+
+        etaSkipForks(params, params.getWarmupForks());
+        for (int i = 0; i < params.getForks(); i++) {
+            results.put(params, getResumedFork(params, i));
+        }
+
+        out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
+        return results;
+    }
+
+    /**
+     * @return the result of fork recorded in the journal; null if the fork should run
+     */
+    private BenchmarkResult getResumedFork(BenchmarkParams params, int fork) {
+        if (journal == null) {
+            return null;
+        }
+        BenchmarkResult br = getResumedForks(params).get(fork);
+        if (br != null) {
+            out.println("# Fork: " + (fork + 1) + " of " + params.getForks() + ", resumed from journal");
+            out.println("");
+            etaSkipForks(params, 1);
+        }
+        return br;
+    }
+
+    /**
+     * @return the results of forks recorded in the journal with the current run configuration
+     */
+    private SortedMap<Integer, BenchmarkResult> getResumedForks(BenchmarkParams params) {
+        String config = RunJournal.configuration(params, options);
+        if (journal.isStale(params, config) && staleJournalWarned.add(params)) {
+            out.println("# WARNING: The run journal has the forks of " + params.getBenchmark() + " recorded with " +
+                    "the different configuration; they are not resumed, and the benchmark is run again.");
+            out.println("");
+        }
+        return journal.getResumed(params, config);
+    }
+
+    private void journalFork(BenchmarkParams params, int fork, BenchmarkResult br) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(params, RunJournal.configuration(params, options), fork, br);
+        } catch (IOException e) {
+            out.println("# WARNING: Cannot write to the run journal, further forks are not recorded: " + e.getMessage());
+            FileUtils.safelyClose(journal);
+            journal = null;
         }
     }
 
@@ -590,6 +921,29 @@ public class Runner extends BaseRunner {
             throw new IllegalStateException("Expect only single benchmark in the action plan, but was " + actionPlan.getMeasurementActions().size());
         }
 
+        if (FORK_PARTITIONS > 1) {
+            BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+            List<CpuPartition> partitions = getCpuPartitions();
+            if (params.getForks() + params.getWarmupForks() > 1 && partitions.size() > 1) {
+                int partitionCpus = getPartitionCpuCount(partitions);
+                if (!ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+                    out.println("# WARNING: External profilers are not supported with parallel forks, running forks sequentially.");
+                } else if (params.getThreads() > partitionCpus) {
+                    out.println("# WARNING: " + params.getThreads() + " threads do not fit into the CPU partition of " +
+                            partitionCpus + " CPUs, running forks sequentially.");
+                } else {
+                    return runSeparateParallel(actionPlan, partitions);
+                }
+            }
+        }
+
+        if (forkPool != null) {
+            if (ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+                return runSeparatePooled(actionPlan);
+            }
+            out.println("# WARNING: External profilers are not supported with fork pool, starting forks afresh.");
+        }
+
         BinaryLinkServer server = null;
         try {
             server = new BinaryLinkServer(options, out);
@@ -617,11 +971,13 @@ public class Runner extends BaseRunner {
             out.startBenchmark(params);
             out.println("");
 
+            dumpClassDataArchive(actionPlan, params, profilers, printOut, printErr);
+
             int forkCount = params.getForks();
             int warmupForkCount = params.getWarmupForks();
             if (warmupForkCount > 0) {
                 for (int i = 0; i < warmupForkCount; i++) {
-                    List<String> forkedString  = getForkedMainCommand(params, profilers, server.getHost(), server.getPort());
+                    List<String> forkedString  = getForkedMainCommand(params, profilers, server.getClientArgs());
                     out.verbosePrintln("Warmup forking using command: " + forkedString);
 
                     etaBeforeBenchmark();
@@ -642,7 +998,13 @@ public class Runner extends BaseRunner {
             }
 
             for (int i = 0; i < forkCount; i++) {
-                List<String> forkedString  = getForkedMainCommand(params, profilers, server.getHost(), server.getPort());
+                BenchmarkResult resumed = getResumedFork(params, i);
+                if (resumed != null) {
+                    results.put(params, resumed);
+                    continue;
+                }
+
+                List<String> forkedString  = getForkedMainCommand(params, profilers, server.getClientArgs());
                 out.verbosePrintln("Forking using command: " + forkedString);
 
                 etaBeforeBenchmark();
@@ -692,6 +1054,7 @@ public class Runner extends BaseRunner {
                     }
 
                     results.put(params, br);
+                    journalFork(params, i, br);
                 }
 
                 etaAfterBenchmark(params);
@@ -700,6 +1063,10 @@ public class Runner extends BaseRunner {
                 // we know these are not needed anymore, proactively delete
                 stdOut.delete();
                 stdErr.delete();
+
+                if (i < forkCount - 1 && isTargetErrorReached(params, results.get(params))) {
+                    break;
+                }
             }
 
             out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
@@ -723,37 +1090,371 @@ public class Runner extends BaseRunner {
         return results;
     }
 
-    private List<IterationResult> doFork(BinaryLinkServer reader, List<String> commandString,
-                                                              File stdOut, File stdErr, boolean printOut, boolean printErr) {
-        try (FileOutputStream fosErr = new FileOutputStream(stdErr);
-             FileOutputStream fosOut = new FileOutputStream(stdOut)) {
-            ProcessBuilder pb = new ProcessBuilder(commandString);
-            Process p = pb.start();
+    /**
+     * Runs the forks of a single benchmark sequentially, taking the forked VMs from the pool.
+     * Every time the fork is taken, the spare VM for the next fork is started.
+     */
+    private Multimap<BenchmarkParams, BenchmarkResult> runSeparatePooled(ActionPlan actionPlan) {
+        Multimap<BenchmarkParams, BenchmarkResult> results = new HashMultimap<>();
+
+        BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
 
-            // drain streams, else we might lock up
-            InputStreamDrainer errDrainer = new InputStreamDrainer(p.getErrorStream(), fosErr);
-            InputStreamDrainer outDrainer = new InputStreamDrainer(p.getInputStream(), fosOut);
+        boolean forcePrint = options.verbosity().orElse(Defaults.VERBOSITY).equalsOrHigherThan(VerboseMode.EXTRA);
+        boolean printOut = forcePrint;
+        boolean printErr = forcePrint;
+
+        out.startBenchmark(params);
+        out.println("");
+
+        dumpClassDataArchive(actionPlan, params, Collections.<ExternalProfiler>emptyList(), printOut, printErr);
+
+        try {
+            int warmupForkCount = params.getWarmupForks();
+            int forkCount = params.getForks();
 
-            if (printErr) {
-                errDrainer.addOutputStream(new OutputFormatAdapter(out));
+            for (int i = 0; i < warmupForkCount + forkCount; i++) {
+                boolean warmup = (i < warmupForkCount);
+
+                if (!warmup) {
+                    BenchmarkResult resumed = getResumedFork(params, i - warmupForkCount);
+                    if (resumed != null) {
+                        results.put(params, resumed);
+                        continue;
+                    }
+                }
+
+                etaBeforeBenchmark();
+                if (warmup) {
+                    out.println("# Warmup Fork: " + (i + 1) + " of " + warmupForkCount);
+                } else {
+                    out.println("# Fork: " + (i - warmupForkCount + 1) + " of " + forkCount);
+                }
+
+                // Command may change once the class data archive is available
+                final List<String> command = getForkedMainCommand(params, Collections.<ExternalProfiler>emptyList());
+
+                final ForkPool pool = forkPool;
+                ForkPool.Fork fork = pool.acquire(command, printOut, printErr);
+                out.verbosePrintln((fork.isPrewarmed() ? "Using pre-warmed VM, started with command: " : "Forking using command: ") + fork.getCommand());
+
+                // Start the spare VM for the next fork once this one is done measuring
+                fork.getServer().setFinishListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            pool.prepare(command);
+                        } catch (IOException e) {
+                            out.println("# WARNING: Cannot start the pre-warmed VM: " + e.getMessage());
+                        }
+                    }
+                });
+
+                long startTime = System.currentTimeMillis();
+                try {
+                    pool.activate(fork, actionPlan);
+                    List<IterationResult> result = awaitFork(fork.getServer(), fork.getVM(),
+                            fork.getStdOut().file(), fork.getStdErr().file(), out);
+                    if (!warmup && !result.isEmpty()) {
+                        BenchmarkResultMetaData md = fork.getServer().getMetadata();
+                        if (md != null) {
+                            md.adjustStart(startTime);
+                        }
+                        BenchmarkResult br = new BenchmarkResult(params, result, md);
+                        results.put(params, br);
+                        journalFork(params, i - warmupForkCount, br);
+                    }
+                } finally {
+                    fork.getServer().terminate();
+                    fork.getStdOut().delete();
+                    fork.getStdErr().delete();
+                }
+
+                etaAfterBenchmark(params);
+                out.println("");
+
+                if (!warmup && i < warmupForkCount + forkCount - 1 && isTargetErrorReached(params, results.get(params))) {
+                    break;
+                }
             }
 
-            if (printOut) {
-                outDrainer.addOutputStream(new OutputFormatAdapter(out));
+            out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
+        } catch (IOException e) {
+            results.clear();
+            throw new BenchmarkException(e);
+        } catch (BenchmarkException e) {
+            results.clear();
+            if (options.shouldFailOnError().orElse(Defaults.FAIL_ON_ERROR)) {
+                out.println("Benchmark had encountered error, and fail on error was requested");
+                throw e;
+            }
+        } finally {
+            FileUtils.purgeTemps();
+        }
+
+        return results;
+    }
+
+    /**
+     * Checks if adaptive measurement had reached the target error with the forks done so far.
+     */
+    private boolean isTargetErrorReached(BenchmarkParams params, Collection<BenchmarkResult> forkResults) {
+        Optional<Double> targetError = options.getMeasurementTargetError();
+        if (!targetError.hasValue() || forkResults.size() < Math.min(Defaults.ADAPTIVE_MIN_FORKS, params.getForks())) {
+            return false;
+        }
+
+        Statistics stats = new RunResult(params, forkResults).getPrimaryResult().getStatistics();
+        if (TargetErrorDetector.isReached(stats, targetError.get())) {
+            out.println(String.format("# Adaptive measurement: target error reached after %d forks, error %.2f%%, skipping the remaining forks",
+                    forkResults.size(), TargetErrorDetector.relativeError(stats) * 100));
+            out.println("");
+            return true;
+        }
+        return false;
+    }
+
+    private List<CpuPartition> getCpuPartitions() {
+        if (cpuPartitions == null) {
+            cpuPartitions = CpuPartition.detect(FORK_PARTITIONS);
+            if (cpuPartitions.size() > 1) {
+                out.println("# Parallel forks: " + cpuPartitions.size() + " CPU partitions detected");
+                for (CpuPartition p : cpuPartitions) {
+                    out.println("#   Partition " + p);
+                }
+            } else {
+                out.println("# WARNING: Unable to split the machine into " + FORK_PARTITIONS +
+                        " CPU partitions (is taskset available?), running forks sequentially.");
+            }
+            out.println("");
+        }
+        return cpuPartitions;
+    }
+
+    /**
+     * Runs the forks of a single benchmark concurrently, one fork per CPU partition.
+     * Every fork talks to its own link server, and its output is deferred until the fork
+     * completes, so that the outputs are replayed in fork order. Warmup forks are completed
+     * before any measurement fork starts.
+     */
+    private Multimap<BenchmarkParams, BenchmarkResult> runSeparateParallel(final ActionPlan actionPlan, List<CpuPartition> partitions) {
+        Multimap<BenchmarkParams, BenchmarkResult> results = new HashMultimap<>();
+
+        final BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+
+        boolean forcePrint = options.verbosity().orElse(Defaults.VERBOSITY).equalsOrHigherThan(VerboseMode.EXTRA);
+        final boolean printOut = forcePrint;
+        final boolean printErr = forcePrint;
+
+        final BlockingQueue<CpuPartition> freePartitions = new LinkedBlockingQueue<>(partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(partitions.size(), new WorkerThreadFactory("fork"));
+
+        out.startBenchmark(params);
+        out.println("");
+
+        dumpClassDataArchive(actionPlan, params, Collections.<ExternalProfiler>emptyList(), printOut, printErr);
+
+        try {
+            int warmupForkCount = params.getWarmupForks();
+            int forkCount = params.getForks();
+
+            List<Future<ForkOutcome>> warmups = new ArrayList<>();
+            for (int i = 0; i < warmupForkCount; i++) {
+                warmups.add(executor.submit(new ForkTask(actionPlan, params, freePartitions, printOut, printErr)));
+            }
+            for (int i = 0; i < warmupForkCount; i++) {
+                etaBeforeBenchmark();
+                ForkOutcome outcome = getOutcome(warmups.get(i));
+                out.println("# Warmup Fork: " + (i + 1) + " of " + warmupForkCount + ", CPU partition " + outcome.partition);
+                outcome.output.replay(out);
+                etaAfterBenchmark(params);
+                out.println("");
+                outcome.rethrow();
+            }
+
+            List<Future<ForkOutcome>> forks = new ArrayList<>();
+            for (int i = 0; i < forkCount; i++) {
+                if (journal != null && getResumedForks(params).containsKey(i)) {
+                    forks.add(null);
+                } else {
+                    forks.add(executor.submit(new ForkTask(actionPlan, params, freePartitions, printOut, printErr)));
+                }
+            }
+            for (int i = 0; i < forkCount; i++) {
+                BenchmarkResult resumed = getResumedFork(params, i);
+                if (resumed != null) {
+                    results.put(params, resumed);
+                    continue;
+                }
+
+                etaBeforeBenchmark();
+                ForkOutcome outcome = getOutcome(forks.get(i));
+                out.println("# Fork: " + (i + 1) + " of " + forkCount + ", CPU partition " + outcome.partition);
+                outcome.output.replay(out);
+                outcome.rethrow();
+
+                if (!outcome.result.isEmpty()) {
+                    BenchmarkResultMetaData md = outcome.metadata;
+                    if (md != null) {
+                        md.adjustStart(outcome.startTime);
+                        md.setCpuPartition(outcome.partition.toString());
+                    }
+                    BenchmarkResult br = new BenchmarkResult(params, outcome.result, md);
+                    results.put(params, br);
+                    journalFork(params, i, br);
+                }
+
+                etaAfterBenchmark(params);
+                out.println("");
+
+                if (i < forkCount - 1 && isTargetErrorReached(params, results.get(params))) {
+                    // forks that are already running would complete, but their results are discarded
+                    for (Future<ForkOutcome> f : forks.subList(i + 1, forkCount)) {
+                        if (f != null) {
+                            f.cancel(false);
+                        }
+                    }
+                    break;
+                }
+            }
+
+            out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
+        } catch (BenchmarkException e) {
+            results.clear();
+            if (options.shouldFailOnError().orElse(Defaults.FAIL_ON_ERROR)) {
+                out.println("Benchmark had encountered error, and fail on error was requested");
+                throw e;
+            }
+        } finally {
+            // let the in-flight forks complete before purging their temp files
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            FileUtils.purgeTemps();
+        }
+
+        return results;
+    }
+
+    private static ForkOutcome getOutcome(Future<ForkOutcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new BenchmarkException(e);
+        } catch (ExecutionException e) {
+            throw new BenchmarkException(e.getCause());
+        }
+    }
+
+    private static class ForkOutcome {
+        private final CpuPartition partition;
+        private final DeferredOutputFormat output;
+        private long startTime;
+        private List<IterationResult> result;
+        private BenchmarkResultMetaData metadata;
+        private BenchmarkException exception;
+
+        ForkOutcome(CpuPartition partition, DeferredOutputFormat output) {
+            this.partition = partition;
+            this.output = output;
+            this.result = Collections.emptyList();
+        }
+
+        void rethrow() {
+            if (exception != null) {
+                throw exception;
             }
+        }
+    }
+
+    private class ForkTask implements Callable<ForkOutcome> {
+        private final ActionPlan actionPlan;
+        private final BenchmarkParams params;
+        private final BlockingQueue<CpuPartition> freePartitions;
+        private final boolean printOut;
+        private final boolean printErr;
+
+        ForkTask(ActionPlan actionPlan, BenchmarkParams params, BlockingQueue<CpuPartition> freePartitions,
+                 boolean printOut, boolean printErr) {
+            this.actionPlan = actionPlan;
+            this.params = params;
+            this.freePartitions = freePartitions;
+            this.printOut = printOut;
+            this.printErr = printErr;
+        }
+
+        @Override
+        public ForkOutcome call() throws Exception {
+            CpuPartition partition = freePartitions.take();
+            DeferredOutputFormat output = new DeferredOutputFormat();
+            ForkOutcome outcome = new ForkOutcome(partition, output);
+
+            BinaryLinkServer server = null;
+            try {
+                server = new BinaryLinkServer(options, output.getOutputFormat());
+                server.setPlan(actionPlan);
+
+                List<String> forkedString = partition.bind(
+                        getForkedMainCommand(params, Collections.<ExternalProfiler>emptyList(), server.getClientArgs()));
+                output.getOutputFormat().verbosePrintln("Forking using command: " + forkedString);
+
+                TempFile stdErr = FileUtils.weakTempFile("stderr");
+                TempFile stdOut = FileUtils.weakTempFile("stdout");
+
+                outcome.startTime = System.currentTimeMillis();
+                outcome.result = doFork(server, forkedString, stdOut.file(), stdErr.file(), printOut, printErr, output.getOutputFormat());
+                outcome.metadata = server.getMetadata();
 
-            errDrainer.start();
-            outDrainer.start();
+                stdOut.delete();
+                stdErr.delete();
+            } catch (BenchmarkException e) {
+                outcome.exception = e;
+            } finally {
+                if (server != null) {
+                    server.terminate();
+                }
+                freePartitions.put(partition);
+            }
+            return outcome;
+        }
+    }
 
-            int ecode = p.waitFor();
+    private List<IterationResult> doFork(BinaryLinkServer reader, List<String> commandString,
+                                         File stdOut, File stdErr, boolean printOut, boolean printErr) {
+        return doFork(reader, commandString, stdOut, stdErr, printOut, printErr, out);
+    }
+
+    private List<IterationResult> doFork(BinaryLinkServer reader, List<String> commandString,
+                                         File stdOut, File stdErr, boolean printOut, boolean printErr,
+                                         OutputFormat out) {
+        ForkedVM vm;
+        try {
+            vm = ForkedVM.start(commandString, stdOut, stdErr, printOut ? out : null, printErr ? out : null);
+        } catch (IOException ex) {
+            out.println("<failed to invoke the VM, caught IOException: " + ex.getMessage() + ">");
+            out.println("");
+            throw new BenchmarkException(ex);
+        }
+        return awaitFork(reader, vm, stdOut, stdErr, out);
+    }
 
-            errDrainer.join();
-            outDrainer.join();
+    private List<IterationResult> awaitFork(BinaryLinkServer reader, ForkedVM vm,
+                                            File stdOut, File stdErr, OutputFormat out) {
+        try {
+            int ecode = vm.waitFor();
 
             // need to wait for all pending messages to be processed
             // before starting the next benchmark
             reader.waitFinish();
 
+            if (archives != null) {
+                long ready = reader.getPlanRequestTime();
+                long bootNanos = (ready > vm.getStartTime()) ? ready - vm.getStartTime() : 0;
+                archives.onExit(vm.getCommand(), ecode, bootNanos, out);
+            }
+
             if (ecode != 0) {
                 out.println("<forked VM failed with exit code " + ecode + ">");
                 out.println("<stdout last='" + TAIL_LINES_ON_ERROR + " lines'>");
@@ -782,7 +1483,7 @@ public class Runner extends BaseRunner {
             }
 
         } catch (IOException ex) {
-            out.println("<failed to invoke the VM, caught IOException: " + ex.getMessage() + ">");
+            out.println("<failed to read the VM output, caught IOException: " + ex.getMessage() + ">");
             out.println("");
             throw new BenchmarkException(ex);
         } catch (InterruptedException ex) {
@@ -798,6 +1499,26 @@ public class Runner extends BaseRunner {
      * @return
      */
     List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers, String host, int port) {
+        // Forked VM assumes the exact order of arguments:
+        //   1) host name to back-connect
+        //   2) host port to back-connect
+        return getForkedMainCommand(benchmark, profilers, Arrays.asList(host, String.valueOf(port)));
+    }
+
+    /**
+     * @param linkArgs arguments to back-connect to host VM, see {@link BinaryLinkServer#getClientArgs()}
+     * @return forked VM command
+     */
+    List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers, List<String> linkArgs) {
+        List<String> command = getForkedMainCommand(benchmark, profilers);
+        command.addAll(linkArgs);
+        return command;
+    }
+
+    /**
+     * @return forked VM command, without the back-connect address
+     */
+    private List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers) {
         // Poll profilers for options
         List<String> javaInvokeOptions = new ArrayList<>();
         List<String> javaOptions = new ArrayList<>();
@@ -823,6 +1544,13 @@ public class Runner extends BaseRunner {
         // add any compiler oracle hints
         CompilerHints.addCompilerHints(command);
 
+        // enable compiler blackholes, if selected
+        if (getBlackholeMode(benchmark.getJvm()) == BlackholeMode.COMPILER) {
+            command.add("-XX:+UnlockExperimentalVMOptions");
+            command.add("-XX:CompileCommand=blackhole," + BlackholeMode.COMPILER_METHOD);
+            command.add("-D" + BlackholeMode.COMPILER_PROPERTY + "=true");
+        }
+
         // assemble final process command
         command.add("-cp");
         if (Utils.isWindows()) {
@@ -833,15 +1561,118 @@ public class Runner extends BaseRunner {
 
         command.add(ForkedMain.class.getName());
 
-        // Forked VM assumes the exact order of arguments:
-        //   1) host name to back-connect
-        //   2) host port to back-connect
-        command.add(host);
-        command.add(String.valueOf(port));
+        // map the class data archive, if enabled; the archive is keyed by the complete VM command
+        if (archives != null) {
+            int vmStart = javaInvokeOptions.size();
+            List<String> vmCommand = new ArrayList<>(command.subList(vmStart, command.size()));
+            command.addAll(vmStart + 1 + benchmark.getJvmArgs().size(), archives.getJvmOptions(benchmark, vmCommand, out));
+        }
 
         return command;
     }
 
+    /**
+     * Dumps the class data archive for the forked VM command in the separate unmeasured fork,
+     * if there is no archive for that command yet. The dumping fork runs the whole benchmark, as
+     * the warmup fork would, so that the archive has all the classes the measured forks load.
+     */
+    private void dumpClassDataArchive(ActionPlan actionPlan, BenchmarkParams params, List<ExternalProfiler> profilers,
+                                      boolean printOut, boolean printErr) {
+        if (archives == null) {
+            return;
+        }
+
+        // The dumping VM runs the same VM command, but without the profiler invocation prefix
+        List<String> command = getForkedMainCommand(params, profilers);
+        for (String opt : command) {
+            if (opt.startsWith(ClassDataArchives.SHARE_OPTION)) {
+                // Archive is ready already
+                return;
+            }
+        }
+        List<String> vmCommand = new ArrayList<>(command.subList(command.indexOf(params.getJvm()), command.size()));
+        List<String> dumpOptions = archives.getDumpOptions(params, vmCommand, out);
+        if (dumpOptions.isEmpty()) {
+            return;
+        }
+
+        BinaryLinkServer server = null;
+        try {
+            server = new BinaryLinkServer(options, out);
+            server.setPlan(actionPlan);
+
+            vmCommand.addAll(1 + params.getJvmArgs().size(), dumpOptions);
+            vmCommand.addAll(server.getClientArgs());
+            out.verbosePrintln("Dumping the class data archive using command: " + vmCommand);
+            out.println("# Warmup Fork: dumps the class data archive, not measured");
+
+            TempFile stdErr = FileUtils.weakTempFile("stderr");
+            TempFile stdOut = FileUtils.weakTempFile("stdout");
+
+            doFork(server, vmCommand, stdOut.file(), stdErr.file(), printOut, printErr);
+            out.println("");
+
+            stdErr.delete();
+            stdOut.delete();
+        } catch (IOException e) {
+            archives.dumpFailed(dumpOptions);
+            out.println("# Class data sharing: cannot start the dumping fork: " + e.getMessage());
+            out.println("");
+        } catch (BenchmarkException e) {
+            // No-op if the forked VM exit had been accounted already
+            archives.dumpFailed(dumpOptions);
+            out.println("# Class data sharing: dumping fork had failed: " + e.getMessage());
+            out.println("");
+        } finally {
+            if (server != null) {
+                server.terminate();
+            }
+        }
+    }
+
+    private BlackholeMode getBlackholeMode(String jvm) {
+        BlackholeMode mode = blackholeModes.get(jvm);
+        if (mode != null) {
+            return mode;
+        }
+
+        Optional<BlackholeMode> requested = BlackholeMode.requested();
+        if (requested.hasValue()) {
+            mode = requested.get();
+            out.println("# Blackhole mode: " + mode.desc() + " (requested with -D" + BlackholeMode.MODE_PROPERTY + ")");
+        } else if (BlackholeMode.shouldAutoDetect()) {
+            mode = isCompilerBlackholeSupported(jvm) ? BlackholeMode.COMPILER : BlackholeMode.FULL_DONTINLINE;
+            out.println("# Blackhole mode: " + mode.desc() + " (auto-detected, use -D" +
+                    BlackholeMode.AUTODETECT_PROPERTY + "=false to disable)");
+        } else {
+            mode = BlackholeMode.FULL_DONTINLINE;
+            out.println("# Blackhole mode: " + mode.desc());
+        }
+
+        blackholeModes.put(jvm, mode);
+        return mode;
+    }
+
+    /**
+     * Probes the target VM for the compiler blackholes support. The VMs that accept
+     * the blackhole command echo it back, other VMs complain about the unknown command,
+     * or fail to start.
+     */
+    private boolean isCompilerBlackholeSupported(String jvm) {
+        List<String> command = new ArrayList<>();
+        command.add(jvm);
+        command.add("-XX:+UnlockExperimentalVMOptions");
+        command.add("-XX:CompileCommand=blackhole," + BlackholeMode.COMPILER_METHOD);
+        command.add("-version");
+
+        for (String line : Utils.runWith(command)) {
+            if (line.contains("CompileCommand: blackhole " + BlackholeMode.COMPILER_METHOD)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private List<String> getPrintPropertiesCommand(String jvm) {
         List<String> command = new ArrayList<>();
 
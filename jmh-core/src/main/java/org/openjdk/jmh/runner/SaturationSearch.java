@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+/**
+ * Searches for the highest arrival rate at which the benchmark meets the latency bound.
+ *
+ * <p>The search starts from the initial rate, and doubles (or halves) the rate until
+ * the knee is bracketed between the passing and the failing rate. Then it bisects the
+ * bracket until it is narrower than the requested precision, or until the probe budget
+ * is exhausted. The final bracket locates the knee: the lower bound had passed, the upper
+ * bound had failed. Every probe is decided on the single point estimate of the percentile,
+ * so the bracket is not a statistical bound: the probes near the knee may flip between runs.
+ *
+ * <p>The search assumes the latency grows with the arrival rate. The probe that contradicts
+ * the bracket, i.e. passes at or above the failing rate, or fails at or below the passing
+ * rate, shows it does not. Such a probe leaves the bracket as is, and stops the search as
+ * non-monotonic, since the knee cannot be located by bisection.
+ */
+class SaturationSearch {
+
+    private final double initialRate;
+    private final double precision;
+    private final int maxProbes;
+
+    private double passRate;
+    private double failRate;
+    private int probes;
+
+    private double conflictRate;
+    private boolean conflictPass;
+
+    /**
+     * @param initialRate rate to start from, ops/s
+     * @param precision target relative width of the bracket
+     * @param maxProbes maximum number of probes to make
+     */
+    SaturationSearch(double initialRate, double precision, int maxProbes) {
+        this.initialRate = initialRate;
+        this.precision = precision;
+        this.maxProbes = maxProbes;
+        this.passRate = Double.NaN;
+        this.failRate = Double.NaN;
+        this.conflictRate = Double.NaN;
+    }
+
+    /**
+     * @return true, if no more probes are needed
+     */
+    boolean isDone() {
+        if (probes >= maxProbes || isNonMonotonic()) {
+            return true;
+        }
+        if (Double.isNaN(passRate) || Double.isNaN(failRate)) {
+            return false;
+        }
+        return (failRate - passRate) <= precision * passRate;
+    }
+
+    /**
+     * @return the arrival rate to probe next, ops/s
+     */
+    double nextRate() {
+        if (Double.isNaN(passRate) && Double.isNaN(failRate)) {
+            return initialRate;
+        }
+        if (Double.isNaN(failRate)) {
+            return passRate * 2;
+        }
+        if (Double.isNaN(passRate)) {
+            return failRate / 2;
+        }
+        return (passRate + failRate) / 2;
+    }
+
+    /**
+     * Records the probe outcome.
+     *
+     * @param rate arrival rate probed, ops/s
+     * @param pass true, if the latency bound was met
+     */
+    void record(double rate, boolean pass) {
+        probes++;
+        if (pass ? (rate >= failRate) : (rate <= passRate)) {
+            // comparisons with NaN are false: no conflict until the bracket side is known
+            conflictRate = rate;
+            conflictPass = pass;
+            return;
+        }
+        if (pass) {
+            if (Double.isNaN(passRate) || rate > passRate) {
+                passRate = rate;
+            }
+        } else {
+            if (Double.isNaN(failRate) || rate < failRate) {
+                failRate = rate;
+            }
+        }
+    }
+
+    /**
+     * @return the highest rate that met the latency bound; NaN if none did
+     */
+    double getPassRate() {
+        return passRate;
+    }
+
+    /**
+     * @return the lowest rate that did not meet the latency bound; NaN if all did
+     */
+    double getFailRate() {
+        return failRate;
+    }
+
+    int getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return true, if some probe contradicted the bracket
+     */
+    boolean isNonMonotonic() {
+        return !Double.isNaN(conflictRate);
+    }
+
+    /**
+     * @return the rate of the probe that contradicted the bracket; NaN if none did
+     */
+    double getConflictRate() {
+        return conflictRate;
+    }
+
+    /**
+     * @return true, if the contradicting probe had passed
+     */
+    boolean isConflictPass() {
+        return conflictPass;
+    }
+
+}
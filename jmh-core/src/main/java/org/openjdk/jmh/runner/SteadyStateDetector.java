@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+/**
+ * Detects the steady state in the sequence of iteration scores.
+ *
+ * <p>The detector fits the least-squares line through the last few scores. The benchmark
+ * is considered steady when the line drift over that window is within the tolerance of the
+ * window mean, or within the iteration noise. The noise is estimated from the differences of
+ * successive scores, which is not inflated much by the trend itself, unlike the plain
+ * standard deviation.
+ */
+class SteadyStateDetector {
+
+    private final double[] window;
+    private final double tolerance;
+    private int count;
+
+    SteadyStateDetector(int windowSize, double tolerance) {
+        if (windowSize < 3) {
+            throw new IllegalArgumentException("Window size (" + windowSize + ") should be at least 3");
+        }
+        this.window = new double[windowSize];
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Records the next score.
+     * @param score iteration score
+     * @return true, if the benchmark is in steady state after this score
+     */
+    boolean add(double score) {
+        window[count % window.length] = score;
+        count++;
+        return isSteady();
+    }
+
+    /**
+     * @return number of scores recorded so far
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true, if the last scores are in steady state; false if there are not enough scores yet
+     */
+    boolean isSteady() {
+        if (count < window.length) {
+            return false;
+        }
+
+        double drift = Math.abs(getSlope()) * (window.length - 1);
+        return drift <= Math.max(tolerance * Math.abs(getMean()), getNoise());
+    }
+
+    /**
+     * @return relative drift of scores over the window, as fitted by least squares; NaN if not enough scores yet
+     */
+    double getRelativeDrift() {
+        if (count < window.length) {
+            return Double.NaN;
+        }
+        return Math.abs(getSlope()) * (window.length - 1) / Math.abs(getMean());
+    }
+
+    private double score(int i) {
+        // i-th score in the window, from the oldest to the newest
+        return window[(count + i) % window.length];
+    }
+
+    private double getMean() {
+        double sum = 0;
+        for (int i = 0; i < window.length; i++) {
+            sum += score(i);
+        }
+        return sum / window.length;
+    }
+
+    private double getNoise() {
+        // von Neumann estimate: E[(x[i+1] - x[i])^2] = 2 * variance, for the data without trend
+        double sum = 0;
+        for (int i = 1; i < window.length; i++) {
+            double d = score(i) - score(i - 1);
+            sum += d * d;
+        }
+        return Math.sqrt(sum / (2 * (window.length - 1)));
+    }
+
+    private double getSlope() {
+        int n = window.length;
+        double xMean = (n - 1) / 2.0;
+        double yMean = getMean();
+        double sxy = 0;
+        double sxx = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = i - xMean;
+            sxy += dx * (score(i) - yMean);
+            sxx += dx * dx;
+        }
+        return sxy / sxx;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+/**
+ * Decides when the adaptive measurement stops.
+ *
+ * <p>The measurement runs at least the minimal number of iterations, and at most the iteration
+ * budget. In between, it stops once the half-width of the 99.9% confidence interval of the mean,
+ * relative to the mean, is within the target error. The last iteration should be known before it
+ * runs, so that the trial fixtures run with it: once the target error is reached, one more
+ * iteration runs as the last one, unless the budget is exhausted first.
+ */
+class TargetErrorDetector {
+
+    private final double targetError;
+    private final int minIterations;
+    private final int maxIterations;
+    private final ListStatistics scores;
+    private boolean converged;
+
+    TargetErrorDetector(double targetError, int minIterations, int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Iteration budget (" + maxIterations + ") should be positive");
+        }
+        this.targetError = targetError;
+        this.minIterations = Math.min(minIterations, maxIterations);
+        this.maxIterations = maxIterations;
+        this.scores = new ListStatistics();
+    }
+
+    /**
+     * @param iteration iteration number about to run, starting from 1
+     * @return true, if this iteration should be the last one
+     */
+    boolean isLastIteration(int iteration) {
+        return iteration >= maxIterations || converged;
+    }
+
+    /**
+     * Records the next score.
+     * @param score iteration score
+     * @return true, if the target error is reached after this score
+     */
+    boolean add(double score) {
+        scores.addValue(score);
+        if (!converged && scores.getN() >= minIterations) {
+            converged = isReached(scores, targetError);
+        }
+        return converged;
+    }
+
+    /**
+     * @return true, if the target error was reached
+     */
+    boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return minimal number of iterations, capped by the budget
+     */
+    int getMinIterations() {
+        return minIterations;
+    }
+
+    /**
+     * @return number of scores recorded so far
+     */
+    long getCount() {
+        return scores.getN();
+    }
+
+    /**
+     * @return relative error of the scores recorded so far; NaN if not available
+     */
+    double getRelativeError() {
+        return relativeError(scores);
+    }
+
+    /**
+     * @param stats score statistics
+     * @return half-width of 99.9% confidence interval, relative to the mean; NaN if not available
+     */
+    static double relativeError(Statistics stats) {
+        if (stats.getN() < 2) {
+            return Double.NaN;
+        }
+        return stats.getMeanErrorAt(0.999) / Math.abs(stats.getMean());
+    }
+
+    /**
+     * @param stats score statistics
+     * @param targetError target error, relative to the mean
+     * @return true, if confidence interval is narrow enough
+     */
+    static boolean isReached(Statistics stats, double targetError) {
+        double err = relativeError(stats);
+        return !Double.isNaN(err) && err <= targetError;
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.ScalarResult;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.ScalabilityModel;
+import org.openjdk.jmh.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Thread count sweep: runs each benchmark with 1, 2, 4, ... threads, and fits
+ * the Universal Scalability Law to the throughput curve.
+ *
+ * <p>The benchmarks with thread groups are scaled by the whole groups, and the model
+ * counts the groups instead of the threads. Only {@link Mode#Throughput} and
+ * {@link Mode#AverageTime} results are analyzed; the average time is converted to
+ * throughput with Little's law.
+ */
+class ThreadScaling {
+
+    /**
+     * @param maxThreads the top of the ladder
+     * @param quant thread count granularity, e.g. the thread group size
+     * @return thread counts to run with
+     */
+    static List<Integer> getLadder(int maxThreads, int quant) {
+        SortedSet<Integer> ladder = new TreeSet<>();
+        for (int t = 1; t < maxThreads; t *= 2) {
+            ladder.add(Utils.roundUp(t, quant));
+        }
+        ladder.add(Utils.roundUp(maxThreads, quant));
+        return new ArrayList<>(ladder);
+    }
+
+    /**
+     * Computes the scaling results, attaches them to the run results, and prints the summary.
+     *
+     * @param results run results, sorted so that the sweep for each benchmark goes in a row
+     * @param out output to print the summary to
+     */
+    static void analyze(Collection<RunResult> results, OutputFormat out) {
+        List<RunResult> sweep = new ArrayList<>();
+        for (RunResult r : results) {
+            if (!sweep.isEmpty() && !isSameSweep(sweep.get(0).getParams(), r.getParams())) {
+                analyzeSweep(sweep, out);
+                sweep = new ArrayList<>();
+            }
+            sweep.add(r);
+        }
+        if (!sweep.isEmpty()) {
+            analyzeSweep(sweep, out);
+        }
+    }
+
+    private static boolean isSameSweep(BenchmarkParams p1, BenchmarkParams p2) {
+        if (p1.getMode() != p2.getMode()) return false;
+        if (!p1.getBenchmark().equals(p2.getBenchmark())) return false;
+        for (String k : p1.getParamsKeys()) {
+            if (!p1.getParam(k).equals(p2.getParam(k))) return false;
+        }
+        return true;
+    }
+
+    private static void analyzeSweep(List<RunResult> sweep, OutputFormat out) {
+        BenchmarkParams first = sweep.get(0).getParams();
+        Mode mode = first.getMode();
+        if (mode != Mode.Throughput && mode != Mode.AverageTime) {
+            return;
+        }
+
+        int quant = Utils.sum(first.getThreadGroups());
+        int size = sweep.size();
+
+        int[] units = new int[size];
+        double[] throughput = new double[size];
+        double single = Double.NaN;
+        for (int i = 0; i < size; i++) {
+            RunResult r = sweep.get(i);
+            int threads = r.getParams().getThreads();
+            double score = r.getPrimaryResult().getScore();
+
+            units[i] = threads / quant;
+            throughput[i] = (mode == Mode.Throughput) ? score : threads / score;
+            if (units[i] == 1) {
+                single = throughput[i];
+            }
+        }
+
+        if (size < 2 || !(single > 0)) {
+            return;
+        }
+
+        String unit = (mode == Mode.Throughput) ?
+                sweep.get(0).getPrimaryResult().getScoreUnit() :
+                "ops/" + TimeValue.tuToString(first.getTimeUnit());
+
+        StringBuilder name = new StringBuilder(first.getBenchmark());
+        if (!first.getParamsKeys().isEmpty()) {
+            name.append(" (");
+            boolean firstKey = true;
+            for (String k : first.getParamsKeys()) {
+                if (!firstKey) {
+                    name.append(", ");
+                }
+                name.append(k).append(" = ").append(first.getParam(k));
+                firstKey = false;
+            }
+            name.append(")");
+        }
+
+        out.println("# Thread scaling: " + name + ", " + mode.shortLabel());
+        out.println(String.format("# %9s %16s %10s %11s", (quant == 1) ? "Threads" : "Groups", unit, "Speedup", "Efficiency"));
+
+        int peak = 0;
+        for (int i = 0; i < size; i++) {
+            double speedup = throughput[i] / single;
+            double efficiency = speedup / units[i];
+            out.println(String.format("# %9d %16.3f %10.3f %10.1f%%", units[i], throughput[i], speedup, efficiency * 100));
+
+            addResult(sweep.get(i), new ScalarResult(Defaults.PREFIX + "scaling.efficiency", efficiency * 100, "%", AggregationPolicy.AVG));
+
+            if (throughput[i] > throughput[peak]) {
+                peak = i;
+            }
+        }
+
+        int peakThreads = sweep.get(peak).getParams().getThreads();
+        out.println("# Peak throughput at " + peakThreads + " threads.");
+
+        // attach the sweep-wide results to the top of the ladder
+        RunResult top = sweep.get(size - 1);
+        addResult(top, new ScalarResult(Defaults.PREFIX + "scaling.peak", peakThreads, "threads", AggregationPolicy.AVG));
+
+        ScalabilityModel model;
+        try {
+            model = ScalabilityModel.fit(units, throughput);
+        } catch (IllegalArgumentException e) {
+            out.println("# Cannot fit the scalability model: " + e.getMessage());
+            out.println("");
+            return;
+        }
+
+        double peakUnits = model.getPeakThreads();
+        out.println(String.format("# USL fit: lambda = %.3f %s, contention (sigma) = %.5f, coherency (kappa) = %.7f",
+                model.getLambda(), unit, model.getContention(), model.getCoherency()));
+        if (Double.isInfinite(peakUnits)) {
+            out.println("# USL fit: no coherency penalty, throughput does not peak.");
+        } else {
+            out.println(String.format("# USL fit: predicted peak at %.1f threads, %.3f %s.",
+                    peakUnits * quant, model.predict(peakUnits), unit));
+        }
+        out.println("");
+
+        addResult(top, new ScalarResult(Defaults.PREFIX + "usl.lambda", model.getLambda(), unit, AggregationPolicy.AVG));
+        addResult(top, new ScalarResult(Defaults.PREFIX + "usl.sigma", model.getContention(), "", AggregationPolicy.AVG));
+        addResult(top, new ScalarResult(Defaults.PREFIX + "usl.kappa", model.getCoherency(), "", AggregationPolicy.AVG));
+        if (!Double.isInfinite(peakUnits)) {
+            addResult(top, new ScalarResult(Defaults.PREFIX + "usl.peak", peakUnits * quant, "threads", AggregationPolicy.AVG));
+        }
+    }
+
+    private static void addResult(RunResult r, Result result) {
+        for (BenchmarkResult br : r.getBenchmarkResults()) {
+            br.addBenchmarkResult(result);
+            return;
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Virtual threads support. Virtual threads are only available in JDK 21+, and so all
+ * the accesses go through reflection, keeping JMH buildable and runnable on older JDKs.
+ */
+class VirtualThreads {
+
+    private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * Track virtual threads pinning with JFR. This is opt-in, since JFR streaming
+     * runs its own threads and allocates in the benchmark VM.
+     */
+    private static final boolean TRACK_PINNING = Boolean.getBoolean("jmh.virtualThreads.pinning");
+
+    private VirtualThreads() {
+        // prevent instantiation
+    }
+
+    /**
+     * Creates the factory for virtual threads.
+     *
+     * @param prefix thread name prefix, threads are numbered from 1
+     * @return thread factory
+     * @throws Exception if virtual threads are not supported
+     */
+    static ThreadFactory newThreadFactory(String prefix) throws Exception {
+        Method ofVirtual;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21+, running on " + System.getProperty("java.version"));
+        }
+
+        Class<?> builder = Class.forName("java.lang.Thread$Builder");
+        Object b = ofVirtual.invoke(null);
+        b = builder.getMethod("name", String.class, long.class).invoke(b, prefix, 1L);
+        return (ThreadFactory) builder.getMethod("factory").invoke(b);
+    }
+
+    /**
+     * Tracks the carrier threads utilization and virtual threads pinning during the iteration.
+     *
+     * <p>Carrier threads are the usual platform threads, which CPU time is available from
+     * {@link ThreadMXBean}. Pinning is only visible through JFR events, which are streamed
+     * in background when requested with {@code -Djmh.virtualThreads.pinning=true}. JFR delivers
+     * the events in batches about once a second, so pinning counts are exact for the run,
+     * but may shift to the next iteration for short iterations.
+     */
+    static class Stats {
+        private final ThreadMXBean threadMX;
+        private final AtomicLong pinnedCount;
+        private final AtomicLong pinnedNanos;
+        private AutoCloseable stream;
+
+        private Map<Long, Long> startCpu;
+        private long startTime;
+        private long startPinnedCount;
+        private long startPinnedNanos;
+
+        Stats() {
+            threadMX = ManagementFactory.getThreadMXBean();
+            pinnedCount = new AtomicLong();
+            pinnedNanos = new AtomicLong();
+            if (TRACK_PINNING) {
+                try {
+                    stream = startPinnedStream();
+                } catch (Exception e) {
+                    // JFR is not available, no pinning stats
+                    stream = null;
+                }
+            }
+        }
+
+        private AutoCloseable startPinnedStream() throws Exception {
+            Class<?> rsClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+            final Method getDuration = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getDuration");
+
+            AutoCloseable rs = (AutoCloseable) rsClass.getConstructor().newInstance();
+            try {
+                Object settings = rsClass.getMethod("enable", String.class).invoke(rs, PINNED_EVENT);
+                Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings, Duration.ZERO);
+
+                rsClass.getMethod("onEvent", String.class, Consumer.class).invoke(rs, PINNED_EVENT, new Consumer<Object>() {
+                    @Override
+                    public void accept(Object event) {
+                        pinnedCount.incrementAndGet();
+                        try {
+                            pinnedNanos.addAndGet(((Duration) getDuration.invoke(event)).toNanos());
+                        } catch (Exception e) {
+                            // no duration, count only
+                        }
+                    }
+                });
+                rsClass.getMethod("startAsync").invoke(rs);
+                return rs;
+            } catch (Exception e) {
+                rs.close();
+                throw e;
+            }
+        }
+
+        void start() {
+            startCpu = carrierCpuTimes();
+            startTime = System.nanoTime();
+            startPinnedCount = pinnedCount.get();
+            startPinnedNanos = pinnedNanos.get();
+        }
+
+        List<Result> stop() {
+            long time = System.nanoTime() - startTime;
+            Map<Long, Long> endCpu = carrierCpuTimes();
+
+            long cpu = 0;
+            for (Map.Entry<Long, Long> e : endCpu.entrySet()) {
+                Long start = startCpu.get(e.getKey());
+                cpu += e.getValue() - ((start != null) ? start : 0);
+            }
+
+            List<Result> results = new ArrayList<>();
+            int carriers = endCpu.size();
+            results.add(new ScalarResult(Defaults.PREFIX + "vthread.carriers", carriers, "threads", AggregationPolicy.MAX));
+            if (carriers > 0 && time > 0 && threadMX.isThreadCpuTimeSupported()) {
+                results.add(new ScalarResult(Defaults.PREFIX + "vthread.carrier.util",
+                        100.0 * cpu / time / carriers, "%", AggregationPolicy.AVG));
+            }
+
+            if (stream != null) {
+                results.add(new ScalarResult(Defaults.PREFIX + "vthread.pinned",
+                        pinnedCount.get() - startPinnedCount, "counts", AggregationPolicy.SUM));
+                results.add(new ScalarResult(Defaults.PREFIX + "vthread.pinned.time",
+                        1.0 * (pinnedNanos.get() - startPinnedNanos) / TimeUnit.MILLISECONDS.toNanos(1), "ms", AggregationPolicy.SUM));
+            }
+            return results;
+        }
+
+        void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+                stream = null;
+            }
+        }
+
+        private Map<Long, Long> carrierCpuTimes() {
+            ThreadGroup root = Thread.currentThread().getThreadGroup();
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+
+            Thread[] threads = new Thread[root.activeCount() * 2 + 16];
+            int count = root.enumerate(threads, true);
+
+            Map<Long, Long> times = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                Thread t = threads[i];
+                if (t.getClass().getName().equals(CARRIER_THREAD_CLASS)) {
+                    long cpu = threadMX.isThreadCpuTimeSupported() ? threadMX.getThreadCpuTime(t.getId()) : 0;
+                    times.put(t.getId(), Math.max(0, cpu));
+                }
+            }
+            return times;
+        }
+    }
+
+}
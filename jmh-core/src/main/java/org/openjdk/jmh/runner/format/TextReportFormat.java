@@ -111,6 +111,10 @@ class TextReportFormat extends AbstractOutputFormat {
 
 
         out.println("# Benchmark mode: " + params.getMode().longLabel());
+        if (params.getMode() == Mode.OpenLoop) {
+            out.println("# Arrival rate: " + params.getArrivalRate() + " ops/s, " +
+                    String.format("%.3f", params.getArrivalRate() / params.getThreads()) + " ops/s per thread");
+        }
         out.println("# Benchmark: " + params.getBenchmark());
         if (!params.getParamsKeys().isEmpty()) {
             String s = "";
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.ResultCodec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.openjdk.jmh.runner.link.LinkProtocol.*;
+
+/**
+ * Reads the frames written by {@link BinaryFrameWriter}.
+ */
+class BinaryFrameReader implements FrameReader {
+
+    private static final InfraFrame.Type[] INFRA_TYPES = InfraFrame.Type.values();
+    private static final OutputFrame.Type[] OUTPUT_TYPES = OutputFrame.Type.values();
+
+    private final DataInputStream in;
+    private final List<Object> refs;
+
+    BinaryFrameReader(InputStream is) {
+        this.in = new DataInputStream(is);
+        this.refs = new ArrayList<>();
+    }
+
+    @Override
+    public Object read() throws IOException, ClassNotFoundException {
+        int len = in.readInt();
+        if (len <= 0 || len > MAX_FRAME_SIZE) {
+            throw new StreamCorruptedException("Frame length is out of bounds: " + len +
+                    ", the limit is " + MAX_FRAME_SIZE + " bytes, set with -Djmh.link.maxFrameSize");
+        }
+        byte[] payload = new byte[len];
+        in.readFully(payload);
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        int type = data.readUnsignedByte();
+        switch (type) {
+            case FRAME_HANDSHAKE_INIT:
+                return new HandshakeInitFrame(data.readLong());
+            case FRAME_INFRA:
+                return new InfraFrame(INFRA_TYPES[readOrdinal(data, INFRA_TYPES.length)]);
+            case FRAME_RESULTS:
+                return new ResultsFrame(readIterationResult(data));
+            case FRAME_OUTPUT: {
+                OutputFrame.Type t = OUTPUT_TYPES[readOrdinal(data, OUTPUT_TYPES.length)];
+                return new OutputFrame(t, readBytes(data));
+            }
+            case FRAME_OUTPUT_FORMAT: {
+                String method = data.readUTF();
+                Object[] args = new Object[data.readUnsignedByte()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readValue(data);
+                }
+                return new OutputFormatFrame(method, args);
+            }
+            case FRAME_FINISHING:
+                return new FinishingFrame();
+            case FRAME_SERIALIZED:
+                return readSerialized(data);
+            default:
+                throw new StreamCorruptedException("Unknown frame type: " + type);
+        }
+    }
+
+    private Object readValue(DataInputStream data) throws IOException, ClassNotFoundException {
+        int type = data.readUnsignedByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return data.readUTF();
+            case VALUE_LONG_STRING:
+                return new String(readBytes(data), StandardCharsets.UTF_8);
+            case VALUE_INT:
+                return data.readInt();
+            case VALUE_LONG:
+                return data.readLong();
+            case VALUE_DOUBLE:
+                return data.readDouble();
+            case VALUE_BOOLEAN:
+                return data.readBoolean();
+            case VALUE_REF:
+                return refs.get(data.readInt());
+            case VALUE_REF_DEFINE: {
+                int id = data.readInt();
+                Object v = readSerialized(data);
+                while (refs.size() <= id) {
+                    refs.add(null);
+                }
+                refs.set(id, v);
+                return v;
+            }
+            case VALUE_ITERATION_RESULT:
+                return readIterationResult(data);
+            case VALUE_RESULT:
+                return ResultCodec.read(data);
+            case VALUE_SERIALIZED:
+                return readSerialized(data);
+            default:
+                throw new StreamCorruptedException("Unknown value type: " + type);
+        }
+    }
+
+    private IterationResult readIterationResult(DataInputStream data) throws IOException, ClassNotFoundException {
+        BenchmarkParams bp = (BenchmarkParams) readValue(data);
+        IterationParams ip = (IterationParams) readValue(data);
+
+        IterationResultMetaData md = null;
+        if (data.readBoolean()) {
+            md = new IterationResultMetaData(data.readLong(), data.readLong());
+        }
+
+        IterationResult ir = new IterationResult(bp, ip, md);
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            ir.addResult(ResultCodec.read(data));
+        }
+        return ir;
+    }
+
+    private static Object readSerialized(DataInputStream data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(data)))) {
+            return ois.readObject();
+        }
+    }
+
+    /**
+     * Reads the length-prefixed byte array from the frame payload. The length cannot exceed
+     * what is left in the payload, which also guards against the corrupted lengths.
+     */
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+        int len = data.readInt();
+        if (len < 0 || len > data.available()) {
+            throw new StreamCorruptedException("Value length is out of bounds: " + len);
+        }
+        byte[] b = new byte[len];
+        data.readFully(b);
+        return b;
+    }
+
+    private static int readOrdinal(DataInputStream data, int count) throws IOException {
+        int ordinal = data.readUnsignedByte();
+        if (ordinal >= count) {
+            throw new StreamCorruptedException("Unknown ordinal: " + ordinal);
+        }
+        return ordinal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
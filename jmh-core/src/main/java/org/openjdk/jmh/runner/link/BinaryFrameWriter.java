@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ResultCodec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.openjdk.jmh.runner.link.LinkProtocol.*;
+
+/**
+ * Writes the frames with the compact binary protocol.
+ *
+ * <p>Frames are assembled in the reusable buffer, and then written out with their length.
+ * Benchmark and iteration parameters are sent once, and then referenced by their ids.
+ * Frames without the dedicated codec are written with Java serialization.
+ */
+class BinaryFrameWriter implements FrameWriter {
+
+    private static final int MAX_SHORT_STRING = 65535 / 3;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream buf;
+    private final DataOutputStream data;
+    private final Map<Object, Integer> refs;
+
+    BinaryFrameWriter(OutputStream os) throws IOException {
+        this.out = new DataOutputStream(os);
+        // reset() keeps the allocated storage, and the buffer is reused for all frames
+        this.buf = new ByteArrayOutputStream(4096);
+        this.data = new DataOutputStream(buf);
+        this.refs = new IdentityHashMap<>();
+
+        // write the stream header, letting the other party detect the protocol
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    @Override
+    public void write(Serializable frame) throws IOException {
+        buf.reset();
+
+        if (frame instanceof OutputFrame) {
+            OutputFrame f = (OutputFrame) frame;
+            writeOutput(f.getType(), f.getData(), 0, f.getData().length);
+            return;
+        } else if (frame instanceof OutputFormatFrame) {
+            OutputFormatFrame f = (OutputFormatFrame) frame;
+            data.writeByte(FRAME_OUTPUT_FORMAT);
+            data.writeUTF(f.method);
+            Object[] args = (f.args != null) ? f.args : new Object[0];
+            data.writeByte(args.length);
+            for (Object arg : args) {
+                writeValue(arg);
+            }
+        } else if (frame instanceof ResultsFrame) {
+            data.writeByte(FRAME_RESULTS);
+            writeIterationResult(((ResultsFrame) frame).getRes());
+        } else if (frame instanceof HandshakeInitFrame) {
+            data.writeByte(FRAME_HANDSHAKE_INIT);
+            data.writeLong(((HandshakeInitFrame) frame).getPid());
+        } else if (frame instanceof InfraFrame) {
+            data.writeByte(FRAME_INFRA);
+            data.writeByte(((InfraFrame) frame).getType().ordinal());
+        } else if (frame instanceof FinishingFrame) {
+            data.writeByte(FRAME_FINISHING);
+        } else {
+            data.writeByte(FRAME_SERIALIZED);
+            writeSerialized(frame);
+        }
+
+        checkSize(buf.size());
+        out.writeInt(buf.size());
+        buf.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public void writeOutput(OutputFrame.Type type, byte[] b, int off, int len) throws IOException {
+        checkSize(1 + 1 + 4 + len);
+        out.writeInt(1 + 1 + 4 + len);
+        out.writeByte(FRAME_OUTPUT);
+        out.writeByte(type.ordinal());
+        out.writeInt(len);
+        out.write(b, off, len);
+        out.flush();
+    }
+
+    private static void checkSize(int size) throws IOException {
+        // Reader rejects such frames as corrupted, fail early with the clear message
+        if (size > MAX_FRAME_SIZE) {
+            throw new IOException("Frame size " + size + " exceeds the limit of " + MAX_FRAME_SIZE +
+                    " bytes, set with -Djmh.link.maxFrameSize");
+        }
+    }
+
+    private void writeValue(Object v) throws IOException {
+        if (v == null) {
+            data.writeByte(VALUE_NULL);
+        } else if (v instanceof String) {
+            String s = (String) v;
+            if (s.length() <= MAX_SHORT_STRING) {
+                data.writeByte(VALUE_STRING);
+                data.writeUTF(s);
+            } else {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                data.writeByte(VALUE_LONG_STRING);
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+        } else if (v instanceof Integer) {
+            data.writeByte(VALUE_INT);
+            data.writeInt((Integer) v);
+        } else if (v instanceof Long) {
+            data.writeByte(VALUE_LONG);
+            data.writeLong((Long) v);
+        } else if (v instanceof Double) {
+            data.writeByte(VALUE_DOUBLE);
+            data.writeDouble((Double) v);
+        } else if (v instanceof Boolean) {
+            data.writeByte(VALUE_BOOLEAN);
+            data.writeBoolean((Boolean) v);
+        } else if (v instanceof BenchmarkParams || v instanceof IterationParams) {
+            writeRef(v);
+        } else if (v instanceof IterationResult) {
+            data.writeByte(VALUE_ITERATION_RESULT);
+            writeIterationResult((IterationResult) v);
+        } else if (v instanceof Result) {
+            data.writeByte(VALUE_RESULT);
+            ResultCodec.write(data, (Result) v);
+        } else {
+            data.writeByte(VALUE_SERIALIZED);
+            writeSerialized(v);
+        }
+    }
+
+    /**
+     * Writes the immutable object once, and then only its id.
+     */
+    private void writeRef(Object v) throws IOException {
+        Integer id = refs.get(v);
+        if (id != null) {
+            data.writeByte(VALUE_REF);
+            data.writeInt(id);
+        } else {
+            id = refs.size();
+            refs.put(v, id);
+            data.writeByte(VALUE_REF_DEFINE);
+            data.writeInt(id);
+            writeSerialized(v);
+        }
+    }
+
+    private void writeIterationResult(IterationResult ir) throws IOException {
+        writeRef(ir.getBenchmarkParams());
+        writeRef(ir.getParams());
+
+        IterationResultMetaData md = ir.getMetadata();
+        data.writeBoolean(md != null);
+        if (md != null) {
+            data.writeLong(md.getAllOps());
+            data.writeLong(md.getMeasuredOps());
+        }
+
+        Collection<Result> primary = ir.getRawPrimaryResults();
+        Collection<Result> secondary = ir.getRawSecondaryResults().values();
+        data.writeInt(primary.size() + secondary.size());
+        for (Result r : primary) {
+            ResultCodec.write(data, r);
+        }
+        for (Result r : secondary) {
+            ResultCodec.write(data, r);
+        }
+    }
+
+    private void writeSerialized(Object v) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(v);
+        }
+        data.writeInt(bos.size());
+        bos.writeTo(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
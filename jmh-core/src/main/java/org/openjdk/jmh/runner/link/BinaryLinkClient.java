@@ -35,9 +35,10 @@ import org.openjdk.jmh.util.Utils;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
@@ -45,33 +46,61 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.Socket;
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public final class BinaryLinkClient {
 
-    private static final int RESET_EACH = Integer.getInteger("jmh.link.resetEach", 100);
     private static final int BUFFER_SIZE = Integer.getInteger("jmh.link.bufferSize", 64*1024);
+    private static final int OUTPUT_BATCH_SIZE = Integer.getInteger("jmh.link.outputBatchSize", 8*1024);
+    private static final int OUTPUT_FLUSH_MS = Integer.getInteger("jmh.link.outputFlushMs", 100);
 
     private final Object lock;
 
-    private final Socket clientSocket;
-    private final ObjectOutputStream oos;
-    private final ObjectInputStream ois;
+    private final Closeable channel;
+    private final FrameWriter writer;
+    private final FrameReader reader;
     private final ForwardingPrintStream streamErr;
     private final ForwardingPrintStream streamOut;
     private final OutputFormat outputFormat;
     private volatile boolean failed;
-    private int resetToGo;
+
+    // Forwarded output is batched until the line ends, the batch fills up, or the other frame
+    // is pushed. Batch is protected by the link lock, so that the output order is preserved.
+    // Partial lines are flushed by the flusher thread after a while, so that they are not lost
+    // when the forked VM dies without the chance to hang up.
+    private final byte[] outputBatch;
+    private int outputBatchLen;
+    private OutputFrame.Type outputBatchType;
+    private long outputBatchTime;
+    private Thread outputFlusher;
+    private boolean outputFlusherIdle;
+    private boolean closed;
 
     public BinaryLinkClient(String hostName, int hostPort) throws IOException {
+        this(new Socket(hostName, hostPort));
+    }
+
+    public BinaryLinkClient(File linkFile) throws IOException {
+        this(MappedLinkChannel.open(linkFile));
+    }
+
+    private BinaryLinkClient(Socket socket) throws IOException {
+        this(socket.getInputStream(), socket.getOutputStream(), socket);
+    }
+
+    private BinaryLinkClient(MappedLinkChannel channel) throws IOException {
+        this(channel.getInputStream(), channel.getOutputStream(), channel);
+    }
+
+    private BinaryLinkClient(InputStream is, OutputStream os, Closeable channel) throws IOException {
         this.lock = new Object();
-        this.clientSocket = new Socket(hostName, hostPort);
+        this.channel = channel;
 
-        // Initialize the OOS first, and flush, letting the other party read the stream header.
-        this.oos = new ObjectOutputStream(new BufferedOutputStream(clientSocket.getOutputStream(), BUFFER_SIZE));
-        this.oos.flush();
+        // Initialize the writer first, letting the other party read the stream header.
+        this.writer = LinkProtocol.newWriter(new BufferedOutputStream(os, BUFFER_SIZE));
+        this.reader = LinkProtocol.newReader(new BufferedInputStream(is, BUFFER_SIZE));
 
-        this.ois = new ObjectInputStream(new BufferedInputStream(clientSocket.getInputStream(), BUFFER_SIZE));
+        this.outputBatch = new byte[OUTPUT_BATCH_SIZE];
 
         this.streamErr = new ForwardingPrintStream(OutputFrame.Type.ERR);
         this.streamOut = new ForwardingPrintStream(OutputFrame.Type.OUT);
@@ -93,23 +122,56 @@ public final class BinaryLinkClient {
             throw new IOException("Link had failed already");
         }
 
-        // It is important to reset the OOS to avoid garbage buildup in internal identity
-        // tables. However, we cannot do that after each frame since the huge referenced
-        // objects like benchmark and iteration parameters will be duplicated on the receiver
-        // side. This is why we reset only each RESET_EACH frames.
-        //
-        // It is as much as important to flush the stream to let the other party know we
-        // pushed something out.
+        synchronized (lock) {
+            try {
+                flushOutput();
+                writer.write(frame);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    private void pushOutput(OutputFrame.Type type, byte[] b, int off, int len) throws IOException {
+        if (failed) {
+            throw new IOException("Link had failed already");
+        }
 
         synchronized (lock) {
             try {
-                if (resetToGo-- < 0) {
-                    oos.reset();
-                    resetToGo = RESET_EACH;
+                if (outputBatchType != type || outputBatchLen + len > outputBatch.length) {
+                    flushOutput();
+                    outputBatchType = type;
+                }
+
+                if (len > outputBatch.length) {
+                    // too large to batch, send directly
+                    writer.writeOutput(type, b, off, len);
+                    return;
                 }
 
-                oos.writeObject(frame);
-                oos.flush();
+                boolean wasEmpty = (outputBatchLen == 0);
+                System.arraycopy(b, off, outputBatch, outputBatchLen, len);
+                outputBatchLen += len;
+
+                for (int i = off + len - 1; i >= off; i--) {
+                    if (b[i] == '\n') {
+                        flushOutput();
+                        return;
+                    }
+                }
+
+                // The partial line stays in the batch, let the flusher know
+                if (wasEmpty) {
+                    outputBatchTime = System.nanoTime();
+                    if (outputFlusher == null) {
+                        outputFlusher = new OutputFlusher();
+                        outputFlusher.start();
+                    } else if (outputFlusherIdle) {
+                        lock.notifyAll();
+                    }
+                }
             } catch (IOException e) {
                 failed = true;
                 throw e;
@@ -117,9 +179,17 @@ public final class BinaryLinkClient {
         }
     }
 
+    private void flushOutput() throws IOException {
+        // should be called under the lock
+        if (outputBatchLen > 0) {
+            writer.writeOutput(outputBatchType, outputBatch, 0, outputBatchLen);
+            outputBatchLen = 0;
+        }
+    }
+
     private Object readFrame() throws IOException, ClassNotFoundException {
         try {
-            return ois.readObject();
+            return reader.read();
         } catch (ClassNotFoundException | IOException ex) {
             failed = true;
             throw ex;
@@ -135,10 +205,13 @@ public final class BinaryLinkClient {
         FileUtils.safelyClose(streamOut);
 
         synchronized (lock) {
-            oos.writeObject(new FinishingFrame());
-            FileUtils.safelyClose(ois);
-            FileUtils.safelyClose(oos);
-            clientSocket.close();
+            closed = true;
+            lock.notifyAll();
+            flushOutput();
+            writer.write(new FinishingFrame());
+            FileUtils.safelyClose(reader);
+            FileUtils.safelyClose(writer);
+            channel.close();
         }
     }
 
@@ -192,22 +265,71 @@ public final class BinaryLinkClient {
         return outputFormat;
     }
 
+    /**
+     * Flushes the partial lines that stayed in the output batch for too long. The thread only
+     * wakes up when there is the partial line in the batch.
+     */
+    private class OutputFlusher extends Thread {
+        OutputFlusher() {
+            setName("JMH-Output-Flusher");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            synchronized (lock) {
+                try {
+                    while (!closed && !failed) {
+                        if (outputBatchLen == 0) {
+                            outputFlusherIdle = true;
+                            lock.wait();
+                            outputFlusherIdle = false;
+                            continue;
+                        }
+
+                        long waitMs = OUTPUT_FLUSH_MS - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - outputBatchTime);
+                        if (waitMs > 0) {
+                            lock.wait(waitMs);
+                        } else {
+                            flushOutput();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // exit
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+        }
+    }
+
     class ForwardingPrintStream extends PrintStream {
         public ForwardingPrintStream(final OutputFrame.Type type) {
             super(new OutputStream() {
+                // PrintStream serializes the writes, so this can be reused
+                private final byte[] single = new byte[1];
+
                 @Override
                 public void write(int b) throws IOException {
-                    pushFrame(new OutputFrame(type, new byte[]{(byte) (b & 0xFF)}));
+                    single[0] = (byte) (b & 0xFF);
+                    pushOutput(type, single, 0, 1);
                 }
 
                 @Override
                 public void write(byte[] b) throws IOException {
-                    pushFrame(new OutputFrame(type, Arrays.copyOf(b, b.length)));
+                    pushOutput(type, b, 0, b.length);
                 }
 
                 @Override
                 public void write(byte[] b, int off, int len) throws IOException {
-                    pushFrame(new OutputFrame(type, Arrays.copyOfRange(b, off, len + off)));
+                    pushOutput(type, b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    synchronized (lock) {
+                        flushOutput();
+                    }
                 }
             });
         }
@@ -32,15 +32,16 @@ import org.openjdk.jmh.runner.Defaults;
 import org.openjdk.jmh.runner.format.OutputFormat;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.VerboseMode;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.TempFile;
 import org.openjdk.jmh.util.Utils;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -50,6 +51,8 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -61,10 +64,16 @@ import java.util.concurrent.atomic.AtomicReference;
  * Accepts the binary data from the forked VM and pushes it to parent VM
  * as appropriate. This server assumes there is only the one and only
  * client at any given point of time.
+ *
+ * <p>Forked VM connects either over the loopback socket, or over the shared memory-mapped
+ * file, which spares the syscalls and network stack on every frame. The transport is selected
+ * with {@code -Djmh.link.transport=socket|mmap}.
  */
 public final class BinaryLinkServer {
 
     private static final int BUFFER_SIZE = Integer.getInteger("jmh.link.bufferSize", 64*1024);
+    private static final boolean MAPPED = "mmap".equals(System.getProperty("jmh.link.transport", "socket"));
+    private static final int RING_SIZE = Integer.getInteger("jmh.link.ringSize", 1024*1024);
 
     private final Options opts;
     private final OutputFormat out;
@@ -77,6 +86,8 @@ public final class BinaryLinkServer {
     private final AtomicReference<BenchmarkException> exception;
     private final AtomicReference<ActionPlan> plan;
     private volatile long clientPid;
+    private volatile long planRequestTime;
+    private volatile Runnable finishListener;
 
     public BinaryLinkServer(Options opts, OutputFormat out) throws IOException {
         this.opts = opts;
@@ -98,8 +109,13 @@ public final class BinaryLinkServer {
             }
         }
 
-        acceptor = new Acceptor();
-        acceptor.start();
+        if (MAPPED) {
+            // forked VMs attach to the link files, see getClientArgs()
+            acceptor = null;
+        } else {
+            acceptor = new Acceptor();
+            acceptor.start();
+        }
 
         handler = new AtomicReference<>();
         metadata = new AtomicReference<>();
@@ -109,15 +125,21 @@ public final class BinaryLinkServer {
     }
 
     public void terminate() {
-        acceptor.close();
+        if (acceptor != null) {
+            acceptor.close();
+        }
 
         Handler h = handler.getAndSet(null);
         if (h != null) {
             h.close();
+            // the handler may be still waiting for the plan
+            h.interrupt();
         }
 
         try {
-            acceptor.join();
+            if (acceptor != null) {
+                acceptor.join();
+            }
             if (h != null) {
                 h.join();
             }
@@ -126,9 +148,15 @@ public final class BinaryLinkServer {
         }
     }
 
+    /**
+     * Waits for the handler to complete, once the forked VM had exited.
+     */
     public void waitFinish() {
         Handler h = handler.getAndSet(null);
         if (h != null) {
+            // Shared memory link would not tell us the forked VM is gone: consume
+            // what it had written, and stop.
+            h.shutdownInput();
             try {
                 h.join();
             } catch (InterruptedException e) {
@@ -155,7 +183,40 @@ public final class BinaryLinkServer {
     }
 
     public void setPlan(ActionPlan actionPlan) {
-        this.plan.set(actionPlan);
+        synchronized (plan) {
+            this.plan.set(actionPlan);
+            plan.notifyAll();
+        }
+    }
+
+    private ActionPlan awaitPlan() throws InterruptedException {
+        synchronized (plan) {
+            while (plan.get() == null) {
+                plan.wait();
+            }
+            return plan.get();
+        }
+    }
+
+    /**
+     * Sets the listener to be called once the forked VM reports it had completed all
+     * iterations. The listener is called on the link handler thread.
+     *
+     * @param listener listener to call
+     */
+    public void setFinishListener(Runnable listener) {
+        this.finishListener = listener;
+    }
+
+    /**
+     * Forked VM asks for the plan once it had booted and completed the handshake.
+     * The plan may be set later than requested, in which case forked VM is idle
+     * and waits for it.
+     *
+     * @return {@link System#nanoTime()} timestamp of action plan request; 0, if not requested yet
+     */
+    public long getPlanRequestTime() {
+        return planRequestTime;
     }
 
     private InetAddress getListenAddress() {
@@ -260,31 +321,59 @@ public final class BinaryLinkServer {
         return acceptor.getPort();
     }
 
+    /**
+     * Returns the arguments the forked VM needs to connect back to this server.
+     * With shared memory transport, this prepares the link for the next forked VM.
+     *
+     * @return forked VM arguments
+     * @throws IOException if link cannot be prepared
+     */
+    public List<String> getClientArgs() throws IOException {
+        if (acceptor != null) {
+            return Arrays.asList(getHost(), String.valueOf(getPort()));
+        }
+
+        Handler h = handler.get();
+        if (h == null) {
+            TempFile file = FileUtils.weakTempFile("link");
+            MappedLinkChannel channel = MappedLinkChannel.create(file.file(), RING_SIZE);
+            h = new Handler(channel.getInputStream(), channel.getOutputStream(), channel, file);
+            if (!handler.compareAndSet(null, h)) {
+                throw new IllegalStateException("The handler is already registered");
+            }
+            h.start();
+        }
+        return Collections.singletonList(h.file.getAbsolutePath());
+    }
+
     private final class Handler extends Thread {
         private final InputStream is;
-        private final Socket socket;
-        private ObjectInputStream ois;
         private final OutputStream os;
-        private ObjectOutputStream oos;
+        private final Closeable channel;
+        private final TempFile file;
+        private FrameWriter writer;
 
         public Handler(Socket socket) throws IOException {
-            this.socket = socket;
-            this.is = socket.getInputStream();
-            this.os = socket.getOutputStream();
+            this(socket.getInputStream(), socket.getOutputStream(), socket, null);
+        }
 
-            // eager OOS initialization, let the other party read the stream header
-            oos = new ObjectOutputStream(new BufferedOutputStream(os, BUFFER_SIZE));
-            oos.flush();
+        public Handler(InputStream is, OutputStream os, Closeable channel, TempFile file) {
+            this.is = is;
+            this.os = os;
+            this.channel = channel;
+            this.file = file;
         }
 
         @Override
         public void run() {
             try {
-                // late OIS initialization, otherwise we'll block reading the header
-                ois = new ObjectInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+                // Forked VM writes the stream header first: detect the protocol it speaks,
+                // and reply in the same protocol.
+                FrameReader reader = LinkProtocol.newReader(new BufferedInputStream(is, BUFFER_SIZE));
+                writer = LinkProtocol.newWriter(new BufferedOutputStream(os, BUFFER_SIZE), LinkProtocol.isBinary(reader));
 
                 Object obj;
-                while ((obj = ois.readObject()) != null) {
+                while ((obj = reader.read()) != null) {
                     if (obj instanceof OutputFormatFrame) {
                         handleOutputFormat((OutputFormatFrame) obj);
                     }
@@ -311,7 +400,7 @@ public final class BinaryLinkServer {
                         break;
                     }
                 }
-            } catch (EOFException e) {
+            } catch (EOFException | InterruptedException e) {
                 // ignore
             } catch (Exception e) {
                 out.println("<binary link had failed, forked VM corrupted the stream? Use " + VerboseMode.EXTRA + " verbose to print exception>");
@@ -325,6 +414,11 @@ public final class BinaryLinkServer {
 
         private void handleResultMetadata(ResultMetadataFrame obj) {
             metadata.set(obj.getMD());
+
+            Runnable l = finishListener;
+            if (l != null) {
+                l.run();
+            }
         }
 
         private void handleOutput(OutputFrame obj) {
@@ -352,15 +446,14 @@ public final class BinaryLinkServer {
 
         private void handleHandshake(HandshakeInitFrame obj) throws IOException {
             clientPid = obj.getPid();
-            oos.writeObject(new HandshakeResponseFrame(opts));
-            oos.flush();
+            writer.write(new HandshakeResponseFrame(opts));
         }
 
-        private void handleInfra(InfraFrame req) throws IOException {
+        private void handleInfra(InfraFrame req) throws IOException, InterruptedException {
             switch (req.getType()) {
                 case ACTION_PLAN_REQUEST:
-                    oos.writeObject(new ActionPlanFrame(plan.get()));
-                    oos.flush();
+                    planRequestTime = System.nanoTime();
+                    writer.write(new ActionPlanFrame(awaitPlan()));
                     break;
                 default:
                     throw new IllegalStateException("Unknown infrastructure request: " + req);
@@ -383,12 +476,21 @@ public final class BinaryLinkServer {
             return false;
         }
 
+        public void shutdownInput() {
+            if (channel instanceof MappedLinkChannel) {
+                ((MappedLinkChannel) channel).shutdownInput();
+            }
+        }
+
         public void close() {
             try {
-                socket.close();
+                channel.close();
             } catch (IOException e) {
                 // ignore
             }
+            if (file != null) {
+                file.delete();
+            }
         }
 
     }
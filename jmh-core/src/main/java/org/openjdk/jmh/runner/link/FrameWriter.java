@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Writes the frames to the binary link.
+ */
+interface FrameWriter extends Closeable {
+
+    /**
+     * Writes the frame, and flushes it to the other party.
+     * @param frame frame to write
+     * @throws IOException if link fails
+     */
+    void write(Serializable frame) throws IOException;
+
+    /**
+     * Writes the chunk of forwarded output, and flushes it to the other party.
+     * This is the same as writing {@link OutputFrame}, but does not require the copy of the data.
+     * @param type output type
+     * @param b data
+     * @param off offset in data
+     * @param len length of data
+     * @throws IOException if link fails
+     */
+    void writeOutput(OutputFrame.Type type, byte[] b, int off, int len) throws IOException;
+
+}
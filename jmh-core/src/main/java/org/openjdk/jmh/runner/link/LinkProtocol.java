@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import java.io.*;
+
+/**
+ * Link protocol selection. Forked VM opens the link with its preferred protocol, and
+ * the host detects the protocol from the stream header, and replies in the same protocol.
+ *
+ * <p>Two protocols are available: the compact binary protocol with hand-written codecs
+ * for the frequent frames, and the Java serialization protocol, which is kept as the
+ * fallback. The protocol is selected with {@code -Djmh.link.protocol=binary|serial}.
+ */
+final class LinkProtocol {
+
+    static final int MAGIC = 0x4A4D484C;
+
+    // Binary protocol: every frame is the int length, followed by the frame type and its payload.
+    static final int FRAME_HANDSHAKE_INIT = 1;
+    static final int FRAME_INFRA = 2;
+    static final int FRAME_RESULTS = 3;
+    static final int FRAME_OUTPUT = 4;
+    static final int FRAME_OUTPUT_FORMAT = 5;
+    static final int FRAME_FINISHING = 6;
+    static final int FRAME_SERIALIZED = 7;
+
+    // Binary protocol: value types in the frames.
+    static final int VALUE_NULL = 0;
+    static final int VALUE_STRING = 1;
+    static final int VALUE_LONG_STRING = 2;
+    static final int VALUE_INT = 3;
+    static final int VALUE_LONG = 4;
+    static final int VALUE_DOUBLE = 5;
+    static final int VALUE_BOOLEAN = 6;
+    static final int VALUE_REF = 7;
+    static final int VALUE_REF_DEFINE = 8;
+    static final int VALUE_ITERATION_RESULT = 9;
+    static final int VALUE_RESULT = 10;
+    static final int VALUE_SERIALIZED = 11;
+
+    // Binary protocol: frames above this size are treated as the stream corruption.
+    static final int MAX_FRAME_SIZE = Integer.getInteger("jmh.link.maxFrameSize", 256 * 1024 * 1024);
+
+    private static final int SERIAL_MAGIC = ObjectStreamConstants.STREAM_MAGIC & 0xFFFF;
+
+    private static final boolean BINARY = !"serial".equals(System.getProperty("jmh.link.protocol", "binary"));
+
+    private LinkProtocol() {
+        // prevent instantiation
+    }
+
+    /**
+     * Opens the writer with the preferred protocol, and writes the stream header.
+     * @param os output stream
+     * @return writer
+     * @throws IOException if link fails
+     */
+    static FrameWriter newWriter(OutputStream os) throws IOException {
+        return newWriter(os, BINARY);
+    }
+
+    static FrameWriter newWriter(OutputStream os, boolean binary) throws IOException {
+        if (binary) {
+            return new BinaryFrameWriter(os);
+        } else {
+            return new SerialFrameWriter(os);
+        }
+    }
+
+    /**
+     * Opens the reader, detecting the protocol from the stream header.
+     * This blocks until the other party writes the stream header.
+     * @param is input stream, should support mark/reset
+     * @return reader
+     * @throws IOException if link fails, or the protocol is unknown
+     */
+    static FrameReader newReader(InputStream is) throws IOException {
+        is.mark(2);
+        int b1 = is.read();
+        int b2 = is.read();
+        is.reset();
+        if (b1 < 0 || b2 < 0) {
+            throw new EOFException();
+        }
+
+        if (((b1 << 8) | b2) == SERIAL_MAGIC) {
+            return new SerialFrameReader(is);
+        }
+
+        int magic = new DataInputStream(is).readInt();
+        if (magic != MAGIC) {
+            throw new StreamCorruptedException("Unknown link protocol: " + Integer.toHexString(magic));
+        }
+        return new BinaryFrameReader(is);
+    }
+
+    static boolean isBinary(FrameReader reader) {
+        return reader instanceof BinaryFrameReader;
+    }
+
+}
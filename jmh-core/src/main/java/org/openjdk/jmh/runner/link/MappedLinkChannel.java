@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import sun.misc.Unsafe;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Link channel over the memory-mapped file.
+ *
+ * <p>The file holds two single-producer, single-consumer ring buffers: one carries the data
+ * from forked VM to host, and another one from host to forked VM. Writer copies the data
+ * into the ring and publishes the new tail, reader polls for the tail and publishes the
+ * new head. Neither side does system calls while the ring has space and data, which keeps
+ * the forked VM quiet while the benchmark runs, and requires no network access at all.
+ *
+ * <p>Since the other party cannot be notified by the OS when the channel is gone, the ring
+ * carries the "closed" flag set by the writer. Host also closes the input from the forked VM
+ * itself once forked VM had exited, and the forked VM stops waiting when the file is deleted.
+ */
+class MappedLinkChannel implements Closeable {
+
+    private static final Unsafe U;
+
+    static {
+        try {
+            Field unsafe = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafe.setAccessible(true);
+            U = (Unsafe) unsafe.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final int MAGIC = 0x4A4D484D;
+
+    // File layout: magic and capacity, then the control words for both rings, every
+    // control word on its own cache line, and then the data for both rings.
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int CONTROL_OFFSET = 64;
+    private static final int CONTROL_SIZE = 3 * 64;
+    private static final int HEADER_SIZE = CONTROL_OFFSET + 2 * CONTROL_SIZE;
+
+    private static final int TO_HOST = 0;
+    private static final int TO_FORK = 1;
+
+    private static final long FILE_CHECK_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final File file;
+    private final MappedByteBuffer buf;
+    private final Ring in;
+    private final Ring out;
+    private volatile boolean closed;
+
+    private MappedLinkChannel(File file, MappedByteBuffer buf, int capacity, boolean host) {
+        this.file = file;
+        this.buf = buf;
+        this.in = new Ring(host ? TO_HOST : TO_FORK, capacity);
+        this.out = new Ring(host ? TO_FORK : TO_HOST, capacity);
+    }
+
+    /**
+     * Creates the channel file, host side.
+     * @param file file to create
+     * @param capacity capacity of each ring, in bytes
+     * @return channel
+     * @throws IOException if file cannot be created
+     */
+    static MappedLinkChannel create(File file, int capacity) throws IOException {
+        MappedByteBuffer buf = map(file, HEADER_SIZE + 2L * capacity);
+        buf.putInt(CAPACITY_OFFSET, capacity);
+        U.storeFence();
+        buf.putInt(0, MAGIC);
+        return new MappedLinkChannel(file, buf, capacity, true);
+    }
+
+    /**
+     * Opens the channel file created by the host, forked VM side.
+     * @param file file to open
+     * @return channel
+     * @throws IOException if file cannot be opened
+     */
+    static MappedLinkChannel open(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("Link file does not exist: " + file);
+        }
+        MappedByteBuffer buf = map(file, file.length());
+        if (buf.getInt(0) != MAGIC) {
+            throw new StreamCorruptedException("Not a link file: " + file);
+        }
+        U.loadFence();
+        return new MappedLinkChannel(file, buf, buf.getInt(CAPACITY_OFFSET), false);
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    InputStream getInputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int r = read(b, 0, 1);
+                return (r < 0) ? -1 : (b[0] & 0xFF);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                return in.available();
+            }
+        };
+    }
+
+    OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Declares the other party had finished writing. Reader returns the pending data,
+     * and then reports the end of stream.
+     */
+    void shutdownInput() {
+        in.markClosed();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            out.markClosed();
+        }
+    }
+
+    private final class Ring {
+        private final int headOffset;
+        private final int tailOffset;
+        private final int closedOffset;
+        private final int dataOffset;
+        private final int capacity;
+        private final ByteBuffer data;
+
+        Ring(int index, int capacity) {
+            int control = CONTROL_OFFSET + index * CONTROL_SIZE;
+            this.headOffset = control;
+            this.tailOffset = control + 64;
+            this.closedOffset = control + 128;
+            this.dataOffset = HEADER_SIZE + index * capacity;
+            this.capacity = capacity;
+            this.data = buf.duplicate();
+        }
+
+        private long head() {
+            long v = buf.getLong(headOffset);
+            U.loadFence();
+            return v;
+        }
+
+        private long tail() {
+            long v = buf.getLong(tailOffset);
+            U.loadFence();
+            return v;
+        }
+
+        private boolean isClosed() {
+            int v = buf.getInt(closedOffset);
+            U.loadFence();
+            return v != 0;
+        }
+
+        void markClosed() {
+            U.storeFence();
+            buf.putInt(closedOffset, 1);
+            U.fullFence();
+        }
+
+        int available() {
+            return (int) (tail() - head());
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            Backoff backoff = null;
+            while (len > 0) {
+                if (closed || isClosed()) {
+                    throw new EOFException("Link is closed");
+                }
+
+                long tail = buf.getLong(tailOffset);
+                int free = (int) (capacity - (tail - head()));
+                if (free == 0) {
+                    if (backoff == null) {
+                        backoff = new Backoff();
+                    }
+                    backoff.idle();
+                    continue;
+                }
+
+                int idx = (int) (tail % capacity);
+                int n = Math.min(len, Math.min(free, capacity - idx));
+                ((Buffer) data).position(dataOffset + idx);
+                data.put(b, off, n);
+
+                // publish the data before the tail
+                U.storeFence();
+                buf.putLong(tailOffset, tail + n);
+
+                off += n;
+                len -= n;
+            }
+        }
+
+        int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            Backoff backoff = null;
+            while (true) {
+                long head = buf.getLong(headOffset);
+                int avail = (int) (tail() - head);
+                if (avail > 0) {
+                    int idx = (int) (head % capacity);
+                    int n = Math.min(len, Math.min(avail, capacity - idx));
+                    ((Buffer) data).position(dataOffset + idx);
+                    data.get(b, off, n);
+
+                    // complete reading the data before releasing the space
+                    U.fullFence();
+                    buf.putLong(headOffset, head + n);
+                    return n;
+                }
+
+                // closed flag is published after the data, re-check the data after seeing it
+                if (isClosed()) {
+                    if (tail() == head) {
+                        return -1;
+                    }
+                    continue;
+                }
+
+                if (closed) {
+                    return -1;
+                }
+
+                if (backoff == null) {
+                    backoff = new Backoff();
+                }
+                backoff.idle();
+            }
+        }
+    }
+
+    /**
+     * Waits for the other party: spins for a while, then yields, then parks for progressively
+     * longer times. Also checks if the link file is still there, once in a while.
+     */
+    private final class Backoff {
+        private static final int SPINS = 100;
+        private static final int YIELDS = 100;
+        private static final long MIN_PARK_NS = 10_000;
+        private static final long MAX_PARK_NS = 1_000_000;
+
+        private int count;
+        private long parkNs = MIN_PARK_NS;
+        private long lastCheck = System.nanoTime();
+
+        void idle() throws IOException {
+            count++;
+            if (count < SPINS) {
+                return;
+            }
+            if (count < SPINS + YIELDS) {
+                Thread.yield();
+                return;
+            }
+
+            LockSupport.parkNanos(parkNs);
+            parkNs = Math.min(MAX_PARK_NS, parkNs * 2);
+
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting on the link");
+            }
+
+            long now = System.nanoTime();
+            if (now - lastCheck > FILE_CHECK_INTERVAL_NS) {
+                lastCheck = now;
+                if (!file.exists()) {
+                    throw new EOFException("Link file is gone: " + file);
+                }
+            }
+        }
+    }
+
+}
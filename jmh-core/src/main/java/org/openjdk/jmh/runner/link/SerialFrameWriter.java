@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Writes the frames with Java serialization.
+ */
+class SerialFrameWriter implements FrameWriter {
+
+    private static final int RESET_EACH = Integer.getInteger("jmh.link.resetEach", 100);
+
+    private final ObjectOutputStream oos;
+    private int resetToGo;
+
+    SerialFrameWriter(OutputStream os) throws IOException {
+        // Initialize the OOS first, and flush, letting the other party read the stream header.
+        this.oos = new ObjectOutputStream(os);
+        this.oos.flush();
+    }
+
+    @Override
+    public void write(Serializable frame) throws IOException {
+        // It is important to reset the OOS to avoid garbage buildup in internal identity
+        // tables. However, we cannot do that after each frame since the huge referenced
+        // objects like benchmark and iteration parameters will be duplicated on the receiver
+        // side. This is why we reset only each RESET_EACH frames.
+        //
+        // It is as much as important to flush the stream to let the other party know we
+        // pushed something out.
+        if (resetToGo-- < 0) {
+            oos.reset();
+            resetToGo = RESET_EACH;
+        }
+
+        oos.writeObject(frame);
+        oos.flush();
+    }
+
+    @Override
+    public void writeOutput(OutputFrame.Type type, byte[] b, int off, int len) throws IOException {
+        write(new OutputFrame(type, Arrays.copyOfRange(b, off, off + len)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        oos.close();
+    }
+
+}
@@ -89,6 +89,25 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder result(String filename);
 
+    /**
+     * Journal filename to record the completed forks to. The journal is synced to disk
+     * after every fork, and the run can be resumed from it after the crash.
+     * @param filename file name
+     * @return builder
+     * @see #resume(String)
+     */
+    ChainedOptionsBuilder journal(String filename);
+
+    /**
+     * Resume the run from the given journal: forks that are recorded in the journal
+     * are not run again, and their results are merged into the run results. Unless
+     * the other journal is requested, new forks are appended to the same journal.
+     * @param filename journal file name
+     * @return builder
+     * @see #journal(String)
+     */
+    ChainedOptionsBuilder resume(String filename);
+
     /**
      * Should do GC between measurementIterations?
      * @param value flag
@@ -351,4 +370,63 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder timeout(TimeValue value);
 
+    /**
+     * Measure adaptively, until the score error at 99.9% confidence drops below the given
+     * fraction of the score. Measurement iteration count and fork count then become the budgets:
+     * neither is exceeded, even if the target error is not reached.
+     * @param relativeError target error, e.g. 0.01 for 1% error
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#ADAPTIVE_MIN_ITERATIONS
+     */
+    ChainedOptionsBuilder measurementTargetError(double relativeError);
+
+    /**
+     * Should warmup continue until the benchmark reaches steady state? Warmup then stops
+     * as soon as the scores stop drifting, but not earlier than the minimal number of warmup
+     * iterations, and not later than warmup iteration count.
+     * @param value flag
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#WARMUP_STEADY_STATE
+     */
+    ChainedOptionsBuilder warmupUntilSteadyState(boolean value);
+
+    /**
+     * Target arrival rate for {@link org.openjdk.jmh.annotations.Mode#OpenLoop} mode. The rate is
+     * split evenly between worker threads, and each thread issues its operations on a fixed schedule,
+     * regardless of how long the previous operations took.
+     * @param opsPerSecond total operations per second over all worker threads
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#ARRIVAL_RATE
+     */
+    ChainedOptionsBuilder arrivalRate(double opsPerSecond);
+
+    /**
+     * Should JMH sweep the thread count? When enabled, each benchmark runs with 1, 2, 4, ... worker
+     * threads, up to the thread count set with {@link #threads(int)}, or up to the number of available
+     * CPUs when the thread count is not set. The Universal Scalability Law is then fitted to the
+     * throughput curve.
+     * @param value flag
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#THREAD_SCALING
+     */
+    ChainedOptionsBuilder threadScaling(boolean value);
+
+    /**
+     * Latency bound for the saturation search. When set, each {@link org.openjdk.jmh.annotations.Mode#OpenLoop}
+     * benchmark is run repeatedly at different arrival rates, starting from {@link #arrivalRate(double)}, to find
+     * the highest rate at which the latency percentile stays within the bound.
+     * @param bound latency bound
+     * @return builder
+     * @see #latencyPercentile(double)
+     */
+    ChainedOptionsBuilder latencyBound(TimeValue bound);
+
+    /**
+     * Latency percentile to check against {@link #latencyBound(TimeValue)} in the saturation search.
+     * @param percentile percentile, in (0; 100]
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#LATENCY_PERCENTILE
+     */
+    ChainedOptionsBuilder latencyPercentile(double percentile);
+
 }
@@ -46,13 +46,19 @@ public class CommandLineOptions implements Options {
 
     private final Optional<Integer> iterations;
     private final Optional<TimeValue> timeout;
+    private final Optional<Double> targetError;
     private final Optional<TimeValue> runTime;
     private final Optional<Integer> batchSize;
     private final Optional<Integer> warmupIterations;
     private final Optional<TimeValue> warmupTime;
+    private final Optional<Boolean> warmupSteadyState;
+    private final Optional<Double> arrivalRate;
+    private final Optional<TimeValue> latencyBound;
+    private final Optional<Double> latencyPercentile;
     private final Optional<Integer> warmupBatchSize;
     private final List<Mode> benchMode = new ArrayList<>();
     private final Optional<Integer> threads;
+    private final Optional<Boolean> threadScaling;
     private final List<Integer> threadGroups = new ArrayList<>();
     private final Optional<Boolean> synchIterations;
     private final Optional<Boolean> gcEachIteration;
@@ -66,6 +72,8 @@ public class CommandLineOptions implements Options {
     private final Optional<Integer> warmupFork;
     private final Optional<String> output;
     private final Optional<String> result;
+    private final Optional<String> journal;
+    private final Optional<String> resumeJournal;
     private final Optional<ResultFormatType> resultFormat;
     private final Optional<String> jvm;
     private final Optional<Collection<String>> jvmArgs;
@@ -130,6 +138,28 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.TIMEOUT + ")")
                 .withRequiredArg().ofType(TimeValue.class).describedAs("time");
 
+        OptionSpec<Double> optTargetError = parser.accepts("te", "Target relative error for adaptive measurement, " +
+                "e.g. 0.01 for 1%. Measurement continues until the score error at 99.9% confidence drops below this " +
+                "fraction of the score. Measurement iteration count (-i) and fork count (-f) become the upper bounds. " +
+                "(default: none, measure fixed number of iterations)")
+                .withRequiredArg().ofType(Double.class).describedAs("double");
+
+        OptionSpec<Double> optArrivalRate = parser.accepts("rate", "Target arrival rate for " + Mode.OpenLoop +
+                " mode, total operations per second over all worker threads. Each thread issues its operations on " +
+                "a fixed schedule, and the time for each operation is measured from its intended start time. " +
+                "(default: " + Defaults.ARRIVAL_RATE + ")")
+                .withRequiredArg().ofType(Double.class).describedAs("double");
+
+        OptionSpec<TimeValue> optLatencyBound = parser.accepts("lb", "Latency bound for the saturation search. " +
+                "When set, each " + Mode.OpenLoop + " benchmark is run repeatedly at different arrival rates, " +
+                "starting from -rate, to find the highest rate at which the latency percentile (-lp) stays within " +
+                "the bound. (default: none, run at the fixed rate)")
+                .withRequiredArg().ofType(TimeValue.class).describedAs("time");
+
+        OptionSpec<Double> optLatencyPercentile = parser.accepts("lp", "Latency percentile to check against the " +
+                "latency bound (-lb) in the saturation search. (default: " + Defaults.LATENCY_PERCENTILE + ")")
+                .withRequiredArg().ofType(Double.class).describedAs("double");
+
         OptionSpec<Integer> optThreads = parser.accepts("t", "Number of worker threads to run with. 'max' means the " +
                 "maximum number of hardware threads available on the machine, figured out by JMH itself. " +
                 "(default: " + Defaults.THREADS + ")")
@@ -145,6 +175,18 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.SYNC_ITERATIONS + ")")
                 .withRequiredArg().ofType(Boolean.class).describedAs("bool");
 
+        OptionSpec<Boolean> optThreadScaling = parser.accepts("tscale", "Should JMH sweep the thread count? " +
+                "Each benchmark runs with 1, 2, 4, ... threads up to -t, or up to the number of available CPUs, " +
+                "and the Universal Scalability Law is fitted to the throughput curve. " +
+                "(default: " + Defaults.THREAD_SCALING + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
+        OptionSpec<Boolean> optWarmupSteadyState = parser.accepts("wss", "Should JMH warmup until the benchmark " +
+                "reaches steady state? Warmup stops once the iteration scores stop drifting, but not earlier than " +
+                Defaults.STEADY_STATE_WINDOW + " iterations. Warmup iteration count (-wi) becomes the upper bound. " +
+                "(default: " + Defaults.WARMUP_STEADY_STATE + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
         OptionSpec<Boolean> optGC = parser.accepts("gc", "Should JMH force GC between iterations? Forcing the GC may " +
                 "help to lower the noise in GC-heavy benchmarks, at the expense of jeopardizing GC ergonomics " +
                 "decisions. Use with care. " +
@@ -186,6 +228,17 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.RESULT_FILE_PREFIX + ".<result-format>)")
                 .withRequiredArg().ofType(String.class).describedAs("filename");
 
+        OptionSpec<String> optJournal = parser.accepts("journal", "Record the completed forks to a given journal file. " +
+                "The journal is synced to disk after every fork, so that the long run can be resumed after the crash. " +
+                "(default: none, unless resuming)")
+                .withRequiredArg().ofType(String.class).describedAs("filename");
+
+        OptionSpec<String> optResume = parser.accepts("resume", "Resume the run from a given journal file. The forks " +
+                "recorded in the journal are not run again, and their results are merged into the run results. New forks " +
+                "are appended to the same journal, unless -journal is given. " +
+                "(default: none)")
+                .withRequiredArg().ofType(String.class).describedAs("filename");
+
         OptionSpec<String> optProfilers = parser.accepts("prof", "Use profilers to collect additional benchmark data. " +
                 "Some profilers are not available on all JVMs and/or all OSes. Please see the list of available " +
                 "profilers with -lprof.")
@@ -319,10 +372,25 @@ public class CommandLineOptions implements Options {
             batchSize = toOptional(optMeasureBatchSize, set);
             runTime = toOptional(optMeasureTime, set);
             warmupIterations = toOptional(optWarmupCount, set);
+            warmupSteadyState = toOptional(optWarmupSteadyState, set);
             warmupBatchSize = toOptional(optWarmupBatchSize, set);
             warmupTime = toOptional(optWarmupTime, set);
             timeout = toOptional(optTimeoutTime, set);
+            targetError = toOptional(optTargetError, set);
+            if (targetError.hasValue() && !(targetError.get() > 0)) {
+                throw new CommandLineOptionException("Target error should be positive, but it is " + targetError.get());
+            }
+            arrivalRate = toOptional(optArrivalRate, set);
+            if (arrivalRate.hasValue() && !(arrivalRate.get() > 0)) {
+                throw new CommandLineOptionException("Arrival rate should be positive, but it is " + arrivalRate.get());
+            }
+            latencyBound = toOptional(optLatencyBound, set);
+            latencyPercentile = toOptional(optLatencyPercentile, set);
+            if (latencyPercentile.hasValue() && !(latencyPercentile.get() > 0 && latencyPercentile.get() <= 100)) {
+                throw new CommandLineOptionException("Latency percentile should be in (0; 100], but it is " + latencyPercentile.get());
+            }
             threads = toOptional(optThreads, set);
+            threadScaling = toOptional(optThreadScaling, set);
             synchIterations = toOptional(optSyncIters, set);
             gcEachIteration = toOptional(optGC, set);
             failOnError = toOptional(optFOE, set);
@@ -330,6 +398,8 @@ public class CommandLineOptions implements Options {
             warmupFork = toOptional(optWarmupForks, set);
             output = toOptional(optOutput, set);
             result = toOptional(optOutputResults, set);
+            journal = toOptional(optJournal, set);
+            resumeJournal = toOptional(optResume, set);
 
             if (set.has(optBenchmarkMode)) {
                 try {
@@ -660,4 +730,44 @@ public class CommandLineOptions implements Options {
     public Optional<TimeValue> getTimeout() {
         return timeout;
     }
+
+    @Override
+    public Optional<Double> getMeasurementTargetError() {
+        return targetError;
+    }
+
+    @Override
+    public Optional<Boolean> shouldWarmupUntilSteadyState() {
+        return warmupSteadyState;
+    }
+
+    @Override
+    public Optional<String> getJournal() {
+        return journal;
+    }
+
+    @Override
+    public Optional<String> getResumeJournal() {
+        return resumeJournal;
+    }
+
+    @Override
+    public Optional<Double> getArrivalRate() {
+        return arrivalRate;
+    }
+
+    @Override
+    public Optional<Boolean> shouldScaleThreads() {
+        return threadScaling;
+    }
+
+    @Override
+    public Optional<TimeValue> getLatencyBound() {
+        return latencyBound;
+    }
+
+    @Override
+    public Optional<Double> getLatencyPercentile() {
+        return latencyPercentile;
+    }
 }
@@ -65,6 +65,18 @@ public interface Options extends Serializable {
      */
     Optional<String> getResult();
 
+    /**
+     * Which file to use for the journal of completed forks
+     * @return file name
+     */
+    Optional<String> getJournal();
+
+    /**
+     * Which journal to resume the run from
+     * @return file name
+     */
+    Optional<String> getResumeJournal();
+
     /**
      * Should force GC between iterations?
      * @return should GC?
@@ -244,4 +256,45 @@ public interface Options extends Serializable {
      */
     Optional<TimeValue> getTimeout();
 
+    /**
+     * Target relative error of the measurement. When set, measurement iterations and
+     * forks continue only until the error at 99.9% confidence drops below the target,
+     * and measurement iteration and fork counts become the upper bounds.
+     * @return target error, relative to the score
+     */
+    Optional<Double> getMeasurementTargetError();
+
+    /**
+     * Should warmup continue until the benchmark reaches steady state? When set, warmup
+     * iterations stop once the scores stop drifting, and warmup iteration count becomes
+     * the upper bound.
+     * @return should warmup until steady state?
+     */
+    Optional<Boolean> shouldWarmupUntilSteadyState();
+
+    /**
+     * Target arrival rate for {@link org.openjdk.jmh.annotations.Mode#OpenLoop} mode:
+     * how many operations per second all worker threads should issue together.
+     * @return arrival rate, ops/s
+     */
+    Optional<Double> getArrivalRate();
+
+    /**
+     * Should JMH sweep the thread count, and fit the scalability model to the results?
+     * @return value
+     */
+    Optional<Boolean> shouldScaleThreads();
+
+    /**
+     * Latency bound for the saturation search.
+     * @return latency bound
+     */
+    Optional<TimeValue> getLatencyBound();
+
+    /**
+     * Latency percentile to check against the latency bound in the saturation search.
+     * @return percentile
+     */
+    Optional<Double> getLatencyPercentile();
+
 }
@@ -173,6 +173,44 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<String> journal = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder journal(String filename) {
+        this.journal = Optional.of(filename);
+        return this;
+    }
+
+    @Override
+    public Optional<String> getJournal() {
+        if (otherOptions != null) {
+            return journal.orAnother(otherOptions.getJournal());
+        } else {
+            return journal;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<String> resumeJournal = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder resume(String filename) {
+        this.resumeJournal = Optional.of(filename);
+        return this;
+    }
+
+    @Override
+    public Optional<String> getResumeJournal() {
+        if (otherOptions != null) {
+            return resumeJournal.orAnother(otherOptions.getResumeJournal());
+        } else {
+            return resumeJournal;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<Boolean> shouldDoGC = Optional.none();
 
     @Override
@@ -717,4 +755,127 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Double> targetError = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder measurementTargetError(double relativeError) {
+        if (!(relativeError > 0)) {
+            throw new IllegalArgumentException("Target error (" + relativeError + ") should be positive");
+        }
+        this.targetError = Optional.of(relativeError);
+        return this;
+    }
+
+    @Override
+    public Optional<Double> getMeasurementTargetError() {
+        if (otherOptions != null) {
+            return targetError.orAnother(otherOptions.getMeasurementTargetError());
+        } else {
+            return targetError;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Boolean> warmupSteadyState = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder warmupUntilSteadyState(boolean value) {
+        warmupSteadyState = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldWarmupUntilSteadyState() {
+        if (otherOptions != null) {
+            return warmupSteadyState.orAnother(otherOptions.shouldWarmupUntilSteadyState());
+        } else {
+            return warmupSteadyState;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Double> arrivalRate = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder arrivalRate(double opsPerSecond) {
+        if (!(opsPerSecond > 0)) {
+            throw new IllegalArgumentException("Arrival rate (" + opsPerSecond + ") should be positive");
+        }
+        this.arrivalRate = Optional.of(opsPerSecond);
+        return this;
+    }
+
+    @Override
+    public Optional<Double> getArrivalRate() {
+        if (otherOptions != null) {
+            return arrivalRate.orAnother(otherOptions.getArrivalRate());
+        } else {
+            return arrivalRate;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Boolean> threadScaling = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder threadScaling(boolean value) {
+        threadScaling = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldScaleThreads() {
+        if (otherOptions != null) {
+            return threadScaling.orAnother(otherOptions.shouldScaleThreads());
+        } else {
+            return threadScaling;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<TimeValue> latencyBound = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder latencyBound(TimeValue bound) {
+        this.latencyBound = Optional.of(bound);
+        return this;
+    }
+
+    @Override
+    public Optional<TimeValue> getLatencyBound() {
+        if (otherOptions != null) {
+            return latencyBound.orAnother(otherOptions.getLatencyBound());
+        } else {
+            return latencyBound;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Double> latencyPercentile = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder latencyPercentile(double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Latency percentile (" + percentile + ") should be in (0; 100]");
+        }
+        this.latencyPercentile = Optional.of(percentile);
+        return this;
+    }
+
+    @Override
+    public Optional<Double> getLatencyPercentile() {
+        if (otherOptions != null) {
+            return latencyPercentile.orAnother(otherOptions.getLatencyPercentile());
+        } else {
+            return latencyPercentile;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Statistics over the histogram cells: distinct values in ascending order, with their counts.
+ * Percentiles are resolved by the binary search over cumulative counts.
+ *
+ * @see SampleHistogram#getStatistics(double)
+ */
+public class HistogramStatistics extends AbstractStatistics {
+    private static final long serialVersionUID = -4528402573734530431L;
+
+    private final double[] values;
+    private final long[] cumulative;
+
+    /**
+     * @param values distinct values, in ascending order
+     * @param counts count for each value
+     */
+    public HistogramStatistics(double[] values, long[] counts) {
+        if (values.length != counts.length) {
+            throw new IllegalArgumentException("Values and counts should have the same length");
+        }
+        this.values = values;
+        this.cumulative = new long[counts.length];
+        long acc = 0;
+        for (int i = 0; i < counts.length; i++) {
+            acc += counts[i];
+            cumulative[i] = acc;
+        }
+    }
+
+    private long countAt(int i) {
+        return (i == 0) ? cumulative[0] : cumulative[i] - cumulative[i - 1];
+    }
+
+    @Override
+    public double getMax() {
+        return (values.length > 0) ? values[values.length - 1] : Double.NaN;
+    }
+
+    @Override
+    public double getMin() {
+        return (values.length > 0) ? values[0] : Double.NaN;
+    }
+
+    @Override
+    public long getN() {
+        return (values.length > 0) ? cumulative[cumulative.length - 1] : 0;
+    }
+
+    @Override
+    public double getSum() {
+        if (values.length > 0) {
+            double sum = 0;
+            for (int i = 0; i < values.length; i++) {
+                sum += values[i] * countAt(i);
+            }
+            return sum;
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    private double get(long index) {
+        int pos = Arrays.binarySearch(cumulative, index);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        return (pos < values.length) ? values[pos] : getMax();
+    }
+
+    @Override
+    public double getPercentile(double rank) {
+        if (rank < 0.0d || rank > 100.0d)
+            throw new IllegalArgumentException("Rank should be within [0; 100]");
+
+        if (rank == 0.0d) {
+            return getMin();
+        }
+
+        double pos = rank * (getN() + 1) / 100;
+        double floorPos = Math.floor(pos);
+
+        double flooredValue = get((long) floorPos);
+        double nextValue = get((long) floorPos + 1);
+
+        return flooredValue + (nextValue - flooredValue) * (pos - floorPos);
+    }
+
+    @Override
+    public double getVariance() {
+        if (getN() > 0) {
+            double v = 0;
+            double m = getMean();
+            for (int i = 0; i < values.length; i++) {
+                v += Math.pow(values[i] - m, 2) * countAt(i);
+            }
+            return v / (getN() - 1);
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public int[] getHistogram(double[] levels) {
+        if (levels.length < 2) {
+            throw new IllegalArgumentException("Expected more than two levels");
+        }
+
+        long[] counts = new long[levels.length - 1];
+
+        int c = 0;
+        values: for (int i = 0; i < values.length; i++) {
+            double v = values[i];
+            while (levels[c] > v || v >= levels[c + 1]) {
+                c++;
+                if (c > levels.length - 2) break values;
+            }
+            counts[c] += countAt(i);
+        }
+
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = (int) Math.min(Integer.MAX_VALUE, counts[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Double, Long>> getRawData() {
+        return new Iterator<Map.Entry<Double, Long>>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < values.length;
+            }
+
+            @Override
+            public Map.Entry<Double, Long> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Double, Long> e = new AbstractMap.SimpleImmutableEntry<>(values[i], countAt(i));
+                i++;
+                return e;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
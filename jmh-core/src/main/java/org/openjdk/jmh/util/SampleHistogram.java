@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+
+/**
+ * Log-linear histogram for non-negative samples.
+ *
+ * <p>Every power-of-two range of values is split into the linear sub-buckets,
+ * enough to keep the given number of significant decimal digits. The sub-buckets
+ * for the range are allocated on the first sample that falls there, so the footprint
+ * depends on the span of the values, not on the number of samples. Counts are longs,
+ * and do not overflow on long runs.</p>
+ *
+ * <p>The histogram is not thread-safe: every thread is expected to record into its
+ * own histogram, and the histograms are merged with {@link #addAll(SampleHistogram)}
+ * afterwards.</p>
+ */
+public class SampleHistogram implements Serializable {
+    private static final long serialVersionUID = 2790167212387254137L;
+
+    /**
+     * Default number of significant decimal digits.
+     */
+    public static final int DEFAULT_DIGITS = Integer.getInteger("jmh.histogramDigits", 3);
+
+    private transient int digits;
+    private transient int subBits;
+    private transient long[][] counts;
+    private transient long total;
+
+    public SampleHistogram() {
+        this(DEFAULT_DIGITS);
+    }
+
+    /**
+     * @param digits number of significant decimal digits to keep, 1..5
+     */
+    public SampleHistogram(int digits) {
+        init(digits);
+    }
+
+    private void init(int digits) {
+        if (digits < 1 || digits > 5) {
+            throw new IllegalArgumentException("Significant digits should be within [1; 5]: " + digits);
+        }
+        long subs = 1;
+        for (int d = 0; d < digits; d++) {
+            subs *= 10;
+        }
+        this.digits = digits;
+        this.subBits = Long.SIZE - Long.numberOfLeadingZeros(subs - 1);
+        this.counts = new long[Long.SIZE - 1 - subBits][];
+        this.total = 0;
+    }
+
+    /**
+     * @return number of significant decimal digits
+     */
+    public int getDigits() {
+        return digits;
+    }
+
+    private int rangeOf(long sample) {
+        return Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(sample) - subBits);
+    }
+
+    private int cellOf(long sample, int range) {
+        return (range == 0) ? (int) sample : (int) (sample >> range) - (1 << subBits);
+    }
+
+    private long valueOf(int range, int cell) {
+        return (range == 0) ? cell : (long) (cell + (1 << subBits)) << range;
+    }
+
+    private long positionOf(int range, int cell) {
+        return (range == 0) ? cell : (1L << subBits) * (range + 1) + cell;
+    }
+
+    private long[] cells(int range) {
+        long[] cs = counts[range];
+        if (cs == null) {
+            cs = new long[(range == 0) ? (2 << subBits) : (1 << subBits)];
+            counts[range] = cs;
+        }
+        return cs;
+    }
+
+    public void add(long sample) {
+        add(sample, 1);
+    }
+
+    /**
+     * Records the sample several times.
+     * @param sample sample; negative samples are recorded as zeros
+     * @param count number of times to record
+     */
+    public void add(long sample, long count) {
+        long s = Math.max(0, sample);
+        int range = rangeOf(s);
+        cells(range)[cellOf(s, range)] += count;
+        total += count;
+    }
+
+    /**
+     * Halves all counts. This is used to keep the relative weights right when
+     * the sampling frequency gets halved. Non-zero counts never get down to zero.
+     */
+    public void half() {
+        long t = 0;
+        for (long[] cs : counts) {
+            if (cs != null) {
+                for (int c = 0; c < cs.length; c++) {
+                    long nV = cs[c] / 2;
+                    if (nV != 0) { // prevent halving to zero
+                        cs[c] = nV;
+                    }
+                    t += cs[c];
+                }
+            }
+        }
+        total = t;
+    }
+
+    public void addAll(SampleHistogram other) {
+        if (other.digits == digits) {
+            for (int r = 0; r < other.counts.length; r++) {
+                long[] ocs = other.counts[r];
+                if (ocs != null) {
+                    long[] cs = cells(r);
+                    for (int c = 0; c < ocs.length; c++) {
+                        cs[c] += ocs[c];
+                    }
+                }
+            }
+            total += other.total;
+        } else {
+            // different resolution, re-record every cell
+            for (int r = 0; r < other.counts.length; r++) {
+                long[] ocs = other.counts[r];
+                if (ocs != null) {
+                    for (int c = 0; c < ocs.length; c++) {
+                        if (ocs[c] != 0) {
+                            add(other.valueOf(r, c), ocs[c]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of recorded samples
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Computes the statistics straight from the buckets; every bucket is represented
+     * with its lower bound.
+     * @param multiplier multiplier to apply to every value
+     * @return statistics
+     */
+    public Statistics getStatistics(double multiplier) {
+        int cells = 0;
+        for (long[] cs : counts) {
+            if (cs != null) {
+                for (long c : cs) {
+                    if (c != 0) {
+                        cells++;
+                    }
+                }
+            }
+        }
+
+        double[] values = new double[cells];
+        long[] cnts = new long[cells];
+        int idx = 0;
+        for (int r = 0; r < counts.length; r++) {
+            long[] cs = counts[r];
+            if (cs == null) continue;
+            for (int c = 0; c < cs.length; c++) {
+                if (cs[c] != 0) {
+                    values[idx] = multiplier * valueOf(r, c);
+                    cnts[idx] = cs[c];
+                    idx++;
+                }
+            }
+        }
+        return new HistogramStatistics(values, cnts);
+    }
+
+    /**
+     * Writes the histogram in the compact binary form: only the non-empty cells are written,
+     * as the variable-length deltas of their positions, and their counts.
+     * @param out output to write to
+     * @throws IOException if output fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        long cells = 0;
+        for (long[] cs : counts) {
+            if (cs != null) {
+                for (long c : cs) {
+                    if (c != 0) {
+                        cells++;
+                    }
+                }
+            }
+        }
+
+        out.writeByte(digits);
+        writeVarLong(out, cells);
+
+        long last = 0;
+        for (int r = 0; r < counts.length; r++) {
+            long[] cs = counts[r];
+            if (cs == null) continue;
+            for (int c = 0; c < cs.length; c++) {
+                if (cs[c] != 0) {
+                    long pos = positionOf(r, c);
+                    writeVarLong(out, pos - last);
+                    writeVarLong(out, cs[c]);
+                    last = pos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the histogram written by {@link #writeTo(DataOutput)}.
+     * @param in input to read from
+     * @return histogram
+     * @throws IOException if input fails
+     */
+    public static SampleHistogram readFrom(DataInput in) throws IOException {
+        SampleHistogram h = new SampleHistogram(in.readUnsignedByte());
+        h.readCells(in);
+        return h;
+    }
+
+    private void readCells(DataInput in) throws IOException {
+        long cells = readVarLong(in);
+        long pos = 0;
+        for (long i = 0; i < cells; i++) {
+            pos += readVarLong(in);
+            long count = readVarLong(in);
+
+            int range = Math.max(0, (int) (pos >> subBits) - 1);
+            int cell = (int) (pos - positionOf(range, 0));
+            if (range >= counts.length) {
+                throw new StreamCorruptedException("Histogram cell is out of range: " + pos);
+            }
+            cells(range)[cell] += count;
+            total += count;
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length value");
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        writeTo(out);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init(in.readUnsignedByte());
+        readCells(in);
+    }
+
+}
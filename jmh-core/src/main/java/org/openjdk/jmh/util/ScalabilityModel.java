@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.io.Serializable;
+
+/**
+ * Universal Scalability Law model of throughput vs. thread count:
+ * {@code X(N) = lambda * N / (1 + sigma * (N - 1) + kappa * N * (N - 1))}.
+ *
+ * <p>The contention coefficient {@code sigma} accounts for the serialized part of the work,
+ * as in Amdahl's law; the coherency coefficient {@code kappa} accounts for the cost of keeping
+ * the shared data consistent between threads, which makes the throughput go down past the peak.
+ * Both coefficients are fitted with least squares over the relative capacity {@code X(N)/X(1)},
+ * and are not allowed to go negative. With {@code kappa = 0}, the model reduces to Amdahl's law.
+ */
+public class ScalabilityModel implements Serializable {
+
+    private static final long serialVersionUID = -2367465185476384823L;
+
+    private final double lambda;
+    private final double sigma;
+    private final double kappa;
+
+    public ScalabilityModel(double lambda, double sigma, double kappa) {
+        this.lambda = lambda;
+        this.sigma = sigma;
+        this.kappa = kappa;
+    }
+
+    /**
+     * Fits the model to the measured throughput.
+     *
+     * @param threads thread counts; should include the single-threaded measurement
+     * @param throughput throughput measured at each thread count
+     * @return fitted model
+     * @throws IllegalArgumentException if there is no single-threaded measurement, or less
+     *                                  than two multi-threaded measurements to fit with
+     */
+    public static ScalabilityModel fit(int[] threads, double[] throughput) {
+        if (threads.length != throughput.length) {
+            throw new IllegalArgumentException("Thread counts and throughput should have the same length");
+        }
+
+        double x1 = Double.NaN;
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i] == 1) {
+                x1 = throughput[i];
+            }
+        }
+        if (!(x1 > 0)) {
+            throw new IllegalArgumentException("Need the positive single-threaded throughput to fit the model");
+        }
+
+        // Linearize: with C(N) = X(N)/X(1), the deviation from linear scaling is
+        //   N/C(N) - 1 = kappa * (N-1)^2 + (sigma + kappa) * (N-1),
+        // which is the quadratic through the origin.
+        double s4 = 0, s3 = 0, s2 = 0, t2 = 0, t1 = 0;
+        int points = 0;
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i] <= 1 || !(throughput[i] > 0)) continue;
+            double x = threads[i] - 1;
+            double y = threads[i] * x1 / throughput[i] - 1;
+            s4 += x * x * x * x;
+            s3 += x * x * x;
+            s2 += x * x;
+            t2 += x * x * y;
+            t1 += x * y;
+            points++;
+        }
+
+        double det = s4 * s2 - s3 * s3;
+        if (points < 2 || det == 0) {
+            throw new IllegalArgumentException("Need at least two multi-threaded measurements to fit the model");
+        }
+
+        double a = (t2 * s2 - t1 * s3) / det;
+        double b = (s4 * t1 - s3 * t2) / det;
+
+        double kappa = a;
+        double sigma = b - a;
+
+        if (kappa < 0) {
+            // no retrograde scaling: Amdahl's law
+            kappa = 0;
+            sigma = t1 / s2;
+        }
+
+        if (sigma < 0) {
+            // no contention, coherency only: y = kappa * (x^2 + x)
+            double num = 0, den = 0;
+            for (int i = 0; i < threads.length; i++) {
+                if (threads[i] <= 1 || !(throughput[i] > 0)) continue;
+                double x = threads[i] - 1;
+                double y = threads[i] * x1 / throughput[i] - 1;
+                num += (x * x + x) * y;
+                den += (x * x + x) * (x * x + x);
+            }
+            sigma = 0;
+            kappa = Math.max(0, num / den);
+        }
+
+        // Scale the curve to all the measurements, not only to the single-threaded one.
+        double num = 0, den = 0;
+        for (int i = 0; i < threads.length; i++) {
+            double d = new ScalabilityModel(1, sigma, kappa).predict(threads[i]);
+            num += throughput[i] * d;
+            den += d * d;
+        }
+
+        return new ScalabilityModel(num / den, sigma, kappa);
+    }
+
+    /**
+     * @return throughput of a single thread, with no contention and coherency costs
+     */
+    public double getLambda() {
+        return lambda;
+    }
+
+    /**
+     * @return contention coefficient, sigma
+     */
+    public double getContention() {
+        return sigma;
+    }
+
+    /**
+     * @return coherency coefficient, kappa
+     */
+    public double getCoherency() {
+        return kappa;
+    }
+
+    /**
+     * @param threads thread count
+     * @return throughput predicted for the thread count
+     */
+    public double predict(double threads) {
+        return lambda * threads / (1 + sigma * (threads - 1) + kappa * threads * (threads - 1));
+    }
+
+    /**
+     * @return thread count at which the predicted throughput peaks;
+     *         {@link Double#POSITIVE_INFINITY} if the throughput never goes down
+     */
+    public double getPeakThreads() {
+        if (kappa <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(1, Math.sqrt(Math.max(0, 1 - sigma) / kappa));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lambda = %.3f, sigma = %.5f, kappa = %.7f", lambda, sigma, kappa);
+    }
+
+}
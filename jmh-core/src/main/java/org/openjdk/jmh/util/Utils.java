@@ -31,6 +31,9 @@ import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.regex.Pattern;
@@ -113,6 +116,26 @@ public class Utils {
         return join(Arrays.asList(src), delim);
     }
 
+    /**
+     * Digests the string into the short hex key, suitable for the file name.
+     *
+     * @param src string to digest
+     * @return first 10 bytes of SHA-1 digest of UTF-8 bytes, in hex
+     */
+    public static String shortHash(String src) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(src.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                hex.append(String.format("%02x", digest[i] & 0xFF));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static Collection<String> splitQuotedEscape(String src) {
         List<String> results = new ArrayList<>();
 
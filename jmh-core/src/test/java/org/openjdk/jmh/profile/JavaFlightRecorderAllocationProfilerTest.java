@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class JavaFlightRecorderAllocationProfilerTest {
+
+    @Test
+    public void typeNames() {
+        Assert.assertEquals("java.lang.String", JavaFlightRecorderAllocationProfiler.typeName("java.lang.String"));
+        Assert.assertEquals("byte[]", JavaFlightRecorderAllocationProfiler.typeName("[B"));
+        Assert.assertEquals("long[][]", JavaFlightRecorderAllocationProfiler.typeName("[[J"));
+        Assert.assertEquals("java.lang.Object[]", JavaFlightRecorderAllocationProfiler.typeName("[Ljava.lang.Object;"));
+        Assert.assertEquals("<unknown>", JavaFlightRecorderAllocationProfiler.typeName(null));
+    }
+
+    @Test
+    public void sitesAndStacks() {
+        JavaFlightRecorderAllocationProfiler.Sites sites = new JavaFlightRecorderAllocationProfiler.Sites();
+        sites.add("[B", Arrays.asList("a.B.c:1", "a.B.d:2", "a.B.e:3"), 100, 2);
+        sites.add("[B", Arrays.asList("a.B.c:1", "a.B.d:2", "a.B.f:4"), 50, 2);
+        sites.add("java.lang.String", Arrays.asList("a.B.g:5"), 10, 2);
+
+        Assert.assertEquals(150, sites.sites.count("byte[]\na.B.c:1\na.B.d:2"));
+        Assert.assertEquals(10, sites.sites.count("java.lang.String\na.B.g:5"));
+        Assert.assertEquals(160, sites.sites.size());
+
+        Assert.assertEquals(100, sites.stacks.count("a.B.e:3;a.B.d:2;a.B.c:1;byte[]"));
+        Assert.assertEquals(50, sites.stacks.count("a.B.f:4;a.B.d:2;a.B.c:1;byte[]"));
+        Assert.assertEquals(10, sites.stacks.count("a.B.g:5;java.lang.String"));
+    }
+
+    @Test
+    public void aggregateForks() {
+        JavaFlightRecorderAllocationProfiler.Sites s1 = new JavaFlightRecorderAllocationProfiler.Sites();
+        s1.add("[B", Collections.singletonList("a.B.c:1"), 3000, 1);
+
+        JavaFlightRecorderAllocationProfiler.Sites s2 = new JavaFlightRecorderAllocationProfiler.Sites();
+        s2.add("[B", Collections.singletonList("a.B.c:1"), 1000, 1);
+        s2.add("[I", Collections.singletonList("a.B.d:2"), 1000, 1);
+
+        JavaFlightRecorderAllocationProfiler.AllocationSitesResult r1 =
+                new JavaFlightRecorderAllocationProfiler.AllocationSitesResult(s1.sites, 100, 10, Collections.singletonList("f1"));
+        JavaFlightRecorderAllocationProfiler.AllocationSitesResult r2 =
+                new JavaFlightRecorderAllocationProfiler.AllocationSitesResult(s2.sites, 100, 10, Collections.singletonList("f2"));
+        Assert.assertEquals(30D, r1.getScore(), 0.001);
+        Assert.assertEquals(20D, r2.getScore(), 0.001);
+
+        JavaFlightRecorderAllocationProfiler.AllocationSitesResult r =
+                new JavaFlightRecorderAllocationProfiler.AllocationSitesResultAggregator().aggregate(Arrays.asList(r1, r2));
+        Assert.assertEquals(25D, r.getScore(), 0.001);
+
+        String info = r.extendedInfo();
+        Assert.assertTrue(info, info.contains(" 80.0%       20.000  byte[]"));
+        Assert.assertTrue(info, info.contains(" 20.0%        5.000  int[]"));
+        Assert.assertTrue(info, info.contains("f1"));
+        Assert.assertTrue(info, info.contains("f2"));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.results.Result;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JavaFlightRecorderProfilerTest {
+
+    private static JavaFlightRecorderProfiler.Slicer slicer() {
+        return new JavaFlightRecorderProfiler.Slicer(Arrays.asList(
+                new long[]{3000, 4000},
+                new long[]{1000, 2000}
+        ));
+    }
+
+    @Test
+    public void acceptsOnlyMeasurementWindows() {
+        JavaFlightRecorderProfiler.Slicer s = slicer();
+        Assert.assertFalse(s.accepts(0));
+        Assert.assertFalse(s.accepts(999));
+        Assert.assertTrue(s.accepts(1000));
+        Assert.assertTrue(s.accepts(1999));
+        Assert.assertFalse(s.accepts(2000));
+        Assert.assertFalse(s.accepts(2500));
+        Assert.assertTrue(s.accepts(3000));
+        Assert.assertTrue(s.accepts(3500));
+        Assert.assertFalse(s.accepts(4000));
+        Assert.assertFalse(s.accepts(Long.MAX_VALUE));
+        Assert.assertEquals(2000, s.windowNs());
+    }
+
+    @Test
+    public void accountsEventsInWindows() {
+        JavaFlightRecorderProfiler.Slicer s = slicer();
+        s.add("gc", 500, 10);
+        s.add("gc", 1500, 20);
+        s.add("gc", 2500, 40);
+        s.add("gc", 3500, 80);
+        Assert.assertEquals(2, s.count("gc"));
+        Assert.assertEquals(100, s.sum("gc"));
+        Assert.assertEquals(0, s.count("compilation"));
+        Assert.assertEquals(0, s.sum("compilation"));
+    }
+
+    @Test
+    public void pairsSafepoints() {
+        JavaFlightRecorderProfiler.Slicer s = slicer();
+
+        // end event comes before the begin event
+        s.safepoint(1, 1150, 1200);
+        s.safepoint(1, 1100, 1120);
+
+        // starts before the window
+        s.safepoint(2, 2990, 3000);
+        s.safepoint(2, 3000, 3010);
+
+        s.finish();
+        Assert.assertEquals(1, s.count("safepoints"));
+        Assert.assertEquals(100, s.sum("safepoints"));
+    }
+
+    @Test
+    public void results() {
+        JavaFlightRecorderProfiler.Slicer s = slicer();
+        s.add("alloc.tlab", 1500, 1024 * 1024);
+        s.add("alloc.tlab", 3500, 1024 * 1024);
+        s.add("alloc.sample", 3500, 1024 * 1024);
+        s.add("compilation", 3500, 2_000_000);
+
+        Map<String, Double> scores = new HashMap<>();
+        for (Result r : JavaFlightRecorderProfiler.results(s, 1024)) {
+            scores.put(r.getLabel().substring(1), r.getScore());
+        }
+
+        // 2 MB over 2 us
+        Assert.assertEquals(1_000_000D, scores.get("jfr.alloc.rate"), 0.001);
+        Assert.assertEquals(2048D, scores.get("jfr.alloc.rate.norm"), 0.001);
+        Assert.assertEquals(1D, scores.get("jfr.compilation.count"), 0.001);
+        Assert.assertEquals(2D, scores.get("jfr.compilation.time"), 0.001);
+        Assert.assertEquals(0D, scores.get("jfr.gc.count"), 0.001);
+        Assert.assertFalse(scores.containsKey("jfr.gc.time"));
+    }
+
+    @Test
+    public void resultsFromAllocationSamples() {
+        JavaFlightRecorderProfiler.Slicer s = slicer();
+        s.add("alloc.sample", 1500, 1024 * 1024);
+
+        for (Result r : JavaFlightRecorderProfiler.results(s, 1024)) {
+            if (r.getLabel().endsWith("jfr.alloc.rate.norm")) {
+                Assert.assertEquals(1024D, r.getScore(), 0.001);
+                return;
+            }
+        }
+        Assert.fail("No normalized allocation rate");
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.HashMultiset;
+import org.openjdk.jmh.util.Multiset;
+
+import java.util.Arrays;
+
+public class LockProfilerTest {
+
+    private static LockProfiler.LockClassesResult result(String key, long count, long time, long ops) {
+        Multiset<String> counts = new HashMultiset<>();
+        Multiset<String> times = new HashMultiset<>();
+        counts.add(key, count);
+        times.add(key, time);
+        return new LockProfiler.LockClassesResult(counts, times, ops, 10);
+    }
+
+    @Test
+    public void aggregateIterations() {
+        LockProfiler.LockClassesResult r1 = result("blocked java.lang.Object", 10, 3000, 100);
+        LockProfiler.LockClassesResult r2 = result("parked java.util.concurrent.locks.ReentrantLock$NonfairSync", 5, 1000, 100);
+        Assert.assertEquals(30D, r1.getScore(), 0.001);
+        Assert.assertEquals(10D, r2.getScore(), 0.001);
+
+        LockProfiler.LockClassesResult r = new LockProfiler.LockClassesResultAggregator().aggregate(Arrays.asList(r1, r2));
+        Assert.assertEquals(20D, r.getScore(), 0.001);
+
+        String info = r.extendedInfo();
+        Assert.assertTrue(info, info.contains("      15.000     0.050000           10  blocked java.lang.Object"));
+        Assert.assertTrue(info, info.contains("       5.000     0.025000            5  parked java.util.concurrent.locks.ReentrantLock$NonfairSync"));
+        Assert.assertTrue(info, info.indexOf("blocked") < info.indexOf("parked"));
+    }
+
+}
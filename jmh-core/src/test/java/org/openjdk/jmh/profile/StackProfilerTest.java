@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class StackProfilerTest {
+
+    @Test
+    public void internStacks() {
+        StackProfiler.StackTable table = new StackProfiler.StackTable();
+
+        int[] buf = new int[]{1, 2, 3, 4};
+        int id1 = table.add(buf, 3);
+        int id2 = table.add(buf, 4);
+        Assert.assertTrue(id1 != id2);
+
+        // buffer is reused by the sampler, the table should copy the keys
+        buf[0] = 42;
+        Assert.assertEquals(id1, table.add(new int[]{1, 2, 3, 0}, 3));
+        Assert.assertEquals(id2, table.add(new int[]{1, 2, 3, 4}, 4));
+        Assert.assertTrue(id1 != table.add(buf, 3));
+
+        Assert.assertEquals(3, table.size());
+        Assert.assertEquals(2, table.count(id1));
+        Assert.assertEquals(2, table.count(id2));
+        Assert.assertEquals(3, table.key(id1).length);
+    }
+
+    @Test
+    public void growTable() {
+        StackProfiler.StackTable table = new StackProfiler.StackTable();
+
+        int[] buf = new int[3];
+        for (int c = 0; c < 10_000; c++) {
+            buf[0] = c % 3;
+            buf[1] = c;
+            buf[2] = -c;
+            Assert.assertEquals(c, table.add(buf, 3));
+        }
+        for (int c = 0; c < 10_000; c++) {
+            buf[0] = c % 3;
+            buf[1] = c;
+            buf[2] = -c;
+            Assert.assertEquals(c, table.add(buf, 3));
+            Assert.assertEquals(2, table.count(c));
+        }
+        Assert.assertEquals(10_000, table.size());
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ThreadCpuProfilerTest {
+
+    private static double score(Collection<? extends Result> results, String label) {
+        for (Result r : results) {
+            if (r.getLabel().equals(Defaults.PREFIX + label)) {
+                return r.getScore();
+            }
+        }
+        throw new AssertionError("No result: " + label);
+    }
+
+    @Test
+    public void utilizationAndSpread() {
+        Map<Long, long[]> before = new HashMap<>();
+        before.put(1L, new long[]{1000, 800});
+        before.put(2L, new long[]{2000, 1000});
+
+        Map<Long, long[]> after = new HashMap<>();
+        after.put(1L, new long[]{1000 + 1000, 800 + 900});  // fully on CPU
+        after.put(2L, new long[]{2000 + 500, 1000 + 500});  // descheduled half of the time
+        after.put(3L, new long[]{300, 100});               // started during the iteration
+
+        Collection<? extends Result> rs = ThreadCpuProfiler.results(before, after, 1000, 100);
+
+        Assert.assertEquals(18D, score(rs, "cpu.time.norm"), 0.001);
+        Assert.assertEquals(15D, score(rs, "cpu.user.norm"), 0.001);
+        Assert.assertEquals(3D, score(rs, "cpu.system.norm"), 0.001);
+        Assert.assertEquals(60D, score(rs, "cpu.util"), 0.001);
+        Assert.assertEquals(30D, score(rs, "cpu.util.min"), 0.001);
+        Assert.assertEquals(100D, score(rs, "cpu.util.max"), 0.001);
+    }
+
+    @Test
+    public void noWorkers() {
+        Assert.assertTrue(ThreadCpuProfiler.results(new HashMap<Long, long[]>(), new HashMap<Long, long[]>(), 1000, 100).isEmpty());
+    }
+
+}
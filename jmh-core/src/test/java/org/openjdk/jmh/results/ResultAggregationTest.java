@@ -26,7 +26,7 @@ package org.openjdk.jmh.results;
 
 import junit.framework.Assert;
 import org.junit.Test;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
@@ -103,13 +103,13 @@ public class ResultAggregationTest {
 
     @Test
     public void testSampleTime() {
-        SampleBuffer sb10000 = new SampleBuffer();
+        SampleHistogram sb10000 = new SampleHistogram();
         sb10000.add(10000);
 
-        SampleBuffer sb5000 = new SampleBuffer();
+        SampleHistogram sb5000 = new SampleHistogram();
         sb5000.add(5000);
 
-        SampleBuffer sb3000 = new SampleBuffer();
+        SampleHistogram sb3000 = new SampleHistogram();
         sb3000.add(3000);
 
         IterationResult ir = new IterationResult(null, null, null);
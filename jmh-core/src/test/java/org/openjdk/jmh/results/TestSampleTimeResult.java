@@ -25,7 +25,7 @@
 package org.openjdk.jmh.results;
 
 import org.junit.Test;
-import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SampleHistogram;
 
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
@@ -36,11 +36,11 @@ public class TestSampleTimeResult {
 
     @Test
     public void testIterationAggregator1() {
-        SampleBuffer b1 = new SampleBuffer();
+        SampleHistogram b1 = new SampleHistogram();
         b1.add(1000);
         b1.add(2000);
 
-        SampleBuffer b2 = new SampleBuffer();
+        SampleHistogram b2 = new SampleHistogram();
         b2.add(3000);
         b2.add(4000);
 
@@ -54,11 +54,11 @@ public class TestSampleTimeResult {
 
     @Test
     public void testThreadAggregator1() {
-        SampleBuffer b1 = new SampleBuffer();
+        SampleHistogram b1 = new SampleHistogram();
         b1.add(1000);
         b1.add(2000);
 
-        SampleBuffer b2 = new SampleBuffer();
+        SampleHistogram b2 = new SampleHistogram();
         b2.add(3000);
         b2.add(4000);
 
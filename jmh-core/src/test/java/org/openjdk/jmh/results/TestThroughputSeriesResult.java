@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.junit.Test;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestThroughputSeriesResult {
+
+    private static final TimeValue INTERVAL = TimeValue.milliseconds(10);
+
+    @Test
+    public void testSeries() {
+        // 10 ms, 10 ms, 5 ms sub-intervals
+        ThroughputSeriesResult r = new ThroughputSeriesResult("series", INTERVAL,
+                new double[] {1000, 2000, 500},
+                new long[] {0, 10000000L, 20000000L, 25000000L},
+                TimeUnit.MILLISECONDS);
+
+        assertArrayEquals(new double[] {100, 200, 100}, r.getSeries(), 0.0);
+        assertEquals(400.0 / 3, r.getScore(), 0.0001);
+        assertEquals("ops/ms", r.getScoreUnit());
+        assertEquals(INTERVAL, r.getInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedTicks() {
+        new ThroughputSeriesResult("series", INTERVAL,
+                new double[] {1000, 2000},
+                new long[] {0, 10000000L},
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testIterationAggregator() {
+        ThroughputSeriesResult r1 = new ThroughputSeriesResult("series", INTERVAL,
+                new double[] {1000, 2000}, new long[] {0, 10000000L, 20000000L}, TimeUnit.MILLISECONDS);
+        ThroughputSeriesResult r2 = new ThroughputSeriesResult("series", INTERVAL,
+                new double[] {3000}, new long[] {0, 10000000L}, TimeUnit.MILLISECONDS);
+        ThroughputSeriesResult result = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2));
+
+        assertArrayEquals(new double[] {100, 200, 300}, result.getSeries(), 0.0);
+        assertEquals(200.0, result.getScore(), 0.0001);
+        assertEquals(3, result.getSampleCount());
+        assertEquals("ops/ms", result.getScoreUnit());
+    }
+
+}
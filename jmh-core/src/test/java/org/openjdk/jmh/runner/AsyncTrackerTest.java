@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.SampleHistogram;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class AsyncTrackerTest {
+
+    /**
+     * Runs the action in the separate worker thread, since the tracker is bound to
+     * the thread that created it.
+     */
+    private static Future<?> worker(Callable<?> action) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(action);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStageLimit() throws Exception {
+        final CompletableFuture<?>[] ops = new CompletableFuture<?>[4];
+        for (int i = 0; i < ops.length; i++) {
+            ops[i] = new CompletableFuture<>();
+        }
+        final AtomicInteger submitted = new AtomicInteger();
+
+        Future<?> w = worker(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                AsyncTracker tracker = new AsyncTracker(2);
+                try {
+                    for (CompletableFuture<?> op : ops) {
+                        tracker.submit(tracker.start(), op);
+                        submitted.incrementAndGet();
+                    }
+                    tracker.drain();
+                } catch (Throwable t) {
+                    throw new Exception(t);
+                }
+                return null;
+            }
+        });
+
+        // Second operation is issued, but the tracker waits until there is room for the third one
+        assertStays(submitted, 1);
+        ops[0].complete(null);
+        assertReaches(submitted, 2);
+        assertStays(submitted, 2);
+
+        // Completing out of order frees the room as well
+        ops[2].complete(null);
+        assertReaches(submitted, 3);
+        ops[1].complete(null);
+        assertReaches(submitted, 4);
+
+        // Drain waits for the rest
+        Thread.sleep(100);
+        Assert.assertFalse(w.isDone());
+        ops[3].complete(null);
+        w.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFutureLimit() throws Exception {
+        final FutureTask<?>[] ops = new FutureTask<?>[3];
+        for (int i = 0; i < ops.length; i++) {
+            ops[i] = new FutureTask<>(new Runnable() {
+                @Override
+                public void run() {
+                    // do nothing
+                }
+            }, null);
+        }
+        final AtomicInteger submitted = new AtomicInteger();
+
+        Future<?> w = worker(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                AsyncTracker tracker = new AsyncTracker(1);
+                try {
+                    for (FutureTask<?> op : ops) {
+                        tracker.submit(tracker.start(), op);
+                        submitted.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    throw new Exception(t);
+                }
+                return null;
+            }
+        });
+
+        // With the limit of one, every operation is awaited before the next one is issued
+        assertStays(submitted, 0);
+        ops[0].run();
+        assertReaches(submitted, 1);
+        assertStays(submitted, 1);
+        ops[1].run();
+        ops[2].run();
+        w.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(3, submitted.get());
+    }
+
+    @Test
+    public void testLatency() throws Throwable {
+        AsyncTracker tracker = new AsyncTracker(4);
+
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(10);
+        tracker.submit(start, CompletableFuture.completedFuture("done"));
+        tracker.submit(start, CompletableFuture.completedFuture("done"));
+
+        final CompletableFuture<String> late = new CompletableFuture<>();
+        long lateStart = tracker.start();
+        tracker.submit(lateStart, late);
+        ForkJoinPool.commonPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                late.complete("done");
+            }
+        });
+        tracker.drain();
+
+        SampleHistogram latency = tracker.getLatency();
+        Assert.assertEquals(3, latency.count());
+        Assert.assertTrue(latency.getStatistics(1).getMin() >= TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertTrue(latency.getStatistics(1).getMax() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testFutureLatency() throws Throwable {
+        AsyncTracker tracker = new AsyncTracker(4);
+
+        FutureTask<String> first = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        });
+        tracker.submit(tracker.start(), first);
+        first.run();
+
+        // The window is not full, but issuing the next operation should notice the first one is done
+        FutureTask<String> second = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        });
+        tracker.submit(tracker.start(), second);
+        Thread.sleep(200);
+        second.run();
+        tracker.drain();
+
+        SampleHistogram latency = tracker.getLatency();
+        Assert.assertEquals(2, latency.count());
+        Assert.assertTrue(latency.getStatistics(1).getMin() < TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertTrue(latency.getStatistics(1).getMax() >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testStageFailure() throws Throwable {
+        AsyncTracker tracker = new AsyncTracker(4);
+
+        IllegalStateException error = new IllegalStateException("expected");
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+
+        // Dependent stages wrap the failure, the original one should be reported
+        try {
+            tracker.submit(tracker.start(), failed.thenApply(new Function<String, String>() {
+                @Override
+                public String apply(String s) {
+                    return s;
+                }
+            }));
+            tracker.drain();
+            Assert.fail("Should have failed");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(error, e);
+        }
+        Assert.assertEquals("Failed operation is counted", 1, tracker.getLatency().count());
+    }
+
+    @Test
+    public void testFutureFailure() throws Throwable {
+        AsyncTracker tracker = new AsyncTracker(1);
+
+        final IllegalStateException error = new IllegalStateException("expected");
+        FutureTask<?> failed = new FutureTask<>(new Callable<Object>() {
+            @Override
+            public Object call() {
+                throw error;
+            }
+        });
+        failed.run();
+
+        try {
+            tracker.submit(tracker.start(), failed);
+            Assert.fail("Should have failed");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void testAwaitFailure() throws Throwable {
+        IllegalStateException error = new IllegalStateException("expected");
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+
+        try {
+            AsyncTracker.await(failed);
+            Assert.fail("Should have failed");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(error, e);
+        }
+        Assert.assertEquals("done", AsyncTracker.await(CompletableFuture.completedFuture("done")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroLimit() {
+        new AsyncTracker(0);
+    }
+
+    private static void assertStays(AtomicInteger counter, int expected) throws InterruptedException {
+        Thread.sleep(100);
+        Assert.assertEquals(expected, counter.get());
+    }
+
+    private static void assertReaches(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (counter.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(expected, counter.get());
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BlackholeModeTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(BlackholeMode.MODE_PROPERTY);
+        System.clearProperty(BlackholeMode.FORCE_INLINE_PROPERTY);
+    }
+
+    @Test
+    public void testNotRequested() {
+        assertFalse(BlackholeMode.requested().hasValue());
+    }
+
+    @Test
+    public void testDocumentedNames() {
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "compiler");
+        assertEquals(BlackholeMode.COMPILER, BlackholeMode.requested().get());
+
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "full-dontinline");
+        assertEquals(BlackholeMode.FULL_DONTINLINE, BlackholeMode.requested().get());
+
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "full");
+        assertEquals(BlackholeMode.FULL, BlackholeMode.requested().get());
+    }
+
+    @Test
+    public void testConstantNames() {
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "FULL_DONTINLINE");
+        assertEquals(BlackholeMode.FULL_DONTINLINE, BlackholeMode.requested().get());
+
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "Full-DontInline");
+        assertEquals(BlackholeMode.FULL_DONTINLINE, BlackholeMode.requested().get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownName() {
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "half");
+        BlackholeMode.requested();
+    }
+
+    @Test
+    public void testLegacyForceInline() {
+        System.setProperty(BlackholeMode.FORCE_INLINE_PROPERTY, "true");
+        assertEquals(BlackholeMode.FULL, BlackholeMode.requested().get());
+    }
+
+    @Test
+    public void testModeOverridesLegacyForceInline() {
+        System.setProperty(BlackholeMode.FORCE_INLINE_PROPERTY, "true");
+        System.setProperty(BlackholeMode.MODE_PROPERTY, "full-dontinline");
+        assertEquals(BlackholeMode.FULL_DONTINLINE, BlackholeMode.requested().get());
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.results.CaptureBuffer;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.SampleHistogram;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class CaptureFileTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jmh", "capture");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static BenchmarkParams params() {
+        return new BenchmarkParams("bench", "bench", false,
+                2, new int[]{2}, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.CaptureTime, new WorkloadParams(), TimeUnit.NANOSECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1));
+    }
+
+    private static ThreadParams thread(int index) {
+        return new ThreadParams(index, 2, 0, 1, 0, 1, index, 2, index, 2);
+    }
+
+    @Test
+    public void testDropsOverCapacity() {
+        // 300 ns iteration fits three 100 ns invocations
+        CaptureBuffer buffer = CaptureBuffer.forCurrentThread(thread(0), 300);
+        for (int i = 0; i < 5; i++) {
+            buffer.record(i * 1000, 100 + i);
+        }
+        assertEquals(3, buffer.getRecords());
+        assertEquals(2, buffer.getDropped());
+
+        SampleHistogram h = new SampleHistogram();
+        buffer.fill(h, 1);
+        assertEquals(3, h.count());
+        assertEquals(101, h.getStatistics(1).getPercentile(50), 0);
+    }
+
+    @Test
+    public void testCreateUnique() throws IOException {
+        File dir = File.createTempFile("jmh", "capture-dir");
+        dir.delete();
+
+        BenchmarkParams params = params();
+        try (CaptureFile f1 = CaptureFile.create(dir, params);
+             CaptureFile f2 = CaptureFile.create(dir, params)) {
+            assertEquals(dir, f1.getFile().getParentFile());
+            assertEquals("bench-" + Utils.getPid() + ".capture", f1.getFile().getName());
+            assertEquals("bench-" + Utils.getPid() + "-1.capture", f2.getFile().getName());
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        BenchmarkParams params = params();
+        try (CaptureFile cf = new CaptureFile(file, params)) {
+            for (int t = 0; t < 2; t++) {
+                final int thread = t;
+                final CaptureBuffer[] holder = new CaptureBuffer[1];
+                Thread worker = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        CaptureBuffer buffer = CaptureBuffer.forCurrentThread(thread(thread), 1000);
+                        for (int i = 0; i < 4; i++) {
+                            buffer.record(thread * 100 + i, 10 + i);
+                        }
+                        holder[0] = buffer;
+                    }
+                });
+                worker.start();
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                cf.write(params.getMeasurement(), 1, thread, holder[0]);
+            }
+        }
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            assertEquals(CaptureFile.MAGIC, dis.readInt());
+            assertEquals(CaptureFile.VERSION, dis.readShort());
+            assertEquals("bench", dis.readUTF());
+            assertEquals("capture", dis.readUTF());
+            dis.readLong();
+            dis.readLong();
+
+            for (int t = 0; t < 2; t++) {
+                assertEquals(1, dis.readByte());
+                assertEquals(1, dis.readInt());
+                assertEquals(t, dis.readInt());
+                assertEquals(4, dis.readInt());
+                assertEquals(0, dis.readLong());
+                for (int i = 0; i < 4; i++) {
+                    assertEquals(t * 100 + i, dis.readLong());
+                    assertEquals(10 + i, dis.readLong());
+                }
+            }
+            assertEquals(-1, dis.read());
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class ClassDataArchivesTest {
+
+    @Test
+    public void testMajorVersion() {
+        Assert.assertEquals(8, ClassDataArchives.majorVersion("1.8.0_191"));
+        Assert.assertEquals(9, ClassDataArchives.majorVersion("9"));
+        Assert.assertEquals(11, ClassDataArchives.majorVersion("11.0.1"));
+        Assert.assertEquals(13, ClassDataArchives.majorVersion("13-ea"));
+        Assert.assertEquals(17, ClassDataArchives.majorVersion("17.0.9"));
+    }
+
+    @Test
+    public void testMajorVersionUnknown() {
+        Assert.assertEquals(0, ClassDataArchives.majorVersion(null));
+        Assert.assertEquals(0, ClassDataArchives.majorVersion(""));
+        Assert.assertEquals(0, ClassDataArchives.majorVersion("unknown"));
+    }
+
+    @Test
+    public void testKeyCoversCommand() {
+        BenchmarkParams params = new BenchmarkParams("a", "a", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.Throughput, new WorkloadParams(), TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                "17", "17", Version.getPlainVersion(),
+                TimeValue.days(1));
+
+        String plain = ClassDataArchives.key(params, Arrays.asList(params.getJvm(), "-cp", "cp", "Main"));
+        String same = ClassDataArchives.key(params, Arrays.asList(params.getJvm(), "-cp", "cp", "Main"));
+        String profiled = ClassDataArchives.key(params, Arrays.asList(params.getJvm(), "-XX:+UnlockDiagnosticVMOptions", "-cp", "cp", "Main"));
+
+        Assert.assertEquals(plain, same);
+        Assert.assertNotEquals(plain, profiled);
+    }
+
+}
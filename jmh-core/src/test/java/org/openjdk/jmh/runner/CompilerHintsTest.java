@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -81,6 +82,15 @@ public class CompilerHintsTest {
         assertTrue(args.isEmpty());
     }
 
+    @Test
+    public void testBlackholeHints() {
+        Set<String> hints = CompilerHints.fromFile(CompilerHints.hintsFile()).get();
+        assertTrue(hints.contains("dontinline,org/openjdk/jmh/infra/Blackhole.consumeFull"));
+        for (String hint : hints) {
+            assertFalse(hint, hint.contains("Blackhole.consumeCompiler"));
+        }
+    }
+
     @After
     public void restoreCurrentVM() {
         System.setProperty("java.vm.name", vmName);
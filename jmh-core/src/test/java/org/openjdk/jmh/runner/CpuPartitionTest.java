@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CpuPartitionTest {
+
+    @Test
+    public void testParseCpuList() {
+        assertEquals(Arrays.asList(0, 1, 2, 3, 8, 10, 11), CpuPartition.parseCpuList("0-3,8,10-11\n"));
+        assertEquals(Arrays.asList(5), CpuPartition.parseCpuList("5"));
+    }
+
+    @Test
+    public void testCpuList() {
+        assertEquals("0-3,8,10-11", new CpuPartition(0, Arrays.asList(8, 0, 1, 2, 3, 10, 11)).getCpuList());
+        assertEquals("7", new CpuPartition(0, Arrays.asList(7)).getCpuList());
+    }
+
+    @Test
+    public void testSplitKeepsSiblings() {
+        // 4 cores, 2 hardware threads each: siblings are N and N+4
+        List<List<Integer>> cores = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            cores.add(Arrays.asList(c, c + 4));
+        }
+
+        List<CpuPartition> parts = CpuPartition.split(cores, 2);
+        assertEquals(2, parts.size());
+        assertEquals("0-1,4-5", parts.get(0).getCpuList());
+        assertEquals("2-3,6-7", parts.get(1).getCpuList());
+    }
+
+    @Test
+    public void testSplitNoMoreThanCores() {
+        List<List<Integer>> cores = new ArrayList<>();
+        cores.add(Arrays.asList(0, 1));
+        cores.add(Arrays.asList(2, 3));
+
+        List<CpuPartition> parts = CpuPartition.split(cores, 8);
+        assertEquals(2, parts.size());
+        assertEquals(Arrays.asList("taskset", "-c", "2-3", "java"), parts.get(1).bind(Arrays.asList("java")));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.RawResults;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class InvocationBatchSizeTest {
+
+    private static final IterationParams WARMUP = new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1);
+    private static final IterationParams MEASUREMENT = new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1);
+
+    private static InfraControl control(IterationParams iteration) {
+        BenchmarkParams bp = new BenchmarkParams("Foo", "bar", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 1,
+                WARMUP, MEASUREMENT,
+                Mode.AverageTime, null, TimeUnit.NANOSECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1));
+        return new InfraControl(bp, iteration, new CountDownLatch(1), new CountDownLatch(1), false, new Control());
+    }
+
+    private static RawResults timed(long ops, long realTime) {
+        RawResults res = new RawResults();
+        res.measuredOps = ops;
+        res.realTime = realTime;
+        return res;
+    }
+
+    @Test
+    public void testWarmupCalibrates() {
+        // 20 ns per op, 10 us batch
+        assertEquals(500, control(WARMUP).calibrateInvocationBatch(timed(50000000L, 1000000000L), 1));
+
+        // slow ops run one at a time
+        assertEquals(1, control(WARMUP).calibrateInvocationBatch(timed(1000, 1000000000L), 0));
+    }
+
+    @Test
+    public void testBatchOnlyGrows() {
+        assertEquals(500, control(WARMUP).calibrateInvocationBatch(timed(1000, 1000000000L), 500));
+    }
+
+    @Test
+    public void testMeasurementKeepsSize() {
+        assertEquals(100, control(MEASUREMENT).calibrateInvocationBatch(timed(50000000L, 1000000000L), 100));
+        assertEquals(1, control(MEASUREMENT).calibrateInvocationBatch(timed(50000000L, 1000000000L), 0));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        assertEquals(1024, control(WARMUP).calibrateInvocationBatch(timed(1000000000L, 1000000L), 1));
+    }
+
+}
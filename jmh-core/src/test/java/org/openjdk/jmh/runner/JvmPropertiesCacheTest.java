@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public class JvmPropertiesCacheTest {
+
+    private static File tempDir() throws IOException {
+        File dir = FileUtils.tempFile("probes");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static List<String> probeCommand(String jvm) {
+        return Arrays.asList(jvm, "-cp", System.getProperty("java.class.path"), PrintPropertiesMain.class.getName());
+    }
+
+    private static List<String> failingCommand() {
+        return Collections.singletonList("jmh-nonexistent-command");
+    }
+
+    @Test
+    public void testStoredAcrossRuns() throws IOException {
+        String jvm = Utils.getCurrentJvm();
+        File dir = tempDir();
+
+        Properties first = new JvmPropertiesCache(dir).get(jvm, probeCommand(jvm));
+
+        // Compare with the probe itself: other tests may override the properties of this VM
+        Properties probed = Utils.readPropertiesFromCommand(probeCommand(jvm));
+        Assert.assertNotNull(first.getProperty("java.version"));
+        Assert.assertEquals(probed.getProperty("java.version"), first.getProperty("java.version"));
+
+        // Fresh cache over the same directory should not run the probe at all
+        Properties second = new JvmPropertiesCache(dir).get(jvm, failingCommand());
+        Assert.assertEquals(first, second);
+    }
+
+    @Test
+    public void testRememberedWithinRun() throws IOException {
+        String jvm = Utils.getCurrentJvm();
+
+        JvmPropertiesCache cache = new JvmPropertiesCache(null);
+        Properties first = cache.get(jvm, probeCommand(jvm));
+        Properties second = cache.get(jvm, failingCommand());
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void testKeyTracksExecutable() throws IOException {
+        File exe = FileUtils.tempFile("java");
+        String key = JvmPropertiesCache.key(exe.getAbsolutePath());
+        Assert.assertNotNull(key);
+        Assert.assertEquals(key, JvmPropertiesCache.key(exe.getAbsolutePath()));
+
+        FileUtils.writeLines(exe, Collections.singleton("updated"));
+        Assert.assertFalse(key.equals(JvmPropertiesCache.key(exe.getAbsolutePath())));
+    }
+
+    @Test
+    public void testNoKeyForMissingExecutable() {
+        Assert.assertNull(JvmPropertiesCache.key("jmh-nonexistent-java"));
+    }
+
+}
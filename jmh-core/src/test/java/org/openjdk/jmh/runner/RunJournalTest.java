@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RunJournalTest {
+
+    private static final String CONFIG = "config";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jmh", "journal");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static BenchmarkParams params(String benchmark) {
+        return new BenchmarkParams(benchmark, benchmark, false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                3, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.Throughput, new WorkloadParams(), TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1));
+    }
+
+    private static BenchmarkResult result(BenchmarkParams params, long ops) {
+        IterationResult ir = new IterationResult(params, params.getMeasurement(), null);
+        ir.addResult(new ThroughputResult(ResultRole.PRIMARY, "test", ops, 1000 * 1000 * 1000, TimeUnit.SECONDS));
+        return new BenchmarkResult(params, Collections.singletonList(ir));
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        BenchmarkParams a = params("a");
+        BenchmarkParams b = params("b");
+
+        try (RunJournal j = RunJournal.open(file, null)) {
+            j.append(a, CONFIG, 0, result(a, 10));
+            j.append(a, CONFIG, 1, result(a, 20));
+            j.append(b, CONFIG, 0, result(b, 30));
+        }
+
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertEquals(3, j.getResumedCount());
+
+            SortedMap<Integer, BenchmarkResult> forks = j.getResumed(params("a"), CONFIG);
+            assertEquals(2, forks.size());
+            assertEquals(10, forks.get(0).getPrimaryResult().getScore(), 0.001);
+            assertEquals(20, forks.get(1).getPrimaryResult().getScore(), 0.001);
+
+            assertEquals(1, j.getResumed(b, CONFIG).size());
+            assertTrue(j.getResumed(params("c"), CONFIG).isEmpty());
+
+            j.append(b, CONFIG, 1, result(b, 40));
+        }
+
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertEquals(4, j.getResumedCount());
+            assertEquals(40, j.getResumed(b, CONFIG).get(1).getPrimaryResult().getScore(), 0.001);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        BenchmarkParams a = params("a");
+
+        try (RunJournal j = RunJournal.open(file, null)) {
+            j.append(a, CONFIG, 0, result(a, 10));
+            j.append(a, CONFIG, 1, result(a, 20));
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertEquals(1, j.getResumedCount());
+            j.append(a, CONFIG, 1, result(a, 30));
+        }
+
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertEquals(2, j.getResumedCount());
+            assertEquals(30, j.getResumed(a, CONFIG).get(1).getPrimaryResult().getScore(), 0.001);
+        }
+    }
+
+    @Test
+    public void testResumeToOtherJournal() throws IOException {
+        BenchmarkParams a = params("a");
+
+        try (RunJournal j = RunJournal.open(file, null)) {
+            j.append(a, CONFIG, 0, result(a, 10));
+        }
+
+        File other = File.createTempFile("jmh", "journal");
+        try {
+            try (RunJournal j = RunJournal.open(other, file)) {
+                j.append(a, CONFIG, 1, result(a, 20));
+            }
+            try (RunJournal j = RunJournal.open(other, other)) {
+                assertEquals(2, j.getResumedCount());
+            }
+        } finally {
+            other.delete();
+        }
+    }
+
+    @Test
+    public void testOtherConfigurationIsNotResumed() throws IOException {
+        BenchmarkParams a = params("a");
+
+        try (RunJournal j = RunJournal.open(file, null)) {
+            j.append(a, "old", 0, result(a, 10));
+            j.append(a, "old", 1, result(a, 20));
+        }
+
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertTrue(j.isStale(a, "new"));
+            assertTrue(j.getResumed(a, "new").isEmpty());
+            assertFalse(j.isStale(a, "old"));
+            assertEquals(2, j.getResumed(a, "old").size());
+
+            j.append(a, "new", 0, result(a, 30));
+        }
+
+        // the forks with the new configuration supersede the old ones
+        try (RunJournal j = RunJournal.open(file, file)) {
+            assertEquals(1, j.getResumedCount());
+            assertFalse(j.isStale(a, "new"));
+            assertEquals(30, j.getResumed(a, "new").get(0).getPrimaryResult().getScore(), 0.001);
+        }
+    }
+
+    @Test
+    public void testConfiguration() {
+        Options opts = new OptionsBuilder().build();
+        BenchmarkParams a = params("a");
+        BenchmarkParams longer = new BenchmarkParams("a", "a", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                3, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(5), 1),
+                Mode.Throughput, new WorkloadParams(), TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1));
+
+        // same benchmark, but measured differently
+        assertEquals(a, longer);
+        assertEquals(RunJournal.configuration(a, opts), RunJournal.configuration(params("a"), opts));
+        assertFalse(RunJournal.configuration(a, opts).equals(RunJournal.configuration(longer, opts)));
+        assertFalse(RunJournal.configuration(a, opts).equals(
+                RunJournal.configuration(a, new OptionsBuilder().measurementTargetError(0.01).build())));
+    }
+
+}
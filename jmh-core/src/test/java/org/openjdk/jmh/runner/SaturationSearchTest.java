@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SaturationSearchTest {
+
+    private static SaturationSearch run(double initial, double knee, int maxProbes) {
+        SaturationSearch s = new SaturationSearch(initial, 0.05, maxProbes);
+        while (!s.isDone()) {
+            double rate = s.nextRate();
+            s.record(rate, rate <= knee);
+        }
+        return s;
+    }
+
+    @Test
+    public void testSearchUp() {
+        SaturationSearch s = run(1000, 12345, 100);
+        assertTrue(s.getPassRate() <= 12345);
+        assertTrue(s.getFailRate() > 12345);
+        assertTrue(s.getFailRate() - s.getPassRate() <= 0.05 * s.getPassRate());
+    }
+
+    @Test
+    public void testSearchDown() {
+        SaturationSearch s = run(1000, 77, 100);
+        assertTrue(s.getPassRate() <= 77);
+        assertTrue(s.getFailRate() > 77);
+        assertTrue(s.getFailRate() - s.getPassRate() <= 0.05 * s.getPassRate());
+    }
+
+    @Test
+    public void testDoublesUntilFailure() {
+        SaturationSearch s = new SaturationSearch(100, 0.05, 100);
+        assertEquals(100, s.nextRate(), 0);
+        s.record(100, true);
+        assertEquals(200, s.nextRate(), 0);
+        s.record(200, true);
+        assertEquals(400, s.nextRate(), 0);
+        s.record(400, false);
+        assertEquals(300, s.nextRate(), 0);
+    }
+
+    @Test
+    public void testProbeBudget() {
+        SaturationSearch s = run(1000, Double.POSITIVE_INFINITY, 5);
+        assertEquals(5, s.getProbes());
+        assertEquals(16000, s.getPassRate(), 0);
+        assertTrue(Double.isNaN(s.getFailRate()));
+    }
+
+    @Test
+    public void testNeverPasses() {
+        SaturationSearch s = run(1000, 0, 4);
+        assertTrue(Double.isNaN(s.getPassRate()));
+        assertEquals(125, s.getFailRate(), 0);
+    }
+
+    @Test
+    public void testPassAboveFailIsNonMonotonic() {
+        SaturationSearch s = new SaturationSearch(100, 0.05, 100);
+        s.record(100, true);
+        s.record(400, false);
+        assertFalse(s.isNonMonotonic());
+
+        s.record(500, true);
+        assertTrue(s.isNonMonotonic());
+        assertTrue(s.isDone());
+        assertEquals(500, s.getConflictRate(), 0);
+        assertTrue(s.isConflictPass());
+
+        // bracket is not turned upside down
+        assertEquals(100, s.getPassRate(), 0);
+        assertEquals(400, s.getFailRate(), 0);
+    }
+
+    @Test
+    public void testFailBelowPassIsNonMonotonic() {
+        SaturationSearch s = new SaturationSearch(100, 0.05, 100);
+        s.record(200, true);
+        s.record(150, false);
+
+        assertTrue(s.isNonMonotonic());
+        assertFalse(s.isConflictPass());
+        assertEquals(200, s.getPassRate(), 0);
+        assertTrue(Double.isNaN(s.getFailRate()));
+    }
+
+    @Test
+    public void testMonotonicSearchHasNoConflicts() {
+        assertFalse(run(1000, 12345, 100).isNonMonotonic());
+        assertFalse(run(1000, 77, 100).isNonMonotonic());
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SteadyStateDetectorTest {
+
+    @Test
+    public void testNeedsFullWindow() {
+        SteadyStateDetector d = new SteadyStateDetector(5, 0.02);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(d.add(100));
+        }
+        assertTrue(d.add(100));
+        assertEquals(5, d.getCount());
+    }
+
+    @Test
+    public void testRampUpIsNotSteady() {
+        SteadyStateDetector d = new SteadyStateDetector(5, 0.02);
+        double[] scores = {10, 20, 40, 60, 80, 95, 100};
+        for (double s : scores) {
+            assertFalse(d.add(s));
+        }
+    }
+
+    @Test
+    public void testRampUpThenFlat() {
+        SteadyStateDetector d = new SteadyStateDetector(5, 0.02);
+        double[] ramp = {10, 40, 80, 95};
+        for (double s : ramp) {
+            assertFalse(d.add(s));
+        }
+        double[] flat = {100, 101, 99, 100, 100.5, 99.5, 100};
+        int steadyAt = -1;
+        for (int i = 0; i < flat.length; i++) {
+            if (d.add(flat[i])) {
+                steadyAt = i;
+                break;
+            }
+        }
+        // the ramp should leave the window first
+        assertTrue(steadyAt >= 3);
+    }
+
+    @Test
+    public void testNoiseWithoutTrendIsSteady() {
+        SteadyStateDetector d = new SteadyStateDetector(5, 0.02);
+        double[] scores = {100, 130, 80, 120, 90};
+        boolean steady = false;
+        for (double s : scores) {
+            steady = d.add(s);
+        }
+        assertTrue(steady);
+    }
+
+    @Test
+    public void testSmallDriftIsSteady() {
+        SteadyStateDetector d = new SteadyStateDetector(5, 0.02);
+        double[] scores = {100.0, 100.2, 100.4, 100.6, 100.8};
+        boolean steady = false;
+        for (double s : scores) {
+            steady = d.add(s);
+        }
+        assertTrue(steady);
+        assertEquals(0.008, d.getRelativeDrift(), 0.001);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Test;
+import org.openjdk.jmh.util.ListStatistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TargetErrorDetectorTest {
+
+    private static final double[] CONVERGED = {100, 100.2, 99.8, 100.1, 99.9, 100, 100.1};
+    private static final double[] NOISY = {100, 150, 60, 140, 70, 130, 50};
+
+    /**
+     * Runs the iterations the way measurement loop does, and returns the number of iterations run.
+     */
+    private static int run(TargetErrorDetector d, double[] scores) {
+        for (int i = 1; ; i++) {
+            boolean last = d.isLastIteration(i);
+            d.add(scores[(i - 1) % scores.length]);
+            if (last) {
+                return i;
+            }
+        }
+    }
+
+    @Test
+    public void testConvergedStops() {
+        TargetErrorDetector d = new TargetErrorDetector(0.01, 5, 20);
+        int iterations = run(d, CONVERGED);
+
+        // target is reached at the minimal iteration count, then one more iteration runs as the last one
+        assertTrue(d.isConverged());
+        assertEquals(6, iterations);
+        assertEquals(6, d.getCount());
+        assertTrue(d.getRelativeError() <= 0.01);
+    }
+
+    @Test
+    public void testNoisyRunsBudget() {
+        TargetErrorDetector d = new TargetErrorDetector(0.01, 5, 20);
+        int iterations = run(d, NOISY);
+
+        assertFalse(d.isConverged());
+        assertEquals(20, iterations);
+        assertTrue(d.getRelativeError() > 0.01);
+    }
+
+    @Test
+    public void testNoStopBeforeMinIterations() {
+        TargetErrorDetector d = new TargetErrorDetector(0.01, 5, 20);
+        for (int i = 1; i <= 4; i++) {
+            assertFalse(d.isLastIteration(i));
+            // identical scores have no error at all
+            assertFalse(d.add(100));
+        }
+        assertFalse(d.isLastIteration(5));
+        assertTrue(d.add(100));
+        assertTrue(d.isLastIteration(6));
+    }
+
+    @Test
+    public void testBudgetBelowMinIterations() {
+        TargetErrorDetector d = new TargetErrorDetector(0.01, 5, 3);
+        assertEquals(3, d.getMinIterations());
+        assertEquals(3, run(d, CONVERGED));
+
+        TargetErrorDetector single = new TargetErrorDetector(0.01, 5, 1);
+        assertEquals(1, run(single, CONVERGED));
+        assertFalse("Single score has no error estimate", single.isConverged());
+    }
+
+    @Test
+    public void testConvergedAtBudget() {
+        TargetErrorDetector d = new TargetErrorDetector(0.01, 5, 5);
+        assertEquals(5, run(d, CONVERGED));
+        assertTrue(d.isConverged());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroBudget() {
+        new TargetErrorDetector(0.01, 5, 0);
+    }
+
+    @Test
+    public void testReached() {
+        ListStatistics converged = new ListStatistics(CONVERGED);
+        ListStatistics noisy = new ListStatistics(NOISY);
+
+        assertTrue(TargetErrorDetector.isReached(converged, 0.01));
+        assertFalse(TargetErrorDetector.isReached(noisy, 0.01));
+        assertTrue(TargetErrorDetector.isReached(noisy, 10));
+
+        ListStatistics single = new ListStatistics();
+        single.addValue(100);
+        assertTrue(Double.isNaN(TargetErrorDetector.relativeError(single)));
+        assertFalse(TargetErrorDetector.isReached(single, 10));
+    }
+
+}
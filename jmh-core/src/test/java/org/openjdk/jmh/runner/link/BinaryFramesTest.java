@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.WorkloadParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.SampleHistogram;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BinaryFramesTest {
+
+    private static BenchmarkParams params() {
+        return new BenchmarkParams("bench", "bench", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.Throughput, new WorkloadParams(), TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1));
+    }
+
+    private static Object[] roundTrip(Serializable... frames) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        FrameWriter writer = LinkProtocol.newWriter(bos, true);
+        for (Serializable f : frames) {
+            writer.write(f);
+        }
+
+        FrameReader reader = LinkProtocol.newReader(new BufferedInputStream(new ByteArrayInputStream(bos.toByteArray())));
+        assertTrue(LinkProtocol.isBinary(reader));
+
+        Object[] result = new Object[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            result[i] = reader.read();
+        }
+        return result;
+    }
+
+    @Test
+    public void testIterationResult() throws Exception {
+        BenchmarkParams bp = params();
+        IterationResult ir = new IterationResult(bp, bp.getMeasurement(), new IterationResultMetaData(100, 42));
+        ir.addResult(new ThroughputResult(ResultRole.PRIMARY, "test", 1000, 1000 * 1000 * 1000, TimeUnit.SECONDS));
+        ir.addResult(new ThroughputResult(ResultRole.PRIMARY, "test", 3000, 1000 * 1000 * 1000, TimeUnit.SECONDS));
+        ir.addResult(new ScalarResult("extra", 17, "units", AggregationPolicy.MAX));
+
+        Object[] frames = roundTrip(new ResultsFrame(ir), new ResultsFrame(ir));
+
+        IterationResult r1 = ((ResultsFrame) frames[0]).getRes();
+        IterationResult r2 = ((ResultsFrame) frames[1]).getRes();
+
+        assertEquals(bp, r1.getBenchmarkParams());
+        assertSame("Parameters should be sent once", r1.getBenchmarkParams(), r2.getBenchmarkParams());
+        assertEquals(42, r1.getMetadata().getMeasuredOps());
+        assertEquals(4000, r1.getPrimaryResult().getScore(), 0.001);
+        assertEquals(ir.getPrimaryResult().getScoreUnit(), r1.getPrimaryResult().getScoreUnit());
+        assertEquals(17, r1.getSecondaryResults().get("extra").getScore(), 0.001);
+    }
+
+    @Test
+    public void testSampleTimeResult() throws Exception {
+        SampleHistogram buffer = new SampleHistogram();
+        for (int i = 0; i < 10000; i++) {
+            buffer.add(i * 37L);
+        }
+        buffer.add(1000L * 1000 * 1000);
+        SampleTimeResult res = new SampleTimeResult(ResultRole.PRIMARY, "sample", buffer, TimeUnit.MICROSECONDS);
+
+        Object[] frames = roundTrip(new OutputFormatFrame("test", new Object[]{res, "string", 1, null}));
+        OutputFormatFrame f = (OutputFormatFrame) frames[0];
+
+        Result r = (Result) f.args[0];
+        assertEquals(res.getStatistics().getN(), r.getStatistics().getN());
+        assertEquals(res.getScore(), r.getScore(), 0.0);
+        assertEquals(res.getStatistics().getPercentile(99), r.getStatistics().getPercentile(99), 0.0);
+        assertEquals("string", f.args[1]);
+        assertEquals(1, f.args[2]);
+        assertNull(f.args[3]);
+    }
+
+    @Test
+    public void testOutputAndFallback() throws Exception {
+        Object[] frames = roundTrip(
+                new OutputFrame(OutputFrame.Type.ERR, "hello".getBytes()),
+                new InfraFrame(InfraFrame.Type.ACTION_PLAN_REQUEST),
+                new ExceptionFrame(null),
+                new FinishingFrame());
+
+        assertEquals(OutputFrame.Type.ERR, ((OutputFrame) frames[0]).getType());
+        assertEquals("hello", new String(((OutputFrame) frames[0]).getData()));
+        assertEquals(InfraFrame.Type.ACTION_PLAN_REQUEST, ((InfraFrame) frames[1]).getType());
+        assertTrue(frames[2] instanceof ExceptionFrame);
+        assertTrue(frames[3] instanceof FinishingFrame);
+    }
+
+    @Test
+    public void testSerialFallbackDetected() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        FrameWriter writer = LinkProtocol.newWriter(bos, false);
+        writer.write(new InfraFrame(InfraFrame.Type.ACTION_PLAN_REQUEST));
+
+        FrameReader reader = LinkProtocol.newReader(new BufferedInputStream(new ByteArrayInputStream(bos.toByteArray())));
+        assertFalse(LinkProtocol.isBinary(reader));
+        assertTrue(reader.read() instanceof InfraFrame);
+    }
+
+    private static FrameReader reader(int length, byte... payload) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeInt(LinkProtocol.MAGIC);
+        dos.writeInt(length);
+        dos.write(payload);
+        return LinkProtocol.newReader(new BufferedInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testNegativeFrameLength() throws Exception {
+        reader(-5).read();
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testHugeFrameLength() throws Exception {
+        reader(Integer.MAX_VALUE).read();
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testValueLengthBeyondFrame() throws Exception {
+        // output frame claims the data is longer than the frame itself
+        reader(1 + 1 + 4, (byte) LinkProtocol.FRAME_OUTPUT, (byte) 0, (byte) 0x7F, (byte) 0, (byte) 0, (byte) 0).read();
+    }
+
+}
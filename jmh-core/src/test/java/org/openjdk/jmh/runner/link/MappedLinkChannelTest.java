@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Test;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MappedLinkChannelTest {
+
+    private static byte[] readFully(InputStream is, int len) throws IOException {
+        byte[] b = new byte[len];
+        int off = 0;
+        while (off < len) {
+            int r = is.read(b, off, len - off);
+            if (r < 0) {
+                throw new EOFException();
+            }
+            off += r;
+        }
+        return b;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = FileUtils.tempFile("link");
+        try (MappedLinkChannel host = MappedLinkChannel.create(file, 1024);
+             MappedLinkChannel fork = MappedLinkChannel.open(file)) {
+            fork.getOutputStream().write(new byte[]{1, 2, 3});
+            assertArrayEquals(new byte[]{1, 2, 3}, readFully(host.getInputStream(), 3));
+
+            host.getOutputStream().write(new byte[]{4, 5});
+            assertArrayEquals(new byte[]{4, 5}, readFully(fork.getInputStream(), 2));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        File file = FileUtils.tempFile("link");
+        try (MappedLinkChannel host = MappedLinkChannel.create(file, 64);
+             final MappedLinkChannel fork = MappedLinkChannel.open(file)) {
+            final byte[] data = new byte[10_000];
+            new Random(42).nextBytes(data);
+
+            // the data is much larger than ring, writer would wait for reader
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        OutputStream os = fork.getOutputStream();
+                        for (int off = 0; off < data.length; off += 37) {
+                            os.write(data, off, Math.min(37, data.length - off));
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            writer.start();
+
+            assertTrue(Arrays.equals(data, readFully(host.getInputStream(), data.length)));
+            writer.join();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        File file = FileUtils.tempFile("link");
+        try (MappedLinkChannel host = MappedLinkChannel.create(file, 1024);
+             MappedLinkChannel fork = MappedLinkChannel.open(file)) {
+            fork.getOutputStream().write(new byte[]{1, 2});
+            fork.close();
+
+            InputStream is = host.getInputStream();
+            assertArrayEquals(new byte[]{1, 2}, readFully(is, 2));
+            assertEquals(-1, is.read());
+
+            try {
+                fork.getOutputStream().write(3);
+                fail("Expected the write to closed link to fail");
+            } catch (EOFException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testShutdownInput() throws IOException {
+        File file = FileUtils.tempFile("link");
+        try (MappedLinkChannel host = MappedLinkChannel.create(file, 1024);
+             MappedLinkChannel fork = MappedLinkChannel.open(file)) {
+            fork.getOutputStream().write(new byte[]{1, 2});
+
+            // forked VM is gone without closing the link
+            host.shutdownInput();
+
+            InputStream is = host.getInputStream();
+            assertArrayEquals(new byte[]{1, 2}, readFully(is, 2));
+            assertEquals(-1, is.read());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testNotALinkFile() throws IOException {
+        File file = FileUtils.tempFile("link");
+        try {
+            FileUtils.writeLines(file, Arrays.asList("not a link"));
+            MappedLinkChannel.open(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -142,6 +142,30 @@ public class TestOptions {
         Assert.assertEquals(EMPTY_BUILDER.getResult(), EMPTY_CMDLINE.getResult());
     }
 
+    @Test
+    public void testJournal() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-journal", "sample.journal");
+        Options builder = new OptionsBuilder().journal("sample.journal").build();
+        Assert.assertEquals(builder.getJournal(), cmdLine.getJournal());
+    }
+
+    @Test
+    public void testJournal_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getJournal(), EMPTY_CMDLINE.getJournal());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-resume", "sample.journal");
+        Options builder = new OptionsBuilder().resume("sample.journal").build();
+        Assert.assertEquals(builder.getResumeJournal(), cmdLine.getResumeJournal());
+    }
+
+    @Test
+    public void testResume_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getResumeJournal(), EMPTY_CMDLINE.getResumeJournal());
+    }
+
     @Test
     public void testGC_True() throws Exception {
         CommandLineOptions cmdLine = new CommandLineOptions("-gc", "true");
@@ -465,6 +489,108 @@ public class TestOptions {
         Assert.assertEquals(EMPTY_BUILDER.getMeasurementTime(), EMPTY_CMDLINE.getMeasurementTime());
     }
 
+    @Test
+    public void testTargetError() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-te", "0.01");
+        Options builder = new OptionsBuilder().measurementTargetError(0.01).build();
+        Assert.assertEquals(builder.getMeasurementTargetError(), cmdLine.getMeasurementTargetError());
+    }
+
+    @Test
+    public void testTargetError_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getMeasurementTargetError(), EMPTY_CMDLINE.getMeasurementTargetError());
+    }
+
+    @Test
+    public void testTargetError_Zero() throws Exception {
+        try {
+            new OptionsBuilder().measurementTargetError(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testArrivalRate() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-rate", "2500");
+        Options builder = new OptionsBuilder().arrivalRate(2500).build();
+        Assert.assertEquals(builder.getArrivalRate(), cmdLine.getArrivalRate());
+    }
+
+    @Test
+    public void testArrivalRate_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getArrivalRate(), EMPTY_CMDLINE.getArrivalRate());
+    }
+
+    @Test
+    public void testArrivalRate_Zero() throws Exception {
+        try {
+            new OptionsBuilder().arrivalRate(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThreadScaling() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-tscale", "true");
+        Options builder = new OptionsBuilder().threadScaling(true).build();
+        Assert.assertEquals(builder.shouldScaleThreads(), cmdLine.shouldScaleThreads());
+    }
+
+    @Test
+    public void testThreadScaling_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.shouldScaleThreads(), EMPTY_CMDLINE.shouldScaleThreads());
+    }
+
+    @Test
+    public void testLatencyBound() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-lb", "5ms");
+        Options builder = new OptionsBuilder().latencyBound(TimeValue.milliseconds(5)).build();
+        Assert.assertEquals(builder.getLatencyBound(), cmdLine.getLatencyBound());
+    }
+
+    @Test
+    public void testLatencyBound_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getLatencyBound(), EMPTY_CMDLINE.getLatencyBound());
+    }
+
+    @Test
+    public void testLatencyPercentile() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-lp", "99.9");
+        Options builder = new OptionsBuilder().latencyPercentile(99.9).build();
+        Assert.assertEquals(builder.getLatencyPercentile(), cmdLine.getLatencyPercentile());
+    }
+
+    @Test
+    public void testLatencyPercentile_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.getLatencyPercentile(), EMPTY_CMDLINE.getLatencyPercentile());
+    }
+
+    @Test
+    public void testLatencyPercentile_Zero() throws Exception {
+        try {
+            new OptionsBuilder().latencyPercentile(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWarmupSteadyState() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-wss", "true");
+        Options builder = new OptionsBuilder().warmupUntilSteadyState(true).build();
+        Assert.assertEquals(builder.shouldWarmupUntilSteadyState(), cmdLine.shouldWarmupUntilSteadyState());
+    }
+
+    @Test
+    public void testWarmupSteadyState_Default() throws Exception {
+        Assert.assertEquals(EMPTY_BUILDER.shouldWarmupUntilSteadyState(), EMPTY_CMDLINE.shouldWarmupUntilSteadyState());
+    }
+
     @Test
     public void testWarmupMicros() throws Exception {
         CommandLineOptions cmdLine = new CommandLineOptions("-wmb", ".*", "-wmb", ".*test.*", "-wmb", "test");
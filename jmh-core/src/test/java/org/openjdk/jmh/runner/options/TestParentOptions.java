@@ -250,6 +250,48 @@ public class TestParentOptions {
         Assert.assertEquals(Arrays.asList("opt3", "opt4"), builder.getJvmArgsPrepend().get());
     }
 
+    @Test
+    public void testJournal_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getJournal().hasValue());
+    }
+
+    @Test
+    public void testJournal_Parent() throws Exception {
+        Options parent = new OptionsBuilder().journal("parent.journal").build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals("parent.journal", builder.getJournal().get());
+    }
+
+    @Test
+    public void testJournal_Merged() throws Exception {
+        Options parent = new OptionsBuilder().journal("parent.journal").build();
+        Options builder = new OptionsBuilder().parent(parent).journal("child.journal").build();
+        Assert.assertEquals("child.journal", builder.getJournal().get());
+    }
+
+    @Test
+    public void testResume_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getResumeJournal().hasValue());
+    }
+
+    @Test
+    public void testResume_Parent() throws Exception {
+        Options parent = new OptionsBuilder().resume("parent.journal").build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals("parent.journal", builder.getResumeJournal().get());
+    }
+
+    @Test
+    public void testResume_Merged() throws Exception {
+        Options parent = new OptionsBuilder().resume("parent.journal").build();
+        Options builder = new OptionsBuilder().parent(parent).resume("child.journal").build();
+        Assert.assertEquals("child.journal", builder.getResumeJournal().get());
+    }
+
     @Test
     public void testOutput_Empty() throws Exception {
         Options parent = new OptionsBuilder().build();
@@ -313,6 +355,111 @@ public class TestParentOptions {
         Assert.assertEquals(ResultFormatType.SCSV, builder.getResultFormat().get());
     }
 
+    @Test
+    public void testTargetError_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getMeasurementTargetError().hasValue());
+    }
+
+    @Test
+    public void testTargetError_Parent() throws Exception {
+        Options parent = new OptionsBuilder().measurementTargetError(0.05).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(0.05, builder.getMeasurementTargetError().get(), 0);
+    }
+
+    @Test
+    public void testTargetError_Merged() throws Exception {
+        Options parent = new OptionsBuilder().measurementTargetError(0.05).build();
+        Options builder = new OptionsBuilder().parent(parent).measurementTargetError(0.01).build();
+        Assert.assertEquals(0.01, builder.getMeasurementTargetError().get(), 0);
+    }
+
+    @Test
+    public void testArrivalRate_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getArrivalRate().hasValue());
+    }
+
+    @Test
+    public void testArrivalRate_Parent() throws Exception {
+        Options parent = new OptionsBuilder().arrivalRate(500).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(500, builder.getArrivalRate().get(), 0);
+    }
+
+    @Test
+    public void testArrivalRate_Merged() throws Exception {
+        Options parent = new OptionsBuilder().arrivalRate(500).build();
+        Options builder = new OptionsBuilder().parent(parent).arrivalRate(2000).build();
+        Assert.assertEquals(2000, builder.getArrivalRate().get(), 0);
+    }
+
+    @Test
+    public void testThreadScaling_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldScaleThreads().hasValue());
+    }
+
+    @Test
+    public void testThreadScaling_Parent() throws Exception {
+        Options parent = new OptionsBuilder().threadScaling(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertTrue(builder.shouldScaleThreads().get());
+    }
+
+    @Test
+    public void testThreadScaling_Merged() throws Exception {
+        Options parent = new OptionsBuilder().threadScaling(true).build();
+        Options builder = new OptionsBuilder().parent(parent).threadScaling(false).build();
+        Assert.assertFalse(builder.shouldScaleThreads().get());
+    }
+
+    @Test
+    public void testLatencyBound_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getLatencyBound().hasValue());
+    }
+
+    @Test
+    public void testLatencyBound_Parent() throws Exception {
+        Options parent = new OptionsBuilder().latencyBound(TimeValue.milliseconds(5)).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(TimeValue.milliseconds(5), builder.getLatencyBound().get());
+    }
+
+    @Test
+    public void testLatencyBound_Merged() throws Exception {
+        Options parent = new OptionsBuilder().latencyBound(TimeValue.milliseconds(5)).build();
+        Options builder = new OptionsBuilder().parent(parent).latencyBound(TimeValue.microseconds(100)).build();
+        Assert.assertEquals(TimeValue.microseconds(100), builder.getLatencyBound().get());
+    }
+
+    @Test
+    public void testWarmupSteadyState_Empty() throws Exception {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldWarmupUntilSteadyState().hasValue());
+    }
+
+    @Test
+    public void testWarmupSteadyState_Parent() throws Exception {
+        Options parent = new OptionsBuilder().warmupUntilSteadyState(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(true, builder.shouldWarmupUntilSteadyState().get());
+    }
+
+    @Test
+    public void testWarmupSteadyState_Merged() throws Exception {
+        Options parent = new OptionsBuilder().warmupUntilSteadyState(true).build();
+        Options builder = new OptionsBuilder().parent(parent).warmupUntilSteadyState(false).build();
+        Assert.assertEquals(false, builder.shouldWarmupUntilSteadyState().get());
+    }
+
     @Test
     public void testRuntime_Empty() throws Exception {
         Options parent = new OptionsBuilder().build();
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+public class TestSampleHistogram {
+
+    @Test
+    public void testExactSmallValues() {
+        SampleHistogram h = new SampleHistogram(3);
+        MultisetStatistics ms = new MultisetStatistics();
+        Random r = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long v = r.nextInt(2000);
+            h.add(v);
+            ms.addValue(v, 1);
+        }
+
+        Statistics hs = h.getStatistics(1);
+        Assert.assertEquals(ms.getN(), hs.getN());
+        Assert.assertEquals(ms.getMin(), hs.getMin(), 0);
+        Assert.assertEquals(ms.getMax(), hs.getMax(), 0);
+        Assert.assertEquals(ms.getMean(), hs.getMean(), 1e-9);
+        Assert.assertEquals(ms.getVariance(), hs.getVariance(), 1e-6);
+        for (double p : new double[]{0, 10, 50, 90, 99, 99.9, 99.99, 100}) {
+            Assert.assertEquals("Percentile " + p, ms.getPercentile(p), hs.getPercentile(p), 0);
+        }
+        double[] levels = {0, 100, 500, 1000, 2000};
+        Assert.assertArrayEquals(ms.getHistogram(levels), hs.getHistogram(levels));
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (int digits = 1; digits <= 4; digits++) {
+            SampleHistogram h = new SampleHistogram(digits);
+            double bound = Math.pow(10, -digits);
+            for (long v = 1; v > 0 && v < Long.MAX_VALUE / 3; v = v * 3 + 1) {
+                SampleHistogram single = new SampleHistogram(digits);
+                single.add(v);
+                double recorded = single.getStatistics(1).getMax();
+                Assert.assertTrue("Recorded value should not exceed the sample", recorded <= v);
+                Assert.assertTrue("Digits: " + digits + ", value: " + v + ", recorded: " + recorded,
+                        (v - recorded) / v <= bound);
+                h.add(v);
+            }
+            Assert.assertTrue(h.count() > 0);
+        }
+    }
+
+    @Test
+    public void testLongCounts() {
+        SampleHistogram h = new SampleHistogram();
+        h.add(100, 3L * Integer.MAX_VALUE);
+        h.add(200, 3L * Integer.MAX_VALUE);
+        Assert.assertEquals(6L * Integer.MAX_VALUE, h.count());
+
+        Statistics s = h.getStatistics(1);
+        Assert.assertEquals(6L * Integer.MAX_VALUE, s.getN());
+        Assert.assertEquals(150, s.getMean(), 1e-6);
+        Assert.assertEquals(100, s.getPercentile(40), 0);
+        Assert.assertEquals(200, s.getPercentile(60), 0);
+    }
+
+    @Test
+    public void testNegativeAndEmpty() {
+        SampleHistogram h = new SampleHistogram();
+        Statistics empty = h.getStatistics(1);
+        Assert.assertEquals(0, empty.getN());
+        Assert.assertTrue(Double.isNaN(empty.getMax()));
+
+        h.add(-5);
+        Assert.assertEquals(0, h.getStatistics(1).getMax(), 0);
+    }
+
+    @Test
+    public void testHalf() {
+        SampleHistogram h = new SampleHistogram();
+        h.add(10, 8);
+        h.add(20, 1);
+        h.half();
+        Assert.assertEquals(5, h.count());
+        Assert.assertEquals(4, h.getStatistics(1).getHistogram(new double[]{0, 15, 30})[0]);
+        Assert.assertEquals(1, h.getStatistics(1).getHistogram(new double[]{0, 15, 30})[1]);
+    }
+
+    @Test
+    public void testAddAll() {
+        SampleHistogram h1 = new SampleHistogram(3);
+        SampleHistogram h2 = new SampleHistogram(3);
+        SampleHistogram h3 = new SampleHistogram(2);
+        h1.add(1000);
+        h2.add(1_000_000);
+        h3.add(50);
+
+        SampleHistogram all = new SampleHistogram(3);
+        all.addAll(h1);
+        all.addAll(h2);
+        all.addAll(h3);
+        Statistics s = all.getStatistics(1);
+        Assert.assertEquals(3, s.getN());
+        Assert.assertEquals(50, s.getMin(), 0);
+        Assert.assertEquals(1000, s.getPercentile(50), 0);
+        Assert.assertEquals(1_000_000, s.getMax(), 1_000_000 * 1e-3);
+    }
+
+    @Test
+    public void testCompactForm() throws IOException {
+        SampleHistogram h = new SampleHistogram();
+        Random r = new Random(1);
+        for (int i = 0; i < 1_000_000; i++) {
+            h.add((long) (1000 * Math.exp(r.nextGaussian())));
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        h.writeTo(new DataOutputStream(bos));
+        Assert.assertTrue("Compact form is too large: " + bos.size(), bos.size() < 16 * 1024);
+
+        SampleHistogram copy = SampleHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+        assertSame(h, copy);
+    }
+
+    @Test
+    public void testSerializable() throws Exception {
+        SampleHistogram h = new SampleHistogram(2);
+        for (long v = 1; v < 1_000_000_000L; v *= 7) {
+            h.add(v, v % 13 + 1);
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(h);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            SampleHistogram copy = (SampleHistogram) ois.readObject();
+            Assert.assertEquals(2, copy.getDigits());
+            assertSame(h, copy);
+        }
+    }
+
+    private static void assertSame(SampleHistogram expected, SampleHistogram actual) {
+        Assert.assertEquals(expected.count(), actual.count());
+        Statistics es = expected.getStatistics(1);
+        Statistics as = actual.getStatistics(1);
+        Assert.assertEquals(es.getN(), as.getN());
+        Assert.assertEquals(es.getMean(), as.getMean(), 0);
+        for (double p : new double[]{0, 50, 90, 99, 99.9, 100}) {
+            Assert.assertEquals(es.getPercentile(p), as.getPercentile(p), 0);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestScalabilityModel {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private static double[] generate(ScalabilityModel model) {
+        double[] xs = new double[THREADS.length];
+        for (int i = 0; i < THREADS.length; i++) {
+            xs[i] = model.predict(THREADS[i]);
+        }
+        return xs;
+    }
+
+    @Test
+    public void testExactFit() {
+        ScalabilityModel fit = ScalabilityModel.fit(THREADS, generate(new ScalabilityModel(1000, 0.05, 0.0002)));
+        Assert.assertEquals(1000, fit.getLambda(), 1e-6);
+        Assert.assertEquals(0.05, fit.getContention(), 1e-9);
+        Assert.assertEquals(0.0002, fit.getCoherency(), 1e-9);
+        Assert.assertEquals(Math.sqrt(0.95 / 0.0002), fit.getPeakThreads(), 1e-6);
+    }
+
+    @Test
+    public void testAmdahl() {
+        ScalabilityModel fit = ScalabilityModel.fit(THREADS, generate(new ScalabilityModel(50, 0.1, 0)));
+        Assert.assertEquals(0.1, fit.getContention(), 1e-9);
+        Assert.assertEquals(0, fit.getCoherency(), 1e-9);
+        Assert.assertTrue(Double.isInfinite(fit.getPeakThreads()));
+    }
+
+    @Test
+    public void testLinear() {
+        double[] xs = new double[THREADS.length];
+        for (int i = 0; i < THREADS.length; i++) {
+            xs[i] = 100 * THREADS[i];
+        }
+        ScalabilityModel fit = ScalabilityModel.fit(THREADS, xs);
+        Assert.assertEquals(100, fit.getLambda(), 1e-9);
+        Assert.assertEquals(0, fit.getContention(), 1e-9);
+        Assert.assertEquals(0, fit.getCoherency(), 1e-9);
+    }
+
+    @Test
+    public void testSuperlinearIsClamped() {
+        double[] xs = new double[THREADS.length];
+        for (int i = 0; i < THREADS.length; i++) {
+            xs[i] = 100 * THREADS[i] * (1 + 0.01 * THREADS[i]);
+        }
+        ScalabilityModel fit = ScalabilityModel.fit(THREADS, xs);
+        Assert.assertEquals(0, fit.getContention(), 0);
+        Assert.assertEquals(0, fit.getCoherency(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSingleThread() {
+        ScalabilityModel.fit(new int[]{2, 4, 8}, new double[]{1, 2, 3});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotEnoughPoints() {
+        ScalabilityModel.fit(new int[]{1, 2}, new double[]{1, 2});
+    }
+
+}
@@ -46,4 +46,10 @@ public class TestUtil {
         Assert.assertEquals(Arrays.asList("moo", "-Dopt=bar baz"), Utils.splitQuotedEscape("moo  -Dopt=\"bar baz\""));
     }
 
+    @Test
+    public void testShortHash() {
+        // SHA-1("abc") = a9993e364706816aba3e25717850c26c9cd0d89d
+        Assert.assertEquals("a9993e364706816aba3e", Utils.shortHash("abc"));
+    }
+
 }
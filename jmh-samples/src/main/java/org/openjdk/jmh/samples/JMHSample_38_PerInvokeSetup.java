@@ -133,6 +133,32 @@ public class JMHSample_38_PerInvokeSetup {
         return c;
     }
 
+    /*
+     * When the setup costs are comparable with the payload costs, and we want to exclude
+     * them from the measurement, Level.BatchedInvocation is the alternative to Level.Invocation.
+     * JMH keeps a batch of DataBatch copies for each thread, runs the setup for the whole
+     * batch outside of the timed region, and then times all the invocations over the batch
+     * with a single pair of timestamps. Every invocation still gets the fresh copy, but
+     * the timing overheads are amortized over the batch. See Level.BatchedInvocation
+     * Javadocs for the restrictions.
+     */
+
+    @State(Scope.Thread)
+    public static class DataBatch {
+        byte[] copy;
+
+        @Setup(Level.BatchedInvocation)
+        public void setup3(Data d) {
+            copy = Arrays.copyOf(d.arr, d.arr.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] measureBatched(DataBatch d) {
+        bubbleSort(d.copy);
+        return d.copy;
+    }
+
     /*
         Benchmark                                   (count)  Mode  Cnt      Score     Error  Units
 